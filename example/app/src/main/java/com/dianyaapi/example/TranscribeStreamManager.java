@@ -11,8 +11,10 @@ import androidx.annotation.Nullable;
 
 import com.dianya.api.DianyaRuntime;
 import com.dianya.api.ModelType;
+import com.dianya.api.StreamEvent;
 import com.dianya.api.TranscribeStream;
 import com.dianya.api.TranscribeStream.SessionCreateResponse;
+import com.dianya.api.TranscriptAccumulator;
 
 import java.util.Arrays;
 import java.util.concurrent.CancellationException;
@@ -57,6 +59,9 @@ public final class TranscribeStreamManager {
 
         void onTranscript(@NonNull String transcript);
 
+        /** 当前未定稿的尾部文本，为空表示已全部定稿。 */
+        void onPartial(@NonNull String partial);
+
         void onError(@NonNull ErrorType type, @Nullable String detail);
     }
 
@@ -318,11 +323,27 @@ public final class TranscribeStreamManager {
     }
 
     private void readStreamLoop(@NonNull TranscribeStream stream) {
+        TranscriptAccumulator transcript = new TranscriptAccumulator();
         while (!stopRequested.get() && !Thread.currentThread().isInterrupted()) {
             try {
-                String message = stream.readNext(500);
-                if (message != null && !message.isEmpty()) {
-                    postTranscript(message);
+                for (StreamEvent event : stream.readAvailableEvents(32, 500)) {
+                    if (event.type == StreamEvent.Type.ERROR) {
+                        postError(ErrorType.READ, event.message != null ? event.message : event.raw);
+                        continue;
+                    }
+                    if (event.type == StreamEvent.Type.UNKNOWN) {
+                        // 无法识别的消息按原文展示，服务端格式变化时仍能看到内容
+                        postTranscript(event.raw);
+                        continue;
+                    }
+                    // 新定稿的分段交给界面追加，未定稿部分整体替换
+                    TranscriptAccumulator.Update update = transcript.apply(event);
+                    if (update != null) {
+                        if (!update.committed.isEmpty()) {
+                            postTranscript(update.committed);
+                        }
+                        postPartial(update.partial);
+                    }
                 }
             } catch (IllegalStateException stateException) {
                 if (!stopRequested.get()) {
@@ -351,6 +372,10 @@ public final class TranscribeStreamManager {
         mainHandler.post(() -> listener.onTranscript(transcript));
     }
 
+    private void postPartial(@NonNull String partial) {
+        mainHandler.post(() -> listener.onPartial(partial));
+    }
+
     private void postError(@NonNull ErrorType type, @Nullable String detail) {
         mainHandler.post(() -> listener.onError(type, detail));
     }
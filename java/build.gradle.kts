@@ -18,6 +18,7 @@ repositories {
 dependencies {
     implementation("com.google.code.gson", "gson", "2.11.0")
     compileOnly("org.jetbrains", "annotations", "24.1.0")
+    testImplementation("junit", "junit", "4.13.2")
 }
 
 private val jarNativeDirProvider = providers.gradleProperty("jarNativeDir")
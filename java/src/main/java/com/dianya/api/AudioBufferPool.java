@@ -0,0 +1,66 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定帧大小的 direct {@link ByteBuffer} 池，配合 {@link TranscribeStream#sendBinary(ByteBuffer)}
+ * 使用时采集线程不再为每帧创建 Java 对象；native 层把数据拷贝一次到按块复用的发送缓冲。
+ *
+ * <pre>{@code
+ * AudioBufferPool pool = new AudioBufferPool(3200, 8);   // 100ms 16kHz s16 mono
+ * ByteBuffer frame = pool.acquire();
+ * int read = audioRecord.read(frame, frame.capacity());
+ * frame.limit(read);
+ * stream.sendBinary(frame);
+ * pool.release(frame);
+ * }</pre>
+ */
+public final class AudioBufferPool {
+    private final int frameBytes;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * @param frameBytes 每个缓冲的容量
+     * @param maxPooled  池中最多保留的空闲缓冲数
+     */
+    public AudioBufferPool(int frameBytes, int maxPooled) {
+        if (frameBytes <= 0 || maxPooled <= 0) {
+            throw new IllegalArgumentException("frameBytes and maxPooled must be positive.");
+        }
+        this.frameBytes = frameBytes;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /** 取出一个已清空的缓冲，池为空时新分配。 */
+    public @NotNull ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(frameBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /** 归还缓冲，池已满或容量不匹配时直接丢弃。 */
+    public void release(@NotNull ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == frameBytes) {
+            free.offer(buffer);
+        }
+    }
+
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    /** 累计新分配的缓冲数，稳定运行后不应继续增长。 */
+    public long getAllocatedCount() {
+        return allocated.get();
+    }
+}
@@ -0,0 +1,306 @@
+package com.dianya.api;
+
+import com.google.gson.annotations.SerializedName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * native 音频预处理管线：把任意采样率、声道数和采样格式的 PCM 转换为服务端要求的 16 kHz 单声道 s16le，
+ * 并按固定时长切帧。
+ *
+ * <p>解码、混音、重采样和切帧都在一次 JNI 调用内完成，调用方可以直接把声卡或解码器输出的原始数据
+ * 交给 {@link #write(TranscribeStream, byte[], int, int)}，不需要在 Java 中逐样本转换。
+ * 输入已经是 16 kHz 单声道 s16le 时跳过转换，只做切帧。</p>
+ *
+ * <pre>{@code
+ * try (AudioPipeline pipeline = new AudioPipeline(48_000, 2, AudioPipeline.Encoding.F32LE)) {
+ *     while ((read = source.read(buffer)) > 0) {
+ *         pipeline.write(stream, buffer, 0, read);
+ *     }
+ *     pipeline.flush(stream);
+ * }
+ * }</pre>
+ *
+ * <p>通过 {@link #setVad(VadOptions)} 可开启语音检测，只发送语音及其前后缓冲帧，静音帧丢弃或压缩，
+ * 发送与采集的比例见 {@link Stats#getSentRatio()}。此时结果时间以发送的音频为准，需要对应到输入音频时用
+ * {@link #toSourceSeconds(double)} 换算。</p>
+ *
+ * <p>实例方法线程安全，但同一管线只应服务一路音频。</p>
+ */
+public final class AudioPipeline implements AutoCloseable {
+
+    /** 服务端要求的采样率。 */
+    public static final int TARGET_SAMPLE_RATE = 16_000;
+    /** 默认帧长（毫秒）。 */
+    public static final int DEFAULT_FRAME_MILLIS = 40;
+
+    static {
+        System.loadLibrary("dianyaapi_jni");
+    }
+
+    private final int frameMillis;
+    private long nativeHandle;
+
+    /**
+     * 使用 {@link Quality#BALANCED} 和 {@link #DEFAULT_FRAME_MILLIS}。
+     */
+    public AudioPipeline(int sampleRate, int channels, @NotNull Encoding encoding) {
+        this(sampleRate, channels, encoding, Quality.BALANCED, DEFAULT_FRAME_MILLIS);
+    }
+
+    /**
+     * @param sampleRate  输入采样率
+     * @param channels    输入声道数，多声道取平均混为单声道
+     * @param encoding    输入采样格式，多声道数据按样本交错排列
+     * @param quality     重采样质量，输入为 16 kHz 时不生效
+     * @param frameMillis 输出帧长（毫秒），每帧 {@code 16 * frameMillis} 个样本
+     */
+    public AudioPipeline(
+            int sampleRate,
+            int channels,
+            @NotNull Encoding encoding,
+            @NotNull Quality quality,
+            int frameMillis
+    ) {
+        if (sampleRate <= 0 || channels <= 0 || frameMillis <= 0) {
+            throw new IllegalArgumentException("sampleRate, channels and frameMillis must be positive.");
+        }
+        this.frameMillis = frameMillis;
+        this.nativeHandle = nativeCreate(sampleRate, channels, encoding.alias, quality.alias, frameMillis);
+    }
+
+    /**
+     * 转换一段输入，把凑满的整帧发送到 {@code stream}，不足一帧的部分留到下一次调用。
+     * 输入末尾不完整的采样（如奇数字节的 s16）同样会保留并与下一段拼接。
+     */
+    public synchronized void write(@NotNull TranscribeStream stream, @NotNull byte[] data, int offset, int length) {
+        checkRange(data, offset, length);
+        ensureHandle();
+        long streamHandle = stream.acquireHandle();
+        try {
+            nativeProcess(nativeHandle, streamHandle, data, offset, length);
+        } finally {
+            stream.releaseHandle();
+        }
+    }
+
+    /**
+     * 转换 {@code buffer} 中 position 到 limit 之间的数据并发送整帧，完成后 position 移动到 limit。
+     * direct buffer 通过内存地址直接读取。
+     */
+    public synchronized void write(@NotNull TranscribeStream stream, @NotNull ByteBuffer buffer) {
+        ensureHandle();
+        long streamHandle = stream.acquireHandle();
+        try {
+            process(streamHandle, buffer);
+        } finally {
+            stream.releaseHandle();
+        }
+    }
+
+    /**
+     * 冲刷重采样器中剩余的样本并把最后不足一帧的数据一并发送，建议在 {@link TranscribeStream#stop()} 前调用。
+     * 之后可以继续写入新的音频。
+     */
+    public synchronized void flush(@NotNull TranscribeStream stream) {
+        ensureHandle();
+        long streamHandle = stream.acquireHandle();
+        try {
+            nativeFlush(nativeHandle, streamHandle);
+        } finally {
+            stream.releaseHandle();
+        }
+    }
+
+    /**
+     * 转换一段输入，返回本次凑满的整帧（16 kHz 单声道 s16le，长度为帧大小的整数倍，可能为空），
+     * 供需要自行处理输出的场景使用。
+     */
+    public synchronized @NotNull byte[] process(@NotNull byte[] data, int offset, int length) {
+        checkRange(data, offset, length);
+        ensureHandle();
+        return nativeProcess(nativeHandle, 0L, data, offset, length);
+    }
+
+    /**
+     * 同 {@link #process(byte[], int, int)}，读取 {@code buffer} 中 position 到 limit 之间的数据。
+     */
+    public synchronized @NotNull byte[] process(@NotNull ByteBuffer buffer) {
+        ensureHandle();
+        return process(0L, buffer);
+    }
+
+    /**
+     * 冲刷剩余样本，返回最后的输出（可能不足一帧）。
+     */
+    public synchronized @NotNull byte[] flush() {
+        ensureHandle();
+        return nativeFlush(nativeHandle, 0L);
+    }
+
+    /**
+     * 开启语音检测，传入 {@code null} 关闭。开启后 {@link #write} 只发送判定为语音的帧，
+     * {@link #process} 也只返回这些帧。每次调用都会重新开始统计噪声底。
+     */
+    public synchronized void setVad(@Nullable VadOptions options) {
+        ensureHandle();
+        nativeSetVad(nativeHandle, options == null ? null : options.toJson());
+    }
+
+    /**
+     * 把转写结果中的时间（秒）换算为输入音频中的时间。
+     *
+     * <p>语音检测丢弃或压缩的静音不会发给服务端，服务端的时间轴只包含实际发送的音频，
+     * 结果中的 {@code start_time}/{@code end_time} 会早于它在输入音频中的位置。管线按帧记录发送与采集的对应关系，
+     * 本方法据此换算；没有丢弃过音频时原样返回。记录从管线创建起累计，切换 {@link #setVad} 不会清空，
+     * 每段静音约占 16 字节。</p>
+     */
+    public synchronized double toSourceSeconds(double streamSeconds) {
+        ensureHandle();
+        return nativeSourceMillis(nativeHandle, streamSeconds * 1000.0) / 1000.0;
+    }
+
+    /** 每个输出帧的字节数。 */
+    public int getFrameBytes() {
+        return TARGET_SAMPLE_RATE / 1000 * frameMillis * 2;
+    }
+
+    public synchronized @NotNull Stats getStats() {
+        ensureHandle();
+        return Utils.fromJson(nativeStats(nativeHandle), Stats.class);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (nativeHandle != 0L) {
+            nativeDestroy(nativeHandle);
+            nativeHandle = 0L;
+        }
+    }
+
+    private byte[] process(long streamHandle, ByteBuffer buffer) {
+        int length = buffer.remaining();
+        byte[] output;
+        if (buffer.isDirect()) {
+            output = nativeProcessDirect(nativeHandle, streamHandle, buffer, buffer.position(), length);
+        } else if (buffer.hasArray()) {
+            output = nativeProcess(nativeHandle, streamHandle, buffer.array(),
+                    buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            byte[] copy = new byte[length];
+            buffer.duplicate().get(copy);
+            output = nativeProcess(nativeHandle, streamHandle, copy, 0, length);
+        }
+        buffer.position(buffer.limit());
+        return output;
+    }
+
+    private void ensureHandle() {
+        if (nativeHandle == 0L) {
+            throw new IllegalStateException("AudioPipeline has been closed.");
+        }
+    }
+
+    private static void checkRange(byte[] data, int offset, int length) {
+        if (data == null) {
+            throw new IllegalArgumentException("data must not be null.");
+        }
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("offset/length out of range.");
+        }
+    }
+
+    /** 输入采样格式，均为小端。 */
+    public enum Encoding {
+        /** 无符号 8 bit。 */
+        U8("u8"),
+        /** 有符号 16 bit。 */
+        S16LE("s16le"),
+        /** 有符号 32 bit。 */
+        S32LE("s32le"),
+        /** 32 bit 浮点，范围 [-1, 1]。 */
+        F32LE("f32le");
+
+        final String alias;
+
+        Encoding(String alias) {
+            this.alias = alias;
+        }
+    }
+
+    /** 重采样质量。 */
+    public enum Quality {
+        /** 线性插值，开销最低。 */
+        FAST("fast"),
+        /** 16 阶 Blackman 加窗 sinc，语音识别场景推荐。 */
+        BALANCED("balanced"),
+        /** 64 阶 Blackman 加窗 sinc，过渡带最窄。 */
+        BEST("best");
+
+        final String alias;
+
+        Quality(String alias) {
+            this.alias = alias;
+        }
+    }
+
+    public static final class Stats {
+        @SerializedName("input_rate")
+        public int inputRate;
+        @SerializedName("input_channels")
+        public int inputChannels;
+        /** 累计输入的采样帧数（每声道一个样本为一帧）。 */
+        @SerializedName("input_frames")
+        public long inputFrames;
+        /** 累计输出的 16 kHz 样本数。 */
+        @SerializedName("output_samples")
+        public long outputSamples;
+        /** 累计切出的帧数，即采集到的音频量。 */
+        public long frames;
+        /** 累计发送（或由 {@link #process} 返回）的帧数，含补发的前置帧和静音保活帧。 */
+        @SerializedName("sent_frames")
+        public long sentFrames;
+        /** 语音检测丢弃的静音帧数。 */
+        @SerializedName("dropped_frames")
+        public long droppedFrames;
+        /** {@link VadOptions.SilenceAction#COMPRESS} 发送的保活帧数。 */
+        @SerializedName("keepalive_frames")
+        public long keepaliveFrames;
+
+        /** 发送帧数与采集帧数之比，未采集时返回 1。 */
+        public double getSentRatio() {
+            return frames == 0 ? 1.0 : (double) sentFrames / frames;
+        }
+    }
+
+    private static native long nativeCreate(
+            int sampleRate,
+            int channels,
+            String encoding,
+            String quality,
+            int frameMillis
+    );
+
+    private static native void nativeDestroy(long handle);
+
+    private static native byte[] nativeProcess(long handle, long streamHandle, byte[] data, int offset, int length);
+
+    private static native byte[] nativeProcessDirect(
+            long handle,
+            long streamHandle,
+            ByteBuffer buffer,
+            int position,
+            int length
+    );
+
+    private static native byte[] nativeFlush(long handle, long streamHandle);
+
+    private static native void nativeSetVad(long handle, @Nullable String optionsJson);
+
+    private static native double nativeSourceMillis(long handle, double sentMillis);
+
+    private static native String nativeStats(long handle);
+}
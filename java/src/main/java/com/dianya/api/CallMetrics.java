@@ -0,0 +1,125 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * 一次 SDK 调用的分阶段耗时与负载大小，由 {@link MetricsListener} 接收。
+ *
+ * <p>未经过的阶段耗时为 -1（例如 {@code status} 没有请求体，{@link Phase#ENCODE} 为 -1）。
+ * 发生重试或对冲时，native 阶段取自成功的那次尝试。</p>
+ */
+public final class CallMetrics {
+
+    /** 调用阶段。 */
+    public enum Phase {
+        /** Java 侧请求体编码（Gson 序列化）。 */
+        ENCODE,
+        /** JNI 参数转换，从进入 native 到开始执行请求。 */
+        MARSHAL,
+        /** Tokio runtime 中执行网络请求。 */
+        NETWORK,
+        /** Rust 侧响应序列化（serde_json）。 */
+        SERIALIZE,
+        /** 复制结果到 Java 字符串/字节数组。 */
+        JNI_COPY,
+        /** Java 侧响应解析（Gson）。 */
+        PARSE
+    }
+
+    static final int NATIVE_SLOTS = 6;
+
+    private final Operation operation;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long totalNanos;
+    private long requestBytes = -1;
+    private long responseBytes = -1;
+    private int attempts;
+    private @Nullable DianyaException.Code errorCode;
+    private boolean nativeRecorded;
+
+    CallMetrics(@NotNull Operation operation) {
+        this.operation = operation;
+        Arrays.fill(phaseNanos, -1L);
+    }
+
+    public @NotNull Operation getOperation() {
+        return operation;
+    }
+
+    /** 阶段耗时（纳秒），未经过该阶段时返回 -1。 */
+    public long getPhaseNanos(@NotNull Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /** 整个调用的耗时（纳秒），包含限流排队、重试与退避。 */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /** 请求体字节数，未知时返回 -1。 */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /** 响应字节数（JSON 或导出文件），未知时返回 -1。 */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /** 实际发出的 native 调用次数（含重试与对冲）。 */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public boolean isSuccess() {
+        return errorCode == null;
+    }
+
+    /** 失败时的错误码，成功时为 {@code null}。 */
+    public @Nullable DianyaException.Code getErrorCode() {
+        return errorCode;
+    }
+
+    void setPhaseNanos(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] = nanos;
+    }
+
+    synchronized void attemptStarted() {
+        attempts++;
+    }
+
+    /**
+     * 记录 native 层回传的数据，顺序为：
+     * MARSHAL、NETWORK、SERIALIZE、JNI_COPY 耗时，请求字节数，响应字节数；-1 表示未记录。
+     */
+    synchronized void recordNative(long[] values) {
+        if (nativeRecorded) {
+            return;
+        }
+        nativeRecorded = true;
+        phaseNanos[Phase.MARSHAL.ordinal()] = values[0];
+        phaseNanos[Phase.NETWORK.ordinal()] = values[1];
+        phaseNanos[Phase.SERIALIZE.ordinal()] = values[2];
+        phaseNanos[Phase.JNI_COPY.ordinal()] = values[3];
+        if (values[4] >= 0) {
+            requestBytes = values[4];
+        }
+        responseBytes = values[5];
+    }
+
+    void setRequestBytes(long bytes) {
+        this.requestBytes = bytes;
+    }
+
+    void finish(long totalNanos, @Nullable Throwable error) {
+        this.totalNanos = totalNanos;
+        if (error instanceof DianyaException) {
+            errorCode = ((DianyaException) error).getCode();
+        } else if (error != null) {
+            errorCode = DianyaException.Code.UNEXPECTED_ERROR;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 幂等操作（{@link Operation#isIdempotent()}）的调用策略：对冲请求 + 带预算的重试。
+ *
+ * <ul>
+ *     <li>对冲：请求耗时超过该操作最近耗时的 {@link #hedgePercentile(double)} 分位后，在后台线程再发送一个相同请求，
+ *     取先成功的结果；首次请求始终在调用线程执行，两者都失败时抛出首次请求的异常；</li>
+ *     <li>重试：遇到可重试的 {@link DianyaException.Code}（默认 {@code HTTP_ERROR}、{@code WS_ERROR}）时，
+ *     按指数退避加随机抖动重试；</li>
+ *     <li>对冲与重试共同消耗一个全局预算，预算耗尽时直接返回原始结果/异常，避免故障期间放大流量。</li>
+ * </ul>
+ *
+ * <p>默认不启用，配置完成后通过 {@link DianyaRuntime#setCallPolicy(CallPolicy)} 安装，安装后不要再修改配置。
+ * 非幂等操作不受影响。</p>
+ */
+public final class CallPolicy {
+    private static final int WINDOW_SIZE = 256;
+    private static final int MIN_SAMPLES_FOR_HEDGE = 20;
+
+    private boolean hedgeEnabled = true;
+    private double hedgePercentile = 0.95;
+    private long minHedgeDelayMillis = 20;
+    private int maxAttempts = 3;
+    private long baseBackoffMillis = 100;
+    private long maxBackoffMillis = 2_000;
+    private double retryBudgetRatio = 0.1;
+    private double minRetriesPerSecond = 5;
+    private final Set<DianyaException.Code> retryableCodes =
+            EnumSet.of(DianyaException.Code.HTTP_ERROR, DianyaException.Code.WS_ERROR);
+
+    private final Map<Operation, LatencyWindow> latencies = new EnumMap<>(Operation.class);
+    private volatile RetryBudget budget;
+
+    public CallPolicy() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyWindow(WINDOW_SIZE));
+        }
+    }
+
+    /** 是否启用对冲请求，默认启用。 */
+    public @NotNull CallPolicy hedgeEnabled(boolean enabled) {
+        this.hedgeEnabled = enabled;
+        return this;
+    }
+
+    /** 触发对冲的耗时分位，取值 (0, 1)，默认 0.95。 */
+    public @NotNull CallPolicy hedgePercentile(double percentile) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 1).");
+        }
+        this.hedgePercentile = percentile;
+        return this;
+    }
+
+    /** 对冲延迟下限（毫秒），避免在耗时极短时频繁对冲，默认 20。 */
+    public @NotNull CallPolicy minHedgeDelayMillis(long millis) {
+        this.minHedgeDelayMillis = Math.max(0, millis);
+        return this;
+    }
+
+    /** 最大尝试次数（含首次），默认 3；传 1 表示不重试。 */
+    public @NotNull CallPolicy maxAttempts(int attempts) {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("attempts must be >= 1.");
+        }
+        this.maxAttempts = attempts;
+        return this;
+    }
+
+    /** 退避基准与上限（毫秒），实际等待为 {@code [0, min(max, base * 2^n)]} 内的随机值。 */
+    public @NotNull CallPolicy backoffMillis(long base, long max) {
+        if (base <= 0 || max < base) {
+            throw new IllegalArgumentException("backoff must satisfy 0 < base <= max.");
+        }
+        this.baseBackoffMillis = base;
+        this.maxBackoffMillis = max;
+        return this;
+    }
+
+    /**
+     * 全局重试预算。
+     *
+     * @param ratio        每个请求存入的额度，如 0.1 表示重试量最多约为请求量的 10%
+     * @param minPerSecond 每秒补充的最低额度
+     */
+    public @NotNull CallPolicy retryBudget(double ratio, double minPerSecond) {
+        if (ratio < 0 || minPerSecond < 0) {
+            throw new IllegalArgumentException("retry budget must not be negative.");
+        }
+        this.retryBudgetRatio = ratio;
+        this.minRetriesPerSecond = minPerSecond;
+        this.budget = null;
+        return this;
+    }
+
+    /** 替换可重试的错误码集合。 */
+    public @NotNull CallPolicy retryOn(@NotNull Set<DianyaException.Code> codes) {
+        retryableCodes.clear();
+        retryableCodes.addAll(codes);
+        return this;
+    }
+
+    /** 当前可用的重试/对冲额度。 */
+    public double getAvailableRetries() {
+        return budget().available();
+    }
+
+    <T> T execute(@NotNull Operation operation, @NotNull NativeCall.Attempt<T> call) {
+        RetryBudget budget = budget();
+        budget.recordRequest();
+        int attempt = 1;
+        while (true) {
+            try {
+                return hedged(operation, call, budget);
+            } catch (DianyaException e) {
+                if (!retryableCodes.contains(e.getCode()) || attempt >= maxAttempts || !budget.tryWithdraw()) {
+                    throw e;
+                }
+                if (!sleepBackoff(attempt)) {
+                    throw e;
+                }
+                attempt++;
+            }
+        }
+    }
+
+    private <T> T hedged(Operation operation, NativeCall.Attempt<T> call, RetryBudget budget) {
+        LatencyWindow window = latencies.get(operation);
+        if (!hedgeEnabled || window.size() < MIN_SAMPLES_FOR_HEDGE) {
+            return timed(window, call);
+        }
+
+        long delayNanos = Math.max(
+                TimeUnit.MILLISECONDS.toNanos(minHedgeDelayMillis),
+                window.percentile(hedgePercentile)
+        );
+        // 首次请求在调用线程执行，到期仍未返回时才把对冲请求交给线程池
+        CallScope primaryScope = CallScope.forkCurrent();
+        Hedge<T> hedge = new Hedge<>(primaryScope, window, call, budget);
+        ScheduledFuture<?> timer = SharedExecutors.scheduler().schedule(hedge, delayNanos, TimeUnit.NANOSECONDS);
+        try {
+            return primaryScope.run(() -> timed(window, call));
+        } catch (RuntimeException primaryError) {
+            return hedge.await(primaryError);
+        } finally {
+            timer.cancel(false);
+            // 首次请求已有结果，仍在执行的对冲请求会中止 native 调用
+            hedge.cancel();
+        }
+    }
+
+    private static <T> T timed(LatencyWindow window, NativeCall.Attempt<T> call) {
+        long start = System.nanoTime();
+        T result = call.run();
+        window.record(System.nanoTime() - start);
+        return result;
+    }
+
+    private boolean sleepBackoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 一次调用的对冲请求，由定时器到期时发出。对冲请求成功时取消仍在执行的首次请求，
+     * 调用线程随即收到取消并改用对冲结果。
+     */
+    private static final class Hedge<T> implements Runnable {
+        private final DianyaFuture<T> result = new DianyaFuture<>();
+        private final CallScope scope = CallScope.forkCurrent();
+        /** 定时器与调用线程谁先置位谁决定是否发出对冲请求 */
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CallScope primaryScope;
+        private final LatencyWindow window;
+        private final NativeCall.Attempt<T> call;
+        private final RetryBudget budget;
+
+        Hedge(CallScope primaryScope, LatencyWindow window, NativeCall.Attempt<T> call, RetryBudget budget) {
+            this.primaryScope = primaryScope;
+            this.window = window;
+            this.call = call;
+            this.budget = budget;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            if (!budget.tryWithdraw()) {
+                result.cancel(false);
+                return;
+            }
+            try {
+                SharedExecutors.blocking().execute(this::attempt);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void attempt() {
+            try {
+                if (result.complete(scope.run(() -> timed(window, call)))) {
+                    primaryScope.cancel();
+                }
+            } catch (Throwable error) {
+                result.completeExceptionally(error);
+            }
+        }
+
+        /** 首次请求失败后等待已发出的对冲请求；对冲请求同样失败或未发出时抛出首次请求的异常。 */
+        T await(RuntimeException primaryError) {
+            if (started.compareAndSet(false, true)) {
+                throw primaryError;
+            }
+            try {
+                return result.get();
+            } catch (ExecutionException | CancellationException e) {
+                throw primaryError;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw primaryError;
+            }
+        }
+
+        void cancel() {
+            started.set(true);
+            result.cancel(false);
+            scope.cancel();
+        }
+    }
+
+    private RetryBudget budget() {
+        RetryBudget current = budget;
+        if (current == null) {
+            synchronized (this) {
+                current = budget;
+                if (current == null) {
+                    current = new RetryBudget(retryBudgetRatio, minRetriesPerSecond);
+                    budget = current;
+                }
+            }
+        }
+        return current;
+    }
+}
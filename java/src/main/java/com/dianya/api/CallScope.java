@@ -0,0 +1,314 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * native 调用的截止时间与取消范围。
+ *
+ * <p>在作用域内发起的所有 SDK 调用共享同一个截止时间；到期、调用 {@link #cancel()} 或当前线程被
+ * {@link Thread#interrupt() 中断} 时，native 层会丢弃正在执行的 Tokio future 并释放连接，
+ * 调用方收到 {@link DianyaException.Code#TIMEOUT} 或 {@link DianyaException.Code#CANCELLED}。</p>
+ *
+ * <pre>{@code
+ * try (CallScope scope = CallScope.open(5_000)) {
+ *     TranscribeApi.upload(path, false, false, ModelType.QUALITY, token);
+ * }
+ * }</pre>
+ *
+ * <p>即使不使用作用域，阻塞中的 native 调用也会响应线程中断。
+ * 默认截止时间可通过 {@link DianyaRuntime#setDefaultTimeoutMillis(long)} 设置。</p>
+ */
+public final class CallScope implements AutoCloseable {
+    private static final ThreadLocal<CallScope> CURRENT = new ThreadLocal<>();
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static volatile long defaultTimeoutMillis = -1L;
+
+    private final long deadlineNanos;
+    /** 截止时间由调用方设定（{@link #open}、{@link #supplyAsync}），而不是默认截止时间 */
+    private final boolean ownDeadline;
+    private @Nullable CallScope parent;
+    private final Set<Long> handles = new HashSet<>();
+    private final List<CallScope> children = new ArrayList<>();
+    private boolean cancelled;
+
+    private @Nullable CallScope previous;
+    private @Nullable Thread boundThread;
+
+    private CallScope(long deadlineNanos, boolean ownDeadline) {
+        this.deadlineNanos = deadlineNanos;
+        this.ownDeadline = ownDeadline;
+    }
+
+    /**
+     * 创建作用域并绑定到当前线程，需在同一线程调用 {@link #close()}。
+     *
+     * @param timeoutMillis 截止时间（毫秒），传负数表示不限时，仅用于取消
+     */
+    public static @NotNull CallScope open(long timeoutMillis) {
+        CallScope enclosing = current();
+        CallScope scope = new CallScope(deadlineFrom(timeoutMillis, enclosing), true);
+        if (enclosing != null) {
+            enclosing.adopt(scope);
+        }
+        scope.bind();
+        return scope;
+    }
+
+    /** 当前线程绑定的作用域。 */
+    public static @Nullable CallScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在 {@code executor} 上执行 {@code task}，返回的 future 被 {@link DianyaFuture#cancel(boolean) 取消}
+     * 时会一并取消其中正在执行的 native 调用。
+     *
+     * @param timeoutMillis 截止时间（毫秒），传负数表示不限时
+     */
+    public static <T> @NotNull DianyaFuture<T> supplyAsync(
+            long timeoutMillis,
+            @NotNull Callable<T> task,
+            @NotNull Executor executor
+    ) {
+        CallScope scope = new CallScope(deadlineFrom(timeoutMillis, null), true);
+        DianyaFuture<T> future = new DianyaFuture<>();
+        future.onDone((value, error) -> {
+            if (future.isCancelled()) {
+                scope.cancel();
+            }
+        });
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            scope.bind();
+            try {
+                future.complete(task.call());
+            } catch (Throwable error) {
+                future.completeExceptionally(error);
+            } finally {
+                scope.close();
+            }
+        });
+        return future;
+    }
+
+    /** 取消作用域内所有正在执行以及之后发起的调用。 */
+    public void cancel() {
+        List<CallScope> toCancel;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            for (long handle : handles) {
+                nativeCancel(handle);
+            }
+            toCancel = new ArrayList<>(children);
+        }
+        for (CallScope child : toCancel) {
+            child.cancel();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** 距离截止时间的剩余毫秒数，不限时返回 {@link Long#MAX_VALUE}。 */
+    public long remainingMillis() {
+        if (deadlineNanos == NO_DEADLINE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    @Override
+    public void close() {
+        if (boundThread != Thread.currentThread()) {
+            throw new IllegalStateException("CallScope must be closed on the thread that opened it.");
+        }
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+        boundThread = null;
+        CallScope owner = parent;
+        if (owner != null) {
+            synchronized (owner) {
+                owner.children.remove(this);
+            }
+            parent = null;
+        }
+    }
+
+    /** 创建继承截止时间的子作用域，父作用域取消时子作用域一并取消。 */
+    @NotNull CallScope fork() {
+        CallScope child = new CallScope(deadlineNanos, ownDeadline);
+        adopt(child);
+        return child;
+    }
+
+    private synchronized void adopt(CallScope child) {
+        child.parent = this;
+        if (cancelled) {
+            child.cancelled = true;
+        } else {
+            children.add(child);
+        }
+    }
+
+    /**
+     * 为在其他线程执行的调用创建作用域：当前线程有作用域时派生子作用域，否则按默认截止时间新建。
+     */
+    static @NotNull CallScope forkCurrent() {
+        CallScope scope = current();
+        return scope != null ? scope.fork() : new CallScope(deadlineFrom(defaultTimeoutMillis, null), false);
+    }
+
+    static void setDefaultTimeoutMillis(long timeoutMillis) {
+        defaultTimeoutMillis = timeoutMillis;
+    }
+
+    /** 在当前线程绑定本作用域执行 {@code task}。 */
+    <T> T run(@NotNull NativeCall.Attempt<T> task) {
+        bind();
+        try {
+            return task.run();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 为一次 native 调用创建句柄并执行。没有作用域、未设置默认截止时间且不采集指标时传入 0。
+     */
+    static <T> T invokeNative(@NotNull NativeCall.NativeFn<T> fn, @Nullable CallMetrics metrics) {
+        if (metrics != null) {
+            metrics.attemptStarted();
+        }
+        CallScope scope = current();
+        if (scope == null) {
+            long timeoutMillis = defaultTimeoutMillis;
+            if (timeoutMillis < 0 && metrics == null) {
+                return fn.call(0L);
+            }
+            scope = new CallScope(deadlineFrom(timeoutMillis, null), false);
+        }
+        return scope.invoke(fn, metrics);
+    }
+
+    /**
+     * 供在 native 运行时中异步完成、不占用 Java 线程的调用使用：沿用当前线程作用域的截止时间与取消，
+     * 没有作用域时按默认截止时间新建。句柄用 {@link #register} 创建，完成后用 {@link #release} 释放。
+     */
+    static @NotNull CallScope forAsync() {
+        CallScope scope = current();
+        return scope != null ? scope : new CallScope(deadlineFrom(defaultTimeoutMillis, null), false);
+    }
+
+    private <T> T invoke(NativeCall.NativeFn<T> fn, @Nullable CallMetrics metrics) {
+        long handle = register(metrics);
+        try {
+            T result = fn.call(handle);
+            if (metrics != null) {
+                readMetrics(handle, metrics);
+            }
+            return result;
+        } catch (DianyaException e) {
+            // 句柄的截止时间就是本作用域的截止时间
+            if (e.getCode() == DianyaException.Code.TIMEOUT && ownDeadline) {
+                e.markScopeDeadline();
+            }
+            throw e;
+        } finally {
+            release(handle);
+        }
+    }
+
+    /** 创建一个继承本作用域截止时间、随本作用域取消的调用句柄。 */
+    long register(@Nullable CallMetrics metrics) {
+        long timeoutMillis = -1L;
+        if (deadlineNanos != NO_DEADLINE) {
+            timeoutMillis = remainingMillis();
+            if (timeoutMillis <= 0) {
+                DianyaException e = new DianyaException(
+                        DianyaException.Code.TIMEOUT, "Call deadline exceeded before dispatch");
+                throw ownDeadline ? e.markScopeDeadline() : e;
+            }
+        }
+
+        NativeLibrary.load();
+        long handle = nativeCreate(timeoutMillis, metrics != null);
+        synchronized (this) {
+            if (cancelled) {
+                nativeDestroy(handle);
+                throw new DianyaException(DianyaException.Code.CANCELLED, "Call scope has been cancelled");
+            }
+            handles.add(handle);
+        }
+        return handle;
+    }
+
+    static void readMetrics(long handle, @NotNull CallMetrics metrics) {
+        long[] values = new long[CallMetrics.NATIVE_SLOTS];
+        nativeReadMetrics(handle, values);
+        metrics.recordNative(values);
+    }
+
+    synchronized void release(long handle) {
+        handles.remove(handle);
+        nativeDestroy(handle);
+    }
+
+    private void bind() {
+        if (boundThread != null) {
+            throw new IllegalStateException("CallScope is already bound to a thread.");
+        }
+        previous = CURRENT.get();
+        boundThread = Thread.currentThread();
+        CURRENT.set(this);
+    }
+
+    private static long deadlineFrom(long timeoutMillis, @Nullable CallScope enclosing) {
+        long deadline = timeoutMillis < 0
+                ? NO_DEADLINE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        // 嵌套作用域不能晚于外层截止时间
+        if (enclosing != null && enclosing.deadlineNanos != NO_DEADLINE) {
+            if (deadline == NO_DEADLINE || deadline - enclosing.deadlineNanos > 0) {
+                deadline = enclosing.deadlineNanos;
+            }
+        }
+        return deadline;
+    }
+
+    /** 作用域的创建、嵌套与取消不需要 native 库，创建第一个调用句柄时才加载。 */
+    private static final class NativeLibrary {
+        static {
+            System.loadLibrary("dianyaapi_jni");
+        }
+
+        static void load() {
+        }
+    }
+
+    private static native long nativeCreate(long timeoutMillis, boolean collectMetrics);
+
+    private static native void nativeCancel(long handle);
+
+    private static native void nativeDestroy(long handle);
+
+    private static native void nativeReadMetrics(long handle, long[] out);
+}
@@ -0,0 +1,547 @@
+package com.dianya.api;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内嵌的任务回调接收端，替代对 {@link TranscribeApi#status} 的轮询。
+ *
+ * <p>上传时把回调地址指向本接收端，服务端推送的 {@link TranscribeApi.CallbackRequest} 会分发给注册的
+ * {@link Listener}，并完成 {@link #await(String)} 返回的 future。基于 {@link ServerSocket} 实现最小的
+ * HTTP/1.1 服务（支持 {@code Content-Length} 与 chunked 请求体），Android 上同样可用；请求体用 Gson
+ * 流式读取直接解码，不先缓存为字符串。</p>
+ *
+ * <pre>{@code
+ * try (CallbackReceiver receiver = new CallbackReceiver(new InetSocketAddress(8088), "/dianya/callback")) {
+ *     DianyaFuture<TranscribeApi.CallbackRequest> done = receiver.await(taskId);
+ *     TranscribeApi.CallbackRequest request = done.get(30, TimeUnit.MINUTES);
+ * }
+ * }</pre>
+ *
+ * <p>同时处理的连接数有上限（{@value #MAX_CONNECTIONS} 个处理线程，另有 {@value #MAX_QUEUED_CONNECTIONS} 个排队），
+ * 超出的连接直接应答 503 并关闭；每个请求从接受连接起最多读取 {@value #REQUEST_TIMEOUT_MILLIS} 毫秒，
+ * 逐字节慢速发送的连接也会按期断开，慢连接或连接洪泛不会无限占用线程。
+ * 接收端不校验来源，请使用不易猜测的路径并通过网络策略限制访问。</p>
+ */
+public final class CallbackReceiver implements AutoCloseable {
+    /** 单个请求体的上限。 */
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    /** 两次读取之间的最长等待。 */
+    private static final int READ_TIMEOUT_MILLIS = 10_000;
+    /** 读取整个请求（请求头与请求体）的期限。 */
+    private static final int REQUEST_TIMEOUT_MILLIS = 30_000;
+    /** 在调用 {@link #await(String)} 之前到达的回调最多保留的条数。 */
+    private static final int MAX_EARLY_CALLBACKS = 1024;
+    /** 同时处理连接的线程数上限。 */
+    private static final int MAX_CONNECTIONS = 16;
+    /** 等待处理线程的连接数上限，再多的连接直接应答 503。 */
+    private static final int MAX_QUEUED_CONNECTIONS = 64;
+
+    private final ServerSocket server;
+    private final String path;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, DianyaFuture<TranscribeApi.CallbackRequest>> pending =
+            new ConcurrentHashMap<>();
+    /** 尚无等待者时到达的回调，按到达顺序淘汰，受自身监视器保护。 */
+    private final Map<String, TranscribeApi.CallbackRequest> early =
+            new LinkedHashMap<String, TranscribeApi.CallbackRequest>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TranscribeApi.CallbackRequest> eldest) {
+                    return size() > MAX_EARLY_CALLBACKS;
+                }
+            };
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final ThreadPoolExecutor workers;
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    /** 在所有网卡的 {@code port} 端口上接收发往 {@code /} 的回调，{@code port} 为 0 时自动分配。 */
+    public CallbackReceiver(int port) throws IOException {
+        this(new InetSocketAddress(port), "/");
+    }
+
+    /**
+     * @param address 监听地址，端口为 0 时自动分配，可通过 {@link #getPort()} 获取
+     * @param path    接收回调的路径，其他路径返回 404
+     */
+    public CallbackReceiver(@NotNull InetSocketAddress address, @NotNull String path) throws IOException {
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("path must start with '/'.");
+        }
+        this.path = path;
+        this.server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(address);
+        this.workers = new ThreadPoolExecutor(MAX_CONNECTIONS, MAX_CONNECTIONS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_CONNECTIONS),
+                SharedExecutors.daemonFactory("dianya-callback-worker"));
+        workers.allowCoreThreadTimeOut(true);
+        this.acceptor = SharedExecutors.daemonFactory("dianya-callback").newThread(this::acceptLoop);
+        acceptor.start();
+    }
+
+    /** 实际监听的端口。 */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public void addListener(@NotNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NotNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 等待任务的下一次回调。回调在调用前已经到达（最多保留最近 {@value #MAX_EARLY_CALLBACKS} 条）时
+     * 返回已完成的 future；同一任务的多个等待者共享同一个 future。接收端关闭时 future 以异常完成。
+     */
+    public @NotNull DianyaFuture<TranscribeApi.CallbackRequest> await(@NotNull String taskId) {
+        if (closed) {
+            throw new IllegalStateException("CallbackReceiver has been closed.");
+        }
+        TranscribeApi.CallbackRequest arrived;
+        synchronized (early) {
+            arrived = early.remove(taskId);
+        }
+        if (arrived != null) {
+            return DianyaFuture.completed(arrived);
+        }
+        DianyaFuture<TranscribeApi.CallbackRequest> created = new DianyaFuture<>();
+        DianyaFuture<TranscribeApi.CallbackRequest> existing = pending.putIfAbsent(taskId, created);
+        DianyaFuture<TranscribeApi.CallbackRequest> future = existing != null ? existing : created;
+        // 注册与回调到达之间的竞争：回调可能刚好在上面检查之后放入 early
+        synchronized (early) {
+            arrived = early.remove(taskId);
+        }
+        if (arrived != null && pending.remove(taskId, future)) {
+            future.complete(arrived);
+        }
+        return future;
+    }
+
+    /** 已成功解析的回调数。 */
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    /** 因路径、方法或请求体无效，或连接数超限被拒绝的请求数。 */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // 已关闭
+        }
+        // 已接受的连接处理完（最长受请求期限限制）后线程退出
+        workers.shutdown();
+        IllegalStateException error = new IllegalStateException("CallbackReceiver has been closed.");
+        for (DianyaFuture<TranscribeApi.CallbackRequest> future : pending.values()) {
+            future.completeExceptionally(error);
+        }
+        pending.clear();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                workers.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                rejectOverloaded(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket) {
+            InputStream in = new BufferedInputStream(new DeadlineInputStream(connection, REQUEST_TIMEOUT_MILLIS));
+            OutputStream out = connection.getOutputStream();
+            Request request = Request.read(in);
+            if (request == null) {
+                return;
+            }
+            if (!request.path.equals(path)) {
+                rejected.incrementAndGet();
+                respond(out, 404, "Not Found");
+                return;
+            }
+            if (!request.method.equals("POST")) {
+                rejected.incrementAndGet();
+                respond(out, 405, "Method Not Allowed");
+                return;
+            }
+            if (request.contentLength > MAX_BODY_BYTES) {
+                rejected.incrementAndGet();
+                respond(out, 413, "Payload Too Large");
+                return;
+            }
+
+            TranscribeApi.CallbackRequest callback;
+            try {
+                callback = decode(request.body(in, MAX_BODY_BYTES));
+            } catch (JsonParseException | IOException e) {
+                rejected.incrementAndGet();
+                respond(out, 400, "Bad Request");
+                return;
+            }
+            // 先应答再分发，监听器的耗时不计入服务端的回调超时；对端读到应答前就断开时回调仍然有效
+            received.incrementAndGet();
+            try {
+                respond(out, 200, "OK");
+            } finally {
+                dispatch(callback);
+            }
+        } catch (SocketException ignored) {
+            // 对端断开
+        } catch (IOException ignored) {
+            // 读取超时或请求格式错误，直接关闭连接
+        }
+    }
+
+    private static TranscribeApi.CallbackRequest decode(InputStream body) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        TranscribeApi.CallbackRequest callback = Utils.GSON.fromJson(reader, TranscribeApi.CallbackRequest.class);
+        if (callback == null || callback.taskId == null || callback.taskId.isEmpty()) {
+            throw new JsonParseException("Callback has no task_id.");
+        }
+        return callback;
+    }
+
+    private void dispatch(TranscribeApi.CallbackRequest callback) {
+        DianyaFuture<TranscribeApi.CallbackRequest> future = pending.remove(callback.taskId);
+        if (future != null) {
+            future.complete(callback);
+        } else {
+            synchronized (early) {
+                early.put(callback.taskId, callback);
+            }
+            // 与 await 的竞争：等待者可能在 remove 之后才注册
+            DianyaFuture<TranscribeApi.CallbackRequest> late = pending.get(callback.taskId);
+            if (late != null) {
+                synchronized (early) {
+                    early.remove(callback.taskId);
+                }
+                if (pending.remove(callback.taskId, late)) {
+                    late.complete(callback);
+                }
+            }
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onCallback(callback);
+            } catch (RuntimeException ignored) {
+                // 监听器异常不影响其他监听器
+            }
+        }
+    }
+
+    private static void respond(OutputStream out, int status, String reason) throws IOException {
+        byte[] body = status == 200 ? "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8) : new byte[0];
+        String head = "HTTP/1.1 " + status + " " + reason + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body);
+        out.flush();
+    }
+
+    /** 连接数超限：不读取请求，直接应答 503 并关闭，应答很小，不会阻塞接收线程。 */
+    private void rejectOverloaded(Socket socket) {
+        rejected.incrementAndGet();
+        try {
+            respond(socket.getOutputStream(), 503, "Service Unavailable");
+        } catch (IOException ignored) {
+            // 对端已断开
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 忽略
+        }
+    }
+
+    /** 回调监听器，在接收连接的线程上执行，应尽快返回。 */
+    public interface Listener {
+        void onCallback(@NotNull TranscribeApi.CallbackRequest request);
+    }
+
+    /** 请求行与所需的请求头。 */
+    private static final class Request {
+        final String method;
+        final String path;
+        final long contentLength;
+        final boolean chunked;
+
+        private Request(String method, String path, long contentLength, boolean chunked) {
+            this.method = method;
+            this.path = path;
+            this.contentLength = contentLength;
+            this.chunked = chunked;
+        }
+
+        /** 读取请求行与请求头，连接直接关闭时返回 {@code null}。 */
+        static @Nullable Request read(InputStream in) throws IOException {
+            int[] budget = {MAX_HEADER_BYTES};
+            String line = readLine(in, budget);
+            if (line == null || line.isEmpty()) {
+                return null;
+            }
+            String[] parts = line.split(" ");
+            if (parts.length < 3) {
+                throw new IOException("Malformed request line.");
+            }
+            String target = parts[1];
+            int query = target.indexOf('?');
+            String requestPath = query >= 0 ? target.substring(0, query) : target;
+
+            long contentLength = -1L;
+            boolean chunked = false;
+            while ((line = readLine(in, budget)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                if (name.equals("content-length")) {
+                    try {
+                        contentLength = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Malformed Content-Length.", e);
+                    }
+                    if (contentLength < 0) {
+                        throw new IOException("Negative Content-Length.");
+                    }
+                } else if (name.equals("transfer-encoding")) {
+                    chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                }
+            }
+            return new Request(parts[0].toUpperCase(Locale.ROOT), requestPath, contentLength, chunked);
+        }
+
+        /** 请求体输入流，读取超过 {@code limit} 字节时抛出异常。 */
+        InputStream body(InputStream in, int limit) {
+            InputStream body = chunked
+                    ? new ChunkedInputStream(in)
+                    : new LimitedInputStream(in, Math.max(0L, contentLength));
+            return new LimitedInputStream(body, limit, true);
+        }
+
+        private static @Nullable String readLine(InputStream in, int[] budget) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            int b;
+            while ((b = in.read()) != -1) {
+                if (--budget[0] < 0) {
+                    throw new IOException("Request header too large.");
+                }
+                if (b == '\n') {
+                    break;
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            if (b == -1 && line.size() == 0) {
+                return null;
+            }
+            return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * 按整个请求的期限读取连接：每次读取前把超时设为剩余时间（不超过 {@link #READ_TIMEOUT_MILLIS}），
+     * 期限已过时抛出 {@link SocketTimeoutException}。单次读取的超时挡不住每隔几秒发送一个字节的连接。
+     */
+    private static final class DeadlineInputStream extends FilterInputStream {
+        private final Socket socket;
+        private final long deadlineNanos;
+
+        DeadlineInputStream(Socket socket, long timeoutMillis) throws IOException {
+            super(socket.getInputStream());
+            this.socket = socket;
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        @Override
+        public int read() throws IOException {
+            arm();
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            arm();
+            return in.read(buffer, offset, length);
+        }
+
+        private void arm() throws IOException {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Request deadline exceeded.");
+            }
+            socket.setSoTimeout((int) Math.min(READ_TIMEOUT_MILLIS, remaining));
+        }
+    }
+
+    /** 最多读取 {@code remaining} 字节；{@code strict} 时超出即抛出异常，否则视为结束。 */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+        private final boolean strict;
+
+        LimitedInputStream(InputStream in, long limit) {
+            this(in, limit, false);
+        }
+
+        LimitedInputStream(InputStream in, long limit, boolean strict) {
+            super(in);
+            this.remaining = limit;
+            this.strict = strict;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                if (strict && in.read() != -1) {
+                    throw new IOException("Request body too large.");
+                }
+                return -1;
+            }
+            int n = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // 不关闭底层连接，由 serve 统一关闭
+        }
+    }
+
+    /** 解码 chunked 请求体，忽略 chunk 扩展与尾部请求头。 */
+    private static final class ChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long chunkRemaining;
+        private boolean finished;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (chunkRemaining == 0) {
+                chunkRemaining = nextChunkSize();
+                if (chunkRemaining == 0) {
+                    finished = true;
+                    return -1;
+                }
+            }
+            int n = in.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+            if (n == -1) {
+                throw new IOException("Unexpected end of chunked body.");
+            }
+            chunkRemaining -= n;
+            if (chunkRemaining == 0) {
+                Request.readLine(in, new int[]{2});
+            }
+            return n;
+        }
+
+        private long nextChunkSize() throws IOException {
+            String line = Request.readLine(in, new int[]{MAX_HEADER_BYTES});
+            if (line == null) {
+                throw new IOException("Unexpected end of chunked body.");
+            }
+            int extension = line.indexOf(';');
+            String size = (extension >= 0 ? line.substring(0, extension) : line).trim();
+            long chunkSize;
+            try {
+                chunkSize = Long.parseLong(size, 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed chunk size.", e);
+            }
+            // parseLong 接受 "-1" 之类的符号，负数会让后续读取越界
+            if (chunkSize < 0) {
+                throw new IOException("Negative chunk size.");
+            }
+            return chunkSize;
+        }
+
+        @Override
+        public void close() {
+            // 不关闭底层连接
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读取 {@link TranscribeStream#startCapture(File)} 写出的抓包文件，用于审计或把同一段音频回放给新的会话。
+ *
+ * <p>文件以只读方式映射到内存，{@link Record#getPayload()} 返回映射区域的切片，读取与回放音频都不会拷贝数据。</p>
+ *
+ * <pre>{@code
+ * try (CaptureReader reader = new CaptureReader(file)) {
+ *     reader.replay(stream, 4.0);   // 以 4 倍速回放音频与文本
+ * }
+ * }</pre>
+ *
+ * <p>文件格式（小端序）：24 字节文件头（魔数 {@code DYCAPTR\0}、u32 版本、u32 保留、u64 开始时间的 Unix 微秒），
+ * 之后是连续的记录，每条记录为 16 字节记录头（u8 类型、3 字节保留、u32 长度、u64 相对开始时间的微秒数）加数据。</p>
+ */
+public final class CaptureReader implements AutoCloseable {
+
+    private static final byte[] MAGIC = {'D', 'Y', 'C', 'A', 'P', 'T', 'R', 0};
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 24;
+    private static final int RECORD_HEADER = 16;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer map;
+    private final long startedMicros;
+    private int position = FILE_HEADER;
+
+    public CaptureReader(@NotNull File path) throws IOException {
+        this.file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            this.map = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.capacity() < FILE_HEADER) {
+                throw new IOException("Not a capture file: " + path);
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (map.get(i) != MAGIC[i]) {
+                    throw new IOException("Not a capture file: " + path);
+                }
+            }
+            int version = map.getInt(8);
+            if (version != VERSION) {
+                throw new IOException("Unsupported capture version: " + version);
+            }
+            this.startedMicros = map.getLong(16);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** 抓包开始时的 Unix 时间（微秒）。 */
+    public long getStartedMicros() {
+        return startedMicros;
+    }
+
+    /** 读取下一条记录，读完返回 {@code null}。未正常结束的文件在最后一条完整记录处结束。 */
+    public @Nullable Record next() {
+        if (map.capacity() - position < RECORD_HEADER) {
+            return null;
+        }
+        Kind kind = Kind.of(map.get(position));
+        int length = map.getInt(position + 4);
+        long micros = map.getLong(position + 8);
+        int body = position + RECORD_HEADER;
+        if (kind == null || length < 0 || length > map.capacity() - body) {
+            return null;
+        }
+
+        ByteBuffer payload = map.duplicate();
+        payload.position(body);
+        payload.limit(body + length);
+        position = body + length;
+        return new Record(kind, micros, payload.slice().asReadOnlyBuffer());
+    }
+
+    /** 回到第一条记录。 */
+    public void rewind() {
+        position = FILE_HEADER;
+    }
+
+    /**
+     * 从当前位置起把音频与发送过的文本按原始节奏发送到 {@code target}，收到的消息不会发送。
+     *
+     * @param speed 回放倍速，1 为原速；小于等于 0 表示不等待、尽快发送
+     * @return 发送的记录数
+     */
+    public int replay(@NotNull TranscribeStream target, double speed) throws InterruptedException {
+        long origin = System.nanoTime();
+        long firstMicros = -1L;
+        int sent = 0;
+        Record record;
+        while ((record = next()) != null) {
+            if (record.kind == Kind.MESSAGE_RECEIVED) {
+                continue;
+            }
+            if (firstMicros < 0) {
+                firstMicros = record.timestampMicros;
+            }
+            if (speed > 0) {
+                long due = origin + (long) ((record.timestampMicros - firstMicros) * 1_000 / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            if (record.kind == Kind.AUDIO) {
+                target.sendBinary(record.payload.duplicate());
+            } else {
+                target.sendText(record.getText());
+            }
+            sent++;
+        }
+        return sent;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    public enum Kind {
+        /** 发送的音频帧。 */
+        AUDIO(1),
+        /** 发送的文本消息。 */
+        TEXT_SENT(2),
+        /** 收到的服务端消息。 */
+        MESSAGE_RECEIVED(3);
+
+        final int code;
+
+        Kind(int code) {
+            this.code = code;
+        }
+
+        static @Nullable Kind of(int code) {
+            for (Kind kind : values()) {
+                if (kind.code == code) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final class Record {
+        private final Kind kind;
+        private final long timestampMicros;
+        private final ByteBuffer payload;
+
+        Record(Kind kind, long timestampMicros, ByteBuffer payload) {
+            this.kind = kind;
+            this.timestampMicros = timestampMicros;
+            this.payload = payload;
+        }
+
+        public @NotNull Kind getKind() {
+            return kind;
+        }
+
+        /** 相对抓包开始的微秒数。 */
+        public long getTimestampMicros() {
+            return timestampMicros;
+        }
+
+        /** 只读的数据切片，指向映射内存，在 {@link CaptureReader#close()} 之后不应再使用。 */
+        public @NotNull ByteBuffer getPayload() {
+            return payload.duplicate();
+        }
+
+        /** 按 UTF-8 解码数据，用于文本与收到的消息。 */
+        public @NotNull String getText() {
+            return StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
+        }
+    }
+}
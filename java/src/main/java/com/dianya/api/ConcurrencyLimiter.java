@@ -0,0 +1,221 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限制器，位于所有 native 调用之前（{@link Operation#CLOSE_SESSION} 除外）。
+ *
+ * <p>采用梯度算法：比较短期平均耗时与长期基线耗时，服务端变慢时按比例收缩允许的并发数，
+ * 恢复后逐步放大；遇到 {@code HTTP_ERROR}/{@code WS_ERROR}/{@code TIMEOUT} 时再做一次乘性减小，
+ * 调用方自己的 {@link CallScope} 截止时间到期引起的 {@code TIMEOUT} 除外。
+ * 耗时按 {@link OperationClass} 分别统计，上传、导出等慢请求不会拉低状态查询的梯度。
+ * 超出并发上限的调用进入有界队列等待，队列已满或等待超时时立即抛出
+ * {@link DianyaException.Code#LIMIT_EXCEEDED}，避免线程堆积在 native {@code block_on} 中。</p>
+ *
+ * <p>配置完成后通过 {@link DianyaRuntime#setConcurrencyLimiter(ConcurrencyLimiter)} 安装。</p>
+ */
+public final class ConcurrencyLimiter {
+    private static final double SHORT_RTT_ALPHA = 0.2;
+    private static final double LONG_RTT_ALPHA = 0.01;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private int maxQueueLength = 64;
+    private long maxQueueWaitMillis = 100;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private double limit = 20;
+    private int inFlight;
+    private int queued;
+    private final Map<OperationClass, Rtt> rtts = new EnumMap<>(OperationClass.class);
+    private final AtomicLong rejected = new AtomicLong();
+
+    /** 初始并发上限，默认 20。 */
+    public @NotNull ConcurrencyLimiter initialLimit(int initial) {
+        if (initial < 1) {
+            throw new IllegalArgumentException("initial limit must be >= 1.");
+        }
+        this.limit = initial;
+        return this;
+    }
+
+    /** 并发上限的调整范围，默认 [1, 200]。 */
+    public @NotNull ConcurrencyLimiter limitRange(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("limit range must satisfy 1 <= min <= max.");
+        }
+        this.minLimit = min;
+        this.maxLimit = max;
+        this.limit = Math.max(min, Math.min(max, limit));
+        return this;
+    }
+
+    /**
+     * 超出上限后的排队策略。
+     *
+     * @param length    最大排队数，传 0 表示不排队直接拒绝
+     * @param waitMillis 单次最长排队时间（毫秒）
+     */
+    public @NotNull ConcurrencyLimiter queue(int length, long waitMillis) {
+        if (length < 0 || waitMillis < 0) {
+            throw new IllegalArgumentException("queue settings must not be negative.");
+        }
+        this.maxQueueLength = length;
+        this.maxQueueWaitMillis = waitMillis;
+        return this;
+    }
+
+    /** 当前允许的并发数。 */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 正在执行的调用数。 */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 正在排队的调用数。 */
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 累计被拒绝的调用数。 */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    <T> T execute(@NotNull Operation operation, @NotNull NativeCall.Attempt<T> call) {
+        acquire(operation);
+        long start = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            return call.run();
+        } catch (DianyaException e) {
+            overloaded = e.getCode() == DianyaException.Code.HTTP_ERROR
+                    || e.getCode() == DianyaException.Code.WS_ERROR
+                    || e.getCode() == DianyaException.Code.TIMEOUT && !e.isScopeDeadline();
+            throw e;
+        } finally {
+            release(operation.getOperationClass(), System.nanoTime() - start, overloaded);
+        }
+    }
+
+    void acquire(Operation operation) {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return;
+            }
+            if (queued >= maxQueueLength) {
+                throw reject(operation, "queue is full");
+            }
+            queued++;
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        throw reject(operation, "timed out waiting in queue");
+                    }
+                    remaining = permitReleased.awaitNanos(remaining);
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject(operation, "interrupted while waiting in queue");
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(OperationClass operationClass, long rttNanos, boolean overloaded) {
+        lock.lock();
+        try {
+            int current = inFlight;
+            inFlight--;
+            if (overloaded) {
+                limit = clamp(limit * BACKOFF_RATIO);
+            } else {
+                update(operationClass, rttNanos, current);
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(OperationClass operationClass, long rttNanos, int inFlightAtStart) {
+        Rtt rtt = rtts.get(operationClass);
+        if (rtt == null) {
+            rtt = new Rtt(rttNanos);
+            rtts.put(operationClass, rtt);
+            return;
+        }
+        rtt.shortNanos += (rttNanos - rtt.shortNanos) * SHORT_RTT_ALPHA;
+        rtt.longNanos += (rttNanos - rtt.longNanos) * LONG_RTT_ALPHA;
+        // 负载回落后长期基线明显偏高，加快向短期值衰减
+        if (rtt.longNanos > rtt.shortNanos * 2) {
+            rtt.longNanos *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rtt.longNanos / rtt.shortNanos));
+        // 调用方没有用满并发时不扩大上限
+        if (gradient >= 1.0 && inFlightAtStart < limit / 2) {
+            return;
+        }
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    private DianyaException reject(Operation operation, String reason) {
+        rejected.incrementAndGet();
+        return new DianyaException(
+                DianyaException.Code.LIMIT_EXCEEDED,
+                "Concurrency limit exceeded for " + operation.alias + ": " + reason
+        );
+    }
+
+    /** 一个操作分类的短期与长期平均耗时，受 {@link #lock} 保护。 */
+    private static final class Rtt {
+        double shortNanos;
+        double longNanos;
+
+        Rtt(long initialNanos) {
+            this.shortNanos = initialNanos;
+            this.longNanos = initialNanos;
+        }
+    }
+}
@@ -17,10 +17,15 @@ import org.jetbrains.annotations.NotNull;
  *     <li>{@code OTHER_ERROR}：其他错误</li>
  *     <li>{@code JNI_ERROR}：JNI 层调用失败</li>
  *     <li>{@code UNEXPECTED_ERROR}：未分类的异常</li>
+ *     <li>{@code LIMIT_EXCEEDED}：被客户端并发/限流策略拒绝，请求未发出</li>
+ *     <li>{@code TIMEOUT}：超过 {@link CallScope} 设定的截止时间</li>
+ *     <li>{@code CANCELLED}：调用被取消或调用线程被中断</li>
  * </ul>
  */
 public final class DianyaException extends RuntimeException {
     private final @NotNull Code code;
+    /** 由调用方自己打开的 {@link CallScope} 截止时间触发的 {@code TIMEOUT}，不代表服务端过载 */
+    private boolean scopeDeadline;
 
     public DianyaException(@NotNull Code code, @NotNull String message) {
         super(message);
@@ -32,6 +37,15 @@ public final class DianyaException extends RuntimeException {
         return code;
     }
 
+    boolean isScopeDeadline() {
+        return scopeDeadline;
+    }
+
+    @NotNull DianyaException markScopeDeadline() {
+        scopeDeadline = true;
+        return this;
+    }
+
     public enum Code {
         WS_ERROR,
         HTTP_ERROR,
@@ -43,7 +57,10 @@ public final class DianyaException extends RuntimeException {
         JSON_ERROR,
         OTHER_ERROR,
         JNI_ERROR,
-        UNEXPECTED_ERROR
+        UNEXPECTED_ERROR,
+        LIMIT_EXCEEDED,
+        TIMEOUT,
+        CANCELLED
     }
 }
 
@@ -0,0 +1,175 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SDK 异步操作的结果。
+ *
+ * <p>{@code CompletableFuture} 与 {@code java.util.function} 在 Android API 24 才提供，SDK 需要支持 API 21，
+ * 因此异步接口统一返回这个精简的 future：支持阻塞等待、取消和完成回调。
+ * 完成回调总是交给 executor 执行，不会占用完成它的线程（例如 native 运行时线程）。</p>
+ */
+public final class DianyaFuture<T> implements Future<T> {
+    private boolean done;
+    private @Nullable T value;
+    private @Nullable Throwable error;
+    private boolean cancelled;
+    private @Nullable List<Callback<? super T>> listeners = new ArrayList<>();
+
+    DianyaFuture() {
+    }
+
+    static <T> @NotNull DianyaFuture<T> completed(@Nullable T value) {
+        DianyaFuture<T> future = new DianyaFuture<>();
+        future.complete(value);
+        return future;
+    }
+
+    /** 所有 future 都完成（无论成功与否）时完成的 future。 */
+    public static @NotNull DianyaFuture<Void> allOf(@NotNull Collection<? extends DianyaFuture<?>> futures) {
+        DianyaFuture<Void> all = new DianyaFuture<>();
+        if (futures.isEmpty()) {
+            all.complete(null);
+            return all;
+        }
+        AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (DianyaFuture<?> future : futures) {
+            future.onDone((value, error) -> {
+                if (remaining.decrementAndGet() == 0) {
+                    all.complete(null);
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * 完成后在 SDK 共享线程池上执行 {@code callback}；已完成时立即提交。
+     */
+    public @NotNull DianyaFuture<T> whenComplete(@NotNull Callback<? super T> callback) {
+        return whenComplete(callback, SharedExecutors.blocking());
+    }
+
+    /** 完成后在 {@code executor} 上执行 {@code callback}；已完成时立即提交。 */
+    public @NotNull DianyaFuture<T> whenComplete(@NotNull Callback<? super T> callback, @NotNull Executor executor) {
+        onDone((value, error) -> executor.execute(() -> callback.onComplete(value, error)));
+        return this;
+    }
+
+    /** 取消后 {@link #get()} 抛出 {@link CancellationException}，关联的 native 调用随之中止。 */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            cancelled = true;
+        }
+        return finish(null, new CancellationException("Future was cancelled."));
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized T get(long timeout, @NotNull TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return report();
+    }
+
+    boolean complete(@Nullable T value) {
+        return finish(value, null);
+    }
+
+    boolean completeExceptionally(@NotNull Throwable error) {
+        return finish(null, error);
+    }
+
+    /** 完成后在完成线程上直接执行 {@code listener}，仅供 SDK 内部使用，不能阻塞。 */
+    void onDone(@NotNull Callback<? super T> listener) {
+        T currentValue;
+        Throwable currentError;
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return;
+            }
+            currentValue = value;
+            currentError = error;
+        }
+        listener.onComplete(currentValue, currentError);
+    }
+
+    private boolean finish(@Nullable T result, @Nullable Throwable failure) {
+        List<Callback<? super T>> pending;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            done = true;
+            value = result;
+            error = failure;
+            pending = listeners;
+            listeners = null;
+            notifyAll();
+        }
+        for (Callback<? super T> listener : pending) {
+            try {
+                listener.onComplete(result, failure);
+            } catch (RuntimeException ignored) {
+                // 单个回调失败（如 executor 已关闭）不影响其他回调
+            }
+        }
+        return true;
+    }
+
+    private T report() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException("Future was cancelled.");
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return value;
+    }
+
+    /** 完成回调，成功时 {@code error} 为 {@code null}，取消时为 {@link CancellationException}。 */
+    public interface Callback<T> {
+        void onComplete(@Nullable T value, @Nullable Throwable error);
+    }
+}
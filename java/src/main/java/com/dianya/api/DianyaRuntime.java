@@ -1,5 +1,7 @@
 package com.dianya.api;
 
+import org.jetbrains.annotations.Nullable;
+
 /**
  * SDK 运行时生命周期管理。
  *
@@ -30,6 +32,41 @@ public final class DianyaRuntime {
         nativeShutdown();
     }
 
+    /**
+     * 安装幂等操作的对冲/重试策略，传 {@code null} 关闭。
+     */
+    public static void setCallPolicy(@Nullable CallPolicy policy) {
+        NativeCall.setCallPolicy(policy);
+    }
+
+    /**
+     * 安装自适应并发限制器，传 {@code null} 关闭。
+     */
+    public static void setConcurrencyLimiter(@Nullable ConcurrencyLimiter limiter) {
+        NativeCall.setConcurrencyLimiter(limiter);
+    }
+
+    /**
+     * 安装按 token 区分的令牌桶限流器，传 {@code null} 关闭。
+     */
+    public static void setRateLimiter(@Nullable RateLimiter limiter) {
+        NativeCall.setRateLimiter(limiter);
+    }
+
+    /**
+     * 设置没有 {@link CallScope} 时每次 native 调用的默认截止时间（毫秒），传负数表示不限时（默认）。
+     */
+    public static void setDefaultTimeoutMillis(long timeoutMillis) {
+        CallScope.setDefaultTimeoutMillis(timeoutMillis);
+    }
+
+    /**
+     * 安装调用指标监听器，传 {@code null} 关闭（默认关闭，不产生采集开销）。
+     */
+    public static void setMetricsListener(@Nullable MetricsListener listener) {
+        NativeCall.setMetricsListener(listener);
+    }
+
     private static native void nativeInitialize();
 
     private static native void nativeShutdown();
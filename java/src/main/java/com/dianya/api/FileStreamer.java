@@ -0,0 +1,246 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TranscribeStream#streamFile(File, double, long)} 的实现：映射音频文件，按倍速或尽快发送，
+ * 收集结果并在会话结束或结果静默后给出完整文本。
+ */
+final class FileStreamer implements StreamSubscriber {
+    private static final int CHUNK_MILLIS = AudioPipeline.DEFAULT_FRAME_MILLIS;
+    private static final int RIFF = 0x46464952;
+    private static final int WAVE = 0x45564157;
+    private static final int FMT = 0x20746d66;
+    private static final int DATA = 0x61746164;
+
+    private final TranscribeStream stream;
+    private final File file;
+    private final double speedFactor;
+    private final long idleMillis;
+    private final DianyaFuture<String> result = new DianyaFuture<>();
+    private final TranscriptAccumulator transcript = new TranscriptAccumulator();
+    private volatile @Nullable StreamSubscription subscription;
+    /** 最近一次收到结果的时间，受 {@link #transcript} 监视器保护。 */
+    private long lastMessageNanos = System.nanoTime();
+
+    FileStreamer(TranscribeStream stream, File file, double speedFactor, long idleMillis) {
+        this.stream = stream;
+        this.file = file;
+        this.speedFactor = speedFactor;
+        this.idleMillis = idleMillis;
+    }
+
+    DianyaFuture<String> start() {
+        stream.start();
+        stream.subscribe(this);
+        SharedExecutors.blocking().execute(this::run);
+        return result;
+    }
+
+    private void run() {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            send(map);
+            stream.flush(TimeUnit.SECONDS.toMillis(30));
+            awaitIdle();
+            finish(null);
+        } catch (IOException | RuntimeException e) {
+            finish(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(e);
+        }
+    }
+
+    private void send(MappedByteBuffer map) throws IOException, InterruptedException {
+        Format format = Format.of(map);
+        AudioPipeline pipeline = format.isTarget()
+                ? null
+                : new AudioPipeline(format.sampleRate, format.channels, format.encoding);
+        try {
+            int chunk = format.chunkBytes();
+            long origin = System.nanoTime();
+            long chunkNanos = speedFactor > 0
+                    ? (long) (TimeUnit.MILLISECONDS.toNanos(CHUNK_MILLIS) / speedFactor)
+                    : 0L;
+            long index = 0;
+            for (int offset = format.dataOffset; offset < format.dataEnd; offset += chunk, index++) {
+                if (result.isDone()) {
+                    return;
+                }
+                long wait = origin + index * chunkNanos - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                ByteBuffer slice = map.duplicate();
+                slice.position(offset);
+                slice.limit(Math.min(offset + chunk, format.dataEnd));
+                // 同步发送在写入完成后才返回，异步发送的 BLOCK 策略在队列满时等待，两者都随服务端接收速度限流
+                if (pipeline == null) {
+                    stream.sendBinary(slice);
+                } else {
+                    pipeline.write(stream, slice);
+                }
+            }
+            if (pipeline != null) {
+                pipeline.flush(stream);
+            }
+        } finally {
+            if (pipeline != null) {
+                pipeline.close();
+            }
+        }
+    }
+
+    /** 音频发送完后，等待会话结束或 {@link #idleMillis} 内没有新结果。 */
+    private void awaitIdle() throws InterruptedException {
+        synchronized (transcript) {
+            // 从音频发完开始计时，尾部音频的结果还需要一段处理时间
+            lastMessageNanos = System.nanoTime();
+            while (!result.isDone()) {
+                long remaining = lastMessageNanos + TimeUnit.MILLISECONDS.toNanos(idleMillis) - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                TimeUnit.NANOSECONDS.timedWait(transcript, remaining);
+            }
+        }
+    }
+
+    private void finish(@Nullable Throwable error) {
+        StreamSubscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+        synchronized (transcript) {
+            if (error == null) {
+                result.complete(transcript.getText());
+            } else {
+                result.completeExceptionally(error);
+            }
+            transcript.notifyAll();
+        }
+    }
+
+    @Override
+    public void onSubscribe(@NotNull StreamSubscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onEvent(@NotNull StreamEvent event) {
+        synchronized (transcript) {
+            lastMessageNanos = System.nanoTime();
+            transcript.apply(event);
+            if (event.type == StreamEvent.Type.SESSION_END) {
+                result.complete(transcript.getText());
+            }
+            transcript.notifyAll();
+        }
+    }
+
+    @Override
+    public void onError(@NotNull Throwable error) {
+        synchronized (transcript) {
+            result.completeExceptionally(error);
+            transcript.notifyAll();
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (transcript) {
+            result.complete(transcript.getText());
+            transcript.notifyAll();
+        }
+    }
+
+    /** 音频格式：带 RIFF 头的 WAV 按头部解析，否则视为 16kHz 16bit 单声道 PCM。 */
+    private static final class Format {
+        int sampleRate = AudioPipeline.TARGET_SAMPLE_RATE;
+        int channels = 1;
+        AudioPipeline.Encoding encoding = AudioPipeline.Encoding.S16LE;
+        int bytesPerSample = 2;
+        int dataOffset;
+        int dataEnd;
+
+        static Format of(ByteBuffer map) throws IOException {
+            Format format = new Format();
+            format.dataEnd = map.limit();
+            if (map.limit() < 12 || map.getInt(0) != RIFF || map.getInt(8) != WAVE) {
+                return format;
+            }
+            boolean hasFmt = false;
+            int offset = 12;
+            while (offset + 8 <= map.limit()) {
+                int id = map.getInt(offset);
+                int size = map.getInt(offset + 4);
+                int body = offset + 8;
+                if (id == FMT && size >= 16) {
+                    int tag = map.getShort(body) & 0xffff;
+                    format.channels = map.getShort(body + 2) & 0xffff;
+                    format.sampleRate = map.getInt(body + 4);
+                    int bits = map.getShort(body + 14) & 0xffff;
+                    format.encoding = encoding(tag, bits);
+                    format.bytesPerSample = bits / 8;
+                    hasFmt = true;
+                } else if (id == DATA) {
+                    if (!hasFmt) {
+                        break;
+                    }
+                    format.dataOffset = body;
+                    // 录音中断的文件 data 长度可能为 0 或超出文件
+                    format.dataEnd = size <= 0 || size > map.limit() - body ? map.limit() : body + size;
+                    return format;
+                }
+                if (size < 0) {
+                    break;
+                }
+                offset = body + size + (size & 1);
+            }
+            throw new IOException("WAV file has no fmt/data chunk.");
+        }
+
+        private static AudioPipeline.Encoding encoding(int tag, int bits) throws IOException {
+            if (tag == 3 && bits == 32) {
+                return AudioPipeline.Encoding.F32LE;
+            }
+            if (tag == 1 || tag == 0xfffe) {
+                switch (bits) {
+                    case 8:
+                        return AudioPipeline.Encoding.U8;
+                    case 16:
+                        return AudioPipeline.Encoding.S16LE;
+                    case 32:
+                        return AudioPipeline.Encoding.S32LE;
+                    default:
+                        break;
+                }
+            }
+            throw new IOException("Unsupported WAV format " + tag + " with " + bits + " bits.");
+        }
+
+        boolean isTarget() {
+            return sampleRate == AudioPipeline.TARGET_SAMPLE_RATE && channels == 1
+                    && encoding == AudioPipeline.Encoding.S16LE;
+        }
+
+        /** {@link #CHUNK_MILLIS} 毫秒的数据量，按整帧对齐。 */
+        int chunkBytes() {
+            return Math.max(1, sampleRate * CHUNK_MILLIS / 1000) * channels * bytesPerSample;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内置的 {@link MetricsListener}：按操作、按阶段维护 {@link Histogram}，并统计请求/响应字节数与失败次数。
+ *
+ * <p>可直接安装后定期读取，也可作为自定义监听器的委托对象。</p>
+ */
+public final class HistogramMetricsListener implements MetricsListener {
+    private final Map<Operation, OperationHistograms> operations = new EnumMap<>(Operation.class);
+    private final @Nullable MetricsListener delegate;
+
+    public HistogramMetricsListener() {
+        this(null);
+    }
+
+    /**
+     * @param delegate 记录完成后继续转发给的监听器，可为 {@code null}
+     */
+    public HistogramMetricsListener(@Nullable MetricsListener delegate) {
+        this.delegate = delegate;
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationHistograms());
+        }
+    }
+
+    @Override
+    public void onCall(@NotNull CallMetrics metrics) {
+        OperationHistograms histograms = operations.get(metrics.getOperation());
+        for (CallMetrics.Phase phase : CallMetrics.Phase.values()) {
+            long nanos = metrics.getPhaseNanos(phase);
+            if (nanos >= 0) {
+                histograms.phases.get(phase).record(nanos);
+            }
+        }
+        histograms.total.record(metrics.getTotalNanos());
+        if (metrics.getRequestBytes() >= 0) {
+            histograms.requestBytes.record(metrics.getRequestBytes());
+        }
+        if (metrics.getResponseBytes() >= 0) {
+            histograms.responseBytes.record(metrics.getResponseBytes());
+        }
+        if (!metrics.isSuccess()) {
+            histograms.failures.incrementAndGet();
+        }
+        if (delegate != null) {
+            delegate.onCall(metrics);
+        }
+    }
+
+    /** 某个操作在某个阶段的耗时直方图（纳秒）。 */
+    public @NotNull Histogram getPhaseHistogram(@NotNull Operation operation, @NotNull CallMetrics.Phase phase) {
+        return operations.get(operation).phases.get(phase);
+    }
+
+    /** 某个操作的端到端耗时直方图（纳秒）。 */
+    public @NotNull Histogram getTotalHistogram(@NotNull Operation operation) {
+        return operations.get(operation).total;
+    }
+
+    /** 某个操作的请求体字节数直方图。 */
+    public @NotNull Histogram getRequestBytesHistogram(@NotNull Operation operation) {
+        return operations.get(operation).requestBytes;
+    }
+
+    /** 某个操作的响应字节数直方图。 */
+    public @NotNull Histogram getResponseBytesHistogram(@NotNull Operation operation) {
+        return operations.get(operation).responseBytes;
+    }
+
+    /** 某个操作的失败次数。 */
+    public long getFailureCount(@NotNull Operation operation) {
+        return operations.get(operation).failures.get();
+    }
+
+    private static final class OperationHistograms {
+        final Map<CallMetrics.Phase, Histogram> phases = new EnumMap<>(CallMetrics.Phase.class);
+        final Histogram total = new Histogram();
+        final Histogram requestBytes = new Histogram();
+        final Histogram responseBytes = new Histogram();
+        final AtomicLong failures = new AtomicLong();
+
+        OperationHistograms() {
+            for (CallMetrics.Phase phase : CallMetrics.Phase.values()) {
+                phases.put(phase, new Histogram());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.dianya.api;
+
+import java.util.Arrays;
+
+/**
+ * 固定容量的最近耗时样本窗口，用于估算对冲请求的触发延迟。
+ *
+ * <p>分位数在每记录 {@value #REFRESH_INTERVAL} 个新样本后才重新排序计算，其余查询直接返回缓存值。</p>
+ */
+final class LatencyWindow {
+    static final int REFRESH_INTERVAL = 16;
+
+    private final long[] samples;
+    private final long[] sorted;
+    private int next;
+    private int size;
+
+    private double cachedPercentile = Double.NaN;
+    private long cachedValue;
+    private int recordedSinceCache;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+        this.sorted = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        recordedSinceCache++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param percentile 0~1 之间的分位数
+     * @return 对应分位的耗时（纳秒），样本为空时返回 -1
+     */
+    synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return -1L;
+        }
+        if (percentile != cachedPercentile || recordedSinceCache >= REFRESH_INTERVAL) {
+            System.arraycopy(samples, 0, sorted, 0, size);
+            Arrays.sort(sorted, 0, size);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            cachedValue = sorted[Math.max(0, Math.min(size - 1, index))];
+            cachedPercentile = percentile;
+            recordedSinceCache = 0;
+        }
+        return cachedValue;
+    }
+}
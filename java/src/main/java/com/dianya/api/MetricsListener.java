@@ -0,0 +1,15 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * SDK 调用指标的扩展点，可据此桥接 Micrometer 等监控系统。
+ *
+ * <p>通过 {@link DianyaRuntime#setMetricsListener(MetricsListener)} 安装，每次调用结束（成功或失败）
+ * 后在调用线程上回调一次，实现需线程安全且尽量轻量。未安装时 SDK 不会采集任何阶段耗时。
+ * 内置实现见 {@link HistogramMetricsListener}。</p>
+ */
+public interface MetricsListener {
+
+    void onCall(@NotNull CallMetrics metrics);
+}
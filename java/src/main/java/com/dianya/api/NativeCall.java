@@ -0,0 +1,157 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 所有 native 调用的统一入口，在这里应用 {@link DianyaRuntime} 上安装的客户端策略。
+ */
+final class NativeCall {
+    private static volatile @Nullable CallPolicy callPolicy;
+    private static volatile @Nullable ConcurrencyLimiter concurrencyLimiter;
+    private static volatile @Nullable RateLimiter rateLimiter;
+    private static volatile @Nullable MetricsListener metricsListener;
+
+    private NativeCall() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static void setCallPolicy(@Nullable CallPolicy policy) {
+        callPolicy = policy;
+    }
+
+    static void setConcurrencyLimiter(@Nullable ConcurrencyLimiter limiter) {
+        concurrencyLimiter = limiter;
+    }
+
+    static void setRateLimiter(@Nullable RateLimiter limiter) {
+        rateLimiter = limiter;
+    }
+
+    static void setMetricsListener(@Nullable MetricsListener listener) {
+        metricsListener = listener;
+    }
+
+    static @Nullable MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    static <T> T invoke(@NotNull Operation operation, @NotNull String token, @NotNull NativeFn<T> fn) {
+        MetricsListener listener = metricsListener;
+        if (listener == null) {
+            return execute(operation, token, fn, null);
+        }
+
+        CallMetrics metrics = new CallMetrics(operation);
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            return execute(operation, token, fn, metrics);
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            metrics.finish(System.nanoTime() - start, error);
+            listener.onCall(metrics);
+        }
+    }
+
+    /** 调用返回 JSON 的 native 方法并解析为 {@code type}。 */
+    static <R> R invokeJson(
+            @NotNull Operation operation,
+            @NotNull String token,
+            @NotNull NativeFn<String> fn,
+            @NotNull Class<R> type
+    ) {
+        return invokeJson(operation, token, null, (payload, call) -> fn.call(call), type);
+    }
+
+    /** 将 {@code body} 编码为 JSON 后调用 native 方法，并把返回的 JSON 解析为 {@code type}。 */
+    static <R> R invokeJson(
+            @NotNull Operation operation,
+            @NotNull String token,
+            @Nullable Object body,
+            @NotNull BodyFn fn,
+            @NotNull Class<R> type
+    ) {
+        MetricsListener listener = metricsListener;
+        if (listener == null) {
+            String payload = body == null ? null : Utils.GSON.toJson(body);
+            String json = execute(operation, token, call -> fn.call(payload, call), null);
+            return Utils.fromJson(json, type);
+        }
+
+        CallMetrics metrics = new CallMetrics(operation);
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            String payload = null;
+            if (body != null) {
+                long encodeStart = System.nanoTime();
+                payload = Utils.GSON.toJson(body);
+                metrics.setPhaseNanos(CallMetrics.Phase.ENCODE, System.nanoTime() - encodeStart);
+                metrics.setRequestBytes(Utils.utf8Length(payload));
+            }
+            String encoded = payload;
+            String json = execute(operation, token, call -> fn.call(encoded, call), metrics);
+
+            long parseStart = System.nanoTime();
+            R result = Utils.fromJson(json, type);
+            metrics.setPhaseNanos(CallMetrics.Phase.PARSE, System.nanoTime() - parseStart);
+            return result;
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            metrics.finish(System.nanoTime() - start, error);
+            listener.onCall(metrics);
+        }
+    }
+
+    private static <T> T execute(
+            Operation operation,
+            String token,
+            NativeFn<T> fn,
+            @Nullable CallMetrics metrics
+    ) {
+        Attempt<T> attempt = () -> CallScope.invokeNative(fn, metrics);
+        // 关闭会话用于释放服务端资源，不参与并发限制与限流
+        boolean exempt = operation == Operation.CLOSE_SESSION;
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter != null && !exempt) {
+            Attempt<T> inner = attempt;
+            attempt = () -> limiter.execute(operation, inner);
+        }
+
+        // 先拿令牌再占并发名额，等待令牌期间不占用并发
+        RateLimiter rates = rateLimiter;
+        if (rates != null && token != null && !exempt) {
+            Attempt<T> inner = attempt;
+            attempt = () -> {
+                rates.acquireForCall(token, operation);
+                return inner.run();
+            };
+        }
+
+        CallPolicy policy = callPolicy;
+        if (policy != null && operation.isIdempotent()) {
+            return policy.execute(operation, attempt);
+        }
+        return attempt.run();
+    }
+
+    /** 一次 native 调用，参数为 {@link CallScope} 分配的调用句柄（0 表示无截止时间与取消）。 */
+    interface NativeFn<T> {
+        T call(long callHandle);
+    }
+
+    /** 套上限流、并发限制等策略后的一次调用尝试。 */
+    interface Attempt<T> {
+        T run();
+    }
+
+    /** 带 JSON 请求体的 native 调用，{@code payload} 在没有请求体时为 {@code null}。 */
+    interface BodyFn {
+        String call(@Nullable String payload, long callHandle);
+    }
+}
@@ -0,0 +1,42 @@
+package com.dianya.api;
+
+/**
+ * SDK 中所有会跨越 JNI 调用服务端的操作。
+ *
+ * <p>用于调用策略、统计等功能按操作区分配置；{@link #isIdempotent()} 标记了可以安全重试或对冲的只读操作。</p>
+ */
+public enum Operation {
+    UPLOAD("upload", OperationClass.UPLOAD, false),
+    STATUS("status", OperationClass.QUERY, true),
+    CALLBACK("callback", OperationClass.QUERY, false),
+    GET_SHARE_LINK("getShareLink", OperationClass.QUERY, true),
+    CREATE_SUMMARY("createSummary", OperationClass.PROCESS, false),
+    EXPORT("export", OperationClass.EXPORT, true),
+    /** 会写本地文件，重试或对冲会让多个写入者同时写同一目标，因此不标记为幂等。 */
+    EXPORT_ALL("exportAll", OperationClass.EXPORT, false),
+    TRANSLATE_TEXT("translateText", OperationClass.PROCESS, true),
+    TRANSLATE_UTTERANCES("translateUtterances", OperationClass.PROCESS, true),
+    TRANSLATE_TRANSCRIBE("translateTranscribe", OperationClass.PROCESS, true),
+    CREATE_SESSION("createSession", OperationClass.SESSION, false),
+    CLOSE_SESSION("closeSession", OperationClass.SESSION, false);
+
+    final String alias;
+    private final OperationClass operationClass;
+    private final boolean idempotent;
+
+    Operation(String alias, OperationClass operationClass, boolean idempotent) {
+        this.alias = alias;
+        this.operationClass = operationClass;
+        this.idempotent = idempotent;
+    }
+
+    /** 操作所属的分类。 */
+    public OperationClass getOperationClass() {
+        return operationClass;
+    }
+
+    /** 是否为幂等操作（重复发送不会改变服务端状态）。 */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+}
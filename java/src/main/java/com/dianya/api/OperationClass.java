@@ -0,0 +1,17 @@
+package com.dianya.api;
+
+/**
+ * 操作分类，用于 {@link RateLimiter} 按类别分别配置令牌桶，以及 {@link ConcurrencyLimiter} 按类别统计耗时。
+ */
+public enum OperationClass {
+    /** 状态查询、分享链接、回调转发等轻量请求。 */
+    QUERY,
+    /** 音频文件上传。 */
+    UPLOAD,
+    /** 导出文件。 */
+    EXPORT,
+    /** 翻译、总结等服务端处理请求。 */
+    PROCESS,
+    /** 实时转写会话的创建与关闭。 */
+    SESSION
+}
@@ -0,0 +1,355 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按 token（租户）区分的客户端令牌桶限流器，每个租户在每个 {@link OperationClass} 上各有一个桶。
+ *
+ * <p>多个租户共用同一 JVM 时，单个租户的突发流量只会耗尽自己的桶，不会触发服务端对所有人的限流。
+ * 通过 {@link DianyaRuntime#setRateLimiter(RateLimiter)} 安装后，SDK 调用前会先从对应桶获取许可：
+ * 最多等待 {@link #maxWaitMillis(long)}，仍拿不到时抛出 {@link DianyaException.Code#LIMIT_EXCEEDED}。
+ * 未配置速率的分类不受限制。</p>
+ *
+ * <p>统计信息以租户 ID（token 的 SHA-256 前缀）为键导出，不会暴露 token 原文。
+ * 闲置超过 {@link #tenantIdleMillis(long)} 的租户连同统计一起清除，token 轮换时不会无限增长；
+ * 租户数超过 {@link #maxTenants(int)} 时，桶已回满的租户也会被清除，它们再次出现时与新建无异。</p>
+ */
+public final class RateLimiter {
+    /** 每多少次获取检查一次闲置租户，必须是 2 的幂。 */
+    private static final int SWEEP_INTERVAL = 4096;
+
+    private final Map<OperationClass, Rate> rates = new EnumMap<>(OperationClass.class);
+    private final ConcurrentHashMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private long maxWaitNanos = TimeUnit.SECONDS.toNanos(1);
+    private long tenantIdleNanos = TimeUnit.MINUTES.toNanos(10);
+    private int maxTenants = 10_000;
+    private final AtomicLong calls = new AtomicLong();
+    private volatile long lastFullSweepNanos = System.nanoTime() - TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * 为某一分类配置速率。
+     *
+     * @param permitsPerSecond 每秒补充的许可数
+     * @param burst            桶容量（允许的突发请求数）
+     */
+    public @NotNull RateLimiter limit(@NotNull OperationClass operationClass, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate must be > 0 and burst must be >= 1.");
+        }
+        rates.put(operationClass, new Rate(permitsPerSecond, burst));
+        return this;
+    }
+
+    /** SDK 内部调用时的最长等待时间（毫秒），传 0 表示不等待，默认 1000。 */
+    public @NotNull RateLimiter maxWaitMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("maxWaitMillis must not be negative.");
+        }
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return this;
+    }
+
+    /** 租户闲置多久后清除（毫秒），默认 10 分钟。 */
+    public @NotNull RateLimiter tenantIdleMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("tenantIdleMillis must be positive.");
+        }
+        this.tenantIdleNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return this;
+    }
+
+    /** 租户数的软上限，超过时清除桶已回满的租户，默认 10000。 */
+    public @NotNull RateLimiter maxTenants(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("maxTenants must be >= 1.");
+        }
+        this.maxTenants = max;
+        return this;
+    }
+
+    /**
+     * 非阻塞获取许可。
+     *
+     * @return 获取成功返回 {@code true}
+     */
+    public boolean tryAcquire(@NotNull String token, @NotNull OperationClass operationClass) {
+        return tryAcquire(token, operationClass, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 在指定时间内获取许可，需要等待时阻塞当前线程。
+     *
+     * @return 在超时前获取成功返回 {@code true}；超时或线程被中断返回 {@code false}
+     */
+    public boolean tryAcquire(
+            @NotNull String token,
+            @NotNull OperationClass operationClass,
+            long timeout,
+            @NotNull TimeUnit unit
+    ) {
+        Rate rate = rates.get(operationClass);
+        if (rate == null) {
+            return true;
+        }
+        Tenant tenant = tenant(token, System.nanoTime());
+        Bucket bucket = tenant.bucket(operationClass, rate);
+        long waitNanos = bucket.reserve(System.nanoTime(), unit.toNanos(timeout));
+        if (waitNanos < 0) {
+            tenant.rejected.incrementAndGet();
+            return false;
+        }
+        if (waitNanos > 0 && !park(waitNanos)) {
+            // 令牌已预支，未等到就归还，避免后来者多等
+            bucket.refund();
+            tenant.rejected.incrementAndGet();
+            return false;
+        }
+        tenant.recordWait(waitNanos);
+        return true;
+    }
+
+    /** 阻塞直至获取许可。 */
+    public void acquire(@NotNull String token, @NotNull OperationClass operationClass) throws InterruptedException {
+        if (!tryAcquire(token, operationClass, Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+            throw new InterruptedException("Interrupted while waiting for rate limit permit.");
+        }
+    }
+
+    /** 返回某个 token 的统计信息，没有记录时返回 {@code null}。 */
+    public @Nullable TenantStats getStats(@NotNull String token) {
+        Tenant tenant = tenants.get(token);
+        return tenant == null ? null : tenant.snapshot();
+    }
+
+    /** 返回所有租户的统计信息，键为租户 ID。 */
+    public @NotNull Map<String, TenantStats> getAllStats() {
+        Map<String, TenantStats> result = new LinkedHashMap<>();
+        for (Tenant tenant : tenants.values()) {
+            result.put(tenant.id, tenant.snapshot());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /** 计算 token 对应的租户 ID，可用于与 {@link #getAllStats()} 的键比对。 */
+    public static @NotNull String tenantId(@NotNull String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                builder.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    void acquireForCall(@NotNull String token, @NotNull Operation operation) {
+        if (!tryAcquire(token, operation.getOperationClass(), maxWaitNanos, TimeUnit.NANOSECONDS)) {
+            throw new DianyaException(
+                    DianyaException.Code.LIMIT_EXCEEDED,
+                    "Rate limit exceeded for " + operation.alias + " (tenant " + tenantId(token) + ")"
+            );
+        }
+    }
+
+    private Tenant tenant(String token, long now) {
+        Tenant tenant = tenants.get(token);
+        if (tenant == null) {
+            // 全量清理是 O(租户数)，超出上限后每秒最多一次
+            if (tenants.size() >= maxTenants && now - lastFullSweepNanos > TimeUnit.SECONDS.toNanos(1)) {
+                lastFullSweepNanos = now;
+                sweep(now, true);
+            }
+            Tenant created = new Tenant(tenantId(token));
+            tenant = tenants.putIfAbsent(token, created);
+            if (tenant == null) {
+                tenant = created;
+            }
+        } else if ((calls.incrementAndGet() & (SWEEP_INTERVAL - 1)) == 0) {
+            sweep(now, false);
+        }
+        tenant.lastUsedNanos = now;
+        return tenant;
+    }
+
+    /** 清除闲置的租户；{@code full} 时还清除所有桶都已回满的租户。 */
+    private void sweep(long now, boolean full) {
+        Iterator<Tenant> iterator = tenants.values().iterator();
+        while (iterator.hasNext()) {
+            Tenant tenant = iterator.next();
+            if (now - tenant.lastUsedNanos > tenantIdleNanos || (full && tenant.isFull(now))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean park(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+        return true;
+    }
+
+    /** 单个租户的限流统计快照。 */
+    public static final class TenantStats {
+        public final String tenantId;
+        /** 成功获取许可的次数。 */
+        public final long acquired;
+        /** 因超时或中断未获取到许可的次数。 */
+        public final long rejected;
+        /** 需要等待才获取到许可的次数。 */
+        public final long waited;
+        /** 累计等待时间（纳秒）。 */
+        public final long totalWaitNanos;
+        /** 单次最长等待时间（纳秒）。 */
+        public final long maxWaitNanos;
+
+        TenantStats(
+                String tenantId,
+                long acquired,
+                long rejected,
+                long waited,
+                long totalWaitNanos,
+                long maxWaitNanos
+        ) {
+            this.tenantId = tenantId;
+            this.acquired = acquired;
+            this.rejected = rejected;
+            this.waited = waited;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+    }
+
+    private static final class Rate {
+        final double permitsPerNano;
+        final int burst;
+
+        Rate(double permitsPerSecond, int burst) {
+            this.permitsPerNano = permitsPerSecond / 1_000_000_000.0;
+            this.burst = burst;
+        }
+    }
+
+    private static final class Tenant {
+        final String id;
+        final ConcurrentMap<OperationClass, Bucket> buckets = new ConcurrentHashMap<>();
+        volatile long lastUsedNanos;
+        final AtomicLong acquired = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong waited = new AtomicLong();
+        final AtomicLong totalWaitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Tenant(String id) {
+            this.id = id;
+        }
+
+        Bucket bucket(OperationClass operationClass, Rate rate) {
+            Bucket bucket = buckets.get(operationClass);
+            if (bucket == null) {
+                Bucket created = new Bucket(rate);
+                bucket = buckets.putIfAbsent(operationClass, created);
+                if (bucket == null) {
+                    bucket = created;
+                }
+            }
+            return bucket;
+        }
+
+        boolean isFull(long now) {
+            for (Bucket bucket : buckets.values()) {
+                if (!bucket.isFull(now)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void recordWait(long nanos) {
+            acquired.incrementAndGet();
+            if (nanos > 0) {
+                waited.incrementAndGet();
+                totalWaitNanos.addAndGet(nanos);
+                long current = maxWaitNanos.get();
+                while (nanos > current && !maxWaitNanos.compareAndSet(current, nanos)) {
+                    current = maxWaitNanos.get();
+                }
+            }
+        }
+
+        TenantStats snapshot() {
+            return new TenantStats(
+                    id,
+                    acquired.get(),
+                    rejected.get(),
+                    waited.get(),
+                    totalWaitNanos.get(),
+                    maxWaitNanos.get()
+            );
+        }
+    }
+
+    /** 允许预支的令牌桶：令牌不足时记账为负数，调用方按返回的时间等待。 */
+    private static final class Bucket {
+        private final Rate rate;
+        private double tokens;
+        private long lastRefillNanos;
+
+        Bucket(Rate rate) {
+            this.rate = rate;
+            this.tokens = rate.burst;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * @return 需要等待的纳秒数；等待时间超过 {@code maxWaitNanos} 时返回 -1 且不占用令牌
+         */
+        synchronized long reserve(long now, long maxWaitNanos) {
+            tokens = Math.min(rate.burst, tokens + (now - lastRefillNanos) * rate.permitsPerNano);
+            lastRefillNanos = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return 0L;
+            }
+            long wait = (long) Math.ceil((1.0 - tokens) / rate.permitsPerNano);
+            if (wait > maxWaitNanos) {
+                return -1L;
+            }
+            tokens -= 1.0;
+            return wait;
+        }
+
+        /** 归还一个已预支但未使用的令牌。 */
+        synchronized void refund() {
+            tokens = Math.min(rate.burst, tokens + 1.0);
+        }
+
+        synchronized boolean isFull(long now) {
+            return tokens + (now - lastRefillNanos) * rate.permitsPerNano >= rate.burst;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.dianya.api;
+
+/**
+ * 全局重试预算：每个请求按比例存入额度，每次重试或对冲消耗一个额度，
+ * 另外按时间补充最低额度，保证低流量时仍可少量重试。
+ *
+ * <p>服务整体故障时额度会很快耗尽，重试不会把流量成倍放大。</p>
+ */
+final class RetryBudget {
+    private final double ratio;
+    private final double minPerSecond;
+    private final double maxTokens;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    RetryBudget(double ratio, double minPerSecond) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.maxTokens = Math.max(1.0, minPerSecond * 10.0);
+        this.tokens = maxTokens;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    synchronized void recordRequest() {
+        refill();
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        refill();
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        lastRefillNanos = now;
+        tokens = Math.min(maxTokens, tokens + elapsedSeconds * minPerSecond);
+    }
+}
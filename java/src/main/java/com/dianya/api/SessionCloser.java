@@ -0,0 +1,139 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 一批异步关闭请求的回调目标，native 层在每个会话关闭完成时调用 {@link #onNativeClosed}。
+ *
+ * <p>每个会话有自己的 {@link CallScope} 调用句柄，沿用发起线程作用域的截止时间与取消（没有作用域时按默认截止时间）；
+ * 完成后在 SDK 线程池上读取指标、释放句柄、上报 {@link MetricsListener} 并完成 future。</p>
+ */
+final class SessionCloser {
+    private final List<DianyaFuture<TranscribeStream.SessionCloseResponse>> futures;
+    private final CallScope scope;
+    private final long[] handles;
+    private final CallMetrics[] metrics;
+    private final @Nullable MetricsListener listener;
+    private final long startNanos = System.nanoTime();
+
+    private SessionCloser(int count) {
+        List<DianyaFuture<TranscribeStream.SessionCloseResponse>> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(new DianyaFuture<>());
+        }
+        this.futures = Collections.unmodifiableList(list);
+        this.scope = CallScope.forAsync();
+        this.handles = new long[count];
+        this.metrics = new CallMetrics[count];
+        this.listener = NativeCall.getMetricsListener();
+    }
+
+    /** 为 {@code count} 个会话创建调用句柄；截止时间已过或作用域已取消时抛出，已创建的句柄随之释放。 */
+    static @NotNull SessionCloser open(int count) {
+        SessionCloser closer = new SessionCloser(count);
+        int created = 0;
+        try {
+            for (; created < count; created++) {
+                if (closer.listener != null) {
+                    closer.metrics[created] = new CallMetrics(Operation.CLOSE_SESSION);
+                    closer.metrics[created].attemptStarted();
+                }
+                closer.handles[created] = closer.scope.register(closer.metrics[created]);
+            }
+        } catch (RuntimeException e) {
+            closer.releaseFirst(created);
+            throw e;
+        }
+        return closer;
+    }
+
+    @NotNull List<DianyaFuture<TranscribeStream.SessionCloseResponse>> getFutures() {
+        return futures;
+    }
+
+    long[] getCallHandles() {
+        return handles;
+    }
+
+    /** native 调用未能发起时释放全部句柄。 */
+    void abandon() {
+        releaseFirst(handles.length);
+    }
+
+    /** 在 Tokio 线程上回调，只把结果交给 SDK 线程池，不在运行时线程上解析或执行回调。 */
+    @SuppressWarnings("unused")
+    void onNativeClosed(int index, @Nullable String json, @Nullable String code, @Nullable String message) {
+        Runnable task = () -> finish(index, json, code, message);
+        try {
+            SharedExecutors.blocking().execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private void finish(int index, @Nullable String json, @Nullable String code, @Nullable String message) {
+        CallMetrics callMetrics = metrics[index];
+        try {
+            if (callMetrics != null) {
+                CallScope.readMetrics(handles[index], callMetrics);
+            }
+        } finally {
+            scope.release(handles[index]);
+        }
+
+        TranscribeStream.SessionCloseResponse response = null;
+        Throwable error = null;
+        if (json == null) {
+            error = new DianyaException(codeOf(code), message == null ? "" : message);
+        } else {
+            long parseStart = System.nanoTime();
+            try {
+                response = Utils.fromJson(json, TranscribeStream.SessionCloseResponse.class);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            if (callMetrics != null) {
+                callMetrics.setPhaseNanos(CallMetrics.Phase.PARSE, System.nanoTime() - parseStart);
+            }
+        }
+
+        if (callMetrics != null && listener != null) {
+            callMetrics.finish(System.nanoTime() - startNanos, error);
+            try {
+                listener.onCall(callMetrics);
+            } catch (RuntimeException ignored) {
+                // 监听器异常不影响 future 完成
+            }
+        }
+
+        DianyaFuture<TranscribeStream.SessionCloseResponse> future = futures.get(index);
+        if (error != null) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(response);
+        }
+    }
+
+    private void releaseFirst(int count) {
+        for (int i = 0; i < count; i++) {
+            scope.release(handles[i]);
+        }
+    }
+
+    private static DianyaException.Code codeOf(@Nullable String code) {
+        if (code != null) {
+            try {
+                return DianyaException.Code.valueOf(code);
+            } catch (IllegalArgumentException ignored) {
+                // 未知错误码
+            }
+        }
+        return DianyaException.Code.UNEXPECTED_ERROR;
+    }
+}
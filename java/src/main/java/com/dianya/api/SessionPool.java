@@ -0,0 +1,309 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预创建实时转写会话的池，缩短从用户点击到第一帧音频被采集的时间。
+ *
+ * <p>开始实时转写原本需要依次完成 {@code createSession}（HTTP）、创建 {@link TranscribeStream}
+ * 和 {@code start()}（WebSocket 握手）。会话池按 {@link ModelType} 在后台保持配置数量的预热会话，
+ * 可选地提前完成握手；{@link #tryAcquire(ModelType)} 只是从队列中取出一个，耗时在微秒级。</p>
+ *
+ * <p>预热会话在 {@code maxTime} 到期前 {@link SessionPoolOptions#expiryMarginSeconds(long)} 秒或闲置超过
+ * {@link SessionPoolOptions#maxIdleMillis(long)} 后不再分配，由后台线程关闭并补充新的会话。</p>
+ *
+ * <pre>{@code
+ * SessionPool pool = new SessionPool(token, new SessionPoolOptions()
+ *         .warmSessions(ModelType.SPEED, 2)
+ *         .preconnect(true));
+ * SessionPool.PooledSession pooled = pool.acquire(ModelType.SPEED);
+ * TranscribeStream stream = pooled.getStream();
+ * stream.start();            // 已预连接时立即返回
+ * stream.sendBinary(pcm);
+ * }</pre>
+ *
+ * <p>取出的会话归调用方所有，使用完毕后需自行 {@code close()} 流并调用
+ * {@link TranscribeStream#closeSession(String, String, long)}。</p>
+ */
+public final class SessionPool implements AutoCloseable {
+
+    private final String token;
+    private final SessionPoolOptions options;
+    private final Map<ModelType, ConcurrentLinkedDeque<Entry>> idle = new EnumMap<>(ModelType.class);
+    private final Map<ModelType, AtomicBoolean> refilling = new EnumMap<>(ModelType.class);
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean closed;
+
+    public SessionPool(@NotNull String token, @NotNull SessionPoolOptions options) {
+        this.token = token;
+        this.options = options;
+        for (ModelType model : ModelType.values()) {
+            idle.put(model, new ConcurrentLinkedDeque<>());
+            refilling.put(model, new AtomicBoolean());
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                SharedExecutors.daemonFactory("dianya-session-pool"));
+        scheduler.scheduleWithFixedDelay(this::maintain, 0L, options.getRefillIntervalMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 取出一个预热会话，池中没有可用会话时返回 {@code null}，并在后台触发补充。
+     */
+    public @Nullable PooledSession tryAcquire(@NotNull ModelType model) {
+        ensureOpen();
+        ConcurrentLinkedDeque<Entry> queue = idle.get(model);
+        long now = System.nanoTime();
+        Entry entry;
+        // 先到期的先分配，减少浪费
+        while ((entry = queue.pollFirst()) != null) {
+            if (entry.isUsable(now)) {
+                hits.incrementAndGet();
+                requestRefill(model);
+                return new PooledSession(model, entry.session, entry.stream, true);
+            }
+            expired.incrementAndGet();
+            retireLater(entry);
+        }
+        requestRefill(model);
+        return null;
+    }
+
+    /**
+     * 取出一个预热会话，池为空时在当前线程上创建新会话（按配置决定是否建立连接）。
+     */
+    public @NotNull PooledSession acquire(@NotNull ModelType model) {
+        PooledSession pooled = tryAcquire(model);
+        if (pooled != null) {
+            return pooled;
+        }
+        misses.incrementAndGet();
+        Entry entry = create(model);
+        return new PooledSession(model, entry.session, entry.stream, false);
+    }
+
+    /** 当前可分配的预热会话数（含尚未被清理的过期会话）。 */
+    public int getIdleCount(@NotNull ModelType model) {
+        return idle.get(model).size();
+    }
+
+    public @NotNull Stats getStats() {
+        Stats stats = new Stats();
+        stats.hits = hits.get();
+        stats.misses = misses.get();
+        stats.created = created.get();
+        stats.expired = expired.get();
+        stats.failures = failures.get();
+        for (ConcurrentLinkedDeque<Entry> queue : idle.values()) {
+            stats.idle += queue.size();
+        }
+        return stats;
+    }
+
+    /** 停止补充并关闭池中所有未分配的会话，已取出的会话不受影响。 */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scheduler.shutdownNow();
+        for (ConcurrentLinkedDeque<Entry> queue : idle.values()) {
+            Entry entry;
+            while ((entry = queue.pollFirst()) != null) {
+                retire(entry);
+            }
+        }
+    }
+
+    private void maintain() {
+        long now = System.nanoTime();
+        for (ModelType model : ModelType.values()) {
+            Iterator<Entry> iterator = idle.get(model).iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (!entry.isUsable(now) && idle.get(model).remove(entry)) {
+                    expired.incrementAndGet();
+                    retire(entry);
+                }
+            }
+            refill(model);
+        }
+    }
+
+    private void requestRefill(ModelType model) {
+        if (closed || options.getWarmSessions(model) == 0) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> refill(model));
+        } catch (RejectedExecutionException ignored) {
+            // 池已关闭
+        }
+    }
+
+    private void refill(ModelType model) {
+        int target = options.getWarmSessions(model);
+        AtomicBoolean running = refilling.get(model);
+        if (target == 0 || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ConcurrentLinkedDeque<Entry> queue = idle.get(model);
+            while (!closed && queue.size() < target) {
+                Entry entry = create(model);
+                queue.addLast(entry);
+                // 入队后再检查：close() 可能在入队前已清空队列，此时由这里关闭；
+                // 能移除成功说明 close() 尚未取走该会话，二者只会有一方关闭它
+                if (closed) {
+                    if (queue.remove(entry)) {
+                        retire(entry);
+                    }
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // 创建失败时等下一次定时检查再重试，避免对服务端造成重试风暴
+            failures.incrementAndGet();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Entry create(ModelType model) {
+        TranscribeStream.SessionCreateResponse session = TranscribeStream.createSession(model, token);
+        long createdAt = System.nanoTime();
+        TranscribeStream stream = new TranscribeStream(session.sessionId, options.getStreamOptions());
+        if (options.isPreconnect()) {
+            try {
+                stream.start();
+            } catch (RuntimeException e) {
+                retire(new Entry(session, stream, createdAt));
+                throw e;
+            }
+        }
+        created.incrementAndGet();
+
+        long lifetime = options.getMaxIdleMillis();
+        if (session.maxTime > 0) {
+            long remaining = TimeUnit.SECONDS.toMillis(session.maxTime - options.getExpiryMarginSeconds());
+            lifetime = Math.min(lifetime, Math.max(0L, remaining));
+        }
+        return new Entry(session, stream, createdAt + TimeUnit.MILLISECONDS.toNanos(lifetime));
+    }
+
+    private void retireLater(Entry entry) {
+        try {
+            scheduler.execute(() -> retire(entry));
+        } catch (RejectedExecutionException e) {
+            retire(entry);
+        }
+    }
+
+    private void retire(Entry entry) {
+        try {
+            entry.stream.close();
+        } catch (RuntimeException ignored) {
+            // 继续关闭会话
+        }
+        try {
+            TranscribeStream.closeSession(entry.session.taskId, token, options.getCloseTimeoutSeconds());
+        } catch (RuntimeException ignored) {
+            // 会话到期后服务端也会回收
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("SessionPool has been closed.");
+        }
+    }
+
+    private static final class Entry {
+        final TranscribeStream.SessionCreateResponse session;
+        final TranscribeStream stream;
+        final long deadlineNanos;
+
+        Entry(TranscribeStream.SessionCreateResponse session, TranscribeStream stream, long deadlineNanos) {
+            this.session = session;
+            this.stream = stream;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        boolean isUsable(long now) {
+            // 预连接的会话在闲置期间可能已被服务端断开
+            return now - deadlineNanos < 0 && !stream.isFinishedNow();
+        }
+    }
+
+    /** 从池中取出的会话，归调用方所有。 */
+    public static final class PooledSession {
+        private final ModelType model;
+        private final TranscribeStream.SessionCreateResponse session;
+        private final TranscribeStream stream;
+        private final boolean warm;
+
+        PooledSession(
+                ModelType model,
+                TranscribeStream.SessionCreateResponse session,
+                TranscribeStream stream,
+                boolean warm
+        ) {
+            this.model = model;
+            this.session = session;
+            this.stream = stream;
+            this.warm = warm;
+        }
+
+        public @NotNull ModelType getModel() {
+            return model;
+        }
+
+        /** {@code createSession} 的响应，关闭会话时使用其中的 {@code taskId}。 */
+        public @NotNull TranscribeStream.SessionCreateResponse getSession() {
+            return session;
+        }
+
+        /** 会话对应的流；开启 {@link SessionPoolOptions#preconnect(boolean)} 时已经启动。 */
+        public @NotNull TranscribeStream getStream() {
+            return stream;
+        }
+
+        /** 是否来自预热会话，{@code false} 表示池为空时现场创建。 */
+        public boolean isWarm() {
+            return warm;
+        }
+    }
+
+    public static final class Stats {
+        /** 命中预热会话的次数。 */
+        public long hits;
+        /** 池为空、现场创建的次数。 */
+        public long misses;
+        /** 后台及现场累计创建的会话数。 */
+        public long created;
+        /** 因到期或连接断开而丢弃的预热会话数。 */
+        public long expired;
+        /** 后台创建失败次数。 */
+        public long failures;
+        /** 当前池中的会话数。 */
+        public int idle;
+    }
+}
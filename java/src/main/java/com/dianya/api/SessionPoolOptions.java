@@ -0,0 +1,111 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * {@link SessionPool} 的参数。
+ *
+ * <pre>{@code
+ * SessionPoolOptions options = new SessionPoolOptions()
+ *         .warmSessions(ModelType.SPEED, 4)
+ *         .preconnect(true);
+ * }</pre>
+ */
+public final class SessionPoolOptions {
+    private final Map<ModelType, Integer> warmSessions = new EnumMap<>(ModelType.class);
+    private boolean preconnect;
+    private @NotNull StreamOptions streamOptions = new StreamOptions();
+    private long expiryMarginSeconds = 30L;
+    private long maxIdleMillis = 5 * 60_000L;
+    private long refillIntervalMillis = 1_000L;
+    private long closeTimeoutSeconds = 5L;
+
+    /** 为 {@code model} 保持的预创建会话数，未设置的模型不预创建。 */
+    public @NotNull SessionPoolOptions warmSessions(@NotNull ModelType model, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative.");
+        }
+        warmSessions.put(model, count);
+        return this;
+    }
+
+    /**
+     * 是否提前建立 WebSocket 连接，默认关闭。开启后取出的 {@link TranscribeStream} 已经 {@code start()}，
+     * 可以立即发送音频；代价是每个预热会话占用一条空闲连接。
+     */
+    public @NotNull SessionPoolOptions preconnect(boolean enabled) {
+        this.preconnect = enabled;
+        return this;
+    }
+
+    /** 创建 {@link TranscribeStream} 使用的参数。 */
+    public @NotNull SessionPoolOptions streamOptions(@NotNull StreamOptions options) {
+        this.streamOptions = options;
+        return this;
+    }
+
+    /** 距会话 {@code maxTime} 到期还剩多少秒时视为过期，不再分配，默认 30。 */
+    public @NotNull SessionPoolOptions expiryMarginSeconds(long seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("expiryMarginSeconds must not be negative.");
+        }
+        this.expiryMarginSeconds = seconds;
+        return this;
+    }
+
+    /** 预热会话的最长闲置时间（毫秒），默认 5 分钟，避免空闲连接被服务端断开后才被取出。 */
+    public @NotNull SessionPoolOptions maxIdleMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("maxIdleMillis must be positive.");
+        }
+        this.maxIdleMillis = millis;
+        return this;
+    }
+
+    /** 后台检查过期与补充的间隔（毫秒），默认 1000。取出会话时也会立即触发补充。 */
+    public @NotNull SessionPoolOptions refillIntervalMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("refillIntervalMillis must be positive.");
+        }
+        this.refillIntervalMillis = millis;
+        return this;
+    }
+
+    /** 关闭过期会话时 {@link TranscribeStream#closeSession} 的超时（秒），默认 5。 */
+    public @NotNull SessionPoolOptions closeTimeoutSeconds(long seconds) {
+        this.closeTimeoutSeconds = seconds;
+        return this;
+    }
+
+    int getWarmSessions(@NotNull ModelType model) {
+        Integer count = warmSessions.get(model);
+        return count == null ? 0 : count;
+    }
+
+    boolean isPreconnect() {
+        return preconnect;
+    }
+
+    @NotNull StreamOptions getStreamOptions() {
+        return streamOptions;
+    }
+
+    long getExpiryMarginSeconds() {
+        return expiryMarginSeconds;
+    }
+
+    long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    long getRefillIntervalMillis() {
+        return refillIntervalMillis;
+    }
+
+    long getCloseTimeoutSeconds() {
+        return closeTimeoutSeconds;
+    }
+}
@@ -0,0 +1,57 @@
+package com.dianya.api;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SDK 内部共享的线程池，全部为守护线程，不会阻止 JVM 退出。
+ */
+final class SharedExecutors {
+
+    private SharedExecutors() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /** 执行阻塞 native 调用的线程池（对冲请求等场景）。 */
+    static ExecutorService blocking() {
+        return BlockingHolder.INSTANCE;
+    }
+
+    /** 流结果推送的分发线程池，线程数固定，所有流共享。 */
+    static ExecutorService delivery() {
+        return DeliveryHolder.INSTANCE;
+    }
+
+    /** 定时任务线程，只负责到期时提交任务，不执行阻塞调用。 */
+    static ScheduledExecutorService scheduler() {
+        return SchedulerHolder.INSTANCE;
+    }
+
+    static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class BlockingHolder {
+        static final ExecutorService INSTANCE = Executors.newCachedThreadPool(daemonFactory("dianya-blocking"));
+    }
+
+    private static final class SchedulerHolder {
+        static final ScheduledExecutorService INSTANCE =
+                Executors.newSingleThreadScheduledExecutor(daemonFactory("dianya-scheduler"));
+    }
+
+    private static final class DeliveryHolder {
+        static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+                daemonFactory("dianya-delivery")
+        );
+    }
+}
@@ -0,0 +1,47 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按任务保存上一次状态结果的指纹，轮询时通过 {@link TranscribeApi#statusDelta} 只取回变化的部分。
+ *
+ * <p>只保存指纹，不持有结果内容；任务结束后调用 {@link #forget(String)} 释放。线程安全，
+ * 同一任务的并发轮询以最后完成的一次为准。</p>
+ *
+ * <pre>{@code
+ * StatusWatcher watcher = new StatusWatcher();
+ * TranscribeApi.StatusDelta delta = watcher.poll(taskId, token);
+ * if (!delta.unchanged) {
+ *     if (delta.detailsOffset == 0) {
+ *         // 首次查询或已知分段有变化：返回的是全部分段，整体替换
+ *         transcript.clear();
+ *         transcript.addAll(delta.status.details);
+ *     } else {
+ *         // 前 detailsOffset 个分段未变，只返回之后的新分段，追加即可
+ *         transcript.addAll(delta.status.details);
+ *     }
+ * }
+ * }</pre>
+ */
+public final class StatusWatcher {
+    private final Map<String, TranscribeApi.StatusDelta> fingerprints = new ConcurrentHashMap<>();
+
+    /** 查询任务状态，与上一次 {@code poll} 的结果比较。 */
+    public @NotNull TranscribeApi.StatusDelta poll(@NotNull String taskId, @NotNull String token) {
+        TranscribeApi.StatusDelta delta = TranscribeApi.statusDelta(taskId, null, fingerprints.get(taskId), token);
+        fingerprints.put(taskId, delta.fingerprintOnly());
+        return delta;
+    }
+
+    /** 丢弃任务的指纹，下次 {@link #poll} 返回完整结果。 */
+    public void forget(@NotNull String taskId) {
+        fingerprints.remove(taskId);
+    }
+
+    public int size() {
+        return fingerprints.size();
+    }
+}
@@ -0,0 +1,175 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个 {@link StreamSubscriber} 的分发状态。
+ *
+ * <p>native 读任务每收到一条消息调用一次 {@link #onNativeSignal()}，这里只负责把分发任务调度到线程池；
+ * 分发时按剩余需求量以非阻塞方式从 native 队列取消息。{@code wip} 计数保证同一时刻只有一个分发任务，
+ * 并且分发期间到达的信号不会丢失。</p>
+ */
+final class StreamDelivery implements StreamSubscription {
+    static final int MAX_BATCH = 64;
+    private static final StreamEvent[] NO_EVENTS = new StreamEvent[0];
+
+    private final Source stream;
+    private final StreamSubscriber subscriber;
+    private final Executor executor;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean cancelled;
+    private volatile @Nullable Throwable pendingError;
+    /** 流已停止或关闭，native 句柄不再可用，受 {@code this} 保护。 */
+    private boolean stopped;
+    /** 只在分发任务中访问。 */
+    private boolean terminated;
+
+    StreamDelivery(
+            @NotNull Source stream,
+            @NotNull StreamSubscriber subscriber,
+            @NotNull Executor executor
+    ) {
+        this.stream = stream;
+        this.subscriber = subscriber;
+        this.executor = executor;
+    }
+
+    void start() {
+        subscriber.onSubscribe(this);
+        schedule();
+    }
+
+    /** native 回调：有新消息或结果流已结束。 */
+    @SuppressWarnings("unused")
+    void onNativeSignal() {
+        schedule();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            pendingError = new IllegalArgumentException("request must be positive, got " + n);
+        } else {
+            long current;
+            long sum;
+            do {
+                current = demand.get();
+                sum = current + n;
+                if (sum < 0) {
+                    sum = Long.MAX_VALUE;
+                }
+            } while (!demand.compareAndSet(current, sum));
+        }
+        schedule();
+    }
+
+    @Override
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            stream.detach(this);
+        }
+    }
+
+    /** 流停止或关闭前调用，等待正在进行的 native 读取结束后再返回。 */
+    void streamStopped() {
+        synchronized (this) {
+            stopped = true;
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (wip.getAndIncrement() == 0) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        for (;;) {
+            if (!terminated) {
+                drainAvailable();
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void drainAvailable() {
+        for (;;) {
+            if (cancelled) {
+                terminated = true;
+                return;
+            }
+            Throwable error = pendingError;
+            if (error != null) {
+                terminate();
+                subscriber.onError(error);
+                return;
+            }
+            if (demand.get() == 0) {
+                return;
+            }
+
+            boolean ended;
+            StreamEvent[] events;
+            try {
+                synchronized (this) {
+                    // 先读结束标记再取消息：结束标记在最后一条消息入队之后才设置
+                    ended = stopped || stream.isFinishedNow();
+                    int max = (int) Math.min(demand.get(), MAX_BATCH);
+                    events = stopped ? NO_EVENTS : stream.pollNow(max);
+                }
+            } catch (RuntimeException e) {
+                terminate();
+                subscriber.onError(e);
+                return;
+            }
+
+            if (events.length == 0) {
+                if (ended) {
+                    terminate();
+                    subscriber.onComplete();
+                }
+                return;
+            }
+            if (demand.get() != Long.MAX_VALUE) {
+                demand.addAndGet(-events.length);
+            }
+            for (StreamEvent event : events) {
+                if (cancelled) {
+                    terminated = true;
+                    return;
+                }
+                subscriber.onEvent(event);
+            }
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        cancel();
+    }
+
+    /** 分发用到的结果流操作，由 {@link TranscribeStream} 提供。 */
+    interface Source {
+        /** 结果流是否已结束，为真时最后一条消息已经入队。 */
+        boolean isFinishedNow();
+
+        /** 非阻塞地取出最多 {@code max} 条消息。 */
+        @NotNull StreamEvent[] pollNow(int max);
+
+        /** 订阅取消或终止后解除与结果流的关联。 */
+        void detach(@NotNull StreamDelivery delivery);
+    }
+}
@@ -0,0 +1,347 @@
+package com.dianya.api;
+
+import com.google.gson.annotations.SerializedName;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 面向大量并发会话（如电话网关）的实时转写引擎。
+ *
+ * <p>与每个会话各自持有读任务、结果队列和若干 Java 线程的 {@link TranscribeStream} 不同，引擎内所有会话共享：</p>
+ * <ul>
+ *     <li>一个 native 读任务，轮询全部会话的结果流；</li>
+ *     <li>固定数量的 Java 分发线程，批量取出消息后回调 {@link Listener}。</li>
+ * </ul>
+ * <p>每个会话有自己的有界写队列和一个 native 写任务（协程，不是线程），发送只是非阻塞入队；
+ * 单帧写入超过 {@link StreamEngineOptions#writeTimeoutMillis(long)} 时断开该会话，一个卡住的连接不会拖慢其他会话。
+ * 因此单个会话除连接本身外只占用一个表项、写任务和排队中的消息，线程数不随会话数增长。</p>
+ *
+ * <pre>{@code
+ * StreamEngine engine = new StreamEngine();
+ * StreamEngine.Session session = engine.open(sessionId, new StreamEngine.Listener() {
+ *     public void onMessage(StreamEngine.Session session, String message) { ... }
+ * });
+ * session.sendBinary(pcm);
+ * session.close();
+ * }</pre>
+ *
+ * <p>监听器回调在分发线程上执行，应尽快返回；同一会话的回调不会并发且保持顺序。
+ * 使用前请确保调用 {@link DianyaRuntime#initialize()}。</p>
+ */
+public final class StreamEngine implements AutoCloseable {
+
+    private static final int BATCH = 256;
+    private static final long POLL_MILLIS = 200L;
+
+    static {
+        System.loadLibrary("dianyaapi_jni");
+    }
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextKey = new AtomicLong();
+    /** 读锁保护 native 句柄的日常使用，{@link #close()} 持写锁释放句柄。 */
+    private final ReentrantReadWriteLock handleLock = new ReentrantReadWriteLock();
+    private final Thread[] dispatchers;
+    private volatile boolean closed;
+    private long nativeHandle;
+
+    public StreamEngine() {
+        this(new StreamEngineOptions());
+    }
+
+    public StreamEngine(@NotNull StreamEngineOptions options) {
+        this.nativeHandle = nativeCreate(options.toJson());
+        ThreadFactory factory = SharedExecutors.daemonFactory("dianya-engine");
+        this.dispatchers = new Thread[options.getDispatchThreads()];
+        for (int shard = 0; shard < dispatchers.length; shard++) {
+            int index = shard;
+            dispatchers[shard] = factory.newThread(() -> dispatchLoop(index));
+            dispatchers[shard].start();
+        }
+    }
+
+    /**
+     * 连接会话并开始接收结果，在当前线程上等待 WebSocket 握手完成。
+     *
+     * @param sessionId 来自 {@link TranscribeStream#createSession(ModelType, String)} 的 session id
+     */
+    public @NotNull Session open(@NotNull String sessionId, @NotNull Listener listener) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            throw new IllegalArgumentException("sessionId must not be empty.");
+        }
+        long key = nextKey.incrementAndGet();
+        Session session = new Session(this, key, sessionId, listener);
+        // 先登记再连接，第一条消息到达时分发线程一定能找到会话
+        sessions.put(key, session);
+        handleLock.readLock().lock();
+        try {
+            ensureOpen();
+            nativeOpen(nativeHandle, key, sessionId);
+        } catch (RuntimeException e) {
+            sessions.remove(key);
+            throw e;
+        } finally {
+            handleLock.readLock().unlock();
+        }
+        return session;
+    }
+
+    /** 当前打开的会话数。 */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public @NotNull Stats getStats() {
+        handleLock.readLock().lock();
+        try {
+            ensureOpen();
+            return Utils.fromJson(nativeStats(nativeHandle), Stats.class);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    /** 关闭全部会话并释放引擎，不会再回调监听器。 */
+    @Override
+    public void close() {
+        handleLock.readLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // 唤醒阻塞在 nativePoll 上的分发线程
+            nativeShutdown(nativeHandle);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+
+        for (Thread dispatcher : dispatchers) {
+            if (dispatcher != Thread.currentThread()) {
+                try {
+                    dispatcher.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        handleLock.writeLock().lock();
+        try {
+            if (nativeHandle != 0L) {
+                nativeDestroy(nativeHandle);
+                nativeHandle = 0L;
+            }
+        } finally {
+            handleLock.writeLock().unlock();
+        }
+        for (Session session : sessions.values()) {
+            session.closed = true;
+        }
+        sessions.clear();
+    }
+
+    private void dispatchLoop(int shard) {
+        long[] keys = new long[BATCH];
+        while (!closed) {
+            String[] messages;
+            handleLock.readLock().lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                messages = nativePoll(nativeHandle, shard, keys, POLL_MILLIS);
+            } finally {
+                handleLock.readLock().unlock();
+            }
+
+            for (int i = 0; i < messages.length; i++) {
+                if (closed) {
+                    return;
+                }
+                String message = messages[i];
+                if (message == null) {
+                    // 服务端结束或断线时释放 native 侧的连接与写任务；已关闭的会话重复调用无副作用
+                    closeSession(keys[i]);
+                    Session session = sessions.remove(keys[i]);
+                    if (session != null) {
+                        session.closed = true;
+                        deliverClosed(session);
+                    }
+                } else {
+                    Session session = sessions.get(keys[i]);
+                    if (session != null) {
+                        deliverMessage(session, message);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void deliverMessage(Session session, String message) {
+        try {
+            session.listener.onMessage(session, message);
+        } catch (RuntimeException ignored) {
+            // 监听器异常不能终止共享的分发线程
+        }
+    }
+
+    private static void deliverClosed(Session session) {
+        try {
+            session.listener.onClosed(session);
+        } catch (RuntimeException ignored) {
+            // 同上
+        }
+    }
+
+    private void send(long key, byte[] data, int offset, int length) {
+        handleLock.readLock().lock();
+        try {
+            ensureOpen();
+            nativeSendBinary(nativeHandle, key, data, offset, length);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    private void send(long key, String text) {
+        handleLock.readLock().lock();
+        try {
+            ensureOpen();
+            nativeSendText(nativeHandle, key, text);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    private void closeSession(long key) {
+        handleLock.readLock().lock();
+        try {
+            if (!closed) {
+                nativeClose(nativeHandle, key);
+            }
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed || nativeHandle == 0L) {
+            throw new IllegalStateException("StreamEngine has been closed.");
+        }
+    }
+
+    /** 引擎内会话的结果监听器，回调在引擎的分发线程上执行。 */
+    public interface Listener {
+
+        /** 收到一条服务端推送的 JSON 文本消息；发送失败时会收到一条 {@code type} 为 {@code error} 的消息。 */
+        void onMessage(@NotNull Session session, @NotNull String message);
+
+        /** 会话结果流结束（服务端关闭、连接断开或调用了 {@link Session#close()}），之后不会再有回调。 */
+        default void onClosed(@NotNull Session session) {
+        }
+    }
+
+    /** 引擎内的一个会话，线程安全。 */
+    public static final class Session {
+        private final StreamEngine engine;
+        private final long key;
+        private final String sessionId;
+        private final Listener listener;
+        private volatile boolean closed;
+
+        Session(StreamEngine engine, long key, String sessionId, Listener listener) {
+            this.engine = engine;
+            this.key = key;
+            this.sessionId = sessionId;
+            this.listener = listener;
+        }
+
+        public @NotNull String getSessionId() {
+            return sessionId;
+        }
+
+        public void sendBinary(@NotNull byte[] payload) {
+            sendBinary(payload, 0, payload.length);
+        }
+
+        /** 拷贝数据后入队立即返回，写任务队列已满时抛出 {@link DianyaException.Code#LIMIT_EXCEEDED}。 */
+        public void sendBinary(@NotNull byte[] payload, int offset, int length) {
+            if (payload == null || length <= 0) {
+                throw new IllegalArgumentException("payload must not be empty.");
+            }
+            if (offset < 0 || offset > payload.length - length) {
+                throw new IndexOutOfBoundsException("offset/length out of range.");
+            }
+            ensureOpen();
+            engine.send(key, payload, offset, length);
+        }
+
+        public void sendText(@NotNull String message) {
+            if (message == null) {
+                throw new IllegalArgumentException("message must not be null.");
+            }
+            ensureOpen();
+            engine.send(key, message);
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /** 断开连接，稍后会收到 {@link Listener#onClosed(Session)}。 */
+        public void close() {
+            if (!closed) {
+                engine.closeSession(key);
+            }
+        }
+
+        private void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("Session has been closed.");
+            }
+        }
+    }
+
+    public static final class Stats {
+        public int sessions;
+        /** 等待分发的消息数。 */
+        @SerializedName("queued_events")
+        public long queuedEvents;
+        /** 分发队列溢出丢弃的消息数。 */
+        @SerializedName("dropped_events")
+        public long droppedEvents;
+        @SerializedName("written_frames")
+        public long writtenFrames;
+        @SerializedName("write_errors")
+        public long writeErrors;
+        /** 写入超时而断开的会话数。 */
+        @SerializedName("write_timeouts")
+        public long writeTimeouts;
+    }
+
+    private static native long nativeCreate(String optionsJson);
+
+    private static native void nativeShutdown(long handle);
+
+    private static native void nativeDestroy(long handle);
+
+    private static native void nativeOpen(long handle, long key, String sessionId);
+
+    private static native void nativeClose(long handle, long key);
+
+    private static native void nativeSendBinary(long handle, long key, byte[] data, int offset, int length);
+
+    private static native void nativeSendText(long handle, long key, String message);
+
+    private static native String[] nativePoll(long handle, int shard, long[] keys, long timeoutMillis);
+
+    private static native String nativeStats(long handle);
+}
@@ -0,0 +1,66 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link StreamEngine} 的创建参数。
+ *
+ * <pre>{@code
+ * StreamEngine engine = new StreamEngine(new StreamEngineOptions()
+ *         .dispatchThreads(4)
+ *         .sessionQueueFrames(512));
+ * }</pre>
+ */
+public final class StreamEngineOptions {
+    private int dispatchThreads = 2;
+    private int sessionQueueFrames = 256;
+    private long writeTimeoutMillis = 5_000L;
+    private int eventQueueCapacity = 65_536;
+
+    /** 回调监听器的分发线程数，默认 2。同一会话的回调总在同一线程上按顺序执行。 */
+    public @NotNull StreamEngineOptions dispatchThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("dispatchThreads must be positive.");
+        }
+        this.dispatchThreads = threads;
+        return this;
+    }
+
+    /** 每个会话排队待写的最大帧数，默认 256，队列满时发送抛出 {@link DianyaException.Code#LIMIT_EXCEEDED}。 */
+    public @NotNull StreamEngineOptions sessionQueueFrames(int frames) {
+        if (frames <= 0) {
+            throw new IllegalArgumentException("sessionQueueFrames must be positive.");
+        }
+        this.sessionQueueFrames = frames;
+        return this;
+    }
+
+    /**
+     * 单帧写入的超时（毫秒），默认 5000。超时视为连接卡死：该会话收到 {@code TIMEOUT} 错误消息后断开，
+     * 随后回调 {@link StreamEngine.Listener#onClosed(StreamEngine.Session)}。
+     */
+    public @NotNull StreamEngineOptions writeTimeoutMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("writeTimeoutMillis must be positive.");
+        }
+        this.writeTimeoutMillis = millis;
+        return this;
+    }
+
+    /** 每个分发线程待处理消息的上限，默认 65536，溢出时丢弃最早的消息（会话结束通知不会被丢弃）。 */
+    public @NotNull StreamEngineOptions eventQueueCapacity(int messages) {
+        if (messages <= 0) {
+            throw new IllegalArgumentException("eventQueueCapacity must be positive.");
+        }
+        this.eventQueueCapacity = messages;
+        return this;
+    }
+
+    int getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    String toJson() {
+        return Utils.GSON.toJson(this);
+    }
+}
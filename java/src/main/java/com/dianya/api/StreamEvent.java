@@ -0,0 +1,104 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 实时转写推送消息的类型化表示，由 {@link TranscribeStream#readNextEvent(long)}、
+ * {@link TranscribeStream#readAvailableEvents(int, long)} 或 {@link StreamSubscriber#onEvent(StreamEvent)} 取得。
+ *
+ * <p>native 读任务收到消息时解析一次，结果队列、自动重连、延迟统计与这里的字段共用同一份解析结果，
+ * 读取时随原文一起交给 Java，不再重复解析；自行取得的原文（如 {@link StreamEngine} 的消息）可用
+ * {@link #parse(String)} 解析。字段约定只在 native 层维护一份：
+ * 分段字段与 {@link TranscribeApi.Utterance} 相同，即 {@code text}、{@code start_time}/{@code end_time}（秒）、
+ * {@code speaker}，另有消息类型、分段序号、定稿标记与错误信息，可位于顶层或一层
+ * {@code data}/{@code result}/{@code payload} 嵌套对象中。无法识别的消息类型为 {@link Type#UNKNOWN}，
+ * 原文保存在 {@link #raw} 中，界面应保留一个展示原文的兜底分支。</p>
+ */
+public final class StreamEvent {
+    /** 消息中没有对应字段时的取值。 */
+    public static final int ABSENT = -1;
+
+    private static final Type[] TYPES = Type.values();
+
+    public enum Type {
+        /** 中间结果，后续可能被同一分段的新结果替换。 */
+        PARTIAL,
+        /** 分段的最终结果。 */
+        FINAL,
+        /** 服务端返回的错误。 */
+        ERROR,
+        /** 会话结束。 */
+        SESSION_END,
+        UNKNOWN
+    }
+
+    public final @NotNull Type type;
+    public final @Nullable String text;
+    /** 分段序号，没有时为 {@link #ABSENT}。 */
+    public final int segmentId;
+    /** 分段开始时间（秒），没有时为 {@link #ABSENT}。 */
+    public final double startTime;
+    /** 分段结束时间（秒），没有时为 {@link #ABSENT}。 */
+    public final double endTime;
+    /** 说话人，没有时为 {@link #ABSENT}。 */
+    public final int speaker;
+    public final @Nullable String errorCode;
+    public final @Nullable String message;
+    public final @NotNull String raw;
+
+    StreamEvent(
+            @NotNull Type type,
+            @Nullable String text,
+            int segmentId,
+            double startTime,
+            double endTime,
+            int speaker,
+            @Nullable String errorCode,
+            @Nullable String message,
+            @NotNull String raw
+    ) {
+        this.type = type;
+        this.text = text;
+        this.segmentId = segmentId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.speaker = speaker;
+        this.errorCode = errorCode;
+        this.message = message;
+        this.raw = raw;
+    }
+
+    /** native 层用读任务的解析结果直接构造，{@code kind} 为 {@link Type} 的序号。 */
+    @SuppressWarnings("unused")
+    private StreamEvent(
+            int kind,
+            @Nullable String text,
+            int segmentId,
+            double startTime,
+            double endTime,
+            int speaker,
+            @Nullable String errorCode,
+            @Nullable String message,
+            @NotNull String raw
+    ) {
+        this(TYPES[kind], text, segmentId, startTime, endTime, speaker, errorCode, message, raw);
+    }
+
+    /**
+     * 解析一条自行取得的推送消息，格式不合法时返回 {@link Type#UNKNOWN} 而不抛出异常。
+     * 从 {@link TranscribeStream} 读取结果时直接使用读取方法返回的事件，不需要再解析原文。
+     */
+    public static @NotNull StreamEvent parse(@NotNull String json) {
+        return TranscribeStream.parseEvent(json);
+    }
+
+    public boolean isFinal() {
+        return type == Type.FINAL;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "StreamEvent{" + type + ", segment=" + segmentId + ", text=" + text + "}";
+    }
+}
@@ -0,0 +1,164 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link TranscribeStream} 的创建参数。
+ *
+ * <pre>{@code
+ * StreamOptions options = new StreamOptions()
+ *         .asyncSend(true)
+ *         .queueCapacityBytes(64 * 1024)
+ *         .overflowPolicy(StreamOptions.OverflowPolicy.DROP_OLDEST);
+ * TranscribeStream stream = new TranscribeStream(sessionId, options);
+ * }</pre>
+ */
+public final class StreamOptions {
+    private boolean asyncSend;
+    private int queueCapacityBytes = 256 * 1024;
+    private @NotNull OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private long blockTimeoutMillis = 1_000L;
+    private int resultQueueCapacity = 4096;
+    private @NotNull ResultOverflowPolicy resultOverflowPolicy = ResultOverflowPolicy.DROP_OLDEST;
+    private boolean autoReconnect;
+    private int maxReconnectAttempts = 5;
+    private long reconnectInitialBackoffMillis = 200L;
+    private long reconnectMaxBackoffMillis = 10_000L;
+    private long replayBufferMillis = 5_000L;
+    private boolean lagMetrics = true;
+
+    /**
+     * 是否开启异步发送，默认关闭。
+     *
+     * <p>开启后 {@code sendBinary}/{@code sendText} 只把数据放入有界队列即返回，由 native 后台任务写入
+     * WebSocket，网络抖动不会阻塞采集线程和 {@link TranscribeStream#stop()}；
+     * 写入失败会在下一次发送时以异常抛出。</p>
+     */
+    public @NotNull StreamOptions asyncSend(boolean enabled) {
+        this.asyncSend = enabled;
+        return this;
+    }
+
+    /** 发送队列容量（字节），默认 256 KiB，约为 16kHz 16bit 单声道音频 8 秒。 */
+    public @NotNull StreamOptions queueCapacityBytes(int bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("queueCapacityBytes must be positive.");
+        }
+        this.queueCapacityBytes = bytes;
+        return this;
+    }
+
+    /** 队列已满时的处理方式，默认 {@link OverflowPolicy#BLOCK}。 */
+    public @NotNull StreamOptions overflowPolicy(@NotNull OverflowPolicy policy) {
+        this.overflowPolicy = policy;
+        return this;
+    }
+
+    /** {@link OverflowPolicy#BLOCK} 时的最长等待时间（毫秒），超时抛出 {@link DianyaException.Code#LIMIT_EXCEEDED}。 */
+    public @NotNull StreamOptions blockTimeoutMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("blockTimeoutMillis must not be negative.");
+        }
+        this.blockTimeoutMillis = millis;
+        return this;
+    }
+
+    /** 服务端推送结果的缓存上限（消息条数），默认 4096，读线程跟不上时按 {@link #resultOverflowPolicy(ResultOverflowPolicy)} 处理。 */
+    public @NotNull StreamOptions resultQueueCapacity(int messages) {
+        if (messages <= 0) {
+            throw new IllegalArgumentException("resultQueueCapacity must be positive.");
+        }
+        this.resultQueueCapacity = messages;
+        return this;
+    }
+
+    /** 结果缓存已满时的处理方式，默认 {@link ResultOverflowPolicy#DROP_OLDEST}。 */
+    public @NotNull StreamOptions resultOverflowPolicy(@NotNull ResultOverflowPolicy policy) {
+        this.resultOverflowPolicy = policy;
+        return this;
+    }
+
+    /**
+     * 是否在 WebSocket 意外断开后自动重连，默认关闭。
+     *
+     * <p>开启后流会缓存最近 {@link #replayBufferMillis(long)} 的已发送音频；连接异常断开（没有关闭帧，
+     * 或关闭码为 1001/1011/1012/1013）时按指数退避重连同一会话，成功后先补发最后一条最终结果
+     * {@code end_time} 之后的音频再继续发送，读取端不会感知到断线。以其他关闭码关闭视为会话正常结束，不会重连。
+     * 断线期间的发送不会抛出异常，音频进入缓存等待补发；会话正常结束、结果溢出断开或重连次数用尽后流结束，
+     * 之后的发送抛出异常。</p>
+     */
+    public @NotNull StreamOptions autoReconnect(boolean enabled) {
+        this.autoReconnect = enabled;
+        return this;
+    }
+
+    /** 每次断线后的最大重连次数，默认 5。 */
+    public @NotNull StreamOptions maxReconnectAttempts(int attempts) {
+        if (attempts <= 0) {
+            throw new IllegalArgumentException("maxReconnectAttempts must be positive.");
+        }
+        this.maxReconnectAttempts = attempts;
+        return this;
+    }
+
+    /**
+     * 重连退避时间：第 n 次重连前等待 {@code min(initial * 2^n, max)} 的 50%~100%（随机抖动），
+     * 默认 200ms 起、最长 10s。
+     */
+    public @NotNull StreamOptions reconnectBackoffMillis(long initialMillis, long maxMillis) {
+        if (initialMillis <= 0 || maxMillis < initialMillis) {
+            throw new IllegalArgumentException("Invalid reconnect backoff.");
+        }
+        this.reconnectInitialBackoffMillis = initialMillis;
+        this.reconnectMaxBackoffMillis = maxMillis;
+        return this;
+    }
+
+    /** 重连后补发的音频时长（毫秒，按 16kHz 16bit 单声道换算为字节），默认 5000，0 表示不补发。 */
+    public @NotNull StreamOptions replayBufferMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("replayBufferMillis must not be negative.");
+        }
+        this.replayBufferMillis = millis;
+        return this;
+    }
+
+    /**
+     * 是否统计音频到结果的延迟，默认开启，通过 {@link TranscribeStream#getLagStats()} 读取。
+     *
+     * <p>每帧音频只记录一次时间戳，结果消息只查找 {@code end_time} 字段而不完整解析，开销很小。
+     * 延迟按 16kHz 16bit 单声道换算音频时间，其他格式请先经 {@link AudioPipeline} 转换。</p>
+     */
+    public @NotNull StreamOptions lagMetrics(boolean enabled) {
+        this.lagMetrics = enabled;
+        return this;
+    }
+
+    public boolean isAsyncSend() {
+        return asyncSend;
+    }
+
+    String toJson() {
+        return Utils.GSON.toJson(this);
+    }
+
+    /** 发送队列溢出策略。 */
+    public enum OverflowPolicy {
+        /** 等待写任务腾出空间，最长 {@link #blockTimeoutMillis(long)}。 */
+        BLOCK,
+        /** 丢弃最早入队的音频，保证最新的音频能发出；{@code sendText} 发送的文本消息不会被丢弃。 */
+        DROP_OLDEST,
+        /** 立即抛出 {@link DianyaException.Code#LIMIT_EXCEEDED}。 */
+        FAIL
+    }
+
+    /** 结果缓存溢出策略。 */
+    public enum ResultOverflowPolicy {
+        /** 丢弃最早的消息。 */
+        DROP_OLDEST,
+        /** 优先丢弃最早的中间结果（会被同一分段后续结果取代），没有中间结果时丢弃最早的消息。 */
+        COALESCE_PARTIALS,
+        /** 断开连接，读完已缓存的消息后抛出 {@link DianyaException.Code#LIMIT_EXCEEDED}。 */
+        DISCONNECT
+    }
+}
@@ -0,0 +1,34 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link TranscribeStream} 推送结果的订阅者，语义与 {@code java.util.concurrent.Flow.Subscriber} 一致。
+ *
+ * <p>通过 {@link TranscribeStream#subscribe(StreamSubscriber)} 注册后，native 层收到服务端消息时主动通知，
+ * SDK 在共享的分发线程池上按 {@link StreamSubscription#request(long)} 的需求量回调 {@link #onEvent(StreamEvent)}，
+ * 不再需要为每个流保留一个阻塞在 {@code readNext} 上的线程。同一订阅的回调不会并发执行。</p>
+ *
+ * <p>需要类型化字段时覆盖 {@link #onEvent(StreamEvent)}，只需要 JSON 原文时覆盖 {@link #onNext(String)}。</p>
+ */
+public interface StreamSubscriber {
+
+    void onSubscribe(@NotNull StreamSubscription subscription);
+
+    /** 收到一条服务端推送的 JSON 文本消息，由 {@link #onEvent(StreamEvent)} 的默认实现调用。 */
+    default void onNext(@NotNull String message) {
+    }
+
+    /** 收到一条服务端推送的消息，字段已由 native 层解析；默认把原文转交 {@link #onNext(String)}。 */
+    default void onEvent(@NotNull StreamEvent event) {
+        onNext(event.raw);
+    }
+
+    /** 读取结果失败，之后不会再有回调。 */
+    default void onError(@NotNull Throwable error) {
+    }
+
+    /** 服务端结果流结束或流被停止，之后不会再有回调。 */
+    default void onComplete() {
+    }
+}
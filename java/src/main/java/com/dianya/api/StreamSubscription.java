@@ -0,0 +1,13 @@
+package com.dianya.api;
+
+/**
+ * {@link StreamSubscriber} 与流之间的订阅关系，语义与 {@code java.util.concurrent.Flow.Subscription} 一致。
+ */
+public interface StreamSubscription {
+
+    /** 增加 {@code n} 条消息的需求量，{@code n} 必须为正数。 */
+    void request(long n);
+
+    /** 取消订阅，已在分发中的消息之后不再回调。 */
+    void cancel();
+}
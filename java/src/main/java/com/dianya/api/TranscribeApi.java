@@ -5,9 +5,13 @@ import org.jetbrains.annotations.Nullable;
 
 import com.google.gson.JsonElement;
 import com.google.gson.annotations.SerializedName;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * JNI 层对外暴露的 Java API。所有 public 方法都会返回强类型的业务对象，
@@ -41,33 +45,68 @@ public final class TranscribeApi {
             boolean transcribeOnly,
             boolean shortAsr,
             String model,
-            String token
+            String token,
+            long callHandle
     );
 
     private static native String nativeStatus(
             @Nullable String taskId,
             @Nullable String shareId,
-            String token
+            String token,
+            long callHandle
     );
 
-    private static native String nativeCallback(String payloadJson, String token);
+    private static native String nativeStatusDelta(
+            @Nullable String taskId,
+            @Nullable String shareId,
+            String token,
+            long fingerprint,
+            long detailsFingerprint,
+            int detailsCount,
+            long callHandle
+    );
+
+    private static native String nativeCallback(String payloadJson, String token, long callHandle);
 
-    private static native String nativeGetShareLink(String taskId, int expirationDays, String token);
+    private static native String nativeGetShareLink(
+            String taskId,
+            int expirationDays,
+            String token,
+            long callHandle
+    );
 
-    private static native String nativeCreateSummary(String utterancesJson, String token);
+    private static native String nativeCreateSummary(String utterancesJson, String token, long callHandle);
+
+    private static native String nativeExportAll(String requestJson, String token, long callHandle);
 
     private static native byte[] nativeExport(
             String taskId,
             String exportType,
             String exportFormat,
-            String token
+            String token,
+            long callHandle
     );
 
-    private static native String nativeTranslateText(String text, String language, String token);
+    private static native String nativeTranslateText(
+            String text,
+            String language,
+            String token,
+            long callHandle
+    );
 
-    private static native String nativeTranslateUtterances(String utterancesJson, String language, String token);
+    private static native String nativeTranslateUtterances(
+            String utterancesJson,
+            String language,
+            String token,
+            long callHandle
+    );
 
-    private static native String nativeTranslateTranscribe(String taskId, String language, String token);
+    private static native String nativeTranslateTranscribe(
+            String taskId,
+            String language,
+            String token,
+            long callHandle
+    );
 
     // endregion
 
@@ -81,8 +120,9 @@ public final class TranscribeApi {
             @NotNull ModelType model,
             @NotNull String token
     ) {
-        String json = nativeUpload(filePath, transcribeOnly, shortAsr, model.alias, token);
-        return Utils.fromJson(json, UploadResponse.class);
+        return NativeCall.invokeJson(Operation.UPLOAD, token,
+                call -> nativeUpload(filePath, transcribeOnly, shortAsr, model.alias, token, call),
+                UploadResponse.class);
     }
 
     // endregion
@@ -95,8 +135,33 @@ public final class TranscribeApi {
             @Nullable String shareId,
             @NotNull String token
     ) {
-        String json = nativeStatus(taskId, shareId, token);
-        return Utils.fromJson(json, StatusResponse.class);
+        return NativeCall.invokeJson(Operation.STATUS, token,
+                call -> nativeStatus(taskId, shareId, token, call), StatusResponse.class);
+    }
+
+    /**
+     * 增量查询任务状态，适合轮询处理中的长任务。
+     *
+     * <p>native 层在结果越过 JNI 之前计算指纹并与 {@code previous} 比较：结果未变时只返回
+     * {@link StatusDelta#unchanged}，不复制、不解析完整结果；{@code previous} 之前已有的分段未变时，
+     * {@link StatusDelta#status} 的 {@code details} 只包含新增分段。需要按任务自动保存指纹时使用
+     * {@link StatusWatcher}。</p>
+     *
+     * @param previous 上一次的返回值，首次查询传 {@code null}
+     */
+    @NotNull
+    public static StatusDelta statusDelta(
+            @Nullable String taskId,
+            @Nullable String shareId,
+            @Nullable StatusDelta previous,
+            @NotNull String token
+    ) {
+        long fingerprint = previous == null ? 0L : previous.fingerprint;
+        long detailsFingerprint = previous == null ? 0L : previous.detailsFingerprint;
+        int detailsCount = previous == null ? 0 : previous.detailsCount;
+        return NativeCall.invokeJson(Operation.STATUS, token,
+                call -> nativeStatusDelta(taskId, shareId, token, fingerprint, detailsFingerprint, detailsCount, call),
+                StatusDelta.class);
     }
 
     /**
@@ -108,9 +173,8 @@ public final class TranscribeApi {
      */
     @NotNull
     public static CallbackResponse callback(@NotNull CallbackRequest request, @NotNull String token) {
-        String payload = Utils.GSON.toJson(request);
-        String json = nativeCallback(payload, token);
-        return Utils.fromJson(json, CallbackResponse.class);
+        return NativeCall.invokeJson(Operation.CALLBACK, token, request,
+                (payload, call) -> nativeCallback(payload, token, call), CallbackResponse.class);
     }
 
     // endregion
@@ -123,8 +187,8 @@ public final class TranscribeApi {
             int expirationDays,
             @NotNull String token
     ) {
-        String json = nativeGetShareLink(taskId, expirationDays, token);
-        return Utils.fromJson(json, ShareLinkResponse.class);
+        return NativeCall.invokeJson(Operation.GET_SHARE_LINK, token,
+                call -> nativeGetShareLink(taskId, expirationDays, token, call), ShareLinkResponse.class);
     }
 
     @NotNull
@@ -133,9 +197,8 @@ public final class TranscribeApi {
             @NotNull String token
     ) {
         UtterancesWrapper wrapper = new UtterancesWrapper(utterances);
-        String payload = Utils.GSON.toJson(wrapper);
-        String json = nativeCreateSummary(payload, token);
-        return Utils.fromJson(json, SummaryCreateResponse.class);
+        return NativeCall.invokeJson(Operation.CREATE_SUMMARY, token, wrapper,
+                (payload, call) -> nativeCreateSummary(payload, token, call), SummaryCreateResponse.class);
     }
 
     // endregion
@@ -149,10 +212,56 @@ public final class TranscribeApi {
             @NotNull ExportFormat format,
             @NotNull String token
     ) {
-        byte[] bytes = nativeExport(taskId, type.alias, format.alias, token);
+        byte[] bytes = NativeCall.invoke(Operation.EXPORT, token,
+                call -> nativeExport(taskId, type.alias, format.alias, token, call));
         return bytes == null ? new byte[0] : bytes;
     }
 
+    /**
+     * 以默认并发数 4 导出全部组合。
+     *
+     * @see #exportAll(String, Set, Set, File, String, int)
+     */
+    @NotNull
+    public static List<ExportResult> exportAll(
+            @NotNull String taskId,
+            @NotNull Set<ExportType> types,
+            @NotNull Set<ExportFormat> formats,
+            @NotNull File dir,
+            @NotNull String token
+    ) {
+        return exportAll(taskId, types, formats, dir, token, 4);
+    }
+
+    /**
+     * 在 native 运行时中并发导出 {@code types} 与 {@code formats} 的所有组合，同时进行的请求不超过
+     * {@code maxConcurrency}。
+     *
+     * <p>每个结果由 native 层直接写入 {@code dir} 下的 {@code <taskId>_<type>.<format>}，不经过 Java 堆；
+     * 文件名中字母、数字、{@code -}、{@code _} 以外的字符替换为 {@code _}，不会写到 {@code dir} 之外。
+     * 先写唯一命名的临时文件再重命名，失败时不会留下不完整的文件。单个组合失败不影响其他组合，
+     * 失败信息记录在对应的 {@link ExportResult} 中。会写本地文件，因此不参与 {@link CallPolicy} 的重试与对冲。</p>
+     *
+     * @return 与组合顺序（类型在外层、格式在内层）一致的结果
+     */
+    @NotNull
+    public static List<ExportResult> exportAll(
+            @NotNull String taskId,
+            @NotNull Set<ExportType> types,
+            @NotNull Set<ExportFormat> formats,
+            @NotNull File dir,
+            @NotNull String token,
+            int maxConcurrency
+    ) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive.");
+        }
+        ExportAllRequest request = new ExportAllRequest(taskId, types, formats, dir.getAbsolutePath(), maxConcurrency);
+        ExportResult[] results = NativeCall.invokeJson(Operation.EXPORT_ALL, token, request,
+                (payload, call) -> nativeExportAll(payload, token, call), ExportResult[].class);
+        return results == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(results));
+    }
+
     // endregion
 
     // region Translate
@@ -163,8 +272,8 @@ public final class TranscribeApi {
             @NotNull Language language,
             @NotNull String token
     ) {
-        String json = nativeTranslateText(text, language.alias, token);
-        return Utils.fromJson(json, TextTranslator.class);
+        return NativeCall.invokeJson(Operation.TRANSLATE_TEXT, token,
+                call -> nativeTranslateText(text, language.alias, token, call), TextTranslator.class);
     }
 
     @NotNull
@@ -174,9 +283,9 @@ public final class TranscribeApi {
             @NotNull String token
     ) {
         UtterancesWrapper wrapper = new UtterancesWrapper(utterances);
-        String payload = Utils.GSON.toJson(wrapper);
-        String json = nativeTranslateUtterances(payload, language.alias, token);
-        return Utils.fromJson(json, UtteranceTranslator.class);
+        return NativeCall.invokeJson(Operation.TRANSLATE_UTTERANCES, token, wrapper,
+                (payload, call) -> nativeTranslateUtterances(payload, language.alias, token, call),
+                UtteranceTranslator.class);
     }
 
     @NotNull
@@ -185,8 +294,8 @@ public final class TranscribeApi {
             @NotNull Language language,
             @NotNull String token
     ) {
-        String json = nativeTranslateTranscribe(taskId, language.alias, token);
-        return Utils.fromJson(json, TranscribeTranslator.class);
+        return NativeCall.invokeJson(Operation.TRANSLATE_TRANSCRIBE, token,
+                call -> nativeTranslateTranscribe(taskId, language.alias, token, call), TranscribeTranslator.class);
     }
 
     // endregion
@@ -202,6 +311,28 @@ public final class TranscribeApi {
         }
     }
 
+    private static final class ExportAllRequest {
+        final String taskId;
+        final List<ExportType> types;
+        final List<ExportFormat> formats;
+        final String dir;
+        final int concurrency;
+
+        ExportAllRequest(
+                String taskId,
+                Set<ExportType> types,
+                Set<ExportFormat> formats,
+                String dir,
+                int concurrency
+        ) {
+            this.taskId = taskId;
+            this.types = new ArrayList<>(types);
+            this.formats = new ArrayList<>(formats);
+            this.dir = dir;
+            this.concurrency = concurrency;
+        }
+    }
+
     // endregion
 
     // region Data models
@@ -241,6 +372,35 @@ public final class TranscribeApi {
         public TranscribeTaskType taskType;
     }
 
+    /** {@link #statusDelta} 的结果。 */
+    public static final class StatusDelta {
+        /** 与上一次结果完全相同，此时 {@link #status} 为 {@code null}。 */
+        public boolean unchanged;
+        /** 结果有变化时的状态，{@code details} 从 {@link #detailsOffset} 开始。 */
+        public @Nullable StatusResponse status;
+        /** {@code status.details} 第一个分段在完整分段列表中的位置，0 表示返回了全部分段。 */
+        @SerializedName("details_offset")
+        public int detailsOffset;
+        /** 完整分段列表的长度。 */
+        @SerializedName("details_count")
+        public int detailsCount;
+        long fingerprint;
+        @SerializedName("details_fingerprint")
+        long detailsFingerprint;
+
+        /** 只保留下次查询需要的指纹，不持有结果内容。 */
+        @NotNull
+        StatusDelta fingerprintOnly() {
+            StatusDelta copy = new StatusDelta();
+            copy.unchanged = unchanged;
+            copy.detailsOffset = detailsOffset;
+            copy.detailsCount = detailsCount;
+            copy.fingerprint = fingerprint;
+            copy.detailsFingerprint = detailsFingerprint;
+            return copy;
+        }
+    }
+
     public static final class CallbackHistory {
         public String timestamp;
         public String status;
@@ -323,6 +483,25 @@ public final class TranscribeApi {
         public String message;
     }
 
+    public static final class ExportResult {
+        @SerializedName("export_type")
+        public ExportType type;
+        @SerializedName("export_format")
+        public ExportFormat format;
+        /** 目标文件路径。 */
+        public String path;
+        /** 写入的字节数，失败时为 0。 */
+        public long bytes;
+        /** 失败时的错误码，与 {@link DianyaException.Code} 对应。 */
+        @SerializedName("error_code")
+        public String errorCode;
+        public String error;
+
+        public boolean isSuccess() {
+            return errorCode == null;
+        }
+    }
+
     public static final class Utterance {
         @SerializedName("start_time")
         public double startTime;
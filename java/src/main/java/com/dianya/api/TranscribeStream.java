@@ -5,38 +5,79 @@ import com.google.gson.annotations.SerializedName;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 /**
  * WebSocket 实时转写客户端。
  *
  * <p>封装 Rust {@code TranscribeWs} 的 JNI 接口，提供简单的 Java API：</p>
  * <ul>
  *     <li>{@link #start()} / {@link #stop()} 控制连接生命周期；</li>
- *     <li>{@link #sendBinary(byte[])} 发送 PCM 等二进制音频数据；</li>
+ *     <li>{@link #sendBinary(byte[])} / {@link #sendBinary(ByteBuffer)} 发送 PCM 等二进制音频数据；</li>
      <li>{@link #sendText(String)} 发送自定义文本消息；</li>
-     <li>{@link #readNext(long)} 拉取服务端推送的 JSON 文本消息。</li>
+     <li>{@link #readNextEvent(long)} 拉取服务端推送的消息（{@link #readNext(long)} 只取 JSON 原文），
+ *     或通过 {@link #subscribe(StreamSubscriber)} 由 SDK 主动推送。</li>
  * </ul>
  *
+ * <p>默认情况下发送会在调用线程上等待 WebSocket 写入完成；通过 {@link StreamOptions#asyncSend(boolean)}
+ * 可改为有界队列异步发送。发送不占用对象锁，{@link StreamOptions.OverflowPolicy#BLOCK} 等待队列空间时
+ * 不会阻塞 {@link #stop()}/{@link #close()}：停止流会关闭队列并唤醒等待中的发送。</p>
+ *
  * <p>使用前请确保调用 {@link DianyaRuntime#initialize()} 初始化底层运行时。</p>
  */
 public final class TranscribeStream implements AutoCloseable {
 
     private static final long NO_TIMEOUT = -1L;
+    private static final StreamEvent[] NO_EVENTS = new StreamEvent[0];
 
     static {
         System.loadLibrary("dianyaapi_jni");
     }
 
+    /** 读锁保护 native 句柄的日常使用，{@link #close()} 持写锁释放句柄；生命周期操作另由对象锁串行。 */
+    private final ReentrantReadWriteLock handleLock = new ReentrantReadWriteLock();
     private long nativeHandle;
-    private boolean started;
+    private volatile boolean started;
+    /** 读取方法不持对象锁检查是否已有订阅者，需要看到其他线程的订阅与退订 */
+    private volatile @Nullable StreamDelivery delivery;
+    private final StreamDelivery.Source deliverySource = new StreamDelivery.Source() {
+        @Override
+        public boolean isFinishedNow() {
+            return TranscribeStream.this.isFinishedNow();
+        }
+
+        @Override
+        public @NotNull StreamEvent[] pollNow(int max) {
+            return TranscribeStream.this.pollNow(max);
+        }
+
+        @Override
+        public void detach(@NotNull StreamDelivery subscription) {
+            TranscribeStream.this.detach(subscription);
+        }
+    };
 
     /**
      * @param sessionId 来自 {@link TranscribeStream#createSession(ModelType, String)} 的 session id
      */
     public TranscribeStream(@NotNull String sessionId) {
+        this(sessionId, new StreamOptions());
+    }
+
+    /**
+     * @param sessionId 来自 {@link TranscribeStream#createSession(ModelType, String)} 的 session id
+     * @param options   发送队列等参数
+     */
+    public TranscribeStream(@NotNull String sessionId, @NotNull StreamOptions options) {
         if (sessionId == null || sessionId.isEmpty()) {
             throw new IllegalArgumentException("sessionId must not be empty.");
         }
-        this.nativeHandle = nativeCreate(sessionId);
+        this.nativeHandle = nativeCreate(sessionId, options.toJson());
     }
 
     // region Session
@@ -49,8 +90,8 @@ public final class TranscribeStream implements AutoCloseable {
      * @param token Bearer token
      */
     public static SessionCreateResponse createSession(@NotNull ModelType model, @NotNull String token) {
-        String json = nativeCreateSession(model.alias, token);
-        return Utils.fromJson(json, SessionCreateResponse.class);
+        return NativeCall.invokeJson(Operation.CREATE_SESSION, token,
+                call -> nativeCreateSession(model.alias, token, call), SessionCreateResponse.class);
     }
 
     @NotNull
@@ -59,52 +100,394 @@ public final class TranscribeStream implements AutoCloseable {
             @NotNull String token,
             long timeoutSeconds
     ) {
-        String json = nativeCloseSession(taskId, token, timeoutSeconds);
-        return Utils.fromJson(json, SessionCloseResponse.class);
+        return NativeCall.invokeJson(Operation.CLOSE_SESSION, token,
+                call -> nativeCloseSession(taskId, token, timeoutSeconds, call), SessionCloseResponse.class);
+    }
+
+    /**
+     * 异步关闭会话，请求在 native 运行时中执行，不占用调用线程。
+     *
+     * <p>沿用当前线程 {@link CallScope} 的截止时间与取消（没有作用域时按默认截止时间），结果上报给
+     * {@link MetricsListener}；future 在 SDK 线程池上完成。与同步版本一样不参与限流与并发限制，
+     * 也不经过 {@link CallPolicy} 的重试与对冲。</p>
+     */
+    public static @NotNull DianyaFuture<SessionCloseResponse> closeSessionAsync(
+            @NotNull String taskId,
+            @NotNull String token,
+            long timeoutSeconds
+    ) {
+        return closeSessions(Collections.singletonList(taskId), token, timeoutSeconds, 1).get(0);
+    }
+
+    /**
+     * 批量异步关闭会话，例如换班时一次关闭数百个会话。所有请求在 native 运行时中并发执行，
+     * 同时进行的请求不超过 {@code maxConcurrency}，不为每个会话占用一个 Java 线程。
+     * 截止时间、指标与回调线程同 {@link #closeSessionAsync}，排队等待并发名额的时间也计入截止时间。
+     *
+     * @return 与 {@code taskIds} 顺序一致的 future，可配合 {@link DianyaFuture#allOf} 等待全部完成；
+     * 单个会话失败只影响对应的 future
+     */
+    public static @NotNull List<DianyaFuture<SessionCloseResponse>> closeSessions(
+            @NotNull List<String> taskIds,
+            @NotNull String token,
+            long timeoutSeconds,
+            int maxConcurrency
+    ) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive.");
+        }
+        for (String taskId : taskIds) {
+            if (taskId == null || taskId.isEmpty()) {
+                throw new IllegalArgumentException("taskId must not be empty.");
+            }
+        }
+        SessionCloser closer = SessionCloser.open(taskIds.size());
+        if (!taskIds.isEmpty()) {
+            try {
+                nativeCloseSessionsAsync(taskIds.toArray(new String[0]), token, timeoutSeconds, maxConcurrency,
+                        closer.getCallHandles(), closer);
+            } catch (RuntimeException | Error e) {
+                closer.abandon();
+                throw e;
+            }
+        }
+        return closer.getFutures();
     }
 
     // endregion
 
     public synchronized void start() {
-        ensureHandle();
-        if (started) {
-            return;
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            if (started) {
+                return;
+            }
+            nativeStart(nativeHandle);
+            started = true;
+        } finally {
+            handleLock.readLock().unlock();
         }
-        nativeStart(nativeHandle);
-        started = true;
     }
 
     public synchronized void stop() {
-        if (nativeHandle == 0L || !started) {
-            return;
+        handleLock.readLock().lock();
+        try {
+            if (nativeHandle == 0L || !started) {
+                return;
+            }
+            // 先标记停止：之后分发线程读到的 "not started" 错误按流结束处理，不会回调 onError
+            started = false;
+            nativeStop(nativeHandle);
+        } finally {
+            handleLock.readLock().unlock();
         }
-        nativeStop(nativeHandle);
-        started = false;
+        endDelivery();
     }
 
-    public synchronized void sendBinary(@NotNull byte[] payload) {
-        ensureHandle();
-        if (payload == null || payload.length == 0) {
+    public void sendBinary(@NotNull byte[] payload) {
+        if (payload == null) {
             throw new IllegalArgumentException("payload must not be empty.");
         }
-        nativeSendBinary(nativeHandle, payload);
+        sendBinary(payload, 0, payload.length);
     }
 
-    public synchronized void sendText(@NotNull String message) {
-        ensureHandle();
+    /**
+     * 发送数组中的一段数据，native 层直接拷贝到复用的发送缓冲，不产生临时数组。
+     */
+    public void sendBinary(@NotNull byte[] payload, int offset, int length) {
+        if (payload == null || length <= 0) {
+            throw new IllegalArgumentException("payload must not be empty.");
+        }
+        if (offset < 0 || offset > payload.length - length) {
+            throw new IndexOutOfBoundsException("offset/length out of range.");
+        }
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            nativeSendBinary(nativeHandle, payload, offset, length);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 发送 {@code buffer} 中 position 到 limit 之间的数据，发送后 position 移动到 limit。
+     *
+     * <p>direct buffer 通过内存地址读取，只拷贝一次到 native 发送缓冲，配合 {@link AudioBufferPool}
+     * 可避免每帧创建 Java 对象；heap buffer 走数组路径。</p>
+     */
+    public void sendBinary(@NotNull ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (length == 0) {
+            throw new IllegalArgumentException("payload must not be empty.");
+        }
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            if (buffer.isDirect()) {
+                nativeSendDirect(nativeHandle, buffer, buffer.position(), length);
+            } else if (buffer.hasArray()) {
+                nativeSendBinary(nativeHandle, buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            } else {
+                byte[] copy = new byte[length];
+                buffer.duplicate().get(copy);
+                nativeSendBinary(nativeHandle, copy, 0, length);
+            }
+        } finally {
+            handleLock.readLock().unlock();
+        }
+        buffer.position(buffer.limit());
+    }
+
+    public void sendText(@NotNull String message) {
         if (message == null) {
             throw new IllegalArgumentException("message must not be null.");
         }
-        nativeSendText(nativeHandle, message);
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            nativeSendText(nativeHandle, message);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 通过实时流转写一个音频文件，短文件的延迟远低于上传后轮询状态。
+     *
+     * @see #streamFile(File, double, long)
+     */
+    public @NotNull DianyaFuture<String> streamFile(@NotNull File file, double speedFactor) {
+        return streamFile(file, speedFactor, 3_000L);
+    }
+
+    /**
+     * 通过实时流转写一个音频文件，返回完整转写文本的 future。
+     *
+     * <p>文件以只读方式映射到内存后按 40ms 分块发送：WAV 按头部格式处理，非 16kHz 单声道 s16 时经
+     * {@link AudioPipeline} 转换；没有 RIFF 头的文件视为 16kHz 16bit 单声道 PCM。
+     * {@code speedFactor} 大于 0 时按实时的倍数发送，否则尽快发送，由同步写入或异步队列的
+     * {@link StreamOptions.OverflowPolicy#BLOCK} 策略按服务端接收速度限流。</p>
+     *
+     * <p>流未启动时会先启动，并在发送期间订阅结果，因此不能已有订阅者。收到会话结束消息、结果流结束，
+     * 或音频发完后 {@code idleMillis} 内没有新结果时，future 以已定稿加未定稿文本完成；
+     * 取消 future 会停止发送。流在完成后保持连接，由调用方关闭。</p>
+     *
+     * @param idleMillis 音频发完后等待新结果的最长静默时间
+     */
+    public @NotNull DianyaFuture<String> streamFile(@NotNull File file, double speedFactor, long idleMillis) {
+        ensureHandle();
+        if (idleMillis < 0) {
+            throw new IllegalArgumentException("idleMillis must not be negative.");
+        }
+        return new FileStreamer(this, file, speedFactor, idleMillis).start();
+    }
+
+    /**
+     * 等待异步发送队列中已入队的数据全部写出，建议在 {@link #stop()} 前调用以免丢失尾部音频。
+     * 未开启异步发送时直接返回 {@code true}。
+     *
+     * @return 在超时前写完返回 {@code true}；超时、写入失败或流已停止返回 {@code false}
+     */
+    public boolean flush(long timeoutMillis) {
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            return nativeFlush(nativeHandle, timeoutMillis);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    /** 结果缓存的统计信息，流未启动时返回 {@code null}。 */
+    public @Nullable ResultQueueStats getResultQueueStats() {
+        String json;
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            json = nativeResultQueueStats(nativeHandle);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+        return json == null ? null : Utils.fromJson(json, ResultQueueStats.class);
+    }
+
+    /** 异步发送队列的统计信息，未开启异步发送时返回 {@code null}。 */
+    public @Nullable SendQueueStats getSendQueueStats() {
+        String json;
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            json = nativeSendQueueStats(nativeHandle);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+        return json == null ? null : Utils.fromJson(json, SendQueueStats.class);
+    }
+
+    /** 自动重连的统计信息，未开启 {@link StreamOptions#autoReconnect(boolean)} 时返回 {@code null}。 */
+    public @Nullable ReconnectStats getReconnectStats() {
+        String json;
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            json = nativeReconnectStats(nativeHandle);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+        return json == null ? null : Utils.fromJson(json, ReconnectStats.class);
+    }
+
+    /**
+     * 音频到结果的延迟统计，关闭 {@link StreamOptions#lagMetrics(boolean)} 时返回 {@code null}。
+     *
+     * <p>发送的音频按采样偏移打上时间戳；收到带 {@code end_time} 的结果时，找到覆盖该时间点的音频帧，
+     * 分别计算从提交音频、从写入 WebSocket 到收到结果的耗时。同一段音频只按第一次覆盖它的结果计入，
+     * 每项指标保留最近 256 个样本。</p>
+     */
+    public @Nullable LagStats getLagStats() {
+        String json;
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            json = nativeLagStats(nativeHandle);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+        return json == null ? null : Utils.fromJson(json, LagStats.class);
+    }
+
+    /**
+     * 把之后发送的音频、文本以及收到的消息按时间顺序写入内存映射的抓包文件，可用 {@link CaptureReader}
+     * 读取或回放。已在抓包时先结束之前的文件。
+     *
+     * <p>记录只是在 native 层拷贝到映射内存，不产生额外的系统调用；开启自动重连时重放的音频不会重复记录。</p>
+     */
+    public void startCapture(@NotNull File file) {
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            nativeStartCapture(nativeHandle, file.getAbsolutePath());
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    /** 结束抓包并把文件截断到实际长度，未在抓包时返回 {@code null}。关闭流时也会自动结束。 */
+    public @Nullable CaptureStats stopCapture() {
+        String json;
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            json = nativeStopCapture(nativeHandle);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+        return json == null ? null : Utils.fromJson(json, CaptureStats.class);
     }
 
     public @Nullable String readNext() {
         return readNext(NO_TIMEOUT);
     }
 
+    /** 读取下一条消息的 JSON 原文，超时返回 {@code null}。需要类型化字段时使用 {@link #readNextEvent(long)}。 */
     public @Nullable String readNext(long timeoutMillis) {
-        ensureHandle();
-        return nativeRead(nativeHandle, timeoutMillis);
+        StreamEvent event = readNextEvent(timeoutMillis);
+        return event == null ? null : event.raw;
+    }
+
+    /**
+     * 读取下一条消息，最长等待 {@code timeoutMillis}（负数表示一直等待），超时返回 {@code null}。
+     * 字段由 native 读任务收到消息时解析，这里不再解析原文。
+     */
+    public @Nullable StreamEvent readNextEvent(long timeoutMillis) {
+        if (delivery != null) {
+            throw new IllegalStateException("TranscribeStream results are delivered to a subscriber.");
+        }
+        // 阻塞中的读取持有读锁；stop 会关闭结果队列唤醒它，close 才能拿到写锁
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            return nativeRead(nativeHandle, timeoutMillis);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 同 {@link #readAvailableEvents(int, long)}，只返回消息的 JSON 原文。
+     *
+     * @return 读取到的消息，超时返回空数组
+     */
+    public @NotNull String[] readAvailable(int max, long timeoutMillis) {
+        StreamEvent[] events = readAvailableEvents(max, timeoutMillis);
+        String[] messages = new String[events.length];
+        for (int i = 0; i < events.length; i++) {
+            messages[i] = events[i].raw;
+        }
+        return messages;
+    }
+
+    /**
+     * 一次 native 调用批量读取消息：等待第一条消息（最长 {@code timeoutMillis}，负数表示一直等待），
+     * 然后立即返回所有已到达的消息，最多 {@code max} 条。突发时比逐条 {@link #readNextEvent(long)}
+     * 少很多次 JNI 往返。
+     *
+     * @return 读取到的消息，超时返回空数组
+     */
+    public @NotNull StreamEvent[] readAvailableEvents(int max, long timeoutMillis) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be positive.");
+        }
+        if (delivery != null) {
+            throw new IllegalStateException("TranscribeStream results are delivered to a subscriber.");
+        }
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            return nativeReadAvailable(nativeHandle, max, timeoutMillis);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 订阅服务端推送的结果，回调在 SDK 共享的分发线程池上执行。
+     *
+     * @see #subscribe(StreamSubscriber, Executor)
+     */
+    public @NotNull StreamSubscription subscribe(@NotNull StreamSubscriber subscriber) {
+        return subscribe(subscriber, SharedExecutors.delivery());
+    }
+
+    /**
+     * 订阅服务端推送的结果。
+     *
+     * <p>订阅后不能再调用 {@link #readNext(long)}；每个流同时只能有一个订阅者，
+     * 流 {@link #stop() 停止} 时订阅以 {@link StreamSubscriber#onComplete()} 结束，重新启动后需重新订阅。
+     * {@link StreamSubscriber#onSubscribe(StreamSubscription)} 在当前线程上回调。</p>
+     *
+     * @param executor 执行回调的线程池，回调应尽快返回以免占用共享线程
+     */
+    public synchronized @NotNull StreamSubscription subscribe(
+            @NotNull StreamSubscriber subscriber,
+            @NotNull Executor executor
+    ) {
+        if (delivery != null) {
+            throw new IllegalStateException("TranscribeStream already has a subscriber.");
+        }
+        StreamDelivery subscription = new StreamDelivery(deliverySource, subscriber, executor);
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            delivery = subscription;
+            nativeSetListener(nativeHandle, subscription);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+        subscription.start();
+        return subscription;
     }
 
     public synchronized boolean isStarted() {
@@ -116,9 +499,16 @@ public final class TranscribeStream implements AutoCloseable {
         try {
             stop();
         } finally {
-            if (nativeHandle != 0L) {
-                nativeDestroy(nativeHandle);
-                nativeHandle = 0L;
+            endDelivery();
+            // stop 已关闭发送队列，等待中的发送会很快返回并释放读锁
+            handleLock.writeLock().lock();
+            try {
+                if (nativeHandle != 0L) {
+                    nativeDestroy(nativeHandle);
+                    nativeHandle = 0L;
+                }
+            } finally {
+                handleLock.writeLock().unlock();
             }
         }
     }
@@ -142,17 +532,219 @@ public final class TranscribeStream implements AutoCloseable {
         public String message;
     }
 
+    public static final class SendQueueStats {
+        /** 队列中等待发送的帧数。 */
+        @SerializedName("queued_frames")
+        public int queuedFrames;
+        /** 队列中等待发送的字节数。 */
+        @SerializedName("queued_bytes")
+        public long queuedBytes;
+        @SerializedName("capacity_bytes")
+        public long capacityBytes;
+        /** 队列字节数的历史最大值。 */
+        @SerializedName("high_water_bytes")
+        public long highWaterBytes;
+        @SerializedName("sent_frames")
+        public long sentFrames;
+        @SerializedName("sent_bytes")
+        public long sentBytes;
+        /** 因 {@link StreamOptions.OverflowPolicy#DROP_OLDEST} 丢弃的帧数。 */
+        @SerializedName("dropped_frames")
+        public long droppedFrames;
+        @SerializedName("dropped_bytes")
+        public long droppedBytes;
+    }
+
+    /**
+     * 供 {@link AudioPipeline} 直接发送帧：持有句柄读锁并返回句柄，调用方必须在 finally 中调用
+     * {@link #releaseHandle()}，期间句柄不会被 {@link #close()} 释放。
+     */
+    long acquireHandle() {
+        handleLock.readLock().lock();
+        try {
+            ensureHandle();
+            return nativeHandle;
+        } catch (RuntimeException e) {
+            handleLock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    void releaseHandle() {
+        handleLock.readLock().unlock();
+    }
+
+    /**
+     * 供 {@link StreamDelivery} 非阻塞地取出最多 {@code max} 条消息，流未启动、正在停止或已关闭时返回空数组，
+     * 由随后的 {@link StreamDelivery#streamStopped()} 结束订阅。
+     */
+    @NotNull StreamEvent[] pollNow(int max) {
+        handleLock.readLock().lock();
+        try {
+            if (nativeHandle == 0L || !started) {
+                return NO_EVENTS;
+            }
+            try {
+                return nativeReadAvailable(nativeHandle, max, 0L);
+            } catch (RuntimeException e) {
+                if (!started) {
+                    return NO_EVENTS;
+                }
+                throw e;
+            }
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    /** 供 {@link StreamEvent#parse(String)} 使用，解析规则与读任务相同。 */
+    static @NotNull StreamEvent parseEvent(@NotNull String json) {
+        return nativeParseEvent(json);
+    }
+
+    boolean isFinishedNow() {
+        handleLock.readLock().lock();
+        try {
+            return nativeHandle != 0L && started && nativeIsFinished(nativeHandle);
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    synchronized void detach(@NotNull StreamDelivery subscription) {
+        if (delivery == subscription) {
+            delivery = null;
+            handleLock.readLock().lock();
+            try {
+                if (nativeHandle != 0L) {
+                    nativeSetListener(nativeHandle, null);
+                }
+            } finally {
+                handleLock.readLock().unlock();
+            }
+        }
+    }
+
+    /** 调用方持有对象锁，句柄只会在同样持有对象锁的 {@link #close()} 中释放。 */
+    private void endDelivery() {
+        StreamDelivery subscription = delivery;
+        if (subscription != null) {
+            delivery = null;
+            if (nativeHandle != 0L) {
+                nativeSetListener(nativeHandle, null);
+            }
+            subscription.streamStopped();
+        }
+    }
+
+    public static final class ResultQueueStats {
+        /** 当前缓存的消息数。 */
+        public int depth;
+        public int capacity;
+        /** 缓存消息数的历史最大值。 */
+        @SerializedName("high_water")
+        public int highWater;
+        /** 累计收到的消息数。 */
+        public long received;
+        /** 因溢出丢弃的消息数。 */
+        public long dropped;
+        /** {@link StreamOptions.ResultOverflowPolicy#COALESCE_PARTIALS} 合并掉的中间结果数。 */
+        public long coalesced;
+        /** 是否因 {@link StreamOptions.ResultOverflowPolicy#DISCONNECT} 断开。 */
+        public boolean overflowed;
+    }
+
+    public static final class ReconnectStats {
+        /** 当前是否正在重连。 */
+        public boolean reconnecting;
+        /** 是否已用尽重连次数。 */
+        @SerializedName("gave_up")
+        public boolean gaveUp;
+        /** 累计重连成功次数。 */
+        public long reconnects;
+        /** 累计尝试次数。 */
+        public long attempts;
+        @SerializedName("replayed_frames")
+        public long replayedFrames;
+        @SerializedName("replayed_bytes")
+        public long replayedBytes;
+        /** 重放缓冲中当前的字节数。 */
+        @SerializedName("buffered_bytes")
+        public long bufferedBytes;
+        @SerializedName("capacity_bytes")
+        public long capacityBytes;
+    }
+
+    public static final class LagStats {
+        /** 已提交音频的总时长（毫秒）。 */
+        @SerializedName("audio_millis")
+        public long audioMillis;
+        /** 匹配到音频帧的结果数。 */
+        @SerializedName("matched_results")
+        public long matchedResults;
+        /** 提交音频到收到覆盖该音频的结果。 */
+        public LagSummary lag;
+        /** 提交音频到写入 WebSocket 完成；同步发送时即写入耗时。 */
+        @SerializedName("send_queue")
+        public LagSummary sendQueue;
+        /** 写入 WebSocket 完成到收到结果，包含网络往返与服务端处理。 */
+        public LagSummary server;
+    }
+
+    /** 最近样本窗口的统计，单位毫秒。 */
+    public static final class LagSummary {
+        /** 累计样本数（不限于窗口内）。 */
+        public long count;
+        @SerializedName("last_millis")
+        public double lastMillis;
+        @SerializedName("mean_millis")
+        public double meanMillis;
+        @SerializedName("p50_millis")
+        public double p50Millis;
+        @SerializedName("p95_millis")
+        public double p95Millis;
+        @SerializedName("max_millis")
+        public double maxMillis;
+    }
+
+    public static final class CaptureStats {
+        public String path;
+        /** 写入的记录数。 */
+        public long records;
+        /** 其中音频数据的字节数。 */
+        @SerializedName("audio_bytes")
+        public long audioBytes;
+        /** 文件总字节数。 */
+        public long bytes;
+        /** 文件扩容失败后停止了记录。 */
+        public boolean failed;
+    }
+
     private void ensureHandle() {
         if (nativeHandle == 0L) {
             throw new IllegalStateException("TranscribeStream has been closed.");
         }
     }
 
-    private static native String nativeCreateSession(String model, String token);
+    private static native String nativeCreateSession(String model, String token, long callHandle);
+
+    private static native String nativeCloseSession(
+            String taskId,
+            String token,
+            long timeoutSeconds,
+            long callHandle
+    );
 
-    private static native String nativeCloseSession(String taskId, String token, long timeoutSeconds);
+    private static native void nativeCloseSessionsAsync(
+            String[] taskIds,
+            String token,
+            long timeoutSeconds,
+            int concurrency,
+            long[] callHandles,
+            Object target
+    );
 
-    private static native long nativeCreate(String sessionId);
+    private static native long nativeCreate(String sessionId, String optionsJson);
 
     private static native void nativeDestroy(long handle);
 
@@ -160,9 +752,33 @@ public final class TranscribeStream implements AutoCloseable {
 
     private static native void nativeStop(long handle);
 
-    private static native void nativeSendBinary(long handle, byte[] payload);
+    private static native void nativeSendBinary(long handle, byte[] payload, int offset, int length);
+
+    private static native void nativeSendDirect(long handle, ByteBuffer buffer, int position, int length);
 
     private static native void nativeSendText(long handle, String message);
 
-    private static native String nativeRead(long handle, long timeoutMillis);
+    private static native boolean nativeFlush(long handle, long timeoutMillis);
+
+    private static native String nativeSendQueueStats(long handle);
+
+    private static native String nativeResultQueueStats(long handle);
+
+    private static native String nativeReconnectStats(long handle);
+
+    private static native String nativeLagStats(long handle);
+
+    private static native void nativeStartCapture(long handle, String path);
+
+    private static native String nativeStopCapture(long handle);
+
+    private static native StreamEvent nativeRead(long handle, long timeoutMillis);
+
+    private static native StreamEvent[] nativeReadAvailable(long handle, int max, long timeoutMillis);
+
+    private static native StreamEvent nativeParseEvent(String json);
+
+    private static native void nativeSetListener(long handle, @Nullable Object target);
+
+    private static native boolean nativeIsFinished(long handle);
 }
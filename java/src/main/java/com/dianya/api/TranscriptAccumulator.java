@@ -0,0 +1,160 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按 {@link StreamEvent} 增量维护实时转写文本。
+ *
+ * <p>最终结果按分段追加到已定稿部分，之后不再改动；中间结果按分段序号替换，只影响尾部未定稿部分。
+ * {@link #apply(StreamEvent)} 返回本次新增的定稿文本与当前未定稿文本，界面只需追加前者、替换后者，
+ * 每条消息的开销与变化量成正比，而不是与全文长度成正比。</p>
+ *
+ * <p>非线程安全，应在读取结果的线程上使用。</p>
+ */
+public final class TranscriptAccumulator {
+    private static final int UNTAGGED = Integer.MIN_VALUE;
+
+    private final String separator;
+    private final List<StreamEvent> finals = new ArrayList<>();
+    private final StringBuilder committed = new StringBuilder();
+    /** 尚未定稿的分段，按分段序号排序；没有序号的中间结果使用 {@link #UNTAGGED}。 */
+    private final TreeMap<Integer, String> partials = new TreeMap<>();
+    private String partialText = "";
+
+    public TranscriptAccumulator() {
+        this("");
+    }
+
+    /**
+     * @param separator 定稿分段之间的分隔符，如换行或空格
+     */
+    public TranscriptAccumulator(@NotNull String separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * 应用一条消息。
+     *
+     * @return 文本发生变化时返回本次更新，错误、未知消息等返回 {@code null}
+     */
+    public @Nullable Update apply(@NotNull StreamEvent event) {
+        switch (event.type) {
+            case PARTIAL:
+                partials.put(keyOf(event), event.text == null ? "" : event.text);
+                return new Update("", rebuildPartial());
+            case FINAL:
+                if (event.segmentId == StreamEvent.ABSENT) {
+                    // 没有分段序号时，最终结果覆盖之前所有中间结果
+                    partials.clear();
+                } else {
+                    partials.remove(event.segmentId);
+                    partials.remove(UNTAGGED);
+                }
+                finals.add(event);
+                String delta = commit(event.text);
+                return new Update(delta, rebuildPartial());
+            case SESSION_END:
+                if (partials.isEmpty()) {
+                    return null;
+                }
+                // 会话结束时尚未定稿的中间结果按最终结果处理
+                StringBuilder promoted = new StringBuilder();
+                for (String text : partials.values()) {
+                    promoted.append(commit(text));
+                }
+                partials.clear();
+                partialText = "";
+                return new Update(promoted.toString(), "");
+            default:
+                return null;
+        }
+    }
+
+    /** 解析并应用一条原始 JSON 消息。 */
+    public @Nullable Update apply(@NotNull String json) {
+        return apply(StreamEvent.parse(json));
+    }
+
+    /** 已定稿的分段。 */
+    public @NotNull List<StreamEvent> getFinalSegments() {
+        return Collections.unmodifiableList(finals);
+    }
+
+    /** 已定稿文本的长度，可用于定位界面中未定稿部分的起点。 */
+    public int getCommittedLength() {
+        return committed.length();
+    }
+
+    /** 已定稿文本，需要复制全文，开销与长度成正比。 */
+    public @NotNull String getCommittedText() {
+        return committed.toString();
+    }
+
+    /** 当前未定稿的文本。 */
+    public @NotNull String getPartialText() {
+        return partialText;
+    }
+
+    /** 已定稿文本加未定稿文本，需要复制全文。 */
+    public @NotNull String getText() {
+        return committed.toString() + partialText;
+    }
+
+    public void reset() {
+        finals.clear();
+        committed.setLength(0);
+        partials.clear();
+        partialText = "";
+    }
+
+    private String commit(@Nullable String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String delta = committed.length() > 0 && !separator.isEmpty() ? separator + text : text;
+        committed.append(delta);
+        return delta;
+    }
+
+    private String rebuildPartial() {
+        if (partials.isEmpty()) {
+            partialText = "";
+        } else if (partials.size() == 1) {
+            partialText = partials.firstEntry().getValue();
+        } else {
+            StringBuilder builder = new StringBuilder();
+            for (Map.Entry<Integer, String> entry : partials.entrySet()) {
+                builder.append(entry.getValue());
+            }
+            partialText = builder.toString();
+        }
+        if (!partialText.isEmpty() && committed.length() > 0 && !separator.isEmpty()) {
+            partialText = separator + partialText;
+        }
+        return partialText;
+    }
+
+    private static int keyOf(StreamEvent event) {
+        return event.segmentId == StreamEvent.ABSENT ? UNTAGGED : event.segmentId;
+    }
+
+    /** 一次增量更新：界面追加 {@link #committed}，并把尾部未定稿部分替换为 {@link #partial}。 */
+    public static final class Update {
+        /** 本次新增的定稿文本（可能为空）。 */
+        public final @NotNull String committed;
+        /** 更新后完整的未定稿文本（可能为空）。 */
+        public final @NotNull String partial;
+
+        Update(@NotNull String committed, @NotNull String partial) {
+            this.committed = committed;
+            this.partial = partial;
+        }
+    }
+}
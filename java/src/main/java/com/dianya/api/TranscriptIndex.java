@@ -0,0 +1,593 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 跨任务的转写文本内存倒排索引，按需创建，用于在大量已完成任务中检索关键词。
+ *
+ * <p>中日韩文字按相邻两字切分（单字同时入索引，便于单字查询），其他字母数字按连续单词切分并转为小写。
+ * {@link #search(String, int)} 要求查询中的所有词元出现在同一分段中，{@link #searchPhrase(String, int)}
+ * 还要求它们连续出现（忽略标点与中文之间的空白）。命中按索引顺序返回，定位到任务、说话人和时间。</p>
+ *
+ * <p>同一任务重复 {@link #add} 时，如果已索引的分段未变，只追加新增分段，适合在轮询或回调中边完成边索引。
+ * 索引的估算内存超过上限时，按加入顺序淘汰最早的任务。线程安全，检索可以并发执行。</p>
+ *
+ * <pre>{@code
+ * TranscriptIndex index = new TranscriptIndex(256L << 20);
+ * index.add(taskId, TranscribeApi.status(taskId, null, token));
+ * List<TranscriptIndex.Hit> hits = index.searchPhrase("季度预算", 20);
+ * }</pre>
+ */
+public final class TranscriptIndex {
+    /** 每个任务的固定开销估算。 */
+    private static final int TASK_BYTES = 160;
+    /** 每个分段的固定开销估算（不含文本）。 */
+    private static final int ENTRY_BYTES = 96;
+    /** 每个词条的固定开销估算（不含词文本和倒排表）。 */
+    private static final int TERM_BYTES = 112;
+    /** 倒排表每项的开销估算，含数组扩容余量。 */
+    private static final int POSTING_BYTES = 6;
+    /** 已删除分段超过该数量且超过一半时整理索引。 */
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final long maxBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 按分段编号排列，已删除的分段为 {@code null}。 */
+    private final ArrayList<Hit> entries = new ArrayList<>();
+    private final Map<String, IntList> postings = new HashMap<>();
+    /** 按加入顺序排列，淘汰时从头部开始。 */
+    private final LinkedHashMap<String, Task> tasks = new LinkedHashMap<>();
+    private long bytes;
+    private int deadEntries;
+    private long evictedTasks;
+
+    /**
+     * @param maxBytes 索引估算内存的上限（字节），超过时淘汰最早加入的任务
+     */
+    public TranscriptIndex(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 索引任务状态中的 {@code details} 与 {@code keywords}。
+     *
+     * @return 本次新索引的分段数
+     */
+    public int add(@NotNull String taskId, @NotNull TranscribeApi.StatusResponse status) {
+        return add(taskId, status.details, status.keywords);
+    }
+
+    /** 索引回调中的分段，不改变该任务已索引的关键词。 */
+    public int add(@NotNull TranscribeApi.CallbackRequest callback) {
+        return add(callback.taskId, callback.utterances, null);
+    }
+
+    /**
+     * 索引一个任务的分段与关键词。任务已存在时，如果此前索引的分段仍是 {@code utterances} 的前缀，
+     * 只追加新增部分，否则重建该任务的索引。
+     *
+     * @param keywords 任务关键词，{@code null} 表示保持不变
+     * @return 本次新索引的分段数
+     */
+    public int add(@NotNull String taskId,
+                   @Nullable List<TranscribeApi.Utterance> utterances,
+                   @Nullable List<String> keywords) {
+        List<TranscribeApi.Utterance> details = utterances == null
+                ? Collections.<TranscribeApi.Utterance>emptyList()
+                : utterances;
+        lock.writeLock().lock();
+        try {
+            Task task = tasks.remove(taskId);
+            if (task == null) {
+                task = new Task(taskId);
+                bytes += TASK_BYTES + 2L * taskId.length();
+            } else if (!task.isPrefixOf(details)) {
+                task.bytes -= retire(task.utterances);
+                task.utteranceCount = 0;
+            }
+            // 重新放到末尾，最近更新的任务最后淘汰
+            tasks.put(taskId, task);
+
+            if (keywords != null && !keywords.equals(task.keywords)) {
+                task.bytes -= retire(task.keywordEntries);
+                task.keywords = new ArrayList<>(keywords);
+                for (String keyword : keywords) {
+                    if (keyword != null && !keyword.isEmpty()) {
+                        Hit hit = new Hit(taskId, Field.KEYWORD, -1, 0, 0, keyword);
+                        append(task, task.keywordEntries, hit);
+                    }
+                }
+            }
+
+            int from = task.utteranceCount;
+            for (int i = from; i < details.size(); i++) {
+                TranscribeApi.Utterance utterance = details.get(i);
+                String text = utterance.text == null ? "" : utterance.text;
+                append(task, task.utterances, new Hit(taskId, Field.UTTERANCE, utterance.speaker,
+                        utterance.startTime, utterance.endTime, text));
+            }
+            task.utteranceCount = details.size();
+            if (!details.isEmpty()) {
+                TranscribeApi.Utterance last = details.get(details.size() - 1);
+                task.lastStartTime = last.startTime;
+                task.lastText = last.text;
+            }
+
+            if (bytes > maxBytes) {
+                evict(task);
+            } else if (deadEntries >= COMPACT_THRESHOLD && deadEntries * 2 > entries.size()) {
+                compact();
+            }
+            return details.size() - from;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 从索引中移除任务。 */
+    public boolean remove(@NotNull String taskId) {
+        lock.writeLock().lock();
+        try {
+            Task task = tasks.remove(taskId);
+            if (task == null) {
+                return false;
+            }
+            drop(task);
+            if (deadEntries >= COMPACT_THRESHOLD && deadEntries * 2 > entries.size()) {
+                compact();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(@NotNull String taskId) {
+        lock.readLock().lock();
+        try {
+            return tasks.containsKey(taskId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 词项查询：返回包含查询中全部词元的分段或关键词，不要求相邻。
+     *
+     * @param limit 最多返回的命中数
+     */
+    public @NotNull List<Hit> search(@NotNull String query, int limit) {
+        return find(query, null, limit);
+    }
+
+    /**
+     * 短语查询：返回连续包含查询文本的分段或关键词。匹配时忽略大小写与标点，中文之间的空白不影响匹配，
+     * 英文单词需完整匹配。
+     *
+     * @param limit 最多返回的命中数
+     */
+    public @NotNull List<Hit> searchPhrase(@NotNull String phrase, int limit) {
+        return find(phrase, normalize(phrase), limit);
+    }
+
+    public int getTaskCount() {
+        lock.readLock().lock();
+        try {
+            return tasks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 当前索引的估算内存（字节）。 */
+    public long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 因超出内存上限被淘汰的任务数。 */
+    public long getEvictedTaskCount() {
+        lock.readLock().lock();
+        try {
+            return evictedTasks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            tasks.clear();
+            bytes = 0;
+            deadEntries = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Hit> find(String query, @Nullable String phrase, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(query, false, terms);
+        if (terms.isEmpty() || limit <= 0 || (phrase != null && phrase.isEmpty())) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            IntList[] lists = new IntList[terms.size()];
+            int count = 0;
+            for (String term : terms) {
+                IntList list = postings.get(term);
+                if (list == null) {
+                    return Collections.emptyList();
+                }
+                lists[count++] = list;
+            }
+            // 从最短的倒排表出发，其余表二分前进求交集
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            int[] cursors = new int[lists.length];
+            List<Hit> hits = new ArrayList<>();
+            IntList shortest = lists[0];
+            candidates:
+            for (int i = 0; i < shortest.size && hits.size() < limit; i++) {
+                int id = shortest.data[i];
+                for (int j = 1; j < lists.length; j++) {
+                    int cursor = lists[j].seek(cursors[j], id);
+                    cursors[j] = cursor;
+                    if (cursor == lists[j].size) {
+                        break candidates;
+                    }
+                    if (lists[j].data[cursor] != id) {
+                        continue candidates;
+                    }
+                }
+                Hit hit = entries.get(id);
+                if (hit != null && (phrase == null || containsPhrase(normalize(hit.text), phrase))) {
+                    hits.add(hit);
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(Task task, IntList owner, Hit hit) {
+        Set<String> terms = new HashSet<>();
+        tokenize(hit.text, true, terms);
+        int id = entries.size();
+        entries.add(hit);
+        owner.add(id);
+        for (String term : terms) {
+            IntList list = postings.get(term);
+            if (list == null) {
+                list = new IntList();
+                postings.put(term, list);
+                long termBytes = TERM_BYTES + 2L * term.length();
+                bytes += termBytes;
+                task.bytes += termBytes;
+            }
+            list.add(id);
+        }
+        hit.bytes = ENTRY_BYTES + 2L * hit.text.length() + (long) POSTING_BYTES * terms.size();
+        bytes += hit.bytes;
+        task.bytes += hit.bytes;
+    }
+
+    /**
+     * 标记分段已删除并从总估算中扣除，倒排表中的编号在整理时才清除；词条可能被其他任务共享，
+     * 其开销在整理时重新计算。
+     *
+     * @return 删除分段的内存估算
+     */
+    private long retire(IntList ids) {
+        long freed = 0;
+        for (int i = 0; i < ids.size; i++) {
+            Hit hit = entries.set(ids.data[i], null);
+            if (hit != null) {
+                freed += hit.bytes;
+                deadEntries++;
+            }
+        }
+        ids.size = 0;
+        bytes -= freed;
+        return freed;
+    }
+
+    private void drop(Task task) {
+        retire(task.utterances);
+        retire(task.keywordEntries);
+        bytes -= TASK_BYTES + 2L * task.id.length();
+    }
+
+    /**
+     * 从最早加入的任务开始淘汰，目标是降到上限的 3/4，每轮淘汰后整理索引回收空间。
+     * 词条由多个任务共享，按任务新建的词条估算可回收的空间，估多了就再来一轮。
+     */
+    private void evict(Task current) {
+        long target = maxBytes - maxBytes / 4;
+        while (bytes > target && tasks.size() > 1) {
+            long need = bytes - target;
+            long freed = 0;
+            Iterator<Task> iterator = tasks.values().iterator();
+            while (freed < need && iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task == current) {
+                    continue;
+                }
+                iterator.remove();
+                drop(task);
+                freed += task.bytes + TASK_BYTES;
+                evictedTasks++;
+            }
+            compact();
+        }
+    }
+
+    /** 去掉已删除的分段并重新编号，清理空的词条，重新计算内存估算。 */
+    private void compact() {
+        int[] remap = new int[entries.size()];
+        int live = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Hit hit = entries.get(i);
+            if (hit == null) {
+                remap[i] = -1;
+            } else {
+                remap[i] = live;
+                entries.set(live++, hit);
+            }
+        }
+        entries.subList(live, entries.size()).clear();
+        entries.trimToSize();
+
+        long total = 0;
+        Iterator<Map.Entry<String, IntList>> iterator = postings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, IntList> entry = iterator.next();
+            IntList list = entry.getValue();
+            list.remap(remap);
+            if (list.size == 0) {
+                iterator.remove();
+            } else {
+                list.trim();
+                total += TERM_BYTES + 2L * entry.getKey().length();
+            }
+        }
+        for (Task task : tasks.values()) {
+            task.utterances.remap(remap);
+            task.keywordEntries.remap(remap);
+            total += TASK_BYTES + 2L * task.id.length();
+        }
+        for (Hit hit : entries) {
+            total += hit.bytes;
+        }
+        bytes = total;
+        deadEntries = 0;
+    }
+
+    /**
+     * 切分词元。中日韩文字连续段按相邻两字切分，单字段保留单字；{@code forIndex} 时每个字另作一个词元。
+     * 其他字母数字按连续段切分为小写单词。
+     */
+    static void tokenize(@NotNull String text, boolean forIndex, @NotNull Collection<String> out) {
+        StringBuilder word = new StringBuilder();
+        int previous = -1;
+        int run = 0;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                flush(word, out);
+                if (previous >= 0) {
+                    out.add(new StringBuilder(4).appendCodePoint(previous).appendCodePoint(cp).toString());
+                }
+                if (forIndex) {
+                    out.add(new String(Character.toChars(cp)));
+                }
+                previous = cp;
+                run++;
+                continue;
+            }
+            if (run == 1 && !forIndex) {
+                out.add(new String(Character.toChars(previous)));
+            }
+            previous = -1;
+            run = 0;
+            if (Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                flush(word, out);
+            }
+        }
+        if (run == 1 && !forIndex) {
+            out.add(new String(Character.toChars(previous)));
+        }
+        flush(word, out);
+    }
+
+    /** 转为小写，标点与空白折叠为一个空格，与中日韩文字相邻的空格去掉。 */
+    static @NotNull String normalize(@NotNull String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        boolean separated = false;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                out.appendCodePoint(cp);
+                separated = false;
+            } else if (Character.isLetterOrDigit(cp)) {
+                if (separated && out.length() > 0 && !isCjk(out.codePointBefore(out.length()))) {
+                    out.append(' ');
+                }
+                out.appendCodePoint(Character.toLowerCase(cp));
+                separated = false;
+            } else {
+                separated = true;
+            }
+        }
+        return out.toString();
+    }
+
+    /** 查找 {@code phrase}，两端是英文字母或数字时要求落在单词边界上。 */
+    private static boolean containsPhrase(String text, String phrase) {
+        for (int at = text.indexOf(phrase); at >= 0; at = text.indexOf(phrase, at + 1)) {
+            int end = at + phrase.length();
+            boolean startOk = at == 0 || !isWordChar(phrase.codePointAt(0))
+                    || !isWordChar(text.codePointBefore(at));
+            boolean endOk = end == text.length() || !isWordChar(phrase.codePointBefore(phrase.length()))
+                    || !isWordChar(text.codePointAt(end));
+            if (startOk && endOk) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void flush(StringBuilder word, Collection<String> out) {
+        if (word.length() > 0) {
+            out.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static boolean isWordChar(int cp) {
+        return Character.isLetterOrDigit(cp) && !isCjk(cp);
+    }
+
+    private static boolean isCjk(int cp) {
+        if (Character.isIdeographic(cp)) {
+            return true;
+        }
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(cp);
+        return block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+
+    /** 命中来源。 */
+    public enum Field {
+        /** 转写分段。 */
+        UTTERANCE,
+        /** 任务关键词，说话人为 -1，时间为 0。 */
+        KEYWORD
+    }
+
+    /** 一条命中。 */
+    public static final class Hit {
+        public final @NotNull String taskId;
+        public final @NotNull Field field;
+        public final int speaker;
+        /** 分段开始时间（秒）。 */
+        public final double startTime;
+        /** 分段结束时间（秒）。 */
+        public final double endTime;
+        public final @NotNull String text;
+        /** 该分段的内存估算，含倒排表项。 */
+        private long bytes;
+
+        Hit(@NotNull String taskId, @NotNull Field field, int speaker, double startTime, double endTime,
+            @NotNull String text) {
+            this.taskId = taskId;
+            this.field = field;
+            this.speaker = speaker;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return taskId + " [" + speaker + " " + startTime + "-" + endTime + "] " + text;
+        }
+    }
+
+    private static final class Task {
+        final String id;
+        final IntList utterances = new IntList();
+        final IntList keywordEntries = new IntList();
+        @Nullable List<String> keywords;
+        /** 该任务的分段与其新建词条的内存估算，用于淘汰时估计可回收的空间。 */
+        long bytes;
+        int utteranceCount;
+        double lastStartTime;
+        @Nullable String lastText;
+
+        Task(String id) {
+            this.id = id;
+        }
+
+        /** 已索引的分段是否仍是 {@code details} 的前缀，只比较最后一个已索引分段。 */
+        boolean isPrefixOf(List<TranscribeApi.Utterance> details) {
+            if (utteranceCount == 0) {
+                return true;
+            }
+            if (details.size() < utteranceCount) {
+                return false;
+            }
+            TranscribeApi.Utterance last = details.get(utteranceCount - 1);
+            return last.startTime == lastStartTime
+                    && (last.text == null ? lastText == null : last.text.equals(lastText));
+        }
+    }
+
+    /** 升序排列的 int 列表。 */
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size + (size >> 1) + 1);
+            }
+            data[size++] = value;
+        }
+
+        /** 从 {@code from} 开始第一个不小于 {@code value} 的位置。 */
+        int seek(int from, int value) {
+            int index = Arrays.binarySearch(data, from, size, value);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /** 按新编号改写，去掉映射为 -1 的项；编号单调，顺序保持不变。 */
+        void remap(int[] remap) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                int mapped = remap[data[i]];
+                if (mapped >= 0) {
+                    data[live++] = mapped;
+                }
+            }
+            size = live;
+        }
+
+        void trim() {
+            if (data.length > size + (size >> 1) + 4) {
+                data = Arrays.copyOf(data, size);
+            }
+        }
+    }
+}
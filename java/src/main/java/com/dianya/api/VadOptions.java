@@ -0,0 +1,107 @@
+package com.dianya.api;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link AudioPipeline} 的语音检测参数，通过 {@link AudioPipeline#setVad(VadOptions)} 开启。
+ *
+ * <pre>{@code
+ * pipeline.setVad(new VadOptions()
+ *         .mode(VadOptions.Mode.SPECTRAL)
+ *         .hangoverMillis(400)
+ *         .silenceAction(VadOptions.SilenceAction.COMPRESS));
+ * }</pre>
+ */
+public final class VadOptions {
+    private @NotNull Mode mode = Mode.ENERGY;
+    private float thresholdDb = -45f;
+    private float flatnessThreshold = 0.45f;
+    private int hangoverMillis = 300;
+    private int preRollMillis = 200;
+    private @NotNull SilenceAction silenceAction = SilenceAction.DROP;
+    private int keepaliveMillis = 1_000;
+
+    /** 检测方式，默认 {@link Mode#ENERGY}。 */
+    public @NotNull VadOptions mode(@NotNull Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * 语音能量阈值（dBFS），默认 -45。实际阈值取该值与“噪声底 + 6 dB”中的较大者，
+     * 噪声底在静音帧上自适应跟踪。
+     */
+    public @NotNull VadOptions thresholdDb(float db) {
+        this.thresholdDb = db;
+        return this;
+    }
+
+    /**
+     * {@link Mode#SPECTRAL} 下的频谱平坦度阈值，取值 (0, 1]，默认 0.45，低于该值才判为语音。
+     * 白噪声约为 0.55~0.6，浊音通常低于 0.3。
+     */
+    public @NotNull VadOptions flatnessThreshold(float threshold) {
+        if (threshold <= 0f || threshold > 1f) {
+            throw new IllegalArgumentException("flatnessThreshold must be in (0, 1].");
+        }
+        this.flatnessThreshold = threshold;
+        return this;
+    }
+
+    /** 语音结束后继续发送的时长（毫秒），默认 300，避免截断词尾和短停顿。 */
+    public @NotNull VadOptions hangoverMillis(int millis) {
+        this.hangoverMillis = requireNonNegative(millis, "hangoverMillis");
+        return this;
+    }
+
+    /** 语音开始时补发的前置静音时长（毫秒），默认 200，避免截掉起始音节。 */
+    public @NotNull VadOptions preRollMillis(int millis) {
+        this.preRollMillis = requireNonNegative(millis, "preRollMillis");
+        return this;
+    }
+
+    /** 静音帧的处理方式，默认 {@link SilenceAction#DROP}。 */
+    public @NotNull VadOptions silenceAction(@NotNull SilenceAction action) {
+        this.silenceAction = action;
+        return this;
+    }
+
+    /** {@link SilenceAction#COMPRESS} 时发送保活帧的间隔（毫秒），默认 1000。 */
+    public @NotNull VadOptions keepaliveMillis(int millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("keepaliveMillis must be positive.");
+        }
+        this.keepaliveMillis = millis;
+        return this;
+    }
+
+    String toJson() {
+        return Utils.GSON.toJson(this);
+    }
+
+    private static int requireNonNegative(int value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative.");
+        }
+        return value;
+    }
+
+    /** 语音检测方式。 */
+    public enum Mode {
+        /** 按帧能量判断，开销最低，适合安静环境。 */
+        ENERGY,
+        /** 能量达标后再用 512 点 FFT 计算语音频段的频谱平坦度，过滤风扇、空调等稳态噪声。 */
+        SPECTRAL
+    }
+
+    /**
+     * 静音帧的处理方式。两种方式都会缩短发送的音频，结果中的时间相对输入音频提前，
+     * 用 {@link AudioPipeline#toSourceSeconds(double)} 换算回输入音频的时间。
+     */
+    public enum SilenceAction {
+        /** 丢弃，带宽与计费时长节省最多。 */
+        DROP,
+        /** 每隔 {@link #keepaliveMillis(int)} 发送一帧数字静音，避免服务端因长时间无数据断开会话。 */
+        COMPRESS
+    }
+}
@@ -0,0 +1,189 @@
+package com.dianya.api;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CallPolicyTest {
+    private static final Operation OPERATION = Operation.STATUS;
+
+    @Test
+    public void primaryRunsOnCallerThread() {
+        CallPolicy policy = warmed(new CallPolicy());
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        String result = policy.execute(OPERATION, () -> {
+            thread.set(Thread.currentThread());
+            return "primary";
+        });
+
+        assertEquals("primary", result);
+        assertSame(Thread.currentThread(), thread.get());
+    }
+
+    @Test(timeout = 5_000)
+    public void slowPrimaryIsHedgedAndCancelledByHedgeSuccess() {
+        CallPolicy policy = warmed(new CallPolicy().minHedgeDelayMillis(10).retryBudget(0, 0));
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<Thread> hedgeThread = new AtomicReference<>();
+
+        String result = policy.execute(OPERATION, () -> {
+            if (calls.incrementAndGet() == 1) {
+                return awaitCancellation();
+            }
+            hedgeThread.set(Thread.currentThread());
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertEquals(2, calls.get());
+        assertNotSame(Thread.currentThread(), hedgeThread.get());
+        // 对冲消耗了唯一的额度
+        assertEquals(0.0, policy.getAvailableRetries(), 1e-9);
+    }
+
+    @Test(timeout = 5_000)
+    public void exhaustedBudgetSkipsHedge() {
+        CallPolicy policy = warmed(new CallPolicy().minHedgeDelayMillis(10).retryBudget(0, 0));
+        AtomicInteger calls = new AtomicInteger();
+        policy.execute(OPERATION, () -> calls.incrementAndGet() == 1 ? awaitCancellation() : "hedge");
+
+        calls.set(0);
+        String result = policy.execute(OPERATION, () -> {
+            calls.incrementAndGet();
+            sleep(60);
+            return "primary";
+        });
+
+        assertEquals("primary", result);
+        assertEquals(1, calls.get());
+    }
+
+    @Test(timeout = 5_000)
+    public void primaryErrorWinsWhenBothAttemptsFail() {
+        CallPolicy policy = warmed(new CallPolicy().minHedgeDelayMillis(10).maxAttempts(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        try {
+            policy.execute(OPERATION, () -> {
+                if (calls.incrementAndGet() == 1) {
+                    sleep(100);
+                    throw new DianyaException(DianyaException.Code.HTTP_ERROR, "primary");
+                }
+                throw new DianyaException(DianyaException.Code.WS_ERROR, "hedge");
+            });
+            fail("expected both attempts to fail");
+        } catch (DianyaException e) {
+            assertEquals(DianyaException.Code.HTTP_ERROR, e.getCode());
+        }
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void retryableErrorsAreRetriedUpToMaxAttempts() {
+        CallPolicy policy = new CallPolicy().hedgeEnabled(false).backoffMillis(1, 1).retryBudget(1, 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = policy.execute(OPERATION, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new DianyaException(DianyaException.Code.HTTP_ERROR, "flaky");
+            }
+            return "ok";
+        });
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        assertFails(policy, calls, DianyaException.Code.HTTP_ERROR);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void nonRetryableErrorsFailImmediately() {
+        CallPolicy policy = new CallPolicy().hedgeEnabled(false).backoffMillis(1, 1).retryBudget(1, 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertFails(policy, calls, DianyaException.Code.INVALID_TOKEN);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void emptyBudgetStopsRetries() {
+        // 比例与补充速度都为 0 时只有初始的 1 个额度
+        CallPolicy policy = new CallPolicy().hedgeEnabled(false).backoffMillis(1, 1).retryBudget(0, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertFails(policy, calls, DianyaException.Code.WS_ERROR);
+        assertEquals(2, calls.get());
+        assertEquals(0.0, policy.getAvailableRetries(), 1e-9);
+
+        calls.set(0);
+        assertFails(policy, calls, DianyaException.Code.WS_ERROR);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void latencyPercentileIsCachedBetweenRefreshes() {
+        LatencyWindow window = new LatencyWindow(8);
+        assertEquals(-1L, window.percentile(0.5));
+        for (long nanos = 1; nanos <= 4; nanos++) {
+            window.record(nanos);
+        }
+        assertEquals(2L, window.percentile(0.5));
+        assertEquals(4L, window.percentile(0.95));
+
+        window.record(100);
+        assertEquals(4L, window.percentile(0.95));
+        for (int i = 1; i < LatencyWindow.REFRESH_INTERVAL; i++) {
+            window.record(100);
+        }
+        assertEquals(100L, window.percentile(0.95));
+        assertEquals(8, window.size());
+    }
+
+    /** 记录足够的快速样本，使之后的调用进入对冲路径。 */
+    private static CallPolicy warmed(CallPolicy policy) {
+        for (int i = 0; i < 20; i++) {
+            policy.execute(OPERATION, () -> "warm");
+        }
+        return policy;
+    }
+
+    private static void assertFails(CallPolicy policy, AtomicInteger calls, DianyaException.Code code) {
+        try {
+            policy.execute(OPERATION, () -> {
+                calls.incrementAndGet();
+                throw new DianyaException(code, "failed");
+            });
+            fail("expected " + code);
+        } catch (DianyaException e) {
+            assertEquals(code, e.getCode());
+        }
+    }
+
+    /** 模拟阻塞中的 native 调用：所在作用域被取消时以 CANCELLED 返回。 */
+    private static String awaitCancellation() {
+        CallScope scope = CallScope.current();
+        assertTrue(scope != null);
+        while (!scope.isCancelled()) {
+            sleep(5);
+        }
+        throw new DianyaException(DianyaException.Code.CANCELLED, "cancelled");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DianyaException(DianyaException.Code.CANCELLED, "interrupted");
+        }
+    }
+}
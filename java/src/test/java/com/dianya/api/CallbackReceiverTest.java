@@ -0,0 +1,151 @@
+package com.dianya.api;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CallbackReceiverTest {
+    private static final String PATH = "/dianya/callback";
+    private static final String CALLBACK = "{\"task_id\":\"t1\",\"status\":\"done\",\"code\":0,"
+            + "\"utterances\":[{\"text\":\"季度预算\",\"start_time\":0,\"end_time\":1.5,\"speaker\":0}]}";
+
+    @Test
+    public void contentLengthBodyCompletesPendingAwait() throws Exception {
+        try (CallbackReceiver receiver = newReceiver()) {
+            DianyaFuture<TranscribeApi.CallbackRequest> future = receiver.await("t1");
+            assertFalse(future.isDone());
+
+            assertEquals(200, send(receiver, post(PATH, CALLBACK)));
+
+            TranscribeApi.CallbackRequest request = future.get(5, TimeUnit.SECONDS);
+            assertEquals("t1", request.taskId);
+            assertEquals("done", request.status);
+            assertEquals("季度预算", request.utterances.get(0).text);
+            assertEquals(1, receiver.getReceivedCount());
+        }
+    }
+
+    @Test
+    public void chunkedBodyIsDecoded() throws Exception {
+        try (CallbackReceiver receiver = newReceiver()) {
+            DianyaFuture<TranscribeApi.CallbackRequest> future = receiver.await("t1");
+            byte[] body = CALLBACK.getBytes(StandardCharsets.UTF_8);
+            int split = body.length / 3;
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            request.write(ascii("POST " + PATH + " HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n"));
+            request.write(ascii(Integer.toHexString(split) + ";ext=1\r\n"));
+            request.write(body, 0, split);
+            request.write(ascii("\r\n" + Integer.toHexString(body.length - split) + "\r\n"));
+            request.write(body, split, body.length - split);
+            request.write(ascii("\r\n0\r\n\r\n"));
+
+            assertEquals(200, send(receiver, request.toByteArray()));
+            assertEquals("t1", future.get(5, TimeUnit.SECONDS).taskId);
+        }
+    }
+
+    @Test
+    public void awaitAfterArrivalReturnsCompletedFuture() throws Exception {
+        try (CallbackReceiver receiver = newReceiver()) {
+            assertEquals(200, send(receiver, post(PATH, CALLBACK)));
+
+            DianyaFuture<TranscribeApi.CallbackRequest> future = receiver.await("t1");
+            assertTrue(future.isDone());
+            assertEquals("t1", future.get().taskId);
+            // 提前到达的回调只交给一个等待者
+            assertFalse(receiver.await("t1").isDone());
+        }
+    }
+
+    @Test
+    public void invalidRequestsAreRejected() throws Exception {
+        try (CallbackReceiver receiver = newReceiver()) {
+            assertEquals(404, send(receiver, post("/other", CALLBACK)));
+            assertEquals(405, send(receiver, ascii("GET " + PATH + " HTTP/1.1\r\nHost: localhost\r\n\r\n")));
+            assertEquals(413, send(receiver, ascii("POST " + PATH + " HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: " + (64L * 1024 * 1024) + "\r\n\r\n")));
+            assertEquals(400, send(receiver, post(PATH, "{\"task_id\":")));
+            assertEquals(400, send(receiver, post(PATH, "{\"status\":\"done\"}")));
+
+            assertEquals(5, receiver.getRejectedCount());
+            assertEquals(0, receiver.getReceivedCount());
+        }
+    }
+
+    @Test
+    public void negativeContentLengthClosesConnection() throws Exception {
+        try (CallbackReceiver receiver = newReceiver()) {
+            assertEquals(-1, send(receiver, ascii("POST " + PATH + " HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: -5\r\n\r\n")));
+        }
+    }
+
+    @Test
+    public void closeFailsPendingAwait() throws Exception {
+        CallbackReceiver receiver = newReceiver();
+        DianyaFuture<TranscribeApi.CallbackRequest> future = receiver.await("t1");
+        receiver.close();
+
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail("expected the future to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static CallbackReceiver newReceiver() throws IOException {
+        return new CallbackReceiver(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), PATH);
+    }
+
+    private static byte[] post(String path, String json) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        byte[] head = ascii("POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n\r\n");
+        byte[] request = new byte[head.length + body.length];
+        System.arraycopy(head, 0, request, 0, head.length);
+        System.arraycopy(body, 0, request, head.length, body.length);
+        return request;
+    }
+
+    /** 发送原始请求并返回应答状态码，连接未应答就关闭时返回 -1。 */
+    private static int send(CallbackReceiver receiver, byte[] request) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), receiver.getPort())) {
+            socket.setSoTimeout(5_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(request);
+            out.flush();
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                line.write(b);
+            }
+            String status = new String(line.toByteArray(), StandardCharsets.ISO_8859_1).trim();
+            if (status.isEmpty()) {
+                return -1;
+            }
+            return Integer.parseInt(status.split(" ")[1]);
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
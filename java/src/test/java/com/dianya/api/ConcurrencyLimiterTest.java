@@ -0,0 +1,158 @@
+package com.dianya.api;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrencyLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void steadyLatencyWithoutLoadKeepsLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        for (int i = 0; i < 50; i++) {
+            call(limiter, Operation.STATUS, FAST);
+        }
+        assertEquals(20, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void risingLatencyShrinksLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter().limitRange(5, 200);
+        call(limiter, Operation.STATUS, FAST);
+        for (int i = 0; i < 10; i++) {
+            call(limiter, Operation.STATUS, SLOW);
+        }
+        int shrunk = limiter.getLimit();
+        assertTrue("limit " + shrunk, shrunk < 20 && shrunk >= 5);
+    }
+
+    @Test
+    public void busyCallersGrowLimitWhileLatencyHolds() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        call(limiter, Operation.STATUS, FAST);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 15; i++) {
+                limiter.acquire(Operation.STATUS);
+            }
+            for (int i = 0; i < 15; i++) {
+                limiter.release(OperationClass.QUERY, FAST, false);
+            }
+        }
+        assertTrue("limit " + limiter.getLimit(), limiter.getLimit() > 20);
+    }
+
+    @Test
+    public void slowOperationClassDoesNotDragDownOthers() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        for (int i = 0; i < 50; i++) {
+            call(limiter, Operation.STATUS, FAST);
+            call(limiter, Operation.UPLOAD, SLOW * 10);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    public void overloadErrorsBackOffMultiplicatively() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        failWith(limiter, new DianyaException(DianyaException.Code.HTTP_ERROR, "503"));
+        assertEquals(18, limiter.getLimit());
+        failWith(limiter, new DianyaException(DianyaException.Code.TIMEOUT, "slow"));
+        assertEquals(16, limiter.getLimit());
+        // 请求本身有误不代表服务端过载
+        failWith(limiter, new DianyaException(DianyaException.Code.INVALID_INPUT, "bad"));
+        assertEquals(16, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void backOffStopsAtMinimum() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter().limitRange(5, 200);
+        for (int i = 0; i < 50; i++) {
+            failWith(limiter, new DianyaException(DianyaException.Code.WS_ERROR, "reset"));
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    public void callerDeadlineTimeoutDoesNotBackOff() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        CallScope scope = CallScope.open(0);
+        try {
+            limiter.execute(Operation.STATUS, () -> CallScope.invokeNative(handle -> "unreachable", null));
+            fail("expected the deadline to be exceeded");
+        } catch (DianyaException e) {
+            assertEquals(DianyaException.Code.TIMEOUT, e.getCode());
+            assertTrue(e.isScopeDeadline());
+        } finally {
+            scope.close();
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    public void fullQueueRejectsImmediately() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter().initialLimit(1).limitRange(1, 1).queue(0, 0);
+        limiter.acquire(Operation.STATUS);
+        try {
+            limiter.acquire(Operation.STATUS);
+            fail("expected LIMIT_EXCEEDED");
+        } catch (DianyaException e) {
+            assertEquals(DianyaException.Code.LIMIT_EXCEEDED, e.getCode());
+        }
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test(timeout = 5_000)
+    public void queuedCallTimesOutOrTakesReleasedPermit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter().initialLimit(1).limitRange(1, 1).queue(1, 50);
+        limiter.acquire(Operation.STATUS);
+        long start = System.nanoTime();
+        try {
+            limiter.acquire(Operation.STATUS);
+            fail("expected LIMIT_EXCEEDED");
+        } catch (DianyaException e) {
+            assertEquals(DianyaException.Code.LIMIT_EXCEEDED, e.getCode());
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        limiter.queue(1, 5_000);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            limiter.acquire(Operation.STATUS);
+            acquired.countDown();
+        });
+        waiter.start();
+        while (limiter.getQueueLength() == 0) {
+            Thread.sleep(1);
+        }
+        limiter.release(OperationClass.QUERY, FAST, false);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueLength());
+    }
+
+    private static void call(ConcurrencyLimiter limiter, Operation operation, long rttNanos) {
+        limiter.acquire(operation);
+        limiter.release(operation.getOperationClass(), rttNanos, false);
+    }
+
+    private static void failWith(ConcurrencyLimiter limiter, DianyaException error) {
+        try {
+            limiter.execute(Operation.STATUS, () -> {
+                throw error;
+            });
+        } catch (DianyaException e) {
+            assertEquals(error, e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.dianya.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void smallValuesHaveExactBuckets() {
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, Histogram.indexOf(value));
+            assertEquals(value, Histogram.upperBoundOf((int) value));
+        }
+        // 64 起每个子桶宽 2
+        assertEquals(64, Histogram.indexOf(64));
+        assertEquals(64, Histogram.indexOf(65));
+        assertEquals(65, Histogram.upperBoundOf(64));
+        assertEquals(65, Histogram.indexOf(66));
+    }
+
+    @Test
+    public void bucketsCoverValuesWithinRelativeError() {
+        int previous = -1;
+        for (long value = 0; value < 100_000; value += 7) {
+            assertBucketHolds(value);
+            int index = Histogram.indexOf(value);
+            assertTrue(index >= previous);
+            previous = index;
+        }
+        for (int bit = 5; bit < 63; bit++) {
+            long power = 1L << bit;
+            assertBucketHolds(power - 1);
+            assertBucketHolds(power);
+            assertBucketHolds(power + power / 3);
+        }
+        assertBucketHolds(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Histogram.upperBoundOf(Histogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentilesReportBucketUpperBoundCappedByMax() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        // 99 落在 [98, 99] 子桶
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        // 100 所在子桶上界为 101，不超过最大值
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void negativeValuesCountAsZeroAndResetClears() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+
+        histogram.record(1_000_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    private static void assertBucketHolds(long value) {
+        long upper = Histogram.upperBoundOf(Histogram.indexOf(value));
+        assertTrue("upper bound " + upper + " below " + value, upper >= value);
+        assertTrue("bucket of " + value + " too wide: " + upper, upper - value <= value / 32);
+    }
+}
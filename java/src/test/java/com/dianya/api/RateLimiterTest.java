@@ -0,0 +1,142 @@
+package com.dianya.api;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+    private static final String TOKEN = "token-a";
+
+    @Test
+    public void burstIsAllowedThenRejected() {
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 1, 2);
+        assertTrue(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+        assertTrue(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+        assertFalse(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+
+        RateLimiter.TenantStats stats = limiter.getStats(TOKEN);
+        assertNotNull(stats);
+        assertEquals(2, stats.acquired);
+        assertEquals(1, stats.rejected);
+        assertEquals(0, stats.waited);
+    }
+
+    @Test
+    public void unconfiguredClassesAreUnlimited() {
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 1, 1);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire(TOKEN, OperationClass.UPLOAD));
+        }
+        assertNull(limiter.getStats(TOKEN));
+    }
+
+    @Test
+    public void bucketsRefillOverTime() {
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 100, 1);
+        assertTrue(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+        assertFalse(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+
+        // 每 10ms 补充一个许可
+        long start = System.nanoTime();
+        assertTrue(limiter.tryAcquire(TOKEN, OperationClass.QUERY, 500, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(5));
+
+        RateLimiter.TenantStats stats = limiter.getStats(TOKEN);
+        assertNotNull(stats);
+        assertEquals(1, stats.waited);
+        assertTrue(stats.maxWaitNanos > 0);
+        assertEquals(stats.maxWaitNanos, stats.totalWaitNanos);
+    }
+
+    @Test
+    public void tenantsHaveSeparateBuckets() {
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 1, 1);
+        assertTrue(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+        assertFalse(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+        assertTrue(limiter.tryAcquire("token-b", OperationClass.QUERY));
+    }
+
+    @Test
+    public void interruptedWaitRefundsItsReservation() {
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 10, 1);
+        assertTrue(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(limiter.tryAcquire(TOKEN, OperationClass.QUERY, 5, TimeUnit.SECONDS));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+
+        // 归还后只需等待一个许可（约 100ms），否则要等两个
+        assertTrue(limiter.tryAcquire(TOKEN, OperationClass.QUERY, 150, TimeUnit.MILLISECONDS));
+        RateLimiter.TenantStats stats = limiter.getStats(TOKEN);
+        assertNotNull(stats);
+        assertEquals(2, stats.acquired);
+        assertEquals(1, stats.rejected);
+    }
+
+    @Test
+    public void callsOverTheWaitLimitFailWithTenantId() {
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 1, 1).maxWaitMillis(0);
+        limiter.acquireForCall(TOKEN, Operation.STATUS);
+        try {
+            limiter.acquireForCall(TOKEN, Operation.STATUS);
+            fail("expected LIMIT_EXCEEDED");
+        } catch (DianyaException e) {
+            assertEquals(DianyaException.Code.LIMIT_EXCEEDED, e.getCode());
+            assertTrue(e.getMessage().contains(RateLimiter.tenantId(TOKEN)));
+            assertFalse(e.getMessage().contains(TOKEN));
+        }
+    }
+
+    @Test
+    public void statsAreKeyedByTenantId() {
+        String id = RateLimiter.tenantId(TOKEN);
+        assertEquals(16, id.length());
+        assertTrue(id.matches("[0-9a-f]{16}"));
+        assertEquals(id, RateLimiter.tenantId(TOKEN));
+        assertFalse(id.equals(RateLimiter.tenantId("token-b")));
+
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 1, 1);
+        limiter.tryAcquire(TOKEN, OperationClass.QUERY);
+        Map<String, RateLimiter.TenantStats> all = limiter.getAllStats();
+        assertEquals(1, all.size());
+        assertEquals(id, all.get(id).tenantId);
+    }
+
+    @Test
+    public void fullTenantsAreSweptOverTheLimit() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 1_000, 1).maxTenants(2);
+        assertTrue(limiter.tryAcquire("token-a", OperationClass.QUERY));
+        assertTrue(limiter.tryAcquire("token-b", OperationClass.QUERY));
+        // 等两个桶回满
+        Thread.sleep(20);
+
+        assertTrue(limiter.tryAcquire("token-c", OperationClass.QUERY));
+        assertEquals(1, limiter.getAllStats().size());
+        assertNull(limiter.getStats("token-a"));
+        assertNotNull(limiter.getStats("token-c"));
+    }
+
+    @Test
+    public void idleTenantsAreSweptPeriodically() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter().limit(OperationClass.QUERY, 1e9, 1_000_000).tenantIdleMillis(1);
+        assertTrue(limiter.tryAcquire("idle", OperationClass.QUERY));
+        Thread.sleep(20);
+
+        // 已有租户每 4096 次获取检查一次闲置租户
+        for (int i = 0; i <= 4096; i++) {
+            assertTrue(limiter.tryAcquire(TOKEN, OperationClass.QUERY));
+        }
+        assertNull(limiter.getStats("idle"));
+    }
+}
@@ -0,0 +1,294 @@
+package com.dianya.api;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreamDeliveryTest {
+
+    @Test
+    public void eventsFollowDemand() {
+        FakeSource source = new FakeSource(5);
+        Recorder subscriber = new Recorder();
+        StreamDelivery delivery = new StreamDelivery(source, subscriber, Runnable::run);
+        delivery.start();
+        assertEquals(0, subscriber.events.size());
+
+        delivery.request(2);
+        assertEquals(list("0", "1"), subscriber.texts());
+
+        delivery.request(10);
+        assertEquals(list("0", "1", "2", "3", "4"), subscriber.texts());
+        assertEquals(0, subscriber.completed);
+
+        source.add(1);
+        source.finished = true;
+        delivery.onNativeSignal();
+        assertEquals(6, subscriber.events.size());
+        assertEquals(1, subscriber.completed);
+        assertEquals(1, source.detached);
+    }
+
+    @Test
+    public void pollsAreCappedByDemandAndBatchSize() {
+        FakeSource source = new FakeSource(200);
+        Recorder subscriber = new Recorder();
+        StreamDelivery delivery = new StreamDelivery(source, subscriber, Runnable::run);
+        delivery.start();
+
+        delivery.request(3);
+        assertEquals(list(3), source.polls);
+
+        delivery.request(Long.MAX_VALUE);
+        assertEquals(200, subscriber.events.size());
+        for (int max : source.polls) {
+            assertTrue("poll of " + max, max <= StreamDelivery.MAX_BATCH);
+        }
+        // 无界需求不会因扣减变为有限
+        source.add(100);
+        delivery.onNativeSignal();
+        assertEquals(300, subscriber.events.size());
+    }
+
+    @Test
+    public void signalsAreCoalescedIntoOneDrain() {
+        FakeSource source = new FakeSource(0);
+        Recorder subscriber = new Recorder();
+        ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        StreamDelivery delivery = new StreamDelivery(source, subscriber, tasks::add);
+        delivery.start();
+        delivery.request(Long.MAX_VALUE);
+        source.add(3);
+        delivery.onNativeSignal();
+        delivery.onNativeSignal();
+        assertEquals(1, tasks.size());
+
+        // 分发期间到达的信号由同一个分发任务处理
+        subscriber.onEventHook = () -> {
+            if (source.produced < 5) {
+                source.add(1);
+                delivery.onNativeSignal();
+            }
+        };
+        tasks.poll().run();
+        assertEquals(0, tasks.size());
+        assertEquals(5, subscriber.events.size());
+
+        delivery.onNativeSignal();
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void nonPositiveRequestFailsTheSubscription() {
+        FakeSource source = new FakeSource(3);
+        Recorder subscriber = new Recorder();
+        StreamDelivery delivery = new StreamDelivery(source, subscriber, Runnable::run);
+        delivery.start();
+
+        delivery.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(1, source.detached);
+
+        delivery.request(5);
+        assertEquals(0, subscriber.events.size());
+    }
+
+    @Test
+    public void cancelStopsDeliveryAndDetachesOnce() {
+        FakeSource source = new FakeSource(10);
+        Recorder subscriber = new Recorder();
+        StreamDelivery delivery = new StreamDelivery(source, subscriber, Runnable::run);
+        delivery.start();
+
+        subscriber.onEventHook = () -> {
+            if (subscriber.events.size() == 2) {
+                subscriber.subscription.cancel();
+            }
+        };
+        delivery.request(Long.MAX_VALUE);
+        assertEquals(2, subscriber.events.size());
+        delivery.cancel();
+        delivery.onNativeSignal();
+        assertEquals(2, subscriber.events.size());
+        assertEquals(1, source.detached);
+        assertEquals(0, subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void stoppedStreamCompletesWithoutPolling() {
+        FakeSource source = new FakeSource(3);
+        Recorder subscriber = new Recorder();
+        StreamDelivery delivery = new StreamDelivery(source, subscriber, Runnable::run);
+        delivery.start();
+
+        delivery.streamStopped();
+        delivery.request(1);
+        assertEquals(0, subscriber.events.size());
+        assertEquals(1, subscriber.completed);
+        assertTrue(source.polls.isEmpty());
+    }
+
+    @Test
+    public void pollFailureIsReported() {
+        FakeSource source = new FakeSource(0);
+        source.failure = new DianyaException(DianyaException.Code.JNI_ERROR, "closed");
+        Recorder subscriber = new Recorder();
+        StreamDelivery delivery = new StreamDelivery(source, subscriber, Runnable::run);
+        delivery.start();
+
+        delivery.request(1);
+        assertEquals(source.failure, subscriber.error);
+        assertEquals(1, source.detached);
+    }
+
+    @Test(timeout = 10_000)
+    public void concurrentSignalsNeverOverlapCallbacks() throws Exception {
+        FakeSource source = new FakeSource(0);
+        Recorder subscriber = new Recorder();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        subscriber.onEventHook = () -> {
+            if (active.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            active.decrementAndGet();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            StreamDelivery delivery = new StreamDelivery(source, subscriber, executor);
+            delivery.start();
+            int threads = 4;
+            int perThread = 500;
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        source.add(1);
+                        delivery.onNativeSignal();
+                        delivery.request(1);
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (subscriber.events.size() < threads * perThread && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(threads * perThread, subscriber.events.size());
+            assertEquals(0, overlaps.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Object> list(Object... values) {
+        List<Object> result = new ArrayList<>();
+        Collections.addAll(result, values);
+        return result;
+    }
+
+    private static StreamEvent event(String text) {
+        return new StreamEvent(StreamEvent.Type.PARTIAL, text, StreamEvent.ABSENT, StreamEvent.ABSENT,
+                StreamEvent.ABSENT, StreamEvent.ABSENT, null, null, "{}");
+    }
+
+    /** 内存中的结果队列，记录每次取消息的上限。 */
+    private static final class FakeSource implements StreamDelivery.Source {
+        private final ArrayDeque<StreamEvent> queue = new ArrayDeque<>();
+        final List<Integer> polls = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean finished;
+        volatile RuntimeException failure;
+        int produced;
+        int detached;
+
+        FakeSource(int count) {
+            add(count);
+        }
+
+        synchronized void add(int count) {
+            for (int i = 0; i < count; i++) {
+                queue.add(event(String.valueOf(produced++)));
+            }
+        }
+
+        @Override
+        public boolean isFinishedNow() {
+            return finished;
+        }
+
+        @Override
+        public synchronized StreamEvent[] pollNow(int max) {
+            polls.add(max);
+            if (failure != null) {
+                throw failure;
+            }
+            int count = Math.min(max, queue.size());
+            StreamEvent[] events = new StreamEvent[count];
+            for (int i = 0; i < count; i++) {
+                events[i] = queue.poll();
+            }
+            return events;
+        }
+
+        @Override
+        public synchronized void detach(StreamDelivery delivery) {
+            detached++;
+        }
+    }
+
+    private static final class Recorder implements StreamSubscriber {
+        final List<StreamEvent> events = Collections.synchronizedList(new ArrayList<>());
+        volatile StreamSubscription subscription;
+        volatile Throwable error;
+        volatile int completed;
+        volatile Runnable onEventHook;
+
+        @Override
+        public void onSubscribe(StreamSubscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onEvent(StreamEvent event) {
+            events.add(event);
+            Runnable hook = onEventHook;
+            if (hook != null) {
+                hook.run();
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed++;
+        }
+
+        List<Object> texts() {
+            List<Object> texts = new ArrayList<>();
+            synchronized (events) {
+                for (StreamEvent event : events) {
+                    texts.add(event.text);
+                }
+            }
+            return texts;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.dianya.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TranscriptAccumulatorTest {
+
+    @Test
+    public void partialsReplaceBySegmentAndFinalsCommit() {
+        TranscriptAccumulator transcript = new TranscriptAccumulator();
+
+        assertEquals("季度", transcript.apply(partial(1, "季度")).partial);
+        TranscriptAccumulator.Update update = transcript.apply(partial(1, "季度预算"));
+        assertEquals("", update.committed);
+        assertEquals("季度预算", update.partial);
+
+        update = transcript.apply(finalResult(1, "季度预算已批准。"));
+        assertEquals("季度预算已批准。", update.committed);
+        assertEquals("", update.partial);
+        assertEquals("季度预算已批准。", transcript.getText());
+        assertEquals(1, transcript.getFinalSegments().size());
+    }
+
+    @Test
+    public void partialsOfLaterSegmentsSurviveEarlierFinal() {
+        TranscriptAccumulator transcript = new TranscriptAccumulator(" ");
+        transcript.apply(partial(1, "hello"));
+        transcript.apply(partial(2, "wor"));
+
+        TranscriptAccumulator.Update update = transcript.apply(finalResult(1, "hello."));
+        assertEquals("hello.", update.committed);
+        assertEquals(" wor", update.partial);
+        assertEquals("hello. wor", transcript.getText());
+    }
+
+    @Test
+    public void sessionEndPromotesPendingPartials() {
+        TranscriptAccumulator transcript = new TranscriptAccumulator();
+        transcript.apply(partial(StreamEvent.ABSENT, "未定稿"));
+
+        TranscriptAccumulator.Update update = transcript.apply(event(StreamEvent.Type.SESSION_END, -1, null));
+        assertEquals("未定稿", update.committed);
+        assertEquals("未定稿", transcript.getCommittedText());
+        assertNull(transcript.apply(event(StreamEvent.Type.SESSION_END, -1, null)));
+    }
+
+    @Test
+    public void errorsAndUnknownMessagesLeaveTextUnchanged() {
+        TranscriptAccumulator transcript = new TranscriptAccumulator();
+        transcript.apply(finalResult(1, "你好"));
+
+        assertNull(transcript.apply(event(StreamEvent.Type.ERROR, -1, null)));
+        assertNull(transcript.apply(event(StreamEvent.Type.UNKNOWN, -1, null)));
+        assertEquals("你好", transcript.getText());
+    }
+
+    private static StreamEvent partial(int segmentId, String text) {
+        return event(StreamEvent.Type.PARTIAL, segmentId, text);
+    }
+
+    private static StreamEvent finalResult(int segmentId, String text) {
+        return event(StreamEvent.Type.FINAL, segmentId, text);
+    }
+
+    private static StreamEvent event(StreamEvent.Type type, int segmentId, String text) {
+        return new StreamEvent(type, text, segmentId, StreamEvent.ABSENT, StreamEvent.ABSENT,
+                StreamEvent.ABSENT, null, null, "{}");
+    }
+}
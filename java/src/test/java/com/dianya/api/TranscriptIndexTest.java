@@ -0,0 +1,149 @@
+package com.dianya.api;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TranscriptIndexTest {
+
+    @Test
+    public void tokenizeIndexesCjkBigramsAndSingleCharacters() {
+        Set<String> terms = tokens("季度预算", true);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("季", "季度", "度", "度预", "预", "预算", "算")), terms);
+    }
+
+    @Test
+    public void tokenizeQueryKeepsLoneCjkCharacter() {
+        assertEquals(Collections.singleton("预"), tokens("预", false));
+        assertEquals(Collections.singleton("预算"), tokens("预算", false));
+    }
+
+    @Test
+    public void tokenizeLowercasesWordsAndSplitsAtScriptBoundaries() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("hello", "world", "42")), tokens("Hello, World 42", false));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("q3", "季度")), tokens("Q3季度", false));
+    }
+
+    @Test
+    public void normalizeDropsPunctuationAndSpacesBetweenCjk() {
+        assertEquals("季度预算", TranscriptIndex.normalize("季度 预算！"));
+        assertEquals("q3 budget", TranscriptIndex.normalize("Q3, Budget"));
+    }
+
+    @Test
+    public void searchRequiresAllTermsAndPhraseRequiresAdjacency() {
+        TranscriptIndex index = new TranscriptIndex(1L << 20);
+        index.add("a", utterances("季度预算已经批准", "预算下个季度再议"), null);
+
+        assertEquals(2, index.search("预算 季度", 10).size());
+        List<TranscriptIndex.Hit> hits = index.searchPhrase("季度预算", 10);
+        assertEquals(1, hits.size());
+        assertEquals("a", hits.get(0).taskId);
+        assertEquals(0, index.search("利润", 10).size());
+    }
+
+    @Test
+    public void rebuildDoesNotDoubleCountBytes() {
+        TranscriptIndex index = new TranscriptIndex(1L << 20);
+        index.add("a", utterances("季度预算已经批准", "下周复盘"), null);
+        long before = index.getEstimatedBytes();
+
+        // 分段开始时间变化，已索引的分段不再是前缀，触发重建
+        List<TranscribeApi.Utterance> changed = utterances("季度预算已经批准", "下周复盘");
+        changed.get(1).startTime = 99;
+        index.add("a", changed, null);
+
+        assertEquals(before, index.getEstimatedBytes());
+    }
+
+    @Test
+    public void removeReleasesEntryBytes() {
+        TranscriptIndex index = new TranscriptIndex(1L << 20);
+        index.add("a", utterances("季度预算已经批准"), null);
+        long single = index.getEstimatedBytes();
+        index.add("b", utterances("季度预算已经批准"), null);
+        assertTrue(index.getEstimatedBytes() > single);
+
+        assertTrue(index.remove("b"));
+        // "b" 与 "a" 的词条相同，移除后只剩 "a" 的开销
+        assertEquals(single, index.getEstimatedBytes());
+    }
+
+    @Test
+    public void repeatedRebuildsDoNotEvictOtherTasks() {
+        long single = bytesOf("a", utterances("季度预算已经批准", "下周复盘"));
+        TranscriptIndex index = new TranscriptIndex(single * 3);
+        index.add("a", utterances("季度预算已经批准", "下周复盘"), null);
+        index.add("b", utterances("季度预算已经批准", "下周复盘"), null);
+
+        for (int i = 0; i < 20; i++) {
+            List<TranscribeApi.Utterance> changed = utterances("季度预算已经批准", "下周复盘");
+            changed.get(1).startTime = i + 10;
+            index.add("a", changed, null);
+        }
+
+        assertEquals(0, index.getEvictedTaskCount());
+        assertEquals(2, index.getTaskCount());
+        assertTrue(index.contains("b"));
+    }
+
+    @Test
+    public void evictionDropsOldestTasksAndStaysUnderLimit() {
+        // 相同文本的任务共享词条，第一个任务之后每个任务只增加分段开销
+        TranscriptIndex probe = new TranscriptIndex(1L << 20);
+        probe.add("task0", utterances("季度预算已经批准"), null);
+        long first = probe.getEstimatedBytes();
+        probe.add("task1", utterances("季度预算已经批准"), null);
+        long increment = probe.getEstimatedBytes() - first;
+        long maxBytes = first + 4 * increment;
+        TranscriptIndex index = new TranscriptIndex(maxBytes);
+        for (int i = 0; i < 10; i++) {
+            index.add("task" + i, utterances("季度预算已经批准"), null);
+        }
+
+        assertTrue(index.getEstimatedBytes() <= maxBytes);
+        assertTrue(index.getEvictedTaskCount() > 0);
+        assertTrue(index.contains("task9"));
+        assertFalse(index.contains("task0"));
+        // 淘汰到上限的 3/4 为止，不会把可以保留的任务也淘汰掉
+        assertTrue(index.getTaskCount() >= 2);
+        assertEquals(10, index.getTaskCount() + index.getEvictedTaskCount());
+        for (TranscriptIndex.Hit hit : index.search("预算", 100)) {
+            assertTrue(index.contains(hit.taskId));
+        }
+    }
+
+    private static Set<String> tokens(String text, boolean forIndex) {
+        Set<String> out = new LinkedHashSet<>();
+        TranscriptIndex.tokenize(text, forIndex, out);
+        return out;
+    }
+
+    private static long bytesOf(String taskId, List<TranscribeApi.Utterance> utterances) {
+        TranscriptIndex probe = new TranscriptIndex(1L << 20);
+        probe.add(taskId, utterances, null);
+        return probe.getEstimatedBytes();
+    }
+
+    private static List<TranscribeApi.Utterance> utterances(String... texts) {
+        List<TranscribeApi.Utterance> list = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            TranscribeApi.Utterance utterance = new TranscribeApi.Utterance();
+            utterance.startTime = i * 2;
+            utterance.endTime = i * 2 + 1.5;
+            utterance.text = texts[i];
+            utterance.speaker = i % 2;
+            list.add(utterance);
+        }
+        return list;
+    }
+}
@@ -17,3 +17,5 @@ project(":java").projectDir = file("java")
 include(":android")
 project(":android").projectDir = file("android")
 
+include(":tools")
+project(":tools").projectDir = file("tools")
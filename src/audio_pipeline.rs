@@ -0,0 +1,751 @@
+use crate::error::{throw_jni_error, throw_message, throw_with_code};
+use crate::transcribe_stream::send_pcm;
+use crate::utils::{jstring_to_rust, throw_string_error, to_jstring};
+use crate::vad::{Timeline, Vad, VadOptions};
+use jni::{
+    objects::{JByteArray, JByteBuffer, JClass, JString},
+    sys::{jbyteArray, jdouble, jint, jlong, jstring},
+    JNIEnv,
+};
+use serde::Serialize;
+use std::f64::consts::PI;
+use std::ptr;
+use std::sync::Mutex;
+
+/// 服务端要求的采样率（16 kHz 单声道 s16le）。
+pub const TARGET_RATE: u32 = 16_000;
+/// 目标格式每毫秒音频的字节数，用于在已发送字节与音频时间之间换算。
+pub const BYTES_PER_MILLI: usize = TARGET_RATE as usize * 2 / 1000;
+
+const SINC_PHASES: usize = 256;
+
+#[derive(Clone, Copy, PartialEq, Eq)]
+pub enum SampleEncoding {
+    U8,
+    S16Le,
+    S32Le,
+    F32Le,
+}
+
+impl SampleEncoding {
+    fn parse(input: &str) -> Option<Self> {
+        match input.trim().to_ascii_lowercase().as_str() {
+            "u8" => Some(Self::U8),
+            "s16le" => Some(Self::S16Le),
+            "s32le" => Some(Self::S32Le),
+            "f32le" => Some(Self::F32Le),
+            _ => None,
+        }
+    }
+
+    fn bytes(self) -> usize {
+        match self {
+            Self::U8 => 1,
+            Self::S16Le => 2,
+            Self::S32Le | Self::F32Le => 4,
+        }
+    }
+
+    fn decode(self, bytes: &[u8]) -> f32 {
+        match self {
+            Self::U8 => (bytes[0] as f32 - 128.0) / 128.0,
+            Self::S16Le => i16::from_le_bytes([bytes[0], bytes[1]]) as f32 / 32_768.0,
+            Self::S32Le => {
+                i32::from_le_bytes([bytes[0], bytes[1], bytes[2], bytes[3]]) as f32
+                    / 2_147_483_648.0
+            }
+            Self::F32Le => f32::from_le_bytes([bytes[0], bytes[1], bytes[2], bytes[3]]),
+        }
+    }
+}
+
+#[derive(Clone, Copy, PartialEq, Eq)]
+pub enum Quality {
+    /// 线性插值，开销最低，适合 8 kHz 电话音频上采样
+    Fast,
+    /// 16 阶加窗 sinc
+    Balanced,
+    /// 64 阶加窗 sinc
+    Best,
+}
+
+impl Quality {
+    fn parse(input: &str) -> Option<Self> {
+        match input.trim().to_ascii_lowercase().as_str() {
+            "fast" => Some(Self::Fast),
+            "balanced" => Some(Self::Balanced),
+            "best" => Some(Self::Best),
+            _ => None,
+        }
+    }
+}
+
+/// 流式重采样器：保留上一批输入的尾部作为卷积历史，跨调用无缝衔接。
+struct Resampler {
+    /// 每个输出样本在输入上前进的距离
+    step: f64,
+    /// 下一个输出样本在 `history` 中的位置
+    pos: f64,
+    half: usize,
+    /// `SINC_PHASES + 1` 行、每行 `2 * half` 个系数；线性插值时为空
+    table: Vec<f32>,
+    history: Vec<f32>,
+}
+
+impl Resampler {
+    fn new(in_rate: u32, quality: Quality) -> Self {
+        let step = in_rate as f64 / TARGET_RATE as f64;
+        let half = match quality {
+            Quality::Fast => 1,
+            Quality::Balanced => 8,
+            Quality::Best => 32,
+        };
+        let table = if quality == Quality::Fast {
+            Vec::new()
+        } else {
+            // 下采样时截止频率随之降低以抑制混叠，留 5% 过渡带
+            let cutoff = (1.0 / step).min(1.0) * 0.95;
+            build_sinc_table(half, cutoff)
+        };
+
+        Self {
+            step,
+            pos: (half - 1) as f64,
+            half,
+            table,
+            history: vec![0.0; half - 1],
+        }
+    }
+
+    fn process(&mut self, input: &[f32], out: &mut Vec<f32>) {
+        self.history.extend_from_slice(input);
+        let taps = 2 * self.half;
+
+        loop {
+            let i0 = self.pos as usize;
+            if i0 + self.half >= self.history.len() {
+                break;
+            }
+            let frac = self.pos - i0 as f64;
+            let sample = if self.table.is_empty() {
+                let a = self.history[i0];
+                a + (self.history[i0 + 1] - a) * frac as f32
+            } else {
+                let phase = (frac * SINC_PHASES as f64 + 0.5) as usize;
+                let row = &self.table[phase * taps..(phase + 1) * taps];
+                let window = &self.history[i0 + 1 - self.half..=i0 + self.half];
+                row.iter().zip(window).map(|(w, x)| w * x).sum()
+            };
+            out.push(sample);
+            self.pos += self.step;
+        }
+
+        // 丢弃之后不会再用到的输入，只保留卷积所需的历史
+        let keep_from = (self.pos as usize + 1)
+            .saturating_sub(self.half)
+            .min(self.history.len());
+        self.history.drain(..keep_from);
+        self.pos -= keep_from as f64;
+    }
+
+    /// 补零冲刷出滤波器延迟中的样本。
+    fn finish(&mut self, out: &mut Vec<f32>) {
+        let zeros = vec![0.0; self.half + 1];
+        self.process(&zeros, out);
+    }
+}
+
+fn build_sinc_table(half: usize, cutoff: f64) -> Vec<f32> {
+    let taps = 2 * half;
+    let mut table = Vec::with_capacity((SINC_PHASES + 1) * taps);
+    for phase in 0..=SINC_PHASES {
+        let frac = phase as f64 / SINC_PHASES as f64;
+        let row: Vec<f64> = (0..taps)
+            .map(|m| {
+                let x = (m as f64 + 1.0 - half as f64) - frac;
+                let sinc = if x.abs() < 1e-9 {
+                    1.0
+                } else {
+                    (PI * cutoff * x).sin() / (PI * cutoff * x)
+                };
+                // Blackman 窗
+                let t = x / half as f64;
+                let window = if t.abs() >= 1.0 {
+                    0.0
+                } else {
+                    0.42 + 0.5 * (PI * t).cos() + 0.08 * (2.0 * PI * t).cos()
+                };
+                sinc * window
+            })
+            .collect();
+        // 每一行归一化为单位直流增益
+        let sum: f64 = row.iter().sum();
+        table.extend(row.iter().map(|w| (w / sum) as f32));
+    }
+    table
+}
+
+#[derive(Serialize)]
+struct PipelineStats {
+    input_rate: u32,
+    input_channels: usize,
+    /// 已接收的输入采样帧数（每声道一个样本为一帧）
+    input_frames: u64,
+    /// 已输出的 16 kHz 样本数
+    output_samples: u64,
+    /// 切出的帧数（含最后不足一帧的尾部）
+    frames: u64,
+    /// 实际交给发送端的帧数，含语音检测补发的前置帧和静音保活帧
+    sent_frames: u64,
+    /// 语音检测丢弃的静音帧数
+    dropped_frames: u64,
+    /// 静音压缩发送的保活帧数
+    keepalive_frames: u64,
+}
+
+/// 把任意常见 PCM 格式转换为 16 kHz 单声道 s16le 并按固定时长切帧。
+pub struct AudioPipeline {
+    encoding: SampleEncoding,
+    channels: usize,
+    in_rate: u32,
+    /// 上一批数据末尾不足一个采样帧的字节
+    pending: Vec<u8>,
+    mono: Vec<f32>,
+    resampled: Vec<f32>,
+    resampler: Option<Resampler>,
+    /// 已转换、尚未切出整帧的 s16le 字节
+    out: Vec<u8>,
+    frame_bytes: usize,
+    frame_millis: u32,
+    vad: Option<Vad>,
+    /// 发送帧与采集帧的对应关系，从管线创建起累计，切换语音检测设置不会重置
+    timeline: Timeline,
+    /// Java 数组输入的复用缓冲
+    input: Vec<u8>,
+    input_frames: u64,
+    output_samples: u64,
+    frames: u64,
+    sent_frames: u64,
+}
+
+impl AudioPipeline {
+    pub fn new(
+        in_rate: u32,
+        channels: usize,
+        encoding: SampleEncoding,
+        quality: Quality,
+        frame_millis: u32,
+    ) -> Self {
+        let resampler = if in_rate == TARGET_RATE {
+            None
+        } else {
+            Some(Resampler::new(in_rate, quality))
+        };
+        let frame_samples = (TARGET_RATE as usize * frame_millis as usize / 1000).max(1);
+
+        Self {
+            encoding,
+            channels,
+            in_rate,
+            pending: Vec::new(),
+            mono: Vec::new(),
+            resampled: Vec::new(),
+            resampler,
+            out: Vec::new(),
+            frame_bytes: frame_samples * 2,
+            frame_millis,
+            vad: None,
+            timeline: Timeline::default(),
+            input: Vec::new(),
+            input_frames: 0,
+            output_samples: 0,
+            frames: 0,
+            sent_frames: 0,
+        }
+    }
+
+    pub fn push(&mut self, mut data: &[u8]) {
+        let sample_bytes = self.encoding.bytes() * self.channels;
+
+        // 已经是目标格式时直接拷贝，不经过浮点转换
+        if self.is_passthrough() && self.pending.is_empty() && data.len() % 2 == 0 {
+            self.input_frames += (data.len() / 2) as u64;
+            self.output_samples += (data.len() / 2) as u64;
+            self.out.extend_from_slice(data);
+            return;
+        }
+
+        if !self.pending.is_empty() {
+            let take = (sample_bytes - self.pending.len()).min(data.len());
+            self.pending.extend_from_slice(&data[..take]);
+            data = &data[take..];
+            if self.pending.len() < sample_bytes {
+                return;
+            }
+            let pending = std::mem::take(&mut self.pending);
+            self.decode(&pending);
+            self.pending = pending;
+            self.pending.clear();
+        }
+
+        let whole = data.len() / sample_bytes * sample_bytes;
+        self.decode(&data[..whole]);
+        self.pending.extend_from_slice(&data[whole..]);
+        self.convert();
+    }
+
+    /// 冲刷重采样器延迟中的样本，之后 `take_frames(.., true)` 可取出不足一帧的尾部。
+    pub fn finish(&mut self) {
+        self.pending.clear();
+        if let Some(resampler) = self.resampler.as_mut() {
+            self.resampled.clear();
+            resampler.finish(&mut self.resampled);
+            encode_s16(&self.resampled, &mut self.out);
+            self.output_samples += self.resampled.len() as u64;
+        }
+    }
+
+    /// 开启或关闭语音检测，开启时重新开始统计噪声底。
+    pub fn set_vad(&mut self, options: Option<VadOptions>) {
+        self.vad = options.map(|options| Vad::new(options, self.frame_millis, self.frame_bytes));
+    }
+
+    /// 依次取出整帧交给 `sink`（开启语音检测时只交出需要发送的帧），`sink` 返回 `false` 时停止；
+    /// `partial` 为真时最后不足一帧的数据也一并取出，静音期间的尾部直接丢弃。
+    pub fn take_frames<F>(&mut self, partial: bool, mut sink: F)
+    where
+        F: FnMut(&[u8]) -> bool,
+    {
+        let mut sent = 0;
+        let timeline = &mut self.timeline;
+        let mut counted = |frame: &[u8], source: u64| {
+            sent += 1;
+            timeline.record(source);
+            sink(frame)
+        };
+
+        let mut consumed = 0;
+        let mut ok = true;
+        while ok && self.out.len() - consumed >= self.frame_bytes {
+            let frame = &self.out[consumed..consumed + self.frame_bytes];
+            let current = self.frames;
+            ok = match self.vad.as_mut() {
+                Some(vad) => vad.gate(frame, &mut |frame, back| counted(frame, current - back)),
+                None => counted(frame, current),
+            };
+            consumed += self.frame_bytes;
+            self.frames += 1;
+        }
+        if ok && partial && consumed < self.out.len() {
+            let speaking = self.vad.as_ref().map_or(true, Vad::is_speaking);
+            if speaking {
+                counted(&self.out[consumed..], self.frames);
+            }
+            consumed = self.out.len();
+            self.frames += 1;
+        }
+        self.out.drain(..consumed);
+        self.sent_frames += sent;
+    }
+
+    fn is_passthrough(&self) -> bool {
+        self.resampler.is_none() && self.channels == 1 && self.encoding == SampleEncoding::S16Le
+    }
+
+    fn decode(&mut self, data: &[u8]) {
+        let encoding = self.encoding;
+        let width = encoding.bytes();
+        let channels = self.channels;
+        let scale = 1.0 / channels as f32;
+        for frame in data.chunks_exact(width * channels) {
+            let sum: f32 = frame
+                .chunks_exact(width)
+                .map(|sample| encoding.decode(sample))
+                .sum();
+            self.mono.push(sum * scale);
+        }
+        self.input_frames += (data.len() / (width * channels)) as u64;
+    }
+
+    fn convert(&mut self) {
+        match self.resampler.as_mut() {
+            Some(resampler) => {
+                self.resampled.clear();
+                resampler.process(&self.mono, &mut self.resampled);
+                encode_s16(&self.resampled, &mut self.out);
+                self.output_samples += self.resampled.len() as u64;
+            }
+            None => {
+                encode_s16(&self.mono, &mut self.out);
+                self.output_samples += self.mono.len() as u64;
+            }
+        }
+        self.mono.clear();
+    }
+
+    fn stats(&self) -> PipelineStats {
+        PipelineStats {
+            input_rate: self.in_rate,
+            input_channels: self.channels,
+            input_frames: self.input_frames,
+            output_samples: self.output_samples,
+            frames: self.frames,
+            sent_frames: self.sent_frames,
+            dropped_frames: self.vad.as_ref().map_or(0, |vad| vad.dropped),
+            keepalive_frames: self.vad.as_ref().map_or(0, |vad| vad.keepalive),
+        }
+    }
+}
+
+fn encode_s16(samples: &[f32], out: &mut Vec<u8>) {
+    out.reserve(samples.len() * 2);
+    for sample in samples {
+        let value = (sample * 32_768.0).round().clamp(-32_768.0, 32_767.0) as i16;
+        out.extend_from_slice(&value.to_le_bytes());
+    }
+}
+
+type PipelineHandle = Mutex<AudioPipeline>;
+
+unsafe fn pipeline_ptr(handle: jlong) -> Result<&'static PipelineHandle, String> {
+    if handle == 0 {
+        return Err("Audio pipeline handle is null".into());
+    }
+    Ok(&*(handle as *const PipelineHandle))
+}
+
+/// 把已切好的帧发送到 `stream`（非 0 时），或者拼接后作为 Java `byte[]` 返回。
+fn emit(
+    env: &mut JNIEnv,
+    pipeline: &mut AudioPipeline,
+    stream: jlong,
+    partial: bool,
+) -> jbyteArray {
+    if stream != 0 {
+        pipeline.take_frames(partial, |frame| send_pcm(env, stream, frame));
+        return ptr::null_mut();
+    }
+
+    let mut output = Vec::new();
+    pipeline.take_frames(partial, |frame| {
+        output.extend_from_slice(frame);
+        true
+    });
+    match env.byte_array_from_slice(&output) {
+        Ok(array) => array.into_raw(),
+        Err(err) => {
+            let _ = throw_jni_error(env, &err);
+            ptr::null_mut()
+        }
+    }
+}
+
+fn with_pipeline<F>(env: &mut JNIEnv, handle: jlong, f: F) -> jbyteArray
+where
+    F: FnOnce(&mut JNIEnv, &mut AudioPipeline) -> jbyteArray,
+{
+    let mutex = match unsafe { pipeline_ptr(handle) } {
+        Ok(mutex) => mutex,
+        Err(err) => {
+            let _ = throw_message(env, err);
+            return ptr::null_mut();
+        }
+    };
+    match mutex.lock() {
+        Ok(mut pipeline) => f(env, &mut pipeline),
+        Err(_) => {
+            let _ = throw_message(env, "Audio pipeline lock has been poisoned");
+            ptr::null_mut()
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_AudioPipeline_nativeCreate(
+    mut env: JNIEnv,
+    _class: JClass,
+    sample_rate: jint,
+    channels: jint,
+    encoding: JString,
+    quality: JString,
+    frame_millis: jint,
+) -> jlong {
+    let encoding: String = match env.get_string(&encoding) {
+        Ok(value) => value.into(),
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return 0;
+        }
+    };
+    let quality: String = match env.get_string(&quality) {
+        Ok(value) => value.into(),
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return 0;
+        }
+    };
+
+    let (Some(encoding), Some(quality)) =
+        (SampleEncoding::parse(&encoding), Quality::parse(&quality))
+    else {
+        let _ = throw_with_code(&mut env, "INVALID_INPUT", "Unknown sample encoding or quality");
+        return 0;
+    };
+    if sample_rate <= 0 || channels <= 0 || frame_millis <= 0 {
+        let _ = throw_with_code(&mut env, "INVALID_INPUT", "Invalid audio pipeline parameters");
+        return 0;
+    }
+
+    let pipeline = AudioPipeline::new(
+        sample_rate as u32,
+        channels as usize,
+        encoding,
+        quality,
+        frame_millis as u32,
+    );
+    Box::into_raw(Box::new(Mutex::new(pipeline))) as jlong
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_AudioPipeline_nativeDestroy(
+    _env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) {
+    if handle != 0 {
+        drop(unsafe { Box::from_raw(handle as *mut PipelineHandle) });
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_AudioPipeline_nativeProcess(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    stream: jlong,
+    data: JByteArray,
+    offset: jint,
+    length: jint,
+) -> jbyteArray {
+    with_pipeline(&mut env, handle, |env, pipeline| {
+        let mut input = std::mem::take(&mut pipeline.input);
+        input.clear();
+        input.resize(length as usize, 0);
+        let target = unsafe { &mut *(&mut input[..] as *mut [u8] as *mut [i8]) };
+        if let Err(err) = env.get_byte_array_region(&data, offset, target) {
+            pipeline.input = input;
+            let _ = throw_jni_error(env, &err);
+            return ptr::null_mut();
+        }
+        pipeline.push(&input);
+        pipeline.input = input;
+        emit(env, pipeline, stream, false)
+    })
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_AudioPipeline_nativeProcessDirect(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    stream: jlong,
+    buffer: JByteBuffer,
+    position: jint,
+    length: jint,
+) -> jbyteArray {
+    let address = match env.get_direct_buffer_address(&buffer) {
+        Ok(address) => address,
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return ptr::null_mut();
+        }
+    };
+    let data =
+        unsafe { std::slice::from_raw_parts(address.add(position as usize), length as usize) };
+
+    with_pipeline(&mut env, handle, |env, pipeline| {
+        pipeline.push(data);
+        emit(env, pipeline, stream, false)
+    })
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_AudioPipeline_nativeFlush(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    stream: jlong,
+) -> jbyteArray {
+    with_pipeline(&mut env, handle, |env, pipeline| {
+        pipeline.finish();
+        emit(env, pipeline, stream, true)
+    })
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_AudioPipeline_nativeSetVad(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    options: JString,
+) {
+    let options = if options.is_null() {
+        None
+    } else {
+        let json = match jstring_to_rust(&mut env, options) {
+            Ok(value) => value,
+            Err(err) => {
+                throw_string_error(&mut env, err);
+                return;
+            }
+        };
+        match serde_json::from_str::<VadOptions>(&json) {
+            Ok(options) => Some(options),
+            Err(err) => {
+                let _ = throw_with_code(&mut env, "JSON_ERROR", format!("Invalid options: {err}"));
+                return;
+            }
+        }
+    };
+
+    with_pipeline(&mut env, handle, |_, pipeline| {
+        pipeline.set_vad(options);
+        ptr::null_mut()
+    });
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_AudioPipeline_nativeSourceMillis(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    sent_millis: jdouble,
+) -> jdouble {
+    match unsafe { pipeline_ptr(handle) } {
+        Ok(mutex) => match mutex.lock() {
+            Ok(pipeline) => pipeline.timeline.source_millis(sent_millis, pipeline.frame_millis),
+            Err(_) => {
+                let _ = throw_message(&mut env, "Audio pipeline lock has been poisoned");
+                sent_millis
+            }
+        },
+        Err(err) => {
+            let _ = throw_message(&mut env, err);
+            sent_millis
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_AudioPipeline_nativeStats(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jstring {
+    let stats = match unsafe { pipeline_ptr(handle) } {
+        Ok(mutex) => match mutex.lock() {
+            Ok(pipeline) => pipeline.stats(),
+            Err(_) => {
+                let _ = throw_message(&mut env, "Audio pipeline lock has been poisoned");
+                return ptr::null_mut();
+            }
+        },
+        Err(err) => {
+            let _ = throw_message(&mut env, err);
+            return ptr::null_mut();
+        }
+    };
+    to_jstring(&mut env, 0, stats)
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    const QUALITIES: [Quality; 3] = [Quality::Fast, Quality::Balanced, Quality::Best];
+    const RATES: [u32; 4] = [8_000, 22_050, 44_100, 48_000];
+
+    fn tone(len: usize) -> Vec<f32> {
+        (0..len).map(|i| (i as f32 * 0.01).sin() * 0.5).collect()
+    }
+
+    /// 按 `chunk` 个样本一批送入重采样器，每批之后检查历史只保留卷积所需的部分。
+    fn resample(in_rate: u32, quality: Quality, input: &[f32], chunk: usize) -> Vec<f32> {
+        let mut resampler = Resampler::new(in_rate, quality);
+        let mut out = Vec::new();
+        for piece in input.chunks(chunk) {
+            resampler.process(piece, &mut out);
+            assert!(resampler.history.len() < 2 * resampler.half);
+            assert!(resampler.pos >= (resampler.half - 1) as f64);
+        }
+        resampler.finish(&mut out);
+        out
+    }
+
+    #[test]
+    fn output_length_follows_the_rate_ratio() {
+        for rate in RATES {
+            for quality in QUALITIES {
+                let input = tone(rate as usize / 10);
+                let out = resample(rate, quality, &input, input.len());
+                // 100ms 输入对应 1600 个输出样本，补零冲刷后最多多出一个
+                assert!((out.len() as i64 - 1_600).abs() <= 2, "{rate} Hz -> {}", out.len());
+            }
+        }
+    }
+
+    #[test]
+    fn chunked_input_matches_a_single_call() {
+        for rate in RATES {
+            for quality in QUALITIES {
+                let input = tone(rate as usize / 5);
+                let whole = resample(rate, quality, &input, input.len());
+                for chunk in [1, 7, 160, 1_023] {
+                    let pieces = resample(rate, quality, &input, chunk);
+                    // 位置减去整数后浮点舍入可能略有不同，只允许极小的误差
+                    assert!((whole.len() as i64 - pieces.len() as i64).abs() <= 1);
+                    for (a, b) in whole.iter().zip(&pieces) {
+                        assert!((a - b).abs() < 1e-3, "{rate} Hz chunk {chunk}: {a} vs {b}");
+                    }
+                }
+            }
+        }
+    }
+
+    #[test]
+    fn constant_input_keeps_unit_gain() {
+        for rate in RATES {
+            for quality in QUALITIES {
+                let out = resample(rate, quality, &vec![0.25; rate as usize / 5], 441);
+                // 跳过开头的预填零和结尾的补零
+                let middle = &out[out.len() / 4..out.len() * 3 / 4];
+                assert!(middle.iter().all(|sample| (sample - 0.25).abs() < 1e-3));
+            }
+        }
+    }
+
+    #[test]
+    fn stereo_samples_split_across_pushes_are_reassembled() {
+        let mut pipeline =
+            AudioPipeline::new(TARGET_RATE, 2, SampleEncoding::S16Le, Quality::Fast, 20);
+        let mut input = Vec::new();
+        for _ in 0..400 {
+            input.extend_from_slice(&1_000i16.to_le_bytes());
+            input.extend_from_slice(&3_000i16.to_le_bytes());
+        }
+        for piece in input.chunks(333) {
+            pipeline.push(piece);
+        }
+
+        let mut output = Vec::new();
+        pipeline.take_frames(true, |frame| {
+            output.extend_from_slice(frame);
+            true
+        });
+        assert_eq!(output.len(), 800);
+        assert!(output
+            .chunks_exact(2)
+            .all(|sample| i16::from_le_bytes([sample[0], sample[1]]) == 2_000));
+        assert_eq!(pipeline.stats().frames, 2);
+    }
+}
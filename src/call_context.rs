@@ -0,0 +1,291 @@
+use crate::error::{throw_jni_error, throw_message, throw_with_code};
+use jni::{
+    objects::{JClass, JLongArray},
+    sys::{jboolean, jlong},
+    JNIEnv,
+};
+use std::future::Future;
+use std::sync::atomic::{AtomicBool, AtomicI64, Ordering};
+use std::time::Duration;
+use tokio::sync::Notify;
+use tokio::time::{Instant, MissedTickBehavior};
+
+/// 检查 Java 线程中断标志的间隔
+const INTERRUPT_POLL_INTERVAL: Duration = Duration::from_millis(50);
+
+/// 回传给 Java `CallMetrics` 的指标槽位，顺序与 `CallMetrics.recordNative` 一致。
+#[derive(Clone, Copy)]
+pub enum Metric {
+    Marshal = 0,
+    Network = 1,
+    Serialize = 2,
+    JniCopy = 3,
+    RequestBytes = 4,
+    ResponseBytes = 5,
+}
+
+const METRIC_SLOTS: usize = 6;
+
+struct CallMetrics {
+    created: std::time::Instant,
+    values: [AtomicI64; METRIC_SLOTS],
+}
+
+/// 单次 native 调用的截止时间、取消信号与可选的分阶段指标，由 Java `CallScope` 创建并持有。
+pub struct CallContext {
+    deadline: Option<Instant>,
+    cancelled: AtomicBool,
+    notify: Notify,
+    metrics: Option<CallMetrics>,
+}
+
+impl CallContext {
+    fn new(timeout: Option<Duration>, collect_metrics: bool) -> Self {
+        Self {
+            deadline: timeout.map(|t| Instant::now() + t),
+            cancelled: AtomicBool::new(false),
+            notify: Notify::new(),
+            metrics: collect_metrics.then(|| CallMetrics {
+                created: std::time::Instant::now(),
+                values: std::array::from_fn(|_| AtomicI64::new(-1)),
+            }),
+        }
+    }
+
+    fn cancel(&self) {
+        self.cancelled.store(true, Ordering::SeqCst);
+        self.notify.notify_waiters();
+    }
+
+    async fn cancelled(&self) {
+        loop {
+            let notified = self.notify.notified();
+            tokio::pin!(notified);
+            notified.as_mut().enable();
+            if self.cancelled.load(Ordering::SeqCst) {
+                return;
+            }
+            notified.await;
+        }
+    }
+}
+
+pub enum Interrupted {
+    Timeout,
+    Cancelled,
+    ThreadInterrupted,
+}
+
+impl Interrupted {
+    /// 对应 Java `DianyaException.Code` 的错误码与说明。
+    pub fn describe(&self) -> (&'static str, &'static str) {
+        match self {
+            Interrupted::Timeout => ("TIMEOUT", "Native call deadline exceeded"),
+            Interrupted::Cancelled => ("CANCELLED", "Native call was cancelled"),
+            Interrupted::ThreadInterrupted => ("CANCELLED", "Native call was interrupted"),
+        }
+    }
+
+    pub fn throw(&self, env: &mut JNIEnv) {
+        let (code, message) = self.describe();
+        let _ = throw_with_code(env, code, message);
+    }
+}
+
+/// 在当前线程驱动 `fut`，直到完成、超过截止时间、被取消或 Java 线程被中断。
+///
+/// 后三种情况会直接丢弃 `fut`，底层连接随之释放。
+pub async fn run_interruptible<F, T>(
+    env: &mut JNIEnv<'_>,
+    context: Option<&CallContext>,
+    fut: F,
+) -> Result<T, Interrupted>
+where
+    F: Future<Output = T>,
+{
+    tokio::pin!(fut);
+
+    let deadline = async {
+        match context.and_then(|c| c.deadline) {
+            Some(deadline) => tokio::time::sleep_until(deadline).await,
+            None => std::future::pending::<()>().await,
+        }
+    };
+    tokio::pin!(deadline);
+
+    let cancelled = async {
+        match context {
+            Some(context) => context.cancelled().await,
+            None => std::future::pending::<()>().await,
+        }
+    };
+    tokio::pin!(cancelled);
+
+    let mut ticker = tokio::time::interval(INTERRUPT_POLL_INTERVAL);
+    ticker.set_missed_tick_behavior(MissedTickBehavior::Skip);
+
+    loop {
+        tokio::select! {
+            biased;
+            value = &mut fut => return Ok(value),
+            _ = &mut cancelled => return Err(Interrupted::Cancelled),
+            _ = &mut deadline => return Err(Interrupted::Timeout),
+            _ = ticker.tick() => {
+                if current_thread_interrupted(env) {
+                    return Err(Interrupted::ThreadInterrupted);
+                }
+            }
+        }
+    }
+}
+
+/// 在运行时中驱动 `fut`，直到完成、超过截止时间或被取消，后两种情况丢弃 `fut`。
+///
+/// 供不占用 Java 线程的异步调用使用，因此不检查线程中断。
+pub async fn run_cancellable<F, T>(context: Option<&CallContext>, fut: F) -> Result<T, Interrupted>
+where
+    F: Future<Output = T>,
+{
+    let Some(context) = context else {
+        return Ok(fut.await);
+    };
+    let deadline = async {
+        match context.deadline {
+            Some(deadline) => tokio::time::sleep_until(deadline).await,
+            None => std::future::pending::<()>().await,
+        }
+    };
+    tokio::select! {
+        biased;
+        value = fut => Ok(value),
+        _ = context.cancelled() => Err(Interrupted::Cancelled),
+        _ = deadline => Err(Interrupted::Timeout),
+    }
+}
+
+fn current_thread_interrupted(env: &mut JNIEnv) -> bool {
+    let thread = match env
+        .call_static_method(
+            "java/lang/Thread",
+            "currentThread",
+            "()Ljava/lang/Thread;",
+            &[],
+        )
+        .and_then(|value| value.l())
+    {
+        Ok(thread) => thread,
+        Err(_) => {
+            let _ = env.exception_clear();
+            return false;
+        }
+    };
+
+    let interrupted = env
+        .call_method(&thread, "isInterrupted", "()Z", &[])
+        .and_then(|value| value.z())
+        .unwrap_or_else(|_| {
+            let _ = env.exception_clear();
+            false
+        });
+    let _ = env.delete_local_ref(thread);
+    interrupted
+}
+
+/// 调用需要采集指标时返回计时起点，否则返回 `None`，不产生额外开销。
+pub fn metrics_start(call: jlong) -> Option<std::time::Instant> {
+    unsafe { context_ref(call) }
+        .and_then(|context| context.metrics.as_ref())
+        .map(|_| std::time::Instant::now())
+}
+
+/// 记录从 JNI 入口到 `started` 的参数转换耗时。
+pub fn record_marshal(call: jlong, started: std::time::Instant) {
+    if let Some(metrics) = unsafe { context_ref(call) }.and_then(|c| c.metrics.as_ref()) {
+        let nanos = started.saturating_duration_since(metrics.created).as_nanos();
+        metrics.values[Metric::Marshal as usize].store(nanos as i64, Ordering::Relaxed);
+    }
+}
+
+pub fn record_elapsed(call: jlong, metric: Metric, start: Option<std::time::Instant>) {
+    if let Some(start) = start {
+        record(call, metric, start.elapsed().as_nanos() as i64);
+    }
+}
+
+pub fn record(call: jlong, metric: Metric, value: i64) {
+    if let Some(metrics) = unsafe { context_ref(call) }.and_then(|c| c.metrics.as_ref()) {
+        metrics.values[metric as usize].store(value, Ordering::Relaxed);
+    }
+}
+
+/// # Safety
+/// `handle` 必须为 0 或由 `nativeCreate` 返回且尚未销毁。
+pub unsafe fn context_ref<'a>(handle: jlong) -> Option<&'a CallContext> {
+    if handle == 0 {
+        None
+    } else {
+        Some(&*(handle as *const CallContext))
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_CallScope_nativeCreate(
+    _env: JNIEnv,
+    _class: JClass,
+    timeout_millis: jlong,
+    collect_metrics: jboolean,
+) -> jlong {
+    let timeout = if timeout_millis < 0 {
+        None
+    } else {
+        Some(Duration::from_millis(timeout_millis as u64))
+    };
+    let context = CallContext::new(timeout, collect_metrics != 0);
+    Box::into_raw(Box::new(context)) as jlong
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_CallScope_nativeCancel(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) {
+    match unsafe { context_ref(handle) } {
+        Some(context) => context.cancel(),
+        None => {
+            let _ = throw_message(&mut env, "Call handle is null");
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_CallScope_nativeDestroy(
+    _env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) {
+    if handle != 0 {
+        drop(unsafe { Box::from_raw(handle as *mut CallContext) });
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_CallScope_nativeReadMetrics(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    out: JLongArray,
+) {
+    let Some(metrics) = unsafe { context_ref(handle) }.and_then(|c| c.metrics.as_ref()) else {
+        return;
+    };
+
+    let values: Vec<i64> = metrics
+        .values
+        .iter()
+        .map(|value| value.load(Ordering::Relaxed))
+        .collect();
+    if let Err(err) = env.set_long_array_region(&out, 0, &values) {
+        let _ = throw_jni_error(&mut env, &err);
+    }
+}
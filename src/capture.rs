@@ -0,0 +1,143 @@
+use memmap2::MmapMut;
+use serde::Serialize;
+use std::fs::{File, OpenOptions};
+use std::io;
+use std::sync::{Arc, Mutex};
+use std::time::{Instant, SystemTime, UNIX_EPOCH};
+
+/// 文件头：魔数（8 字节）、版本（u32）、保留（u32）、开始时间（Unix 微秒，u64）
+const MAGIC: &[u8; 8] = b"DYCAPTR\0";
+const VERSION: u32 = 1;
+const FILE_HEADER: usize = 24;
+/// 记录头：类型（u8）、保留（3 字节）、长度（u32）、相对开始时间的微秒数（u64）
+const RECORD_HEADER: usize = 16;
+const INITIAL_SIZE: u64 = 4 * 1024 * 1024;
+
+#[derive(Clone, Copy)]
+#[repr(u8)]
+pub enum RecordKind {
+    Audio = 1,
+    TextSent = 2,
+    MessageReceived = 3,
+}
+
+#[derive(Serialize)]
+pub struct CaptureStats {
+    path: String,
+    records: u64,
+    audio_bytes: u64,
+    bytes: u64,
+    /// 扩容或写入失败后停止记录
+    failed: bool,
+}
+
+/// 追加写入的内存映射抓包文件，空间不足时按倍数扩容并重新映射，结束时截断到实际长度。
+pub struct Capture {
+    path: String,
+    file: File,
+    map: MmapMut,
+    len: usize,
+    start: Instant,
+    records: u64,
+    audio_bytes: u64,
+    failed: bool,
+}
+
+impl Capture {
+    pub fn create(path: &str) -> io::Result<Self> {
+        let file = OpenOptions::new()
+            .read(true)
+            .write(true)
+            .create(true)
+            .truncate(true)
+            .open(path)?;
+        file.set_len(INITIAL_SIZE)?;
+        let mut map = unsafe { MmapMut::map_mut(&file)? };
+
+        let started_micros = SystemTime::now()
+            .duration_since(UNIX_EPOCH)
+            .map_or(0, |elapsed| elapsed.as_micros() as u64);
+        map[..8].copy_from_slice(MAGIC);
+        map[8..12].copy_from_slice(&VERSION.to_le_bytes());
+        map[16..24].copy_from_slice(&started_micros.to_le_bytes());
+
+        Ok(Self {
+            path: path.to_string(),
+            file,
+            map,
+            len: FILE_HEADER,
+            start: Instant::now(),
+            records: 0,
+            audio_bytes: 0,
+            failed: false,
+        })
+    }
+
+    pub fn append(&mut self, kind: RecordKind, payload: &[u8]) {
+        if self.failed {
+            return;
+        }
+        let needed = self.len + RECORD_HEADER + payload.len();
+        if needed > self.map.len() && self.grow(needed).is_err() {
+            self.failed = true;
+            return;
+        }
+
+        let micros = self.start.elapsed().as_micros() as u64;
+        let header = &mut self.map[self.len..self.len + RECORD_HEADER];
+        header[0] = kind as u8;
+        header[1..4].fill(0);
+        header[4..8].copy_from_slice(&(payload.len() as u32).to_le_bytes());
+        header[8..16].copy_from_slice(&micros.to_le_bytes());
+        let body = self.len + RECORD_HEADER;
+        self.map[body..body + payload.len()].copy_from_slice(payload);
+        self.len = needed;
+
+        self.records += 1;
+        if let RecordKind::Audio = kind {
+            self.audio_bytes += payload.len() as u64;
+        }
+    }
+
+    /// 刷盘并把文件截断到实际长度。
+    pub fn finish(self) -> io::Result<CaptureStats> {
+        let stats = self.stats();
+        self.map.flush()?;
+        drop(self.map);
+        self.file.set_len(self.len as u64)?;
+        Ok(stats)
+    }
+
+    pub fn stats(&self) -> CaptureStats {
+        CaptureStats {
+            path: self.path.clone(),
+            records: self.records,
+            audio_bytes: self.audio_bytes,
+            bytes: self.len as u64,
+            failed: self.failed,
+        }
+    }
+
+    fn grow(&mut self, needed: usize) -> io::Result<()> {
+        let mut size = self.map.len() as u64 * 2;
+        while size < needed as u64 {
+            size *= 2;
+        }
+        // 先刷出已写内容，再扩大文件并重新映射
+        self.map.flush_async()?;
+        self.file.set_len(size)?;
+        self.map = unsafe { MmapMut::map_mut(&self.file)? };
+        Ok(())
+    }
+}
+
+pub type SharedCapture = Arc<Mutex<Option<Capture>>>;
+
+/// 未开启抓包时只是一次无竞争的加锁检查。
+pub fn record(capture: &SharedCapture, kind: RecordKind, payload: &[u8]) {
+    if let Ok(mut guard) = capture.lock() {
+        if let Some(capture) = guard.as_mut() {
+            capture.append(kind, payload);
+        }
+    }
+}
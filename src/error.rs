@@ -7,7 +7,7 @@ const EXCEPTION_CODE_CLASS: &str = "com/dianya/api/DianyaException$Code";
 const EXCEPTION_CTOR_SIG: &str = "(Lcom/dianya/api/DianyaException$Code;Ljava/lang/String;)V";
 const CODE_VALUE_OF_SIG: &str = "(Ljava/lang/String;)Lcom/dianya/api/DianyaException$Code;";
 
-fn throw_with_code<'a>(
+pub fn throw_with_code<'a>(
     env: &mut JNIEnv<'a>,
     code: &str,
     message: impl AsRef<str>,
@@ -58,7 +58,7 @@ pub fn throw_jni_error<'a>(
     throw_with_code(env, "JNI_ERROR", format!("JNI Error: {err}"))
 }
 
-fn map_error_code(err: &Error) -> &'static str {
+pub fn map_error_code(err: &Error) -> &'static str {
     match err {
         Error::WsError(_) => "WS_ERROR",
         Error::HttpError(_) => "HTTP_ERROR",
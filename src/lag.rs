@@ -0,0 +1,413 @@
+use crate::audio_pipeline;
+use crate::stream_message::{Kind, StreamMessage};
+use serde::{Deserialize, Serialize};
+use std::collections::VecDeque;
+use std::sync::{Mutex, MutexGuard};
+use std::time::{Duration, Instant};
+
+const BYTES_PER_MILLI: u64 = audio_pipeline::BYTES_PER_MILLI as u64;
+/// 最多跟踪的未匹配音频帧数，40ms 一帧约 80 秒
+const MAX_FRAMES: usize = 2048;
+/// 每项指标保留的最近样本数
+const WINDOW: usize = 256;
+
+#[derive(Clone, Debug, Deserialize)]
+#[serde(default, rename_all = "camelCase")]
+pub struct LagOptions {
+    pub lag_metrics: bool,
+}
+
+impl Default for LagOptions {
+    fn default() -> Self {
+        Self { lag_metrics: true }
+    }
+}
+
+#[derive(Serialize)]
+pub struct LagStats {
+    /// 已提交音频的总时长
+    audio_millis: u64,
+    /// 匹配到音频帧的结果数
+    matched_results: u64,
+    /// 提交音频到收到覆盖该音频的结果
+    lag: Summary,
+    /// 提交音频到写入 WebSocket 完成
+    send_queue: Summary,
+    /// 写入 WebSocket 完成到收到结果
+    server: Summary,
+}
+
+#[derive(Serialize)]
+struct Summary {
+    count: u64,
+    last_millis: f64,
+    mean_millis: f64,
+    p50_millis: f64,
+    p95_millis: f64,
+    max_millis: f64,
+}
+
+struct Frame {
+    /// 该帧结束时的音频偏移（毫秒）
+    end_millis: u64,
+    len: u64,
+    submitted: Instant,
+    written: Option<Instant>,
+}
+
+/// 最近 [`WINDOW`] 个样本的环形窗口，统计时才排序。
+struct Window {
+    samples: VecDeque<Duration>,
+    count: u64,
+}
+
+impl Window {
+    fn new() -> Self {
+        Self {
+            samples: VecDeque::with_capacity(WINDOW),
+            count: 0,
+        }
+    }
+
+    fn record(&mut self, value: Duration) {
+        if self.samples.len() == WINDOW {
+            self.samples.pop_front();
+        }
+        self.samples.push_back(value);
+        self.count += 1;
+    }
+
+    fn summary(&self) -> Summary {
+        let millis = |d: &Duration| d.as_secs_f64() * 1000.0;
+        let mut sorted: Vec<f64> = self.samples.iter().map(millis).collect();
+        sorted.sort_by(f64::total_cmp);
+        let at = |q: f64| {
+            if sorted.is_empty() {
+                0.0
+            } else {
+                sorted[((sorted.len() - 1) as f64 * q).round() as usize]
+            }
+        };
+        let mean = if sorted.is_empty() {
+            0.0
+        } else {
+            sorted.iter().sum::<f64>() / sorted.len() as f64
+        };
+        Summary {
+            count: self.count,
+            last_millis: self.samples.back().map_or(0.0, millis),
+            mean_millis: mean,
+            p50_millis: at(0.5),
+            p95_millis: at(0.95),
+            max_millis: sorted.last().copied().unwrap_or(0.0),
+        }
+    }
+}
+
+struct State {
+    frames: VecDeque<Frame>,
+    /// `frames` 中第一个尚未写出的帧下标
+    unwritten: usize,
+    submitted_bytes: u64,
+    /// 已匹配过的最大结果结束时间，同一段音频的后续结果不再重复计入
+    matched_millis: u64,
+    matched_results: u64,
+    lag: Window,
+    send_queue: Window,
+    server: Window,
+}
+
+impl State {
+    fn new() -> Self {
+        Self {
+            frames: VecDeque::new(),
+            unwritten: 0,
+            submitted_bytes: 0,
+            matched_millis: 0,
+            matched_results: 0,
+            lag: Window::new(),
+            send_queue: Window::new(),
+            server: Window::new(),
+        }
+    }
+}
+
+/// 按采样偏移给发送的音频打时间戳，并与结果中的 `end_time` 匹配，得到音频到结果的延迟。
+///
+/// 帧按提交顺序写出，写出时间按顺序回填；异步发送队列以 DROP_OLDEST 丢帧时回填会错位，
+/// 此时发送队列延迟与服务端延迟只是近似值。
+pub struct LagTracker {
+    state: Mutex<State>,
+}
+
+impl Default for LagTracker {
+    fn default() -> Self {
+        Self::new()
+    }
+}
+
+impl LagTracker {
+    pub fn new() -> Self {
+        Self {
+            state: Mutex::new(State::new()),
+        }
+    }
+
+    pub fn reset(&self) {
+        *self.lock() = State::new();
+    }
+
+    /// 记录应用提交的一帧音频。
+    pub fn submit(&self, len: usize) {
+        let mut state = self.lock();
+        state.submitted_bytes += len as u64;
+        if state.frames.len() == MAX_FRAMES {
+            state.frames.pop_front();
+            state.unwritten = state.unwritten.saturating_sub(1);
+        }
+        let end_millis = state.submitted_bytes / BYTES_PER_MILLI;
+        state.frames.push_back(Frame {
+            end_millis,
+            len: len as u64,
+            submitted: Instant::now(),
+            written: None,
+        });
+    }
+
+    /// 撤回最近提交、未能发出的一帧。
+    pub fn discard(&self) {
+        let mut state = self.lock();
+        if state.frames.len() > state.unwritten {
+            if let Some(frame) = state.frames.pop_back() {
+                state.submitted_bytes -= frame.len;
+            }
+        }
+    }
+
+    /// 最早一个尚未写出的音频帧已写入 WebSocket。
+    pub fn written(&self) {
+        let now = Instant::now();
+        let mut state = self.lock();
+        let index = state.unwritten;
+        let Some(frame) = state.frames.get_mut(index) else {
+            return;
+        };
+        frame.written = Some(now);
+        let delay = now.saturating_duration_since(frame.submitted);
+        state.unwritten += 1;
+        state.send_queue.record(delay);
+    }
+
+    /// 收到一条服务端消息，是带分段 `end_time`（秒）的识别结果且覆盖了新的音频时才计入。
+    ///
+    /// 只用 [`StreamMessage`] 解析出的分段字段，不会把 `words` 等数组里的词级时间当作分段结束时间。
+    pub fn received(&self, message: &StreamMessage) {
+        if !matches!(message.kind, Kind::Partial | Kind::Final) {
+            return;
+        }
+        let Some(end_time) = message.end_time else {
+            return;
+        };
+        if !end_time.is_finite() || end_time <= 0.0 {
+            return;
+        }
+        let end_millis = (end_time * 1000.0) as u64;
+        let now = Instant::now();
+
+        let mut state = self.lock();
+        let sent_millis = state.submitted_bytes / BYTES_PER_MILLI;
+        if end_millis <= state.matched_millis || end_millis > sent_millis {
+            return;
+        }
+        let index = state.frames.partition_point(|frame| frame.end_millis < end_millis);
+        let Some(frame) = state.frames.get(index) else {
+            return;
+        };
+        let lag = now.saturating_duration_since(frame.submitted);
+        let server = frame.written.map(|at| now.saturating_duration_since(at));
+
+        state.matched_millis = end_millis;
+        state.matched_results += 1;
+        state.lag.record(lag);
+        if let Some(server) = server {
+            state.server.record(server);
+        }
+    }
+
+    pub fn stats(&self) -> LagStats {
+        let state = self.lock();
+        LagStats {
+            audio_millis: state.submitted_bytes / BYTES_PER_MILLI,
+            matched_results: state.matched_results,
+            lag: state.lag.summary(),
+            send_queue: state.send_queue.summary(),
+            server: state.server.summary(),
+        }
+    }
+
+    fn lock(&self) -> MutexGuard<'_, State> {
+        self.state.lock().unwrap_or_else(|e| e.into_inner())
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use std::thread;
+
+    /// 40ms 的 16 kHz s16le 音频
+    const FRAME: usize = 1_280;
+
+    fn result(kind: Kind, end_time: Option<f64>) -> StreamMessage {
+        StreamMessage {
+            kind,
+            text: Some("你好".to_string()),
+            segment_id: Some(1),
+            start_time: Some(0.0),
+            end_time,
+            speaker: None,
+            code: None,
+            message: None,
+        }
+    }
+
+    fn partial(end_time: f64) -> StreamMessage {
+        result(Kind::Partial, Some(end_time))
+    }
+
+    fn assert_close(actual: f64, expected: f64) {
+        assert!((actual - expected).abs() < 1e-6, "{actual} != {expected}");
+    }
+
+    #[test]
+    fn submitted_bytes_become_audio_time() {
+        let tracker = LagTracker::new();
+        for _ in 0..3 {
+            tracker.submit(FRAME);
+        }
+        assert_eq!(tracker.stats().audio_millis, 120);
+        let ends: Vec<u64> = tracker.lock().frames.iter().map(|f| f.end_millis).collect();
+        assert_eq!(ends, vec![40, 80, 120]);
+    }
+
+    #[test]
+    fn result_matches_first_frame_covering_its_end_time() {
+        let tracker = LagTracker::new();
+        tracker.submit(FRAME);
+        thread::sleep(Duration::from_millis(30));
+        tracker.submit(FRAME);
+
+        // 结束于 30ms 的结果由第一帧覆盖，延迟包含两次提交之间的等待
+        tracker.received(&partial(0.03));
+        let stats = tracker.stats();
+        assert_eq!(stats.matched_results, 1);
+        assert!(stats.lag.last_millis >= 30.0);
+
+        tracker.received(&result(Kind::Final, Some(0.08)));
+        let stats = tracker.stats();
+        assert_eq!(stats.matched_results, 2);
+        assert!(stats.lag.last_millis < 30.0);
+    }
+
+    #[test]
+    fn results_without_new_audio_are_ignored() {
+        let tracker = LagTracker::new();
+        tracker.submit(FRAME);
+        tracker.submit(FRAME);
+        tracker.received(&partial(0.06));
+
+        // 同一段或更早的音频不重复计入
+        tracker.received(&partial(0.06));
+        tracker.received(&partial(0.02));
+        // 超出已提交音频、非识别结果或结束时间无效
+        tracker.received(&partial(0.2));
+        tracker.received(&result(Kind::Error, Some(0.07)));
+        tracker.received(&result(Kind::SessionEnd, Some(0.07)));
+        tracker.received(&result(Kind::Partial, None));
+        tracker.received(&partial(f64::NAN));
+        tracker.received(&partial(0.0));
+
+        let stats = tracker.stats();
+        assert_eq!(stats.matched_results, 1);
+        assert_eq!(stats.lag.count, 1);
+    }
+
+    #[test]
+    fn server_lag_needs_a_written_frame() {
+        let tracker = LagTracker::new();
+        tracker.submit(FRAME);
+        tracker.submit(FRAME);
+        tracker.written();
+        assert_eq!(tracker.stats().send_queue.count, 1);
+
+        tracker.received(&partial(0.04));
+        tracker.received(&partial(0.08));
+        let stats = tracker.stats();
+        assert_eq!(stats.lag.count, 2);
+        assert_eq!(stats.server.count, 1);
+
+        // 没有未写出的帧时不记录
+        tracker.written();
+        tracker.written();
+        assert_eq!(tracker.stats().send_queue.count, 2);
+    }
+
+    #[test]
+    fn discard_only_withdraws_unwritten_frames() {
+        let tracker = LagTracker::new();
+        tracker.submit(FRAME);
+        tracker.submit(FRAME);
+        tracker.written();
+
+        tracker.discard();
+        assert_eq!(tracker.stats().audio_millis, 40);
+        tracker.discard();
+        assert_eq!(tracker.stats().audio_millis, 40);
+        assert_eq!(tracker.lock().frames.len(), 1);
+    }
+
+    #[test]
+    fn oldest_frames_are_evicted_past_the_limit() {
+        let tracker = LagTracker::new();
+        tracker.submit(32);
+        tracker.written();
+        for _ in 0..MAX_FRAMES {
+            tracker.submit(32);
+        }
+
+        let state = tracker.lock();
+        assert_eq!(state.frames.len(), MAX_FRAMES);
+        assert_eq!(state.unwritten, 0);
+        assert_eq!(state.frames.front().map(|f| f.end_millis), Some(2));
+        assert_eq!(state.submitted_bytes, (MAX_FRAMES as u64 + 1) * 32);
+    }
+
+    #[test]
+    fn window_summary_uses_nearest_rank() {
+        let mut window = Window::new();
+        assert_close(window.summary().p95_millis, 0.0);
+        for millis in 1..=100 {
+            window.record(Duration::from_millis(millis));
+        }
+
+        let summary = window.summary();
+        assert_eq!(summary.count, 100);
+        assert_close(summary.last_millis, 100.0);
+        assert_close(summary.mean_millis, 50.5);
+        assert_close(summary.p50_millis, 51.0);
+        assert_close(summary.p95_millis, 95.0);
+        assert_close(summary.max_millis, 100.0);
+    }
+
+    #[test]
+    fn window_keeps_only_recent_samples() {
+        let mut window = Window::new();
+        for millis in 0..WINDOW as u64 + 44 {
+            window.record(Duration::from_millis(millis));
+        }
+        assert_eq!(window.samples.len(), WINDOW);
+        let summary = window.summary();
+        assert_eq!(summary.count, WINDOW as u64 + 44);
+        assert_close(summary.max_millis, (WINDOW + 43) as f64);
+    }
+}
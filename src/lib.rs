@@ -1,7 +1,18 @@
 #![allow(non_snake_case)]
 
+mod audio_pipeline;
+mod call_context;
+mod capture;
 mod error;
+mod lag;
+mod reconnect;
+mod result_queue;
 mod runtime;
+mod send_queue;
+mod status_delta;
+mod stream_engine;
+mod stream_message;
 mod transcribe_stream;
 mod transcribe_wrapper;
 mod utils;
+mod vad;
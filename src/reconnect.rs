@@ -0,0 +1,461 @@
+use crate::audio_pipeline::BYTES_PER_MILLI;
+use bytes::Bytes;
+use serde::{Deserialize, Serialize};
+use std::collections::VecDeque;
+use std::sync::{Mutex, MutexGuard};
+use std::time::{Duration, SystemTime, UNIX_EPOCH};
+use tokio::sync::Notify;
+
+#[derive(Clone, Debug, Deserialize)]
+#[serde(default, rename_all = "camelCase")]
+pub struct ReconnectOptions {
+    pub auto_reconnect: bool,
+    pub max_reconnect_attempts: u32,
+    pub reconnect_initial_backoff_millis: u64,
+    pub reconnect_max_backoff_millis: u64,
+    pub replay_buffer_millis: u64,
+}
+
+impl Default for ReconnectOptions {
+    fn default() -> Self {
+        Self {
+            auto_reconnect: false,
+            max_reconnect_attempts: 5,
+            reconnect_initial_backoff_millis: 200,
+            reconnect_max_backoff_millis: 10_000,
+            replay_buffer_millis: 5_000,
+        }
+    }
+}
+
+#[derive(Serialize)]
+pub struct ReconnectStats {
+    reconnecting: bool,
+    gave_up: bool,
+    reconnects: u64,
+    attempts: u64,
+    replayed_frames: u64,
+    replayed_bytes: u64,
+    buffered_bytes: usize,
+    capacity_bytes: usize,
+}
+
+#[derive(Default)]
+struct State {
+    /// 已写出的音频帧及其在本流音频中的起始字节偏移
+    replay: VecDeque<(u64, Bytes)>,
+    replay_bytes: usize,
+    /// 已写出音频的总字节数，即下一帧的起始偏移
+    written: u64,
+    /// 服务端已给出定稿结果的音频字节数，这之前的音频不再重放
+    acked: u64,
+    /// 重连后尚未补发的音频，由下一个写连接的一方逐帧取出
+    pending: VecDeque<Bytes>,
+    reconnecting: bool,
+    gave_up: bool,
+    /// 读任务已退出（会话正常结束、结果溢出断开、放弃重连或流被停止），不会再有新连接
+    closed: bool,
+    /// 每次重连成功加一，写任务据此等待“比失败时更新”的连接
+    generation: u64,
+    /// 退避抖动用的 xorshift 状态，不能为 0
+    jitter: u64,
+    reconnects: u64,
+    attempts: u64,
+    replayed_frames: u64,
+    replayed_bytes: u64,
+}
+
+/// 断线重连的共享状态：最近写出音频的重放环形缓冲，以及供写任务等待重连结果的通知。
+///
+/// 重放缓冲按写出顺序记录音频（写任务或同步发送在写连接前调用 [`Reconnector::record`]），
+/// 排队中尚未写出的帧不在其中，重连后由原路径继续发送，不会重复。服务端定稿结果的 `end_time`
+/// 经 [`Reconnector::ack`] 确认后，其之前的音频从缓冲中移除。
+pub struct Reconnector {
+    options: ReconnectOptions,
+    session_id: String,
+    capacity: usize,
+    state: Mutex<State>,
+    changed: Notify,
+}
+
+impl Reconnector {
+    pub fn new(session_id: &str, options: &ReconnectOptions) -> Self {
+        Self {
+            capacity: options.replay_buffer_millis as usize * BYTES_PER_MILLI,
+            options: options.clone(),
+            session_id: session_id.to_string(),
+            state: Mutex::new(State {
+                jitter: seed(session_id),
+                ..State::default()
+            }),
+            changed: Notify::new(),
+        }
+    }
+
+    pub fn session_id(&self) -> &str {
+        &self.session_id
+    }
+
+    pub fn max_attempts(&self) -> u32 {
+        self.options.max_reconnect_attempts
+    }
+
+    /// 第 `attempt` 次（从 0 开始）重连前的等待时间：指数增长、封顶，并取一半作随机抖动，
+    /// 避免大量客户端在同一时刻重连。
+    pub fn backoff(&self, attempt: u32) -> Duration {
+        let initial = self.options.reconnect_initial_backoff_millis.max(1);
+        let max = self.options.reconnect_max_backoff_millis.max(initial);
+        let base = initial.saturating_mul(1u64 << attempt.min(20)).min(max);
+        let random = {
+            let mut state = self.lock();
+            let mut x = state.jitter;
+            x ^= x << 13;
+            x ^= x >> 7;
+            x ^= x << 17;
+            state.jitter = x;
+            x
+        };
+        let half = base / 2;
+        Duration::from_millis(half + random % (base - half + 1))
+    }
+
+    /// 记录一帧即将写出的音频，超出容量时淘汰最早的帧。
+    pub fn record(&self, frame: &Bytes) {
+        let mut state = self.lock();
+        let offset = state.written;
+        state.written += frame.len() as u64;
+        if self.capacity == 0 {
+            return;
+        }
+        state.replay_bytes += frame.len();
+        state.replay.push_back((offset, frame.clone()));
+        while state.replay_bytes > self.capacity {
+            match state.replay.pop_front() {
+                Some((_, evicted)) => state.replay_bytes -= evicted.len(),
+                None => break,
+            }
+        }
+    }
+
+    /// 服务端已对 `end_seconds`（按本流写出的音频计时）之前的音频给出定稿结果。
+    pub fn ack(&self, end_seconds: f64) {
+        if !end_seconds.is_finite() || end_seconds <= 0.0 {
+            return;
+        }
+        let acked = (end_seconds * 1000.0) as u64 * BYTES_PER_MILLI as u64;
+        let mut state = self.lock();
+        state.acked = state.acked.max(acked);
+        while let Some((offset, frame)) = state.replay.front() {
+            if offset + frame.len() as u64 > state.acked {
+                break;
+            }
+            let len = frame.len();
+            state.replay.pop_front();
+            state.replay_bytes -= len;
+        }
+    }
+
+    /// 准备重连后的补发：只取最后一次定稿之后的音频（跨越定稿位置的帧从偶数字节处截断），
+    /// 返回帧数与字节数。必须在持有连接锁、换上新连接时调用，保证补发排在新音频之前。
+    pub fn prepare_replay(&self) -> (usize, usize) {
+        let mut state = self.lock();
+        let acked = state.acked;
+        let pending: VecDeque<Bytes> = state
+            .replay
+            .iter()
+            .filter(|(offset, frame)| offset + frame.len() as u64 > acked)
+            .map(|(offset, frame)| {
+                let skip = (acked.saturating_sub(*offset) as usize) & !1;
+                frame.slice(skip..)
+            })
+            .collect();
+        let bytes = pending.iter().map(Bytes::len).sum();
+        let frames = pending.len();
+        state.pending = pending;
+        (frames, bytes)
+    }
+
+    /// 取出下一帧待补发的音频，调用方须持有连接锁并在写出新音频之前取完。
+    pub fn next_replay(&self) -> Option<Bytes> {
+        self.lock().pending.pop_front()
+    }
+
+    pub fn begin(&self) {
+        self.lock().reconnecting = true;
+    }
+
+    pub fn record_attempt(&self) {
+        self.lock().attempts += 1;
+    }
+
+    pub fn succeed(&self, replayed_frames: usize, replayed_bytes: usize) {
+        {
+            let mut state = self.lock();
+            state.reconnecting = false;
+            state.generation += 1;
+            state.reconnects += 1;
+            state.replayed_frames += replayed_frames as u64;
+            state.replayed_bytes += replayed_bytes as u64;
+        }
+        self.changed.notify_waiters();
+    }
+
+    pub fn give_up(&self) {
+        self.lock().gave_up = true;
+        self.close();
+    }
+
+    /// 读任务退出时调用：之后写入失败不再等待重连，等待中的写任务随之返回。
+    pub fn close(&self) {
+        {
+            let mut state = self.lock();
+            state.reconnecting = false;
+            state.closed = true;
+            state.pending.clear();
+        }
+        self.changed.notify_waiters();
+    }
+
+    /// 写入失败的音频是否还会随重连补发。
+    pub fn can_resume(&self) -> bool {
+        !self.lock().closed
+    }
+
+    pub fn generation(&self) -> u64 {
+        self.lock().generation
+    }
+
+    /// 等待比 `generation` 更新的连接建立，不再重连时返回 `false`。
+    pub async fn wait_newer(&self, generation: u64) -> bool {
+        loop {
+            let notified = self.changed.notified();
+            {
+                let state = self.lock();
+                if state.closed {
+                    return false;
+                }
+                if state.generation > generation {
+                    return true;
+                }
+            }
+            notified.await;
+        }
+    }
+
+    pub fn stats(&self) -> ReconnectStats {
+        let state = self.lock();
+        ReconnectStats {
+            reconnecting: state.reconnecting,
+            gave_up: state.gave_up,
+            reconnects: state.reconnects,
+            attempts: state.attempts,
+            replayed_frames: state.replayed_frames,
+            replayed_bytes: state.replayed_bytes,
+            buffered_bytes: state.replay_bytes,
+            capacity_bytes: self.capacity,
+        }
+    }
+
+    /// 重新启动流时清空上一轮的状态。
+    pub fn reset(&self) {
+        let mut state = self.lock();
+        state.replay.clear();
+        state.replay_bytes = 0;
+        state.written = 0;
+        state.acked = 0;
+        state.pending.clear();
+        state.reconnecting = false;
+        state.gave_up = false;
+        state.closed = false;
+    }
+
+    fn lock(&self) -> MutexGuard<'_, State> {
+        self.state.lock().unwrap_or_else(|e| e.into_inner())
+    }
+}
+
+/// 抖动种子：会话 ID 的 FNV-1a 哈希混入当前时间，使不同会话、不同进程的退避序列互不相同。
+fn seed(session_id: &str) -> u64 {
+    let nanos = SystemTime::now()
+        .duration_since(UNIX_EPOCH)
+        .map_or(0, |elapsed| elapsed.as_nanos() as u64);
+    let hash = session_id.bytes().fold(0xcbf2_9ce4_8422_2325u64, |hash, b| {
+        (hash ^ b as u64).wrapping_mul(0x0100_0000_01b3)
+    });
+    (hash ^ nanos) | 1
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use std::collections::HashSet;
+    use std::sync::Arc;
+    use std::thread;
+
+    /// 100ms 的 16 kHz s16le 音频
+    const FRAME: usize = 3_200;
+
+    fn reconnector(replay_buffer_millis: u64) -> Reconnector {
+        Reconnector::new(
+            "session",
+            &ReconnectOptions {
+                auto_reconnect: true,
+                replay_buffer_millis,
+                ..ReconnectOptions::default()
+            },
+        )
+    }
+
+    fn frame(byte: u8, len: usize) -> Bytes {
+        Bytes::from(vec![byte; len])
+    }
+
+    fn drain(reconnect: &Reconnector) -> Vec<Bytes> {
+        std::iter::from_fn(|| reconnect.next_replay()).collect()
+    }
+
+    fn wait_newer(reconnect: &Reconnector, generation: u64) -> bool {
+        let runtime = tokio::runtime::Builder::new_current_thread().build().unwrap();
+        runtime.block_on(reconnect.wait_newer(generation))
+    }
+
+    #[test]
+    fn record_evicts_oldest_frames_over_capacity() {
+        // 1ms 容量即 32 字节
+        let reconnect = reconnector(1);
+        for byte in 1..=3 {
+            reconnect.record(&frame(byte, 12));
+        }
+        assert_eq!(reconnect.stats().buffered_bytes, 24);
+        assert_eq!(reconnect.stats().capacity_bytes, 32);
+
+        assert_eq!(reconnect.prepare_replay(), (2, 24));
+        let replay = drain(&reconnect);
+        assert_eq!(replay[0][0], 2);
+        assert_eq!(replay[1][0], 3);
+    }
+
+    #[test]
+    fn zero_capacity_keeps_nothing() {
+        let reconnect = reconnector(0);
+        reconnect.record(&frame(1, FRAME));
+        assert_eq!(reconnect.stats().buffered_bytes, 0);
+        assert_eq!(reconnect.prepare_replay(), (0, 0));
+        assert!(reconnect.next_replay().is_none());
+    }
+
+    #[test]
+    fn ack_trims_covered_frames_and_slices_the_straddling_one() {
+        let reconnect = reconnector(5_000);
+        for byte in 0..8 {
+            reconnect.record(&frame(byte, FRAME));
+        }
+
+        // 定稿到 250ms，即第 8000 字节：前两帧整帧移除，第三帧从 1600 字节处截断
+        reconnect.ack(0.25);
+        assert_eq!(reconnect.stats().buffered_bytes, 6 * FRAME);
+        assert_eq!(reconnect.prepare_replay(), (6, 5 * FRAME + 1_600));
+        let replay = drain(&reconnect);
+        assert_eq!(replay.len(), 6);
+        assert_eq!(replay[0].len(), 1_600);
+        assert_eq!(replay[0][0], 2);
+        assert_eq!(replay[5][0], 7);
+    }
+
+    #[test]
+    fn ack_never_moves_backwards_and_ignores_invalid_times() {
+        let reconnect = reconnector(5_000);
+        for byte in 0..4 {
+            reconnect.record(&frame(byte, FRAME));
+        }
+        reconnect.ack(0.2);
+        reconnect.ack(0.1);
+        reconnect.ack(f64::NAN);
+        reconnect.ack(-1.0);
+        assert_eq!(reconnect.prepare_replay(), (2, 2 * FRAME));
+    }
+
+    #[test]
+    fn replay_slices_start_at_an_even_byte() {
+        let reconnect = reconnector(5_000);
+        reconnect.record(&frame(1, 3));
+        reconnect.record(&frame(2, FRAME));
+
+        // 定稿到第 32 字节，第二帧起始偏移为 3，跨越 29 字节，向下取偶数跳过 28 字节
+        reconnect.ack(0.001);
+        assert_eq!(reconnect.prepare_replay(), (1, FRAME - 28));
+    }
+
+    #[test]
+    fn close_clears_pending_replay_and_stops_waiters() {
+        let reconnect = reconnector(5_000);
+        reconnect.record(&frame(1, FRAME));
+        reconnect.begin();
+        reconnect.prepare_replay();
+        assert!(reconnect.can_resume());
+
+        reconnect.close();
+        assert!(!reconnect.can_resume());
+        assert!(reconnect.next_replay().is_none());
+        assert!(!reconnect.stats().reconnecting);
+        assert!(!reconnect.stats().gave_up);
+        assert!(!wait_newer(&reconnect, 0));
+
+        reconnect.reset();
+        assert!(reconnect.can_resume());
+        assert_eq!(reconnect.stats().buffered_bytes, 0);
+    }
+
+    #[test]
+    fn give_up_closes_the_reconnector() {
+        let reconnect = reconnector(5_000);
+        reconnect.give_up();
+        assert!(reconnect.stats().gave_up);
+        assert!(!reconnect.can_resume());
+        assert!(!wait_newer(&reconnect, 0));
+    }
+
+    #[test]
+    fn wait_newer_returns_once_a_connection_succeeds() {
+        let reconnect = Arc::new(reconnector(5_000));
+        reconnect.begin();
+        let generation = reconnect.generation();
+
+        let succeeding = Arc::clone(&reconnect);
+        let handle = thread::spawn(move || {
+            thread::sleep(Duration::from_millis(20));
+            succeeding.succeed(3, 300);
+        });
+        assert!(wait_newer(&reconnect, generation));
+        handle.join().unwrap();
+
+        let stats = reconnect.stats();
+        assert!(!stats.reconnecting);
+        assert_eq!(stats.reconnects, 1);
+        assert_eq!(stats.replayed_frames, 3);
+        assert_eq!(stats.replayed_bytes, 300);
+        // 已经更新过的代数立即返回
+        assert!(wait_newer(&reconnect, generation));
+    }
+
+    #[test]
+    fn backoff_grows_exponentially_within_jitter_bounds() {
+        let reconnect = reconnector(5_000);
+        let bounds = [(0, 100, 200), (3, 800, 1_600), (5, 3_200, 6_400), (30, 5_000, 10_000)];
+        for (attempt, low, high) in bounds {
+            for _ in 0..100 {
+                let millis = reconnect.backoff(attempt).as_millis() as u64;
+                assert!((low..=high).contains(&millis), "attempt {attempt}: {millis}ms");
+            }
+        }
+
+        let distinct: HashSet<Duration> = (0..50).map(|_| reconnect.backoff(5)).collect();
+        assert!(distinct.len() > 1);
+    }
+
+    #[test]
+    fn jitter_seed_is_never_zero() {
+        assert_eq!(seed("") & 1, 1);
+        assert_eq!(seed("session") & 1, 1);
+    }
+}
@@ -0,0 +1,367 @@
+use crate::stream_message::{Kind, StreamMessage};
+use serde::{Deserialize, Serialize};
+use std::collections::VecDeque;
+use std::sync::{Condvar, Mutex, MutexGuard};
+use std::time::{Duration, Instant};
+
+#[derive(Clone, Copy, Debug, Deserialize, PartialEq, Eq)]
+#[serde(rename_all = "SCREAMING_SNAKE_CASE")]
+pub enum ResultOverflowPolicy {
+    DropOldest,
+    CoalescePartials,
+    Disconnect,
+}
+
+#[derive(Clone, Debug, Deserialize)]
+#[serde(default, rename_all = "camelCase")]
+pub struct ResultQueueOptions {
+    pub result_queue_capacity: usize,
+    pub result_overflow_policy: ResultOverflowPolicy,
+}
+
+impl Default for ResultQueueOptions {
+    fn default() -> Self {
+        Self {
+            result_queue_capacity: 4096,
+            result_overflow_policy: ResultOverflowPolicy::DropOldest,
+        }
+    }
+}
+
+#[derive(Serialize)]
+pub struct ResultQueueStats {
+    depth: usize,
+    capacity: usize,
+    high_water: usize,
+    received: u64,
+    dropped: u64,
+    coalesced: u64,
+    overflowed: bool,
+}
+
+/// 队列溢出且策略为 DISCONNECT，读完已缓存的消息后返回该错误。
+pub struct Overflowed;
+
+/// 一条推送消息：原文与读任务解析出的字段，一起交给 Java，Java 端不再重复解析。
+pub struct Received {
+    pub raw: String,
+    pub message: StreamMessage,
+}
+
+/// 队列中的一条消息。被合并掉的中间结果留下空位，使 `seq` 与下标保持连续对应。
+struct Entry {
+    seq: u64,
+    partial: bool,
+    message: Option<Received>,
+}
+
+#[derive(Default)]
+struct State {
+    entries: VecDeque<Entry>,
+    /// 队列中的消息数，不含空位
+    depth: usize,
+    /// COALESCE_PARTIALS 策略下队列中中间结果的序号，按到达顺序
+    partials: VecDeque<u64>,
+    next_seq: u64,
+    closed: bool,
+    overflowed: bool,
+    high_water: usize,
+    received: u64,
+    dropped: u64,
+    coalesced: u64,
+}
+
+impl State {
+    fn push_back(&mut self, message: Received, partial: bool) {
+        let seq = self.next_seq;
+        self.next_seq += 1;
+        if partial {
+            self.partials.push_back(seq);
+        }
+        self.entries.push_back(Entry { seq, partial, message: Some(message) });
+        self.depth += 1;
+    }
+
+    /// 取出最早的一条消息，跳过空位。
+    fn pop_front(&mut self) -> Option<Received> {
+        while let Some(entry) = self.entries.pop_front() {
+            if entry.partial && self.partials.front() == Some(&entry.seq) {
+                self.partials.pop_front();
+            }
+            if let Some(message) = entry.message {
+                self.depth -= 1;
+                return Some(message);
+            }
+        }
+        None
+    }
+
+    /// 按索引直接丢弃最早的中间结果，队列中没有中间结果时返回 `false`。
+    fn remove_oldest_partial(&mut self) -> bool {
+        let (Some(seq), Some(front)) = (self.partials.pop_front(), self.entries.front()) else {
+            return false;
+        };
+        let index = (seq - front.seq) as usize;
+        if self.entries[index].message.take().is_some() {
+            self.depth -= 1;
+        }
+        true
+    }
+
+    /// 空位超过容量时去掉空位并重新编号，保证空位占用的内存有上限。
+    fn compact(&mut self, capacity: usize) {
+        if self.entries.len() - self.depth <= capacity {
+            return;
+        }
+        self.entries.retain(|entry| entry.message.is_some());
+        self.partials.clear();
+        for entry in self.entries.iter_mut() {
+            entry.seq = self.next_seq;
+            self.next_seq += 1;
+            if entry.partial {
+                self.partials.push_back(entry.seq);
+            }
+        }
+    }
+}
+
+/// 服务端推送结果的有界队列，读任务写入、Java 读线程取出。
+pub struct ResultQueue {
+    state: Mutex<State>,
+    available: Condvar,
+    capacity: usize,
+    policy: ResultOverflowPolicy,
+}
+
+impl ResultQueue {
+    pub fn new(options: &ResultQueueOptions) -> Self {
+        Self {
+            state: Mutex::new(State::default()),
+            available: Condvar::new(),
+            capacity: options.result_queue_capacity.max(1),
+            policy: options.result_overflow_policy,
+        }
+    }
+
+    /// 写入一条消息，返回 `false` 表示队列已关闭或因溢出需要断开连接。
+    ///
+    /// `message` 由读任务在收到消息时解析一次，队列满时据此直接找到最早的中间结果，不再重新解析。
+    pub fn push(&self, raw: String, message: StreamMessage) -> bool {
+        let mut state = self.lock();
+        if state.closed {
+            return false;
+        }
+        state.received += 1;
+
+        if state.depth >= self.capacity {
+            match self.policy {
+                ResultOverflowPolicy::DropOldest => {
+                    state.pop_front();
+                    state.dropped += 1;
+                }
+                ResultOverflowPolicy::CoalescePartials => {
+                    // 优先丢弃最早的中间结果，它会被同一分段后续的结果取代
+                    if state.remove_oldest_partial() {
+                        state.coalesced += 1;
+                        state.compact(self.capacity);
+                    } else {
+                        state.pop_front();
+                        state.dropped += 1;
+                    }
+                }
+                ResultOverflowPolicy::Disconnect => {
+                    state.dropped += 1;
+                    state.overflowed = true;
+                    state.closed = true;
+                    drop(state);
+                    self.available.notify_all();
+                    return false;
+                }
+            }
+        }
+
+        let partial =
+            self.policy == ResultOverflowPolicy::CoalescePartials && message.kind == Kind::Partial;
+        state.push_back(Received { raw, message }, partial);
+        state.high_water = state.high_water.max(state.depth);
+        drop(state);
+        self.available.notify_one();
+        true
+    }
+
+    /// 等待第一条消息，然后不再等待地取出已经到达的消息，最多 `max` 条。
+    pub fn drain(
+        &self,
+        timeout: Option<Duration>,
+        max: usize,
+    ) -> Result<Vec<Received>, Overflowed> {
+        let deadline = timeout.map(|timeout| Instant::now() + timeout);
+        let mut state = self.lock();
+        while state.depth == 0 {
+            if state.closed {
+                return if state.overflowed {
+                    Err(Overflowed)
+                } else {
+                    Ok(Vec::new())
+                };
+            }
+            state = match deadline {
+                Some(deadline) => {
+                    let now = Instant::now();
+                    if now >= deadline {
+                        return Ok(Vec::new());
+                    }
+                    self.available
+                        .wait_timeout(state, deadline - now)
+                        .unwrap_or_else(|e| e.into_inner())
+                        .0
+                }
+                None => self.available.wait(state).unwrap_or_else(|e| e.into_inner()),
+            };
+        }
+
+        let count = max.max(1).min(state.depth);
+        Ok((0..count).filter_map(|_| state.pop_front()).collect())
+    }
+
+    pub fn recv(&self, timeout: Option<Duration>) -> Result<Option<Received>, Overflowed> {
+        Ok(self.drain(timeout, 1)?.pop())
+    }
+
+    /// 结果流结束，等待中的读线程在取完剩余消息后返回。
+    pub fn close(&self) {
+        self.lock().closed = true;
+        self.available.notify_all();
+    }
+
+    pub fn stats(&self) -> ResultQueueStats {
+        let state = self.lock();
+        ResultQueueStats {
+            depth: state.depth,
+            capacity: self.capacity,
+            high_water: state.high_water,
+            received: state.received,
+            dropped: state.dropped,
+            coalesced: state.coalesced,
+            overflowed: state.overflowed,
+        }
+    }
+
+    fn lock(&self) -> MutexGuard<'_, State> {
+        self.state.lock().unwrap_or_else(|e| e.into_inner())
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use std::sync::Arc;
+    use std::thread;
+
+    fn queue(capacity: usize, policy: ResultOverflowPolicy) -> ResultQueue {
+        ResultQueue::new(&ResultQueueOptions {
+            result_queue_capacity: capacity,
+            result_overflow_policy: policy,
+        })
+    }
+
+    fn push(queue: &ResultQueue, raw: &str, is_final: bool) -> bool {
+        let json = format!(r#"{{"text":"{raw}","is_final":{is_final}}}"#);
+        queue.push(raw.to_string(), StreamMessage::parse(&json))
+    }
+
+    /// 不等待地取出最多 `max` 条消息的原文。
+    fn take(queue: &ResultQueue, max: usize) -> Vec<String> {
+        match queue.drain(Some(Duration::ZERO), max) {
+            Ok(messages) => messages.into_iter().map(|received| received.raw).collect(),
+            Err(Overflowed) => panic!("queue overflowed"),
+        }
+    }
+
+    #[test]
+    fn drains_in_arrival_order_and_times_out_when_empty() {
+        let queue = queue(8, ResultOverflowPolicy::DropOldest);
+        assert!(push(&queue, "a", false));
+        assert!(push(&queue, "b", true));
+        assert_eq!(take(&queue, 1), ["a"]);
+        assert_eq!(take(&queue, 8), ["b"]);
+        assert!(take(&queue, 8).is_empty());
+    }
+
+    #[test]
+    fn drop_oldest_discards_the_head() {
+        let queue = queue(2, ResultOverflowPolicy::DropOldest);
+        for raw in ["a", "b", "c"] {
+            assert!(push(&queue, raw, true));
+        }
+        assert_eq!(take(&queue, 8), ["b", "c"]);
+        assert_eq!(queue.stats().dropped, 1);
+        assert_eq!(queue.stats().high_water, 2);
+    }
+
+    #[test]
+    fn coalesce_removes_oldest_partial_then_falls_back_to_head() {
+        let queue = queue(3, ResultOverflowPolicy::CoalescePartials);
+        assert!(push(&queue, "p1", false));
+        assert!(push(&queue, "f1", true));
+        assert!(push(&queue, "p2", false));
+        assert!(push(&queue, "f2", true));
+        assert!(push(&queue, "f3", true));
+        assert_eq!(queue.stats().coalesced, 2);
+
+        // 队列里已没有中间结果，只能丢弃最早的消息
+        assert!(push(&queue, "f4", true));
+        assert_eq!(queue.stats().dropped, 1);
+        assert_eq!(take(&queue, 8), ["f2", "f3", "f4"]);
+    }
+
+    #[test]
+    fn partial_index_follows_the_head_after_reads() {
+        let queue = queue(3, ResultOverflowPolicy::CoalescePartials);
+        assert!(push(&queue, "p1", false));
+        assert!(push(&queue, "f1", true));
+        assert!(push(&queue, "p2", false));
+        // 读走队首的中间结果后，序号与下标的差值随之变化
+        assert_eq!(take(&queue, 1), ["p1"]);
+        assert!(push(&queue, "p3", false));
+        assert!(push(&queue, "f2", true));
+        assert_eq!(take(&queue, 8), ["f1", "p3", "f2"]);
+    }
+
+    #[test]
+    fn compact_bounds_holes_and_keeps_partial_index_valid() {
+        let queue = queue(2, ResultOverflowPolicy::CoalescePartials);
+        for raw in ["p1", "p2", "p3", "p4", "p5"] {
+            assert!(push(&queue, raw, false));
+        }
+        // 三个空位超过容量后被去掉，队列只剩两条消息
+        assert_eq!(queue.lock().entries.len(), 2);
+        assert!(push(&queue, "p6", false));
+        assert_eq!(queue.stats().coalesced, 4);
+        assert_eq!(take(&queue, 8), ["p5", "p6"]);
+        assert!(queue.lock().entries.is_empty());
+    }
+
+    #[test]
+    fn disconnect_returns_buffered_messages_then_overflow() {
+        let queue = queue(1, ResultOverflowPolicy::Disconnect);
+        assert!(push(&queue, "a", true));
+        assert!(!push(&queue, "b", true));
+        assert!(!push(&queue, "c", true));
+
+        assert_eq!(take(&queue, 8), ["a"]);
+        assert!(matches!(queue.drain(None, 8), Err(Overflowed)));
+        assert!(queue.stats().overflowed);
+    }
+
+    #[test]
+    fn close_wakes_a_blocked_reader() {
+        let queue = Arc::new(queue(4, ResultOverflowPolicy::DropOldest));
+        let reader = Arc::clone(&queue);
+        let handle = thread::spawn(move || matches!(reader.recv(None), Ok(None)));
+        thread::sleep(Duration::from_millis(20));
+        queue.close();
+        assert!(handle.join().unwrap());
+        assert!(!push(&queue, "late", true));
+    }
+}
@@ -0,0 +1,394 @@
+use crate::error::throw_with_code;
+use jni::JNIEnv;
+use serde::{Deserialize, Serialize};
+use std::collections::VecDeque;
+use std::sync::{Condvar, Mutex, MutexGuard};
+use std::time::{Duration, Instant};
+use tokio::sync::Notify;
+use tungstenite::Message;
+
+#[derive(Clone, Copy, Debug, Deserialize, PartialEq, Eq)]
+#[serde(rename_all = "SCREAMING_SNAKE_CASE")]
+pub enum OverflowPolicy {
+    Block,
+    DropOldest,
+    Fail,
+}
+
+#[derive(Clone, Debug, Deserialize)]
+#[serde(default, rename_all = "camelCase")]
+pub struct SendQueueOptions {
+    pub async_send: bool,
+    pub queue_capacity_bytes: usize,
+    pub overflow_policy: OverflowPolicy,
+    pub block_timeout_millis: u64,
+}
+
+impl Default for SendQueueOptions {
+    fn default() -> Self {
+        Self {
+            async_send: false,
+            queue_capacity_bytes: 256 * 1024,
+            overflow_policy: OverflowPolicy::Block,
+            block_timeout_millis: 1_000,
+        }
+    }
+}
+
+#[derive(Serialize)]
+pub struct SendQueueStats {
+    queued_frames: usize,
+    queued_bytes: usize,
+    capacity_bytes: usize,
+    high_water_bytes: usize,
+    sent_frames: u64,
+    sent_bytes: u64,
+    dropped_frames: u64,
+    dropped_bytes: u64,
+}
+
+pub enum PushError {
+    /// 队列已满（FAIL 策略或 BLOCK 等待超时）
+    Full,
+    /// 流已停止
+    Closed,
+    /// 后台写入失败，携带错误码与原因
+    Failed(&'static str, String),
+}
+
+impl PushError {
+    pub fn throw(&self, env: &mut JNIEnv) {
+        let _ = match self {
+            PushError::Full => throw_with_code(env, "LIMIT_EXCEEDED", "Send queue is full"),
+            PushError::Closed => {
+                throw_with_code(env, "OTHER_ERROR", "WebSocket stream has been stopped")
+            }
+            PushError::Failed(code, message) => throw_with_code(env, code, message),
+        };
+    }
+}
+
+#[derive(Default)]
+struct State {
+    frames: VecDeque<Message>,
+    bytes: usize,
+    in_flight: bool,
+    closed: bool,
+    error: Option<(&'static str, String)>,
+    high_water_bytes: usize,
+    sent_frames: u64,
+    sent_bytes: u64,
+    dropped_frames: u64,
+    dropped_bytes: u64,
+}
+
+/// 音频发送的有界队列：采集线程入队后立即返回，由后台写任务负责写入 WebSocket。
+pub struct SendQueue {
+    state: Mutex<State>,
+    changed: Condvar,
+    ready: Notify,
+    capacity: usize,
+    policy: OverflowPolicy,
+    block_timeout: Duration,
+}
+
+impl SendQueue {
+    pub fn new(options: &SendQueueOptions) -> Self {
+        Self {
+            state: Mutex::new(State::default()),
+            changed: Condvar::new(),
+            ready: Notify::new(),
+            capacity: options.queue_capacity_bytes.max(1),
+            policy: options.overflow_policy,
+            block_timeout: Duration::from_millis(options.block_timeout_millis),
+        }
+    }
+
+    pub fn push(&self, message: Message) -> Result<(), PushError> {
+        let len = message.len();
+        let mut state = self.lock();
+        check_open(&state)?;
+
+        // 队列为空时总是接受，避免超大帧永远无法入队
+        if !state.frames.is_empty() && state.bytes + len > self.capacity {
+            match self.policy {
+                OverflowPolicy::Fail => return Err(PushError::Full),
+                OverflowPolicy::DropOldest => {
+                    // 只淘汰音频帧，sendText 发送的控制消息不能丢；只剩文本帧时照常入队，
+                    // 超出的部分不超过排队中的文本帧，下一次入队时再淘汰音频
+                    while state.bytes + len > self.capacity {
+                        let Some(index) = state.frames.iter().position(Message::is_binary) else {
+                            break;
+                        };
+                        if let Some(oldest) = state.frames.remove(index) {
+                            state.bytes -= oldest.len();
+                            state.dropped_frames += 1;
+                            state.dropped_bytes += oldest.len() as u64;
+                        }
+                    }
+                }
+                OverflowPolicy::Block => {
+                    let deadline = Instant::now() + self.block_timeout;
+                    while !state.frames.is_empty() && state.bytes + len > self.capacity {
+                        let now = Instant::now();
+                        if now >= deadline {
+                            return Err(PushError::Full);
+                        }
+                        state = self
+                            .changed
+                            .wait_timeout(state, deadline - now)
+                            .unwrap_or_else(|e| e.into_inner())
+                            .0;
+                        check_open(&state)?;
+                    }
+                }
+            }
+        }
+
+        state.bytes += len;
+        state.high_water_bytes = state.high_water_bytes.max(state.bytes);
+        state.frames.push_back(message);
+        drop(state);
+        self.ready.notify_one();
+        Ok(())
+    }
+
+    /// 取出下一帧，队列关闭时返回 `None`。只允许单个写任务调用。
+    pub async fn pop(&self) -> Option<Message> {
+        loop {
+            {
+                let mut state = self.lock();
+                if state.closed {
+                    return None;
+                }
+                if let Some(message) = state.frames.pop_front() {
+                    state.bytes -= message.len();
+                    state.in_flight = true;
+                    drop(state);
+                    self.changed.notify_all();
+                    return Some(message);
+                }
+            }
+            self.ready.notified().await;
+        }
+    }
+
+    pub fn complete(&self, len: usize) {
+        let mut state = self.lock();
+        state.in_flight = false;
+        state.sent_frames += 1;
+        state.sent_bytes += len as u64;
+        drop(state);
+        self.changed.notify_all();
+    }
+
+    /// 写入失败：记录错误并关闭队列，下一次入队时抛给调用方。
+    pub fn fail(&self, code: &'static str, message: String) {
+        let mut state = self.lock();
+        state.in_flight = false;
+        state.error = Some((code, message));
+        drop(state);
+        self.changed.notify_all();
+    }
+
+    /// 等待已入队的数据全部写出，超时或出错时返回 `false`。
+    pub fn flush(&self, timeout: Duration) -> bool {
+        let deadline = Instant::now() + timeout;
+        let mut state = self.lock();
+        loop {
+            if state.error.is_some() || state.closed {
+                return false;
+            }
+            if state.frames.is_empty() && !state.in_flight {
+                return true;
+            }
+            let now = Instant::now();
+            if now >= deadline {
+                return false;
+            }
+            state = self
+                .changed
+                .wait_timeout(state, deadline - now)
+                .unwrap_or_else(|e| e.into_inner())
+                .0;
+        }
+    }
+
+    /// 停止流时调用，丢弃未发送的数据并唤醒所有等待方。
+    pub fn close(&self) {
+        let mut state = self.lock();
+        state.closed = true;
+        state.frames.clear();
+        state.bytes = 0;
+        state.in_flight = false;
+        drop(state);
+        self.changed.notify_all();
+        self.ready.notify_one();
+    }
+
+    /// 重新启动流时调用，清除关闭与错误状态。
+    pub fn reopen(&self) {
+        let mut state = self.lock();
+        state.closed = false;
+        state.error = None;
+    }
+
+    pub fn stats(&self) -> SendQueueStats {
+        let state = self.lock();
+        SendQueueStats {
+            queued_frames: state.frames.len(),
+            queued_bytes: state.bytes,
+            capacity_bytes: self.capacity,
+            high_water_bytes: state.high_water_bytes,
+            sent_frames: state.sent_frames,
+            sent_bytes: state.sent_bytes,
+            dropped_frames: state.dropped_frames,
+            dropped_bytes: state.dropped_bytes,
+        }
+    }
+
+    fn lock(&self) -> MutexGuard<'_, State> {
+        self.state.lock().unwrap_or_else(|e| e.into_inner())
+    }
+}
+
+fn check_open(state: &State) -> Result<(), PushError> {
+    if let Some((code, message)) = &state.error {
+        return Err(PushError::Failed(*code, message.clone()));
+    }
+    if state.closed {
+        return Err(PushError::Closed);
+    }
+    Ok(())
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use bytes::Bytes;
+    use std::sync::Arc;
+    use std::thread;
+
+    fn queue(capacity: usize, policy: OverflowPolicy) -> SendQueue {
+        SendQueue::new(&SendQueueOptions {
+            async_send: true,
+            queue_capacity_bytes: capacity,
+            overflow_policy: policy,
+            block_timeout_millis: 20,
+        })
+    }
+
+    fn audio(byte: u8, len: usize) -> Message {
+        Message::Binary(Bytes::from(vec![byte; len]))
+    }
+
+    fn text(value: &str) -> Message {
+        Message::Text(value.to_string().into())
+    }
+
+    fn pop_now(queue: &SendQueue) -> Option<Message> {
+        let runtime = tokio::runtime::Builder::new_current_thread().build().unwrap();
+        runtime.block_on(queue.pop())
+    }
+
+    #[test]
+    fn fail_policy_rejects_frames_over_capacity() {
+        let queue = queue(10, OverflowPolicy::Fail);
+        assert!(queue.push(audio(1, 6)).is_ok());
+        assert!(matches!(queue.push(audio(2, 6)), Err(PushError::Full)));
+        assert!(queue.push(audio(3, 4)).is_ok());
+        assert_eq!(queue.stats().queued_bytes, 10);
+    }
+
+    #[test]
+    fn empty_queue_accepts_oversized_frame() {
+        let queue = queue(4, OverflowPolicy::Fail);
+        assert!(queue.push(audio(1, 16)).is_ok());
+        assert_eq!(queue.stats().high_water_bytes, 16);
+    }
+
+    #[test]
+    fn drop_oldest_evicts_audio_and_keeps_text() {
+        let queue = queue(10, OverflowPolicy::DropOldest);
+        assert!(queue.push(text("ab")).is_ok());
+        assert!(queue.push(audio(1, 4)).is_ok());
+        assert!(queue.push(audio(2, 4)).is_ok());
+        assert!(queue.push(audio(3, 4)).is_ok());
+
+        let stats = queue.stats();
+        assert_eq!(stats.dropped_frames, 1);
+        assert_eq!(stats.dropped_bytes, 4);
+        assert_eq!(stats.queued_bytes, 10);
+        assert_eq!(pop_now(&queue), Some(text("ab")));
+        assert_eq!(pop_now(&queue), Some(audio(2, 4)));
+        assert_eq!(pop_now(&queue), Some(audio(3, 4)));
+    }
+
+    #[test]
+    fn drop_oldest_never_drops_text_frames() {
+        let queue = queue(4, OverflowPolicy::DropOldest);
+        assert!(queue.push(text("stop")).is_ok());
+        assert!(queue.push(audio(1, 4)).is_ok());
+        assert_eq!(queue.stats().dropped_frames, 0);
+
+        // 再来一帧音频时淘汰的是排在文本之后的音频
+        assert!(queue.push(audio(2, 4)).is_ok());
+        assert_eq!(queue.stats().dropped_frames, 1);
+        assert_eq!(pop_now(&queue), Some(text("stop")));
+        assert_eq!(pop_now(&queue), Some(audio(2, 4)));
+    }
+
+    #[test]
+    fn block_policy_times_out_when_nothing_is_written() {
+        let queue = queue(4, OverflowPolicy::Block);
+        assert!(queue.push(audio(1, 4)).is_ok());
+        assert!(matches!(queue.push(audio(2, 4)), Err(PushError::Full)));
+    }
+
+    #[test]
+    fn block_policy_resumes_when_writer_takes_a_frame() {
+        let queue = Arc::new(SendQueue::new(&SendQueueOptions {
+            async_send: true,
+            queue_capacity_bytes: 4,
+            overflow_policy: OverflowPolicy::Block,
+            block_timeout_millis: 5_000,
+        }));
+        assert!(queue.push(audio(1, 4)).is_ok());
+
+        let writer = Arc::clone(&queue);
+        let handle = thread::spawn(move || {
+            thread::sleep(Duration::from_millis(20));
+            pop_now(&writer)
+        });
+        assert!(queue.push(audio(2, 4)).is_ok());
+        assert_eq!(handle.join().unwrap(), Some(audio(1, 4)));
+    }
+
+    #[test]
+    fn failure_and_close_are_reported_to_the_next_push() {
+        let queue = queue(16, OverflowPolicy::Block);
+        queue.fail("NETWORK_ERROR", "reset".into());
+        assert!(matches!(queue.push(audio(1, 4)), Err(PushError::Failed("NETWORK_ERROR", _))));
+
+        queue.reopen();
+        assert!(queue.push(audio(1, 4)).is_ok());
+        queue.close();
+        assert!(matches!(queue.push(audio(2, 4)), Err(PushError::Closed)));
+        assert_eq!(queue.stats().queued_bytes, 0);
+        assert_eq!(pop_now(&queue), None);
+    }
+
+    #[test]
+    fn flush_waits_for_the_frame_in_flight() {
+        let queue = queue(16, OverflowPolicy::Block);
+        assert!(queue.flush(Duration::ZERO));
+
+        assert!(queue.push(audio(1, 4)).is_ok());
+        assert!(!queue.flush(Duration::from_millis(5)));
+        assert!(pop_now(&queue).is_some());
+        assert!(!queue.flush(Duration::from_millis(5)));
+        queue.complete(4);
+        assert!(queue.flush(Duration::ZERO));
+        assert_eq!(queue.stats().sent_bytes, 4);
+    }
+}
@@ -0,0 +1,189 @@
+use common::Error;
+use serde::Serialize;
+use serde_json::Value;
+
+const FNV_OFFSET: u64 = 0xcbf2_9ce4_8422_2325;
+const FNV_PRIME: u64 = 0x0000_0100_0000_01b3;
+
+/// 状态轮询的增量结果。指纹由 Java 层保存，下次轮询时传回。
+#[derive(Serialize)]
+pub struct StatusDelta {
+    /// 与上次结果完全相同，此时不返回 `status`
+    unchanged: bool,
+    /// 整个结果的指纹
+    fingerprint: i64,
+    /// 全部 `details` 的指纹，作为下次轮询时已知前缀的指纹
+    details_fingerprint: i64,
+    details_count: usize,
+    /// `status.details` 中第一个分段在完整列表中的位置
+    details_offset: usize,
+    #[serde(skip_serializing_if = "Option::is_none")]
+    status: Option<Value>,
+}
+
+/// 64 位 FNV-1a，结果只用于比较同一任务前后两次轮询，不需要抗碰撞。
+struct Fnv(u64);
+
+impl Fnv {
+    fn write(&mut self, bytes: &[u8]) {
+        for byte in bytes {
+            self.0 ^= u64::from(*byte);
+            self.0 = self.0.wrapping_mul(FNV_PRIME);
+        }
+    }
+}
+
+/// 计算状态结果的指纹并与上次比较。
+///
+/// 结果未变时只返回指纹；已知的前 `known` 个分段未变时，`details` 只保留之后的新分段，
+/// 否则返回完整结果。
+pub fn status_delta<T: Serialize>(
+    response: &T,
+    previous: i64,
+    previous_details: i64,
+    known: usize,
+) -> Result<StatusDelta, Error> {
+    let mut value = serde_json::to_value(response)?;
+    let details = match value.get_mut("details") {
+        Some(Value::Array(items)) => std::mem::take(items),
+        _ => Vec::new(),
+    };
+
+    let mut hash = Fnv(FNV_OFFSET);
+    let mut prefix = (known == 0).then_some(hash.0);
+    for (index, item) in details.iter().enumerate() {
+        hash.write(&serde_json::to_vec(item)?);
+        hash.write(b"\n");
+        if index + 1 == known {
+            prefix = Some(hash.0);
+        }
+    }
+    let details_fingerprint = hash.0;
+    // `details` 已取出，其余字段与分段指纹一起组成整体指纹
+    hash.write(&serde_json::to_vec(&value)?);
+    let fingerprint = hash.0 as i64;
+
+    let mut delta = StatusDelta {
+        unchanged: fingerprint == previous,
+        fingerprint,
+        details_fingerprint: details_fingerprint as i64,
+        details_count: details.len(),
+        details_offset: 0,
+        status: None,
+    };
+    if delta.unchanged {
+        return Ok(delta);
+    }
+    if known > 0 && prefix == Some(previous_details as u64) {
+        delta.details_offset = known;
+    }
+    if let Some(slot) = value.get_mut("details") {
+        *slot = Value::Array(details.into_iter().skip(delta.details_offset).collect());
+    }
+    delta.status = Some(value);
+    Ok(delta)
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use serde_json::json;
+
+    fn response(status: &str, texts: &[&str]) -> Value {
+        let details: Vec<Value> = texts.iter().map(|text| json!({ "text": text })).collect();
+        json!({ "status": status, "details": details })
+    }
+
+    fn delta(response: &Value, previous: &StatusDelta, known: usize) -> StatusDelta {
+        match status_delta(response, previous.fingerprint, previous.details_fingerprint, known) {
+            Ok(delta) => delta,
+            Err(_) => panic!("status_delta failed"),
+        }
+    }
+
+    fn first(response: &Value) -> StatusDelta {
+        match status_delta(response, 0, 0, 0) {
+            Ok(delta) => delta,
+            Err(_) => panic!("status_delta failed"),
+        }
+    }
+
+    fn details(delta: &StatusDelta) -> Vec<Value> {
+        match delta.status.as_ref().and_then(|status| status.get("details")) {
+            Some(Value::Array(items)) => items.clone(),
+            other => panic!("unexpected details: {other:?}"),
+        }
+    }
+
+    #[test]
+    fn first_poll_returns_everything() {
+        let delta = first(&response("running", &["a", "b"]));
+        assert!(!delta.unchanged);
+        assert_eq!(delta.details_offset, 0);
+        assert_eq!(delta.details_count, 2);
+        assert_eq!(details(&delta).len(), 2);
+    }
+
+    #[test]
+    fn identical_result_is_unchanged() {
+        let response = response("running", &["a", "b"]);
+        let previous = first(&response);
+        let delta = delta(&response, &previous, previous.details_count);
+        assert!(delta.unchanged);
+        assert!(delta.status.is_none());
+        assert_eq!(delta.fingerprint, previous.fingerprint);
+    }
+
+    #[test]
+    fn appended_segments_return_only_the_suffix() {
+        let previous = first(&response("running", &["a", "b"]));
+        let delta = delta(&response("running", &["a", "b", "c"]), &previous, 2);
+        assert!(!delta.unchanged);
+        assert_eq!(delta.details_offset, 2);
+        assert_eq!(delta.details_count, 3);
+        assert_eq!(details(&delta), vec![json!({ "text": "c" })]);
+    }
+
+    #[test]
+    fn other_field_changes_keep_the_known_prefix() {
+        let previous = first(&response("running", &["a", "b"]));
+        let delta = delta(&response("done", &["a", "b"]), &previous, 2);
+        assert!(!delta.unchanged);
+        assert_eq!(delta.details_offset, 2);
+        assert!(details(&delta).is_empty());
+        assert_eq!(delta.status.as_ref().unwrap()["status"], "done");
+        assert_eq!(delta.details_fingerprint, previous.details_fingerprint);
+    }
+
+    #[test]
+    fn edited_prefix_returns_the_full_list() {
+        let previous = first(&response("running", &["a", "b"]));
+        let delta = delta(&response("running", &["a", "B", "c"]), &previous, 2);
+        assert_eq!(delta.details_offset, 0);
+        assert_eq!(details(&delta).len(), 3);
+    }
+
+    #[test]
+    fn shrunk_list_returns_the_full_list() {
+        let previous = first(&response("running", &["a", "b"]));
+        let delta = delta(&response("running", &["a"]), &previous, 2);
+        assert_eq!(delta.details_offset, 0);
+        assert_eq!(delta.details_count, 1);
+        assert_eq!(details(&delta).len(), 1);
+    }
+
+    #[test]
+    fn unknown_prefix_returns_the_full_list() {
+        let previous = first(&response("running", &["a", "b"]));
+        let delta = delta(&response("running", &["a", "b", "c"]), &previous, 0);
+        assert_eq!(delta.details_offset, 0);
+        assert_eq!(details(&delta).len(), 3);
+    }
+
+    #[test]
+    fn response_without_details_is_left_as_is() {
+        let delta = first(&json!({ "status": "queued" }));
+        assert_eq!(delta.details_count, 0);
+        assert!(delta.status.as_ref().unwrap().get("details").is_none());
+    }
+}
@@ -0,0 +1,577 @@
+use crate::error::{
+    map_error_code, throw_common_error, throw_jni_error, throw_message, throw_with_code,
+};
+use crate::runtime as rt;
+use crate::utils::{jstring_to_rust, throw_string_error, to_jstring};
+use bytes::Bytes;
+use common::Error;
+use jni::{
+    objects::{JByteArray, JClass, JLongArray, JObject, JString},
+    sys::{jint, jlong, jobjectArray, jstring},
+    JNIEnv,
+};
+use serde::{Deserialize, Serialize};
+use std::collections::{HashMap, VecDeque};
+use std::pin::Pin;
+use std::ptr;
+use std::sync::atomic::{AtomicU64, Ordering};
+use std::sync::{Arc, Condvar, Mutex, MutexGuard};
+use std::time::{Duration, Instant};
+use tokio::sync::mpsc;
+use tokio::sync::mpsc::error::TrySendError;
+use tokio::runtime::Runtime;
+use tokio::sync::Mutex as AsyncMutex;
+use tokio::task::JoinHandle;
+use tokio_stream::{Stream, StreamExt, StreamMap};
+use transcribe::transcribe::TranscribeWs;
+use tungstenite::Message;
+
+/// 会话结果流，`None` 表示该会话的结果流已结束
+type SessionStream = Pin<Box<dyn Stream<Item = Option<String>> + Send>>;
+type SharedWs = Arc<AsyncMutex<TranscribeWs>>;
+
+#[derive(Clone, Debug, Deserialize)]
+#[serde(default, rename_all = "camelCase")]
+pub struct EngineOptions {
+    /// 分发分片数，与 Java 分发线程一一对应
+    pub dispatch_threads: usize,
+    /// 每个会话写队列的最大帧数
+    pub session_queue_frames: usize,
+    /// 单帧写入的超时，超时视为连接卡死并断开该会话
+    pub write_timeout_millis: u64,
+    /// 每个分发分片缓存的最大消息数，溢出时丢弃最早的消息
+    pub event_queue_capacity: usize,
+}
+
+impl Default for EngineOptions {
+    fn default() -> Self {
+        Self {
+            dispatch_threads: 2,
+            session_queue_frames: 256,
+            write_timeout_millis: 5_000,
+            event_queue_capacity: 65_536,
+        }
+    }
+}
+
+#[derive(Serialize)]
+struct EngineStats {
+    sessions: usize,
+    queued_events: usize,
+    dropped_events: u64,
+    written_frames: u64,
+    write_errors: u64,
+    write_timeouts: u64,
+}
+
+#[derive(Default)]
+struct EventState {
+    events: VecDeque<(u64, Option<String>)>,
+    closed: bool,
+    dropped: u64,
+}
+
+/// 一个分发分片的消息队列，元素为（会话键，消息），消息为 `None` 表示会话结束。
+struct EventQueue {
+    state: Mutex<EventState>,
+    available: Condvar,
+    capacity: usize,
+}
+
+impl EventQueue {
+    fn new(capacity: usize) -> Self {
+        Self {
+            state: Mutex::new(EventState::default()),
+            available: Condvar::new(),
+            capacity: capacity.max(1),
+        }
+    }
+
+    fn push(&self, key: u64, message: Option<String>) {
+        let mut state = self.lock();
+        if state.closed {
+            return;
+        }
+        if state.events.len() >= self.capacity {
+            // 结束事件不可丢，否则 Java 端的会话永远不会收到关闭回调
+            match state.events.iter().position(|(_, m)| m.is_some()) {
+                Some(index) => {
+                    state.events.remove(index);
+                    state.dropped += 1;
+                }
+                None if message.is_some() => {
+                    state.dropped += 1;
+                    return;
+                }
+                None => {}
+            }
+        }
+        state.events.push_back((key, message));
+        drop(state);
+        self.available.notify_one();
+    }
+
+    fn drain(&self, timeout: Duration, max: usize) -> Vec<(u64, Option<String>)> {
+        let deadline = Instant::now() + timeout;
+        let mut state = self.lock();
+        while state.events.is_empty() && !state.closed {
+            let now = Instant::now();
+            if now >= deadline {
+                return Vec::new();
+            }
+            state = self
+                .available
+                .wait_timeout(state, deadline - now)
+                .unwrap_or_else(|e| e.into_inner())
+                .0;
+        }
+        let count = max.max(1).min(state.events.len());
+        state.events.drain(..count).collect()
+    }
+
+    fn close(&self) {
+        self.lock().closed = true;
+        self.available.notify_all();
+    }
+
+    fn lock(&self) -> MutexGuard<'_, EventState> {
+        self.state.lock().unwrap_or_else(|e| e.into_inner())
+    }
+}
+
+enum Control {
+    Attach(u64, SessionStream),
+    Detach(u64),
+}
+
+#[derive(Default)]
+struct Counters {
+    written_frames: AtomicU64,
+    write_errors: AtomicU64,
+    write_timeouts: AtomicU64,
+}
+
+/// 引擎中的一个会话：连接、有界写队列及其写任务。
+struct Session {
+    ws: SharedWs,
+    frames: mpsc::Sender<Message>,
+    writer: JoinHandle<()>,
+}
+
+/// 多会话引擎：所有会话共享一个读任务和分发队列；每个会话有自己的有界写队列和一个轻量写任务，
+/// 单个连接写入卡住只影响该会话。单个会话只占用连接本身、一个表项、写任务和排队中的消息。
+pub struct StreamEngine {
+    runtime: Arc<Runtime>,
+    sessions: Arc<Mutex<HashMap<u64, Session>>>,
+    control: mpsc::UnboundedSender<Control>,
+    session_queue_frames: usize,
+    write_timeout: Duration,
+    events: Arc<Vec<EventQueue>>,
+    counters: Arc<Counters>,
+    tasks: Vec<JoinHandle<()>>,
+}
+
+impl StreamEngine {
+    fn new(options: &EngineOptions) -> Result<Self, String> {
+        let runtime = rt::runtime()?;
+        let sessions: Arc<Mutex<HashMap<u64, Session>>> = Arc::default();
+        let counters: Arc<Counters> = Arc::default();
+        let events: Arc<Vec<EventQueue>> = Arc::new(
+            (0..options.dispatch_threads.max(1))
+                .map(|_| EventQueue::new(options.event_queue_capacity))
+                .collect(),
+        );
+
+        let mut tasks = Vec::new();
+        let (control, control_rx) = mpsc::unbounded_channel();
+        tasks.push(runtime.spawn(run_reader(control_rx, Arc::clone(&events))));
+
+        Ok(Self {
+            runtime,
+            sessions,
+            control,
+            session_queue_frames: options.session_queue_frames.max(1),
+            write_timeout: Duration::from_millis(options.write_timeout_millis.max(1)),
+            events,
+            counters,
+            tasks,
+        })
+    }
+
+    /// 建立连接并登记到共享读任务，`key` 由 Java 端分配，保证第一条消息到达前会话已可查到。
+    async fn open(&self, key: u64, session_id: &str) -> Result<(), Error> {
+        let mut ws = TranscribeWs::new(session_id);
+        ws.start().await?;
+        let stream = ws.subscribe()?;
+
+        let stream: SessionStream = Box::pin(
+            stream
+                .map(|item| Some(item.to_string()))
+                .chain(tokio_stream::once(None)),
+        );
+        let ws: SharedWs = Arc::new(AsyncMutex::new(ws));
+        let (frames, queue) = mpsc::channel(self.session_queue_frames);
+        let writer = self.runtime.spawn(run_writer(
+            key,
+            Arc::clone(&ws),
+            queue,
+            self.write_timeout,
+            Arc::clone(&self.events),
+            Arc::clone(&self.counters),
+        ));
+        lock(&self.sessions).insert(key, Session { ws, frames, writer });
+        if self.control.send(Control::Attach(key, stream)).is_err() {
+            let removed = lock(&self.sessions).remove(&key);
+            if let Some(session) = removed {
+                session.writer.abort();
+                session.ws.lock().await.stop();
+            }
+            return Err(Error::OtherError("Stream engine has been shut down".into()));
+        }
+        Ok(())
+    }
+
+    fn send(&self, key: u64, message: Message) -> Result<(), (&'static str, &'static str)> {
+        let sessions = lock(&self.sessions);
+        let Some(session) = sessions.get(&key) else {
+            return Err(("OTHER_ERROR", "Session has been closed"));
+        };
+        session.frames.try_send(message).map_err(|err| match err {
+            TrySendError::Full(_) => ("LIMIT_EXCEEDED", "Session write queue is full"),
+            TrySendError::Closed(_) => ("WS_ERROR", "Session connection has been closed"),
+        })
+    }
+
+    /// 不阻塞调用线程：写任务可能正卡在写入中，先终止它，再在运行时上关闭连接。
+    fn close_session(&self, key: u64) {
+        if let Some(session) = lock(&self.sessions).remove(&key) {
+            session.writer.abort();
+            let ws = session.ws;
+            self.runtime.spawn(async move { ws.lock().await.stop() });
+        }
+        let _ = self.control.send(Control::Detach(key));
+    }
+
+    fn shutdown(&self) {
+        for queue in self.events.iter() {
+            queue.close();
+        }
+    }
+
+    fn stats(&self) -> EngineStats {
+        let (queued_events, dropped_events) = self.events.iter().fold((0, 0), |acc, queue| {
+            let state = queue.lock();
+            (acc.0 + state.events.len(), acc.1 + state.dropped)
+        });
+        EngineStats {
+            sessions: lock(&self.sessions).len(),
+            queued_events,
+            dropped_events,
+            written_frames: self.counters.written_frames.load(Ordering::Relaxed),
+            write_errors: self.counters.write_errors.load(Ordering::Relaxed),
+            write_timeouts: self.counters.write_timeouts.load(Ordering::Relaxed),
+        }
+    }
+}
+
+impl Drop for StreamEngine {
+    fn drop(&mut self) {
+        self.shutdown();
+        for task in &self.tasks {
+            task.abort();
+        }
+        let sessions: Vec<Session> = lock(&self.sessions).drain().map(|(_, s)| s).collect();
+        for session in &sessions {
+            session.writer.abort();
+        }
+        // 写任务终止后连接锁随之释放
+        for session in sessions {
+            session.ws.blocking_lock().stop();
+        }
+    }
+}
+
+fn lock<T>(mutex: &Mutex<T>) -> MutexGuard<'_, T> {
+    mutex.lock().unwrap_or_else(|e| e.into_inner())
+}
+
+fn dispatch_shard(events: &[EventQueue], key: u64) -> &EventQueue {
+    &events[key as usize % events.len()]
+}
+
+/// 共享读任务：轮询所有会话的结果流，按会话键分发到对应分片。
+async fn run_reader(mut control: mpsc::UnboundedReceiver<Control>, events: Arc<Vec<EventQueue>>) {
+    let mut streams: StreamMap<u64, SessionStream> = StreamMap::new();
+    loop {
+        tokio::select! {
+            command = control.recv() => match command {
+                Some(Control::Attach(key, stream)) => {
+                    streams.insert(key, stream);
+                }
+                Some(Control::Detach(key)) => {
+                    if streams.remove(&key).is_some() {
+                        dispatch_shard(&events, key).push(key, None);
+                    }
+                }
+                None => break,
+            },
+            Some((key, message)) = streams.next(), if !streams.is_empty() => {
+                dispatch_shard(&events, key).push(key, message);
+            }
+        }
+    }
+}
+
+/// 会话写任务：按入队顺序写出该会话的帧。写入失败以错误消息投递给该会话后继续；
+/// 单帧写入超过 `timeout` 视为连接卡死，断开连接后退出，之后的发送抛出异常。
+async fn run_writer(
+    key: u64,
+    ws: SharedWs,
+    mut queue: mpsc::Receiver<Message>,
+    timeout: Duration,
+    events: Arc<Vec<EventQueue>>,
+    counters: Arc<Counters>,
+) {
+    while let Some(message) = queue.recv().await {
+        let result = tokio::time::timeout(timeout, async { ws.lock().await.write(message).await });
+        let (code, message, timed_out) = match result.await {
+            Ok(Ok(())) => {
+                counters.written_frames.fetch_add(1, Ordering::Relaxed);
+                continue;
+            }
+            Ok(Err(err)) => (map_error_code(&err), err.to_string(), false),
+            Err(_) => ("TIMEOUT", "WebSocket write timed out".to_string(), true),
+        };
+        counters.write_errors.fetch_add(1, Ordering::Relaxed);
+        // 以错误消息的形式投递给该会话，Java 端按 StreamEvent 的 ERROR 处理
+        let payload = serde_json::json!({ "type": "error", "code": code, "message": message });
+        dispatch_shard(&events, key).push(key, Some(payload.to_string()));
+        if timed_out {
+            counters.write_timeouts.fetch_add(1, Ordering::Relaxed);
+            // 超时取消了写入并释放了连接锁；断开后读任务结束该会话的结果流
+            ws.lock().await.stop();
+            break;
+        }
+    }
+}
+
+unsafe fn engine_ptr(handle: jlong) -> Result<&'static StreamEngine, String> {
+    if handle == 0 {
+        return Err("Stream engine handle is null".into());
+    }
+    Ok(&*(handle as *const StreamEngine))
+}
+
+macro_rules! engine_or_throw {
+    ($env:expr, $handle:expr, $ret:expr) => {
+        match unsafe { engine_ptr($handle) } {
+            Ok(engine) => engine,
+            Err(err) => {
+                let _ = throw_message($env, err);
+                return $ret;
+            }
+        }
+    };
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativeCreate(
+    mut env: JNIEnv,
+    _class: JClass,
+    options: JString,
+) -> jlong {
+    let json = match jstring_to_rust(&mut env, options) {
+        Ok(value) => value,
+        Err(err) => {
+            throw_string_error(&mut env, err);
+            return 0;
+        }
+    };
+    let options = match serde_json::from_str::<EngineOptions>(&json) {
+        Ok(options) => options,
+        Err(err) => {
+            let _ = throw_with_code(&mut env, "JSON_ERROR", format!("Invalid options: {err}"));
+            return 0;
+        }
+    };
+
+    match StreamEngine::new(&options) {
+        Ok(engine) => Box::into_raw(Box::new(engine)) as jlong,
+        Err(err) => {
+            let _ = throw_message(&mut env, err);
+            0
+        }
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativeShutdown(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) {
+    engine_or_throw!(&mut env, handle, ()).shutdown();
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativeDestroy(
+    _env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) {
+    if handle != 0 {
+        drop(unsafe { Box::from_raw(handle as *mut StreamEngine) });
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativeOpen(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    key: jlong,
+    session_id: JString,
+) {
+    let engine = engine_or_throw!(&mut env, handle, ());
+    let session_id = match jstring_to_rust(&mut env, session_id) {
+        Ok(value) => value,
+        Err(err) => {
+            throw_string_error(&mut env, err);
+            return;
+        }
+    };
+    let runtime = match rt::runtime() {
+        Ok(runtime) => runtime,
+        Err(err) => {
+            let _ = throw_message(&mut env, err);
+            return;
+        }
+    };
+
+    if let Err(err) = runtime.block_on(engine.open(key as u64, &session_id)) {
+        let _ = throw_common_error(&mut env, &err);
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativeClose(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    key: jlong,
+) {
+    engine_or_throw!(&mut env, handle, ()).close_session(key as u64);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativeSendBinary(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    key: jlong,
+    data: JByteArray,
+    offset: jint,
+    length: jint,
+) {
+    let engine = engine_or_throw!(&mut env, handle, ());
+    let mut frame = vec![0u8; length as usize];
+    let target = unsafe { &mut *(&mut frame[..] as *mut [u8] as *mut [i8]) };
+    if let Err(err) = env.get_byte_array_region(&data, offset, target) {
+        let _ = throw_jni_error(&mut env, &err);
+        return;
+    }
+    if let Err((code, message)) = engine.send(key as u64, Message::Binary(Bytes::from(frame))) {
+        let _ = throw_with_code(&mut env, code, message);
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativeSendText(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    key: jlong,
+    text: JString,
+) {
+    let engine = engine_or_throw!(&mut env, handle, ());
+    let text = match jstring_to_rust(&mut env, text) {
+        Ok(value) => value,
+        Err(err) => {
+            throw_string_error(&mut env, err);
+            return;
+        }
+    };
+    if let Err((code, message)) = engine.send(key as u64, Message::Text(text.into())) {
+        let _ = throw_with_code(&mut env, code, message);
+    }
+}
+
+/// 取出分片 `shard` 中最多 `keys.length` 条消息：会话键写入 `keys`，返回等长的消息数组，
+/// 元素为 `null` 表示该会话已结束。
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativePoll(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    shard: jint,
+    keys: JLongArray,
+    timeout_millis: jlong,
+) -> jobjectArray {
+    let engine = engine_or_throw!(&mut env, handle, ptr::null_mut());
+    let Some(queue) = engine.events.get(shard as usize) else {
+        let _ = throw_with_code(&mut env, "INVALID_INPUT", "Dispatch shard out of range");
+        return ptr::null_mut();
+    };
+    let max = match env.get_array_length(&keys) {
+        Ok(len) => len as usize,
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return ptr::null_mut();
+        }
+    };
+
+    let batch = queue.drain(Duration::from_millis(timeout_millis.max(0) as u64), max);
+    let ids: Vec<jlong> = batch.iter().map(|(key, _)| *key as jlong).collect();
+    if let Err(err) = env.set_long_array_region(&keys, 0, &ids) {
+        let _ = throw_jni_error(&mut env, &err);
+        return ptr::null_mut();
+    }
+
+    let len = batch.len() as i32;
+    let array = match env.new_object_array(len, "java/lang/String", JObject::null()) {
+        Ok(array) => array,
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return ptr::null_mut();
+        }
+    };
+    for (index, (_, message)) in batch.into_iter().enumerate() {
+        let Some(message) = message else {
+            continue;
+        };
+        let value = match env.new_string(message) {
+            Ok(value) => value,
+            Err(err) => {
+                let _ = throw_jni_error(&mut env, &err);
+                return ptr::null_mut();
+            }
+        };
+        let stored = env.set_object_array_element(&array, index as i32, &value);
+        let _ = env.delete_local_ref(value);
+        if let Err(err) = stored {
+            let _ = throw_jni_error(&mut env, &err);
+            return ptr::null_mut();
+        }
+    }
+    array.into_raw()
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_StreamEngine_nativeStats(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jstring {
+    let stats = engine_or_throw!(&mut env, handle, ptr::null_mut()).stats();
+    to_jstring(&mut env, 0, stats)
+}
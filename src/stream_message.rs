@@ -0,0 +1,188 @@
+//! 实时转写推送消息的字段约定。
+//!
+//! 服务端推送的是 JSON 文本，SDK 只关心其中的分段字段，与录音转写结果 `TranscribeApi.Utterance`
+//! 相同：`text`、`start_time`/`end_time`（秒）、`speaker`，外加消息类型、分段序号、定稿标记与错误信息。
+//! 这里是唯一的解析位置：读任务对每条消息解析一次，结果队列、自动重连、延迟统计共用解析结果，
+//! 并随原文一起交给 Java 构造 `StreamEvent`，字段的兼容写法也只在这里维护。
+
+use serde_json::{Map, Value};
+
+/// 消息类型，顺序与 Java `StreamEvent.Type` 一致，构造 Java 事件时按序号传递。
+#[derive(Clone, Copy, Debug, PartialEq, Eq)]
+pub enum Kind {
+    /// 中间结果，后续会被同一分段的新结果替换
+    Partial,
+    Final,
+    Error,
+    SessionEnd,
+    Unknown,
+}
+
+/// 一条推送消息中 SDK 关心的字段，消息中没有的字段为 `None`。
+#[derive(Debug)]
+pub struct StreamMessage {
+    pub kind: Kind,
+    pub text: Option<String>,
+    pub segment_id: Option<i64>,
+    pub start_time: Option<f64>,
+    /// 分段结束时间（秒），只取分段本身的字段，不会取到 `words` 等数组里的词级时间
+    pub end_time: Option<f64>,
+    pub speaker: Option<i64>,
+    pub code: Option<String>,
+    pub message: Option<String>,
+}
+
+/// 分段字段可能直接位于顶层，也可能包在一层或两层 `data`/`result`/`payload` 对象中
+const MAX_DEPTH: usize = 2;
+
+const TYPE_KEYS: [&str; 4] = ["type", "event", "action", "msg_type"];
+const TEXT_KEYS: [&str; 3] = ["text", "sentence", "transcript"];
+const FINAL_KEYS: [&str; 4] = ["is_final", "final", "definite", "sentence_end"];
+const SEGMENT_KEYS: [&str; 4] = ["seg_id", "segment_id", "sentence_id", "index"];
+const START_KEYS: [&str; 2] = ["start_time", "begin_time"];
+const SPEAKER_KEYS: [&str; 2] = ["speaker", "speaker_id"];
+const CODE_KEYS: [&str; 2] = ["code", "error_code"];
+const MESSAGE_KEYS: [&str; 2] = ["message", "msg"];
+const NESTED_KEYS: [&str; 3] = ["data", "result", "payload"];
+
+const FINAL_TYPES: [&str; 3] = ["final", "sentence", "sentence_end"];
+const SESSION_END_TYPES: [&str; 11] = [
+    "end",
+    "finish",
+    "finished",
+    "close",
+    "closed",
+    "stop",
+    "stopped",
+    "complete",
+    "completed",
+    "session_end",
+    "task_finished",
+];
+const SUCCESS_CODES: [&str; 4] = ["0", "200", "ok", "success"];
+
+#[derive(Default)]
+struct Fields {
+    kind: Option<String>,
+    text: Option<String>,
+    is_final: Option<bool>,
+    segment_id: Option<i64>,
+    start_time: Option<f64>,
+    end_time: Option<f64>,
+    speaker: Option<i64>,
+    code: Option<String>,
+    message: Option<String>,
+}
+
+impl StreamMessage {
+    /// 解析一条推送消息，不是 JSON 对象时返回 [`Kind::Unknown`]。
+    pub fn parse(json: &str) -> Self {
+        let mut fields = Fields::default();
+        if let Ok(Value::Object(object)) = serde_json::from_str::<Value>(json) {
+            collect(&object, &mut fields, 0);
+        }
+        let kind = classify(&fields);
+        Self {
+            kind,
+            text: fields.text,
+            segment_id: fields.segment_id,
+            start_time: fields.start_time,
+            end_time: fields.end_time,
+            speaker: fields.speaker,
+            code: fields.code,
+            message: fields.message,
+        }
+    }
+}
+
+/// 外层字段优先；嵌套对象只补充外层没有的字段。
+fn collect(object: &Map<String, Value>, fields: &mut Fields, depth: usize) {
+    fill(&mut fields.kind, object, &TYPE_KEYS, as_string);
+    fill(&mut fields.text, object, &TEXT_KEYS, |value| value.as_str().map(str::to_owned));
+    fill(&mut fields.is_final, object, &FINAL_KEYS, as_bool);
+    fill(&mut fields.segment_id, object, &SEGMENT_KEYS, as_i64);
+    fill(&mut fields.start_time, object, &START_KEYS, as_f64);
+    fill(&mut fields.end_time, object, &["end_time"], as_f64);
+    fill(&mut fields.speaker, object, &SPEAKER_KEYS, as_i64);
+    fill(&mut fields.code, object, &CODE_KEYS, as_string);
+    fill(&mut fields.message, object, &MESSAGE_KEYS, as_string);
+
+    // error 可能是对象、描述字符串或布尔标记
+    match object.get("error") {
+        Some(Value::Object(inner)) if depth < MAX_DEPTH => {
+            collect(inner, fields, depth + 1);
+            fields.kind.get_or_insert_with(|| "error".into());
+        }
+        Some(Value::String(error)) if !error.is_empty() => {
+            fields.message.get_or_insert_with(|| error.clone());
+            fields.kind.get_or_insert_with(|| "error".into());
+        }
+        _ => {}
+    }
+
+    if depth < MAX_DEPTH {
+        for key in NESTED_KEYS {
+            if let Some(Value::Object(inner)) = object.get(key) {
+                collect(inner, fields, depth + 1);
+            }
+        }
+    }
+}
+
+fn fill<T>(
+    slot: &mut Option<T>,
+    object: &Map<String, Value>,
+    keys: &[&str],
+    read: fn(&Value) -> Option<T>,
+) {
+    if slot.is_none() {
+        *slot = keys.iter().filter_map(|key| object.get(*key)).find_map(read);
+    }
+}
+
+fn classify(fields: &Fields) -> Kind {
+    let kind = fields.kind.as_deref().unwrap_or_default().to_ascii_lowercase();
+    if kind.contains("error") || kind.contains("fail") {
+        return Kind::Error;
+    }
+    if SESSION_END_TYPES.contains(&kind.as_str()) {
+        return Kind::SessionEnd;
+    }
+    if fields.text.is_some() {
+        let is_final = fields.is_final.unwrap_or_else(|| FINAL_TYPES.contains(&kind.as_str()));
+        return if is_final { Kind::Final } else { Kind::Partial };
+    }
+    match &fields.code {
+        Some(code) if !SUCCESS_CODES.contains(&code.to_ascii_lowercase().as_str()) => Kind::Error,
+        _ => Kind::Unknown,
+    }
+}
+
+fn as_string(value: &Value) -> Option<String> {
+    match value {
+        Value::String(text) => Some(text.clone()),
+        Value::Number(number) => Some(number.to_string()),
+        _ => None,
+    }
+}
+
+fn as_i64(value: &Value) -> Option<i64> {
+    as_f64(value).map(|v| v as i64)
+}
+
+fn as_bool(value: &Value) -> Option<bool> {
+    match value {
+        Value::Bool(flag) => Some(*flag),
+        Value::Number(number) => number.as_f64().map(|v| v != 0.0),
+        Value::String(text) => Some(text.eq_ignore_ascii_case("true") || text == "1"),
+        _ => None,
+    }
+}
+
+fn as_f64(value: &Value) -> Option<f64> {
+    match value {
+        Value::Number(number) => number.as_f64(),
+        Value::String(text) => text.trim().parse().ok(),
+        _ => None,
+    }
+}
@@ -1,41 +1,211 @@
-use crate::error::{throw_common_error, throw_jni_error, throw_message};
+use crate::call_context::{
+    context_ref, metrics_start, record, record_elapsed, record_marshal, run_cancellable, Metric,
+};
+use crate::capture::{self, Capture, RecordKind, SharedCapture};
+use crate::error::{
+    map_error_code, throw_common_error, throw_jni_error, throw_message, throw_with_code,
+};
+use crate::lag::{LagOptions, LagTracker};
 use crate::runtime as rt;
+use crate::reconnect::{ReconnectOptions, Reconnector};
+use crate::result_queue::{Overflowed, Received, ResultQueue, ResultQueueOptions};
+use crate::send_queue::{SendQueue, SendQueueOptions};
+use crate::stream_message::{Kind, StreamMessage};
 use crate::utils::{
     block_on_result, jstring_to_rust, parse_model_type, throw_common, throw_string_error,
     to_jstring,
 };
 use common::Error;
+use once_cell::sync::OnceCell;
+use bytes::{Bytes, BytesMut};
 use jni::{
-    objects::{JByteArray, JClass, JString},
-    sys::{jlong, jstring},
-    JNIEnv,
+    objects::{
+        GlobalRef, JByteArray, JByteBuffer, JClass, JLongArray, JMethodID, JObject, JObjectArray,
+        JString, JValue,
+    },
+    sys::{jboolean, jbyte, jint, jlong, jobject, jobjectArray, jstring, JNI_FALSE, JNI_TRUE},
+    JNIEnv, JavaVM,
 };
 use std::future::Future;
 use std::sync::MutexGuard;
 use std::{
     ptr,
-    sync::{mpsc, Arc, Mutex},
+    sync::{
+        atomic::{AtomicBool, Ordering},
+        Arc, Mutex,
+    },
     time::Duration,
 };
+use tokio::runtime::Runtime;
+use tokio::sync::{Mutex as AsyncMutex, Semaphore};
 use tokio::task::JoinHandle;
 use tokio_stream::StreamExt;
 use transcribe::transcribe::{close_session, create_session, TranscribeWs};
+use serde::Deserialize;
+use tungstenite::protocol::frame::coding::CloseCode;
 use tungstenite::Message;
 
 type StreamHandle = Mutex<JniTranscribeStream>;
 
+/// 帧缓冲每次预留的最小容量，多帧共用一次分配
+const SCRATCH_CHUNK: usize = 64 * 1024;
+
+/// Java `StreamOptions` 序列化后的创建参数。
+#[derive(Default, Deserialize)]
+#[serde(default)]
+struct StreamOptions {
+    #[serde(flatten)]
+    send: SendQueueOptions,
+    #[serde(flatten)]
+    results: ResultQueueOptions,
+    #[serde(flatten)]
+    reconnect: ReconnectOptions,
+    #[serde(flatten)]
+    lag: LagOptions,
+}
+type SharedNotifier = Arc<Mutex<Option<Notifier>>>;
+
+/// 结果到达时回调 Java 订阅分发器的 `onNativeSignal()`，Tokio 线程以守护线程身份附加到 JVM。
+struct Notifier {
+    vm: JavaVM,
+    target: GlobalRef,
+}
+
+impl Notifier {
+    fn signal(&self) {
+        if let Ok(mut env) = self.vm.attach_current_thread_as_daemon() {
+            if env.call_method(&self.target, "onNativeSignal", "()V", &[]).is_err() {
+                let _ = env.exception_clear();
+            }
+        }
+    }
+}
+
+impl Notifier {
+    /// 回调 `onNativeClosed`，局部引用在回调返回后随帧释放；`outcome` 的错误为（错误码，原因）。
+    fn closed<T: serde::Serialize>(
+        &self,
+        index: jint,
+        call: jlong,
+        outcome: Result<T, (&'static str, String)>,
+    ) {
+        let Ok(mut env) = self.vm.attach_current_thread_as_daemon() else {
+            return;
+        };
+        let serialize_start = metrics_start(call);
+        let (json, code, message) = match outcome {
+            Ok(value) => match serde_json::to_string(&value) {
+                Ok(json) => {
+                    record_elapsed(call, Metric::Serialize, serialize_start);
+                    record(call, Metric::ResponseBytes, json.len() as i64);
+                    (Some(json), None, None)
+                }
+                Err(err) => (None, Some("JSON_ERROR"), Some(err.to_string())),
+            },
+            Err((code, message)) => (None, Some(code), Some(message)),
+        };
+        let result = env.with_local_frame(4, |env| -> jni::errors::Result<()> {
+            let json = optional_string(env, json.as_deref())?;
+            let code = optional_string(env, code)?;
+            let message = optional_string(env, message.as_deref())?;
+            env.call_method(
+                &self.target,
+                "onNativeClosed",
+                "(ILjava/lang/String;Ljava/lang/String;Ljava/lang/String;)V",
+                &[
+                    JValue::Int(index),
+                    JValue::Object(&json),
+                    JValue::Object(&code),
+                    JValue::Object(&message),
+                ],
+            )?;
+            Ok(())
+        });
+        if result.is_err() {
+            let _ = env.exception_clear();
+        }
+    }
+}
+
+fn optional_string<'a>(
+    env: &mut JNIEnv<'a>,
+    value: Option<&str>,
+) -> jni::errors::Result<JObject<'a>> {
+    match value {
+        Some(value) => Ok(env.new_string(value)?.into()),
+        None => Ok(JObject::null()),
+    }
+}
+
+fn read_string_array(env: &mut JNIEnv, array: &JObjectArray) -> jni::errors::Result<Vec<String>> {
+    let len = env.get_array_length(array)?;
+    let mut values = Vec::with_capacity(len as usize);
+    for i in 0..len {
+        let element = JString::from(env.get_object_array_element(array, i)?);
+        values.push(env.get_string(&element)?.into());
+        env.delete_local_ref(element)?;
+    }
+    Ok(values)
+}
+
+fn notify(listener: &SharedNotifier) {
+    if let Ok(guard) = listener.lock() {
+        if let Some(notifier) = guard.as_ref() {
+            notifier.signal();
+        }
+    }
+}
+
 pub struct JniTranscribeStream {
-    ws: TranscribeWs,
+    /// 异步发送时由后台写任务与控制线程共享
+    ws: Arc<AsyncMutex<TranscribeWs>>,
     reader: Option<JoinHandle<()>>,
-    messages_rx: Option<Arc<Mutex<mpsc::Receiver<String>>>>,
+    /// 服务端推送结果的有界队列，每次 start 重新创建
+    results: Option<Arc<ResultQueue>>,
+    result_options: ResultQueueOptions,
+    /// 音频帧缓冲：按块预留容量，每帧从中切出一段，切完或旧帧仍被队列持有时另分配新块
+    scratch: BytesMut,
+    /// 开启异步发送时的发送队列
+    queue: Option<Arc<SendQueue>>,
+    writer: Option<JoinHandle<()>>,
+    /// 推送模式下的结果通知目标
+    listener: SharedNotifier,
+    /// 服务端结果流已经结束
+    finished: Arc<AtomicBool>,
+    /// 开启自动重连时的重连状态与音频重放缓冲
+    reconnect: Option<Arc<Reconnector>>,
+    /// 抓包文件，记录发送的音频与收到的消息
+    capture: SharedCapture,
+    /// 音频到结果的延迟统计
+    lag: Option<Arc<LagTracker>>,
 }
 
 impl JniTranscribeStream {
-    fn new(session_id: &str) -> Self {
+    fn new(session_id: &str, options: &StreamOptions) -> Self {
+        let queue = if options.send.async_send {
+            Some(Arc::new(SendQueue::new(&options.send)))
+        } else {
+            None
+        };
+        let reconnect = if options.reconnect.auto_reconnect {
+            Some(Arc::new(Reconnector::new(session_id, &options.reconnect)))
+        } else {
+            None
+        };
+
         Self {
-            ws: TranscribeWs::new(session_id),
+            ws: Arc::new(AsyncMutex::new(TranscribeWs::new(session_id))),
             reader: None,
-            messages_rx: None,
+            results: None,
+            result_options: options.results.clone(),
+            scratch: BytesMut::new(),
+            queue,
+            writer: None,
+            listener: Arc::new(Mutex::new(None)),
+            finished: Arc::new(AtomicBool::new(false)),
+            reconnect,
+            capture: Arc::new(Mutex::new(None)),
+            lag: options.lag.lag_metrics.then(|| Arc::new(LagTracker::new())),
         }
     }
 
@@ -46,80 +216,266 @@ impl JniTranscribeStream {
 
         let runtime = rt::runtime().map_err(Error::OtherError)?;
 
-        self.ws.start().await?;
-        let stream = self.ws.subscribe()?;
+        let stream = {
+            let mut ws = self.ws.lock().await;
+            ws.start().await?;
+            ws.subscribe()?
+        };
+
+        let results = Arc::new(ResultQueue::new(&self.result_options));
+        self.results = Some(Arc::clone(&results));
 
-        let (tx, rx) = mpsc::channel::<String>();
-        let receiver = Arc::new(Mutex::new(rx));
-        self.messages_rx = Some(Arc::clone(&receiver));
+        let ws = Arc::clone(&self.ws);
+        let listener = Arc::clone(&self.listener);
+        let finished = Arc::clone(&self.finished);
+        finished.store(false, Ordering::Release);
+        let reconnect = self.reconnect.clone();
+        if let Some(reconnect) = &reconnect {
+            reconnect.reset();
+        }
+        let capture = Arc::clone(&self.capture);
+        let lag = self.lag.clone();
+        if let Some(lag) = &lag {
+            lag.reset();
+        }
 
         let handle = runtime.spawn(async move {
             let mut stream = stream;
-            while let Some(item) = stream.next().await {
-                if tx.send(item.to_string()).is_err() {
+            loop {
+                // 服务端以正常关闭码结束会话或结果溢出断开时不重连，只有异常断开才重连
+                let mut ended = false;
+                while let Some(item) = stream.next().await {
+                    if let Message::Close(frame) = &item {
+                        ended = !frame.as_ref().is_some_and(|f| is_retryable_close(f.code));
+                    }
+                    let message = item.to_string();
+                    capture::record(&capture, RecordKind::MessageReceived, message.as_bytes());
+                    // 每条消息只解析一次，延迟统计、重连确认、结果队列与 Java StreamEvent 共用解析结果
+                    let parsed = StreamMessage::parse(&message);
+                    if let Some(lag) = &lag {
+                        lag.received(&parsed);
+                    }
+                    if let (Some(reconnect), Kind::Final) = (&reconnect, parsed.kind) {
+                        if let Some(end_time) = parsed.end_time {
+                            reconnect.ack(end_time);
+                        }
+                    }
+                    if !results.push(message, parsed) {
+                        // DISCONNECT 策略下溢出：断开连接，读线程取完已缓存的消息后收到错误
+                        ws.lock().await.stop();
+                        ended = true;
+                        break;
+                    }
+                    notify(&listener);
+                }
+
+                let Some(reconnect) = reconnect.as_ref().filter(|_| !ended) else {
                     break;
+                };
+                reconnect.begin();
+                let mut resumed = None;
+                for attempt in 0..reconnect.max_attempts() {
+                    tokio::time::sleep(reconnect.backoff(attempt)).await;
+                    reconnect.record_attempt();
+
+                    let mut fresh = TranscribeWs::new(reconnect.session_id());
+                    let subscribed = match fresh.start().await {
+                        Ok(()) => fresh.subscribe(),
+                        Err(err) => Err(err),
+                    };
+                    let Ok(subscribed) = subscribed else {
+                        continue;
+                    };
+
+                    // 只在换连接时持有连接锁；补发的音频挂在重连状态上，
+                    // 之后任何一方写连接前都先逐帧取完，新音频因此排在补发数据之后
+                    let (frames, bytes) = {
+                        let mut current = ws.lock().await;
+                        current.stop();
+                        *current = fresh;
+                        reconnect.prepare_replay()
+                    };
+                    let mut replayed = true;
+                    loop {
+                        let mut current = ws.lock().await;
+                        let Some(frame) = reconnect.next_replay() else {
+                            break;
+                        };
+                        if current.write(Message::Binary(frame)).await.is_err() {
+                            replayed = false;
+                            break;
+                        }
+                    }
+
+                    if replayed {
+                        reconnect.succeed(frames, bytes);
+                        resumed = Some(subscribed);
+                        break;
+                    }
+                }
+
+                match resumed {
+                    Some(next) => stream = next,
+                    None => {
+                        reconnect.give_up();
+                        break;
+                    }
                 }
             }
+            // 任何退出路径都让重连进入终止状态，之后的写入错误如实抛给调用方
+            if let Some(reconnect) = &reconnect {
+                reconnect.close();
+            }
+            results.close();
+            finished.store(true, Ordering::Release);
+            notify(&listener);
         });
 
         self.reader = Some(handle);
 
+        if let Some(queue) = &self.queue {
+            queue.reopen();
+            let ws = Arc::clone(&self.ws);
+            let queue = Arc::clone(queue);
+            let reconnect = self.reconnect.clone();
+            self.writer = Some(runtime.spawn(run_writer(ws, queue, reconnect, self.lag.clone())));
+        }
+
         Ok(())
     }
 
     fn stop(&mut self) {
-        self.ws.stop();
-
+        // 先终止读任务（含进行中的重连与补发）和写任务，再关闭连接，stop 不需要等待网络
         if let Some(handle) = self.reader.take() {
             handle.abort();
         }
+        if let Some(reconnect) = &self.reconnect {
+            reconnect.close();
+        }
+        if let Some(queue) = &self.queue {
+            queue.close();
+        }
+        if let Some(handle) = self.writer.take() {
+            handle.abort();
+        }
+
+        self.ws.blocking_lock().stop();
 
-        self.messages_rx.take();
+        // 唤醒阻塞在 readNext 上的 Java 线程，让 close 能拿到句柄写锁
+        if let Some(results) = self.results.take() {
+            results.close();
+        }
     }
 
-    async fn write_binary(&mut self, payload: Vec<u8>) -> Result<(), Error> {
-        self.ws.write(Message::Binary(payload.into())).await
+    async fn write(&self, message: Message) -> Result<(), Error> {
+        write_ordered(&self.ws, self.reconnect.as_deref(), message).await
     }
 
-    async fn write_text(&mut self, text: String) -> Result<(), Error> {
-        self.ws.write(Message::Text(text.into())).await
+    /// 让 `fill` 把 `len` 字节写入缓冲的空闲容量（不做清零）并切出一帧。
+    ///
+    /// `fill` 收到的指针至少有 `len` 字节可写，返回 `Ok` 时必须已写满 `len` 字节。
+    fn fill_frame<F>(&mut self, len: usize, fill: F) -> Result<Bytes, jni::errors::Error>
+    where
+        F: FnOnce(*mut u8) -> Result<(), jni::errors::Error>,
+    {
+        self.scratch.clear();
+        if self.scratch.capacity() < len {
+            // 之前切出的帧都已释放时 reserve 会原地回收，否则分配新块
+            self.scratch.reserve(len.max(SCRATCH_CHUNK));
+        }
+        fill(self.scratch.spare_capacity_mut().as_mut_ptr().cast())?;
+        // SAFETY: 容量至少为 len，且 fill 成功时已写入 len 字节
+        unsafe { self.scratch.set_len(len) };
+        Ok(self.scratch.split().freeze())
     }
 
-    fn clone_receiver(&self) -> Result<Arc<Mutex<mpsc::Receiver<String>>>, Error> {
-        self.messages_rx
+    fn results(&self) -> Result<Arc<ResultQueue>, Error> {
+        self.results
             .as_ref()
             .map(Arc::clone)
             .ok_or_else(|| Error::OtherError("WebSocket stream has not been started".into()))
     }
+}
 
-    fn wait_for_message(
-        receiver: Arc<Mutex<mpsc::Receiver<String>>>,
-        timeout: Option<Duration>,
-    ) -> Result<Option<String>, Error> {
-        let maybe_message = {
-            let receiver = receiver
-                .lock()
-                .map_err(|_| Error::OtherError("Failed to lock receiver".into()))?;
-            match timeout {
-                Some(duration) => match receiver.recv_timeout(duration) {
-                    Ok(msg) => Some(msg),
-                    Err(mpsc::RecvTimeoutError::Timeout) => None,
-                    Err(mpsc::RecvTimeoutError::Disconnected) => None,
-                },
-                None => match receiver.recv() {
-                    Ok(msg) => Some(msg),
-                    Err(_) => None,
-                },
-            }
-        };
+/// 服务端要求稍后重试或异常关闭的关闭码，其余关闭码视为会话正常结束。
+fn is_retryable_close(code: CloseCode) -> bool {
+    matches!(
+        code,
+        CloseCode::Away
+            | CloseCode::Abnormal
+            | CloseCode::Error
+            | CloseCode::Restart
+            | CloseCode::Again
+    )
+}
 
-        Ok(maybe_message)
+/// 写出一条消息。开启自动重连时先记录音频帧，并先写完重连后尚未补发的音频；
+/// 每次加锁只写一帧，补发期间 stop 不会被长时间挡住。
+async fn write_ordered(
+    ws: &AsyncMutex<TranscribeWs>,
+    reconnect: Option<&Reconnector>,
+    message: Message,
+) -> Result<(), Error> {
+    let mut current = ws.lock().await;
+    let Some(reconnect) = reconnect else {
+        return current.write(message).await;
+    };
+    if let Message::Binary(frame) = &message {
+        reconnect.record(frame);
+    }
+    while let Some(frame) = reconnect.next_replay() {
+        current.write(Message::Binary(frame)).await?;
+        drop(current);
+        current = ws.lock().await;
+    }
+    current.write(message).await
+}
+
+/// 异步发送的后台写任务，出错后记录错误并退出，由下一次发送抛给调用方。
+/// 开启自动重连时写入失败的帧已在重放缓冲中，等待重连完成后继续发送后续帧。
+async fn run_writer(
+    ws: Arc<AsyncMutex<TranscribeWs>>,
+    queue: Arc<SendQueue>,
+    reconnect: Option<Arc<Reconnector>>,
+    lag: Option<Arc<LagTracker>>,
+) {
+    while let Some(message) = queue.pop().await {
+        let len = message.len();
+        let lag = lag.as_ref().filter(|_| message.is_binary());
+        let generation = reconnect.as_ref().map_or(0, |r| r.generation());
+        let result = write_ordered(&ws, reconnect.as_deref(), message).await;
+        match result {
+            Ok(()) => {
+                queue.complete(len);
+                if let Some(lag) = lag {
+                    lag.written();
+                }
+            }
+            Err(err) => {
+                if let Some(reconnect) = &reconnect {
+                    // 失败的帧已在重放缓冲中，随重连补发
+                    if reconnect.wait_newer(generation).await {
+                        queue.complete(len);
+                        if let Some(lag) = lag {
+                            lag.written();
+                        }
+                        continue;
+                    }
+                }
+                queue.fail(map_error_code(&err), err.to_string());
+                break;
+            }
+        }
     }
 }
 
 impl Drop for JniTranscribeStream {
     fn drop(&mut self) {
         self.stop();
+        let capture = self.capture.lock().unwrap_or_else(|e| e.into_inner()).take();
+        if let Some(capture) = capture {
+            let _ = capture.finish();
+        }
     }
 }
 
@@ -129,6 +485,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeCreateSession(
     _class: JClass,
     model: JString,
     token: JString,
+    call: jlong,
 ) -> jstring {
     let model = match jstring_to_rust(&mut env, model) {
         Ok(value) => value,
@@ -145,12 +502,12 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeCreateSession(
         Err(err) => return throw_common(&mut env, &err),
     };
 
-    let response = match block_on_result(&mut env, create_session(model, &token)) {
+    let response = match block_on_result(&mut env, call, create_session(model, &token)) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
 }
 
 #[no_mangle]
@@ -160,6 +517,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeCloseSession(
     task_id: JString,
     token: JString,
     timeout_seconds: jlong,
+    call: jlong,
 ) -> jstring {
     let task_id = match jstring_to_rust(&mut env, task_id) {
         Ok(value) => value,
@@ -177,12 +535,102 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeCloseSession(
         Some(timeout_seconds as u64)
     };
 
-    let response = match block_on_result(&mut env, close_session(&task_id, &token, timeout)) {
+    let response = match block_on_result(&mut env, call, close_session(&task_id, &token, timeout)) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
+}
+
+/// 在运行时中并发关闭一批会话，同时进行的请求不超过 `concurrency`，调用线程不等待。
+///
+/// `calls[i]` 是第 i 个会话的 `CallScope` 调用句柄，提供截止时间、取消与指标，由 Java 在回调后释放。
+/// 每个会话完成时在 Tokio 线程上回调
+/// `target.onNativeClosed(int index, String json, String code, String message)`，
+/// 成功时 `json` 为响应，失败时 `code`/`message` 为错误码与原因。
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeCloseSessionsAsync(
+    mut env: JNIEnv,
+    _class: JClass,
+    task_ids: JObjectArray,
+    token: JString,
+    timeout_seconds: jlong,
+    concurrency: jint,
+    calls: JLongArray,
+    target: JObject,
+) {
+    let runtime = match rt::runtime() {
+        Ok(runtime) => runtime,
+        Err(err) => {
+            let _ = throw_message(&mut env, err);
+            return;
+        }
+    };
+    let token = match jstring_to_rust(&mut env, token) {
+        Ok(value) => value,
+        Err(err) => {
+            throw_string_error(&mut env, err);
+            return;
+        }
+    };
+    let ids = match read_string_array(&mut env, &task_ids) {
+        Ok(ids) => ids,
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return;
+        }
+    };
+    let mut handles = vec![0; ids.len()];
+    if let Err(err) = env.get_long_array_region(&calls, 0, &mut handles) {
+        let _ = throw_jni_error(&mut env, &err);
+        return;
+    }
+    let callback = match env.get_java_vm() {
+        Ok(vm) => match env.new_global_ref(target) {
+            Ok(target) => Arc::new(Notifier { vm, target }),
+            Err(err) => {
+                let _ = throw_jni_error(&mut env, &err);
+                return;
+            }
+        },
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return;
+        }
+    };
+
+    let timeout = (timeout_seconds >= 0).then_some(timeout_seconds as u64);
+    let permits = Arc::new(Semaphore::new(concurrency.max(1) as usize));
+    let token: Arc<str> = token.into();
+    for (index, (task_id, call)) in ids.into_iter().zip(handles).enumerate() {
+        let permits = Arc::clone(&permits);
+        let token = Arc::clone(&token);
+        let callback = Arc::clone(&callback);
+        runtime.spawn(async move {
+            // SAFETY: Java 在 onNativeClosed 回调之后才释放句柄
+            let context = unsafe { context_ref(call) };
+            let started = metrics_start(call);
+            if let Some(started) = started {
+                record_marshal(call, started);
+            }
+            let request = async {
+                match permits.acquire().await {
+                    Ok(_permit) => close_session(&task_id, &token, timeout).await,
+                    Err(_) => Err(Error::OtherError("Close was abandoned".into())),
+                }
+            };
+            let outcome = match run_cancellable(context, request).await {
+                Ok(result) => result.map_err(|err| (map_error_code(&err), err.to_string())),
+                Err(interrupted) => {
+                    let (code, message) = interrupted.describe();
+                    Err((code, message.to_string()))
+                }
+            };
+            record_elapsed(call, Metric::Network, started);
+            callback.closed(index as jint, call, outcome);
+        });
+    }
 }
 
 #[no_mangle]
@@ -190,6 +638,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeCreate(
     mut env: JNIEnv,
     _class: JClass,
     session_id: JString,
+    options: JString,
 ) -> jlong {
     let session_id: String = match env.get_string(&session_id) {
         Ok(value) => value.into(),
@@ -199,6 +648,25 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeCreate(
         }
     };
 
+    let options = if options.is_null() {
+        StreamOptions::default()
+    } else {
+        let json = match jstring_to_rust(&mut env, options) {
+            Ok(value) => value,
+            Err(err) => {
+                throw_string_error(&mut env, err);
+                return 0;
+            }
+        };
+        match serde_json::from_str::<StreamOptions>(&json) {
+            Ok(options) => options,
+            Err(err) => {
+                let _ = throw_with_code(&mut env, "JSON_ERROR", format!("Invalid options: {err}"));
+                return 0;
+            }
+        }
+    };
+
     match rt::runtime() {
         Ok(_) => {}
         Err(err) => {
@@ -207,7 +675,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeCreate(
         }
     }
 
-    let stream = Box::new(Mutex::new(JniTranscribeStream::new(&session_id)));
+    let stream = Box::new(Mutex::new(JniTranscribeStream::new(&session_id, &options)));
     Box::into_raw(stream) as jlong
 }
 
@@ -268,20 +736,47 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeSendBinary(
     _class: JClass,
     handle: jlong,
     data: JByteArray,
+    offset: jint,
+    length: jint,
 ) {
-    runtime_call(
-        &mut env,
-        handle,
-        data,
-        |env, data| match env.convert_byte_array(data) {
-            Ok(bytes) => Some(bytes),
-            Err(err) => {
-                let _ = throw_jni_error(env, &err);
-                None
-            }
-        },
-        |mut stream, payload| async move { stream.write_binary(payload).await },
-    );
+    send_frame(&mut env, handle, length as usize, |env, buf| {
+        // 由 JVM 直接拷贝到帧缓冲，避免 convert_byte_array 的临时 Vec；越界时 JVM 抛出异常
+        let raw = env.get_raw();
+        unsafe {
+            let get_region = (**raw)
+                .GetByteArrayRegion
+                .ok_or(jni::errors::Error::JNIEnvMethodNotFound("GetByteArrayRegion"))?;
+            get_region(raw, data.as_raw(), offset, length, buf.cast::<jbyte>());
+        }
+        if env.exception_check()? {
+            return Err(jni::errors::Error::JavaException);
+        }
+        Ok(())
+    });
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeSendDirect(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    buffer: JByteBuffer,
+    position: jint,
+    length: jint,
+) {
+    let address = match env.get_direct_buffer_address(&buffer) {
+        Ok(address) => address,
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return;
+        }
+    };
+
+    let source = unsafe { address.add(position as usize) };
+    send_frame(&mut env, handle, length as usize, |_, buf| {
+        unsafe { std::ptr::copy_nonoverlapping(source, buf, length as usize) };
+        Ok(())
+    });
 }
 
 #[no_mangle]
@@ -291,76 +786,407 @@ pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeSendText(
     handle: jlong,
     text: JString,
 ) {
-    runtime_call(
-        &mut env,
-        handle,
-        text,
-        |env, text| match env.get_string(&text) {
-            Ok(value) => Some(value.into()),
-            Err(err) => {
-                let _ = throw_jni_error(env, &err);
-                None
-            }
-        },
-        |mut stream, text| async move { stream.write_text(text).await },
-    );
+    let text: String = match env.get_string(&text) {
+        Ok(value) => value.into(),
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            return;
+        }
+    };
+
+    let Some((runtime, stream)) = lock_stream(&mut env, handle) else {
+        return;
+    };
+    capture::record(&stream.capture, RecordKind::TextSent, text.as_bytes());
+    dispatch(&mut env, &runtime, stream, Message::Text(text.into()));
 }
 
 #[no_mangle]
-pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeRead(
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeFlush(
     mut env: JNIEnv,
     _class: JClass,
     handle: jlong,
     timeout_millis: jlong,
-) -> jstring {
-    let timeout = if timeout_millis < 0 {
-        None
+) -> jboolean {
+    let queue = match lock_stream(&mut env, handle) {
+        Some((_, stream)) => stream.queue.clone(),
+        None => return JNI_FALSE,
+    };
+
+    // 同步发送时数据在 send 返回前已经写出
+    let flushed = match queue {
+        Some(queue) => queue.flush(Duration::from_millis(timeout_millis.max(0) as u64)),
+        None => true,
+    };
+    if flushed {
+        JNI_TRUE
     } else {
-        Some(Duration::from_millis(timeout_millis as u64))
+        JNI_FALSE
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeSendQueueStats(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jstring {
+    let queue = match lock_stream(&mut env, handle) {
+        Some((_, stream)) => stream.queue.clone(),
+        None => return ptr::null_mut(),
     };
 
-    let mutex = match unsafe { stream_ptr(handle) } {
-        Ok(mutex) => mutex,
+    match queue {
+        Some(queue) => to_jstring(&mut env, 0, queue.stats()),
+        None => ptr::null_mut(),
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeResultQueueStats(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jstring {
+    let results = match lock_stream(&mut env, handle) {
+        Some((_, stream)) => stream.results.clone(),
+        None => return ptr::null_mut(),
+    };
+
+    match results {
+        Some(results) => to_jstring(&mut env, 0, results.stats()),
+        None => ptr::null_mut(),
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeReconnectStats(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jstring {
+    let reconnect = match lock_stream(&mut env, handle) {
+        Some((_, stream)) => stream.reconnect.clone(),
+        None => return ptr::null_mut(),
+    };
+
+    match reconnect {
+        Some(reconnect) => to_jstring(&mut env, 0, reconnect.stats()),
+        None => ptr::null_mut(),
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeLagStats(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jstring {
+    let lag = match lock_stream(&mut env, handle) {
+        Some((_, stream)) => stream.lag.clone(),
+        None => return ptr::null_mut(),
+    };
+
+    match lag {
+        Some(lag) => to_jstring(&mut env, 0, lag.stats()),
+        None => ptr::null_mut(),
+    }
+}
+
+/// 开始抓包，已有抓包时先结束旧文件。
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeStartCapture(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    path: JString,
+) {
+    let path = match jstring_to_rust(&mut env, path) {
+        Ok(value) => value,
         Err(err) => {
-            let _ = throw_message(&mut env, err);
-            return ptr::null_mut();
+            throw_string_error(&mut env, err);
+            return;
         }
     };
+    let Some((_, stream)) = lock_stream(&mut env, handle) else {
+        return;
+    };
 
-    let receiver = match mutex.lock() {
-        Ok(stream) => {
-            let result = stream.clone_receiver();
-            drop(stream);
-            match result {
-                Ok(rx) => rx,
-                Err(err) => {
-                    let _ = throw_common_error(&mut env, &err);
-                    return ptr::null_mut();
-                }
+    let capture = match Capture::create(&path) {
+        Ok(capture) => capture,
+        Err(err) => {
+            let message = format!("Cannot create capture: {err}");
+            let _ = throw_with_code(&mut env, "OTHER_ERROR", message);
+            return;
+        }
+    };
+    let previous = stream
+        .capture
+        .lock()
+        .unwrap_or_else(|e| e.into_inner())
+        .replace(capture);
+    if let Some(previous) = previous {
+        let _ = previous.finish();
+    }
+}
+
+/// 结束抓包并返回统计 JSON，未在抓包时返回 null。
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeStopCapture(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jstring {
+    let Some((_, stream)) = lock_stream(&mut env, handle) else {
+        return ptr::null_mut();
+    };
+    let capture = stream.capture.lock().unwrap_or_else(|e| e.into_inner()).take();
+    drop(stream);
+
+    match capture.map(Capture::finish) {
+        Some(Ok(stats)) => to_jstring(&mut env, 0, stats),
+        Some(Err(err)) => {
+            let message = format!("Cannot finish capture: {err}");
+            let _ = throw_with_code(&mut env, "OTHER_ERROR", message);
+            ptr::null_mut()
+        }
+        None => ptr::null_mut(),
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeSetListener(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    target: JObject,
+) {
+    let notifier = if target.is_null() {
+        None
+    } else {
+        let vm = match env.get_java_vm() {
+            Ok(vm) => vm,
+            Err(err) => {
+                let _ = throw_jni_error(&mut env, &err);
+                return;
+            }
+        };
+        match env.new_global_ref(&target) {
+            Ok(target) => Some(Notifier { vm, target }),
+            Err(err) => {
+                let _ = throw_jni_error(&mut env, &err);
+                return;
             }
         }
+    };
+
+    let listener = match lock_stream(&mut env, handle) {
+        Some((_, stream)) => Arc::clone(&stream.listener),
+        None => return,
+    };
+    let previous = match listener.lock() {
+        Ok(mut guard) => std::mem::replace(&mut *guard, notifier),
         Err(_) => {
-            let _ = throw_message(&mut env, "Stream handle lock has been poisoned");
-            return ptr::null_mut();
+            let _ = throw_message(&mut env, "Stream listener lock has been poisoned");
+            return;
         }
     };
+    drop(previous);
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeIsFinished(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+) -> jboolean {
+    match lock_stream(&mut env, handle) {
+        Some((_, stream)) if stream.finished.load(Ordering::Acquire) => JNI_TRUE,
+        _ => JNI_FALSE,
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeRead(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    timeout_millis: jlong,
+) -> jobject {
+    let Some(results) = results_for(&mut env, handle) else {
+        return ptr::null_mut();
+    };
 
-    match JniTranscribeStream::wait_for_message(receiver, timeout) {
-        Ok(Some(message)) => match env.new_string(message) {
-            Ok(result) => result.into_raw(),
+    match results.recv(read_timeout(timeout_millis)) {
+        Ok(Some(received)) => match new_event(&mut env, &received.raw, &received.message) {
+            Ok(event) => event.into_raw(),
             Err(err) => {
                 let _ = throw_jni_error(&mut env, &err);
                 ptr::null_mut()
             }
         },
         Ok(None) => ptr::null_mut(),
+        Err(Overflowed) => throw_overflowed(&mut env),
+    }
+}
+
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeReadAvailable(
+    mut env: JNIEnv,
+    _class: JClass,
+    handle: jlong,
+    max: jint,
+    timeout_millis: jlong,
+) -> jobjectArray {
+    let Some(results) = results_for(&mut env, handle) else {
+        return ptr::null_mut();
+    };
+
+    let messages = match results.drain(read_timeout(timeout_millis), max as usize) {
+        Ok(messages) => messages,
+        Err(Overflowed) => return throw_overflowed(&mut env),
+    };
+
+    match new_event_array(&mut env, messages) {
+        Ok(array) => array,
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
+            ptr::null_mut()
+        }
+    }
+}
+
+/// 只在 Java 调用 `StreamEvent.parse` 解析自行取得的原文时使用，读取结果的路径直接带着解析结果。
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeStream_nativeParseEvent(
+    mut env: JNIEnv,
+    _class: JClass,
+    json: JString,
+) -> jobject {
+    let json: String = match env.get_string(&json) {
+        Ok(value) => value.into(),
         Err(err) => {
-            let _ = throw_common_error(&mut env, &err);
+            let _ = throw_jni_error(&mut env, &err);
+            return ptr::null_mut();
+        }
+    };
+    let message = StreamMessage::parse(&json);
+    match new_event(&mut env, &json, &message) {
+        Ok(event) => event.into_raw(),
+        Err(err) => {
+            let _ = throw_jni_error(&mut env, &err);
             ptr::null_mut()
         }
     }
 }
 
+/// Java `StreamEvent` 类与 native 构造方法，首次构造事件时查找一次。
+static EVENT_CLASS: OnceCell<(GlobalRef, JMethodID)> = OnceCell::new();
+
+const EVENT_CONSTRUCTOR: &str =
+    "(ILjava/lang/String;IDDILjava/lang/String;Ljava/lang/String;Ljava/lang/String;)V";
+
+/// 消息中没有对应字段时传给 Java 的取值，即 `StreamEvent.ABSENT`
+const ABSENT: jint = -1;
+
+/// 用读任务的解析结果直接构造 Java `StreamEvent`，不再经过 JSON 中转。
+fn new_event<'a>(
+    env: &mut JNIEnv<'a>,
+    raw: &str,
+    message: &StreamMessage,
+) -> jni::errors::Result<JObject<'a>> {
+    let (class, constructor) = EVENT_CLASS.get_or_try_init(|| {
+        let class = env.find_class("com/dianya/api/StreamEvent")?;
+        let constructor = env.get_method_id(&class, "<init>", EVENT_CONSTRUCTOR)?;
+        Ok::<_, jni::errors::Error>((env.new_global_ref(class)?, constructor))
+    })?;
+
+    let raw: JObject = env.new_string(raw)?.into();
+    let text = optional_string(env, message.text.as_deref())?;
+    let code = optional_string(env, message.code.as_deref())?;
+    let detail = optional_string(env, message.message.as_deref())?;
+    let args = [
+        JValue::Int(message.kind as jint).as_jni(),
+        JValue::Object(&text).as_jni(),
+        JValue::Int(message.segment_id.map_or(ABSENT, |id| id as jint)).as_jni(),
+        JValue::Double(message.start_time.unwrap_or(ABSENT as f64)).as_jni(),
+        JValue::Double(message.end_time.unwrap_or(ABSENT as f64)).as_jni(),
+        JValue::Int(message.speaker.map_or(ABSENT, |speaker| speaker as jint)).as_jni(),
+        JValue::Object(&code).as_jni(),
+        JValue::Object(&detail).as_jni(),
+        JValue::Object(&raw).as_jni(),
+    ];
+    // SAFETY: 构造方法取自同一个类，参数个数与类型和 EVENT_CONSTRUCTOR 一致
+    let event = unsafe {
+        env.new_object_unchecked(<&JClass>::from(class.as_obj()), *constructor, &args)
+    };
+    // 字符串已被事件对象引用，批量读取时及时释放局部引用，避免超出 JNI 局部引用表
+    for local in [raw, text, code, detail] {
+        env.delete_local_ref(local)?;
+    }
+    event
+}
+
+fn new_event_array(
+    env: &mut JNIEnv,
+    messages: Vec<Received>,
+) -> Result<jobjectArray, jni::errors::Error> {
+    let array = env.new_object_array(
+        messages.len() as i32,
+        "com/dianya/api/StreamEvent",
+        JObject::null(),
+    )?;
+    for (index, received) in messages.iter().enumerate() {
+        let event = new_event(env, &received.raw, &received.message)?;
+        env.set_object_array_element(&array, index as i32, &event)?;
+        env.delete_local_ref(event)?;
+    }
+    Ok(array.into_raw())
+}
+
+fn read_timeout(timeout_millis: jlong) -> Option<Duration> {
+    if timeout_millis < 0 {
+        None
+    } else {
+        Some(Duration::from_millis(timeout_millis as u64))
+    }
+}
+
+fn results_for(env: &mut JNIEnv, handle: jlong) -> Option<Arc<ResultQueue>> {
+    let mutex = match unsafe { stream_ptr(handle) } {
+        Ok(mutex) => mutex,
+        Err(err) => {
+            let _ = throw_message(env, err);
+            return None;
+        }
+    };
+
+    let result = match mutex.lock() {
+        Ok(stream) => stream.results(),
+        Err(_) => {
+            let _ = throw_message(env, "Stream handle lock has been poisoned");
+            return None;
+        }
+    };
+
+    match result {
+        Ok(results) => Some(results),
+        Err(err) => {
+            let _ = throw_common_error(env, &err);
+            None
+        }
+    }
+}
+
+fn throw_overflowed<T>(env: &mut JNIEnv) -> *mut T {
+    let _ = throw_with_code(
+        env,
+        "LIMIT_EXCEEDED",
+        "Result queue overflowed, stream has been disconnected",
+    );
+    ptr::null_mut()
+}
+
 unsafe fn stream_ptr(handle: jlong) -> Result<&'static StreamHandle, String> {
     if handle == 0 {
         return Err("Stream handle is null".into());
@@ -421,3 +1247,104 @@ where
         }
     }
 }
+
+fn send_frame<F>(env: &mut JNIEnv, handle: jlong, len: usize, fill: F)
+where
+    F: FnOnce(&mut JNIEnv, *mut u8) -> Result<(), jni::errors::Error>,
+{
+    let Some((runtime, mut stream)) = lock_stream(env, handle) else {
+        return;
+    };
+
+    let frame = match stream.fill_frame(len, |buf| fill(env, buf)) {
+        Ok(frame) => frame,
+        Err(err) => {
+            let _ = throw_jni_error(env, &err);
+            return;
+        }
+    };
+
+    capture::record(&stream.capture, RecordKind::Audio, &frame);
+    if let Some(lag) = &stream.lag {
+        lag.submit(frame.len());
+    }
+    dispatch(env, &runtime, stream, Message::Binary(frame));
+}
+
+/// 由音频管线调用，把一帧 PCM 交给流发送；返回 `false` 表示已抛出异常，调用方应停止继续发送。
+pub(crate) fn send_pcm(env: &mut JNIEnv, handle: jlong, frame: &[u8]) -> bool {
+    send_frame(env, handle, frame.len(), |_, buf| {
+        unsafe { std::ptr::copy_nonoverlapping(frame.as_ptr(), buf, frame.len()) };
+        Ok(())
+    });
+    !env.exception_check().unwrap_or(true)
+}
+
+fn lock_stream(
+    env: &mut JNIEnv,
+    handle: jlong,
+) -> Option<(Arc<Runtime>, MutexGuard<'static, JniTranscribeStream>)> {
+    let runtime = match rt::runtime() {
+        Ok(runtime) => runtime,
+        Err(err) => {
+            let _ = throw_message(env, err);
+            return None;
+        }
+    };
+
+    let mutex = match unsafe { stream_ptr(handle) } {
+        Ok(mutex) => mutex,
+        Err(err) => {
+            let _ = throw_message(env, err);
+            return None;
+        }
+    };
+
+    match mutex.lock() {
+        Ok(stream) => Some((runtime, stream)),
+        Err(_) => {
+            let _ = throw_message(env, "Stream handle lock has been poisoned");
+            None
+        }
+    }
+}
+
+/// 开启异步发送时入队后立即返回（释放流锁后再入队，BLOCK 策略等待时不阻塞 stop），
+/// 否则在当前线程同步写出。
+fn dispatch(
+    env: &mut JNIEnv,
+    runtime: &Runtime,
+    stream: MutexGuard<'_, JniTranscribeStream>,
+    message: Message,
+) {
+    // 未能发出的音频帧要从延迟统计中撤回，否则之后的写出时间会错位
+    let lag = stream.lag.clone().filter(|_| message.is_binary());
+    match stream.queue.clone() {
+        Some(queue) => {
+            drop(stream);
+            if let Err(err) = queue.push(message) {
+                if let Some(lag) = &lag {
+                    lag.discard();
+                }
+                err.throw(env);
+            }
+        }
+        None => {
+            let result = runtime.block_on(stream.write(message));
+            // 自动重连期间写入失败的音频已在重放缓冲中，重连后补发；读任务已退出时如实报错
+            let replayed = stream.reconnect.as_ref().is_some_and(|r| r.can_resume());
+            match (&result, &lag) {
+                (Ok(()), Some(lag)) => lag.written(),
+                (Err(_), Some(lag)) if replayed => lag.written(),
+                (Err(_), Some(lag)) => lag.discard(),
+                _ => {}
+            }
+            if let Err(err) = result {
+                if replayed {
+                    return;
+                }
+                let _ = throw_common_error(env, &err);
+            }
+        }
+    }
+}
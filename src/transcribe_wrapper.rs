@@ -1,12 +1,21 @@
-use crate::error::{throw_jni_error, throw_message};
+use crate::call_context::{metrics_start, record, record_elapsed, Metric};
+use crate::error::{map_error_code, throw_jni_error, throw_message};
 use crate::runtime as rt;
+use crate::status_delta::status_delta;
 use crate::utils::*;
 use jni::{
     objects::{JClass, JObject, JString},
-    sys::{jboolean, jbyteArray, jint, jstring},
+    sys::{jboolean, jbyteArray, jint, jlong, jstring},
     JNIEnv,
 };
+use common::Error;
+use serde::{Deserialize, Serialize};
+use std::path::{Path, PathBuf};
 use std::ptr;
+use std::sync::atomic::{AtomicU64, Ordering};
+use std::sync::Arc;
+use tokio::sync::Semaphore;
+use tokio::task::JoinSet;
 use transcribe::{
     transcribe::{
         callback as transcribe_callback, create_summary, export as transcribe_export,
@@ -42,6 +51,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeUpload(
     short_asr: jboolean,
     model: JString,
     token: JString,
+    call: jlong,
 ) -> jstring {
     let filepath = match jstring_to_rust(&mut env, filepath) {
         Ok(value) => value,
@@ -63,8 +73,15 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeUpload(
         Err(err) => return throw_common(&mut env, &err),
     };
 
+    if metrics_start(call).is_some() {
+        if let Ok(metadata) = std::fs::metadata(&filepath) {
+            record_request_bytes(call, metadata.len() as usize);
+        }
+    }
+
     let response = match block_on_result(
         &mut env,
+        call,
         upload(
             &filepath,
             jboolean_to_bool(transcribe_only),
@@ -77,7 +94,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeUpload(
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
 }
 
 #[no_mangle]
@@ -87,6 +104,48 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeStatus(
     task_id: JObject,
     share_id: JObject,
     token: JString,
+    call: jlong,
+) -> jstring {
+    let task_id = match jobject_to_string_option(&mut env, task_id) {
+        Ok(value) => value,
+        Err(err) => return throw_string_error(&mut env, err),
+    };
+
+    let share_id = match jobject_to_string_option(&mut env, share_id) {
+        Ok(value) => value,
+        Err(err) => return throw_string_error(&mut env, err),
+    };
+
+    let token = match jstring_to_rust(&mut env, token) {
+        Ok(value) => value,
+        Err(err) => return throw_string_error(&mut env, err),
+    };
+
+    let response = match block_on_result(
+        &mut env,
+        call,
+        transcribe_status(task_id.as_deref(), share_id.as_deref(), &token),
+    ) {
+        Some(value) => value,
+        None => return ptr::null_mut(),
+    };
+
+    to_jstring(&mut env, call, response)
+}
+
+/// 与 `nativeStatus` 相同的请求，但先在 native 层计算指纹：结果未变时只返回指纹，
+/// 已知分段未变时只返回新增分段，避免每次轮询都复制并解析完整结果。
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeStatusDelta(
+    mut env: JNIEnv,
+    _class: JClass,
+    task_id: JObject,
+    share_id: JObject,
+    token: JString,
+    fingerprint: jlong,
+    details_fingerprint: jlong,
+    details_count: jint,
+    call: jlong,
 ) -> jstring {
     let task_id = match jobject_to_string_option(&mut env, task_id) {
         Ok(value) => value,
@@ -105,13 +164,18 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeStatus(
 
     let response = match block_on_result(
         &mut env,
+        call,
         transcribe_status(task_id.as_deref(), share_id.as_deref(), &token),
     ) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    let known = details_count.max(0) as usize;
+    serialize_to_jstring(&mut env, call, || {
+        let delta = status_delta(&response, fingerprint, details_fingerprint, known)?;
+        serde_json::to_string(&delta).map_err(Error::from)
+    })
 }
 
 #[no_mangle]
@@ -120,11 +184,13 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeCallback(
     _class: JClass,
     request_body: JString,
     token: JString,
+    call: jlong,
 ) -> jstring {
     let request = match jstring_to_rust(&mut env, request_body) {
         Ok(value) => value,
         Err(err) => return throw_string_error(&mut env, err),
     };
+    record_request_bytes(call, request.len());
 
     let token = match jstring_to_rust(&mut env, token) {
         Ok(value) => value,
@@ -136,12 +202,12 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeCallback(
         Err(err) => return throw_common(&mut env, &err),
     };
 
-    let response = match block_on_result(&mut env, transcribe_callback(&request, &token)) {
+    let response = match block_on_result(&mut env, call, transcribe_callback(&request, &token)) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
 }
 
 #[no_mangle]
@@ -151,6 +217,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeGetShareLink(
     task_id: JString,
     expiration_days: jint,
     token: JString,
+    call: jlong,
 ) -> jstring {
     let task_id = match jstring_to_rust(&mut env, task_id) {
         Ok(value) => value,
@@ -168,12 +235,16 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeGetShareLink(
         Some(expiration_days)
     };
 
-    let response = match block_on_result(&mut env, get_share_link(&task_id, expiration, &token)) {
+    let response = match block_on_result(
+        &mut env,
+        call,
+        get_share_link(&task_id, expiration, &token),
+    ) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
 }
 
 #[no_mangle]
@@ -182,11 +253,13 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeCreateSummary(
     _class: JClass,
     utterances_json: JString,
     token: JString,
+    call: jlong,
 ) -> jstring {
     let utterances = match jstring_to_rust(&mut env, utterances_json) {
         Ok(value) => value,
         Err(err) => return throw_string_error(&mut env, err),
     };
+    record_request_bytes(call, utterances.len());
 
     let token = match jstring_to_rust(&mut env, token) {
         Ok(value) => value,
@@ -198,12 +271,12 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeCreateSummary(
         Err(err) => return throw_common(&mut env, &err),
     };
 
-    let response = match block_on_result(&mut env, create_summary(utterances, &token)) {
+    let response = match block_on_result(&mut env, call, create_summary(utterances, &token)) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
 }
 
 #[no_mangle]
@@ -214,6 +287,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeExport(
     export_type: JString,
     export_format: JString,
     token: JString,
+    call: jlong,
 ) -> jbyteArray {
     let task_id = match jstring_to_rust(&mut env, task_id) {
         Ok(value) => value,
@@ -247,15 +321,19 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeExport(
 
     let bytes = match block_on_result(
         &mut env,
+        call,
         transcribe_export(&task_id, export_type, export_format, &token),
     ) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    let data = bytes.to_vec();
+    record(call, Metric::ResponseBytes, bytes.len() as i64);
+    let copy_start = metrics_start(call);
+    let array = env.byte_array_from_slice(&bytes);
+    record_elapsed(call, Metric::JniCopy, copy_start);
 
-    match env.byte_array_from_slice(&data) {
+    match array {
         Ok(array) => array.into_raw(),
         Err(err) => {
             let _ = throw_jni_error(&mut env, &err);
@@ -264,6 +342,169 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeExport(
     }
 }
 
+/// Java `TranscribeApi.exportAll` 的请求体。
+#[derive(Deserialize)]
+#[serde(rename_all = "camelCase")]
+struct ExportAllRequest {
+    task_id: String,
+    types: Vec<String>,
+    formats: Vec<String>,
+    dir: String,
+    concurrency: usize,
+}
+
+/// 一个类型与格式组合的导出结果，`error_code` 为空表示成功。
+#[derive(Serialize)]
+struct ExportOutcome {
+    #[serde(skip)]
+    index: usize,
+    export_type: String,
+    export_format: String,
+    path: String,
+    bytes: u64,
+    error_code: Option<&'static str>,
+    error: Option<String>,
+}
+
+/// 并发导出所有类型与格式的组合，每个结果在 native 层直接写入文件，不经过 Java 堆。
+#[no_mangle]
+pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeExportAll(
+    mut env: JNIEnv,
+    _class: JClass,
+    request_json: JString,
+    token: JString,
+    call: jlong,
+) -> jstring {
+    let request_json = match jstring_to_rust(&mut env, request_json) {
+        Ok(value) => value,
+        Err(err) => return throw_string_error(&mut env, err),
+    };
+
+    let token = match jstring_to_rust(&mut env, token) {
+        Ok(value) => value,
+        Err(err) => return throw_string_error(&mut env, err),
+    };
+
+    let request: ExportAllRequest = match serde_json::from_str(&request_json) {
+        Ok(value) => value,
+        Err(err) => return throw_common(&mut env, &err.into()),
+    };
+
+    let outcomes = match block_on_result(&mut env, call, export_all(request, token)) {
+        Some(value) => value,
+        None => return ptr::null_mut(),
+    };
+
+    to_jstring(&mut env, call, outcomes)
+}
+
+async fn export_all(request: ExportAllRequest, token: String) -> Result<Vec<ExportOutcome>, Error> {
+    let permits = Arc::new(Semaphore::new(request.concurrency.max(1)));
+    let task_id: Arc<str> = request.task_id.into();
+    let token: Arc<str> = token.into();
+    let dir = PathBuf::from(request.dir);
+
+    // JoinSet 被丢弃（调用超时或取消）时会中止所有未完成的导出
+    let mut tasks = JoinSet::new();
+    for export_type in &request.types {
+        for export_format in &request.formats {
+            let index = tasks.len();
+            let name = format!(
+                "{}_{}.{}",
+                file_name_part(&task_id),
+                file_name_part(export_type),
+                file_name_part(export_format)
+            );
+            let path = dir.join(name);
+            let export_type = export_type.clone();
+            let export_format = export_format.clone();
+            let permits = Arc::clone(&permits);
+            let task_id = Arc::clone(&task_id);
+            let token = Arc::clone(&token);
+            tasks.spawn(async move {
+                let result = match permits.acquire().await {
+                    Ok(_permit) => {
+                        export_to_file(&task_id, &export_type, &export_format, &token, &path).await
+                    }
+                    Err(_) => Err(Error::OtherError("Export was abandoned".into())),
+                };
+                let (bytes, error_code, error) = match result {
+                    Ok(bytes) => (bytes, None, None),
+                    Err(err) => (0, Some(map_error_code(&err)), Some(err.to_string())),
+                };
+                ExportOutcome {
+                    index,
+                    export_type,
+                    export_format,
+                    path: path.to_string_lossy().into_owned(),
+                    bytes,
+                    error_code,
+                    error,
+                }
+            });
+        }
+    }
+
+    let mut outcomes = Vec::with_capacity(tasks.len());
+    while let Some(joined) = tasks.join_next().await {
+        match joined {
+            Ok(outcome) => outcomes.push(outcome),
+            Err(err) => return Err(Error::OtherError(format!("Export task failed: {err}"))),
+        }
+    }
+    outcomes.sort_by_key(|outcome| outcome.index);
+    Ok(outcomes)
+}
+
+async fn export_to_file(
+    task_id: &str,
+    export_type: &str,
+    export_format: &str,
+    token: &str,
+    path: &Path,
+) -> Result<u64, Error> {
+    let export_type = parse_export_type(export_type)?;
+    let export_format = parse_export_format(export_format)?;
+    let bytes = transcribe_export(task_id, export_type, export_format, token).await?;
+    let len = bytes.len() as u64;
+
+    let path = path.to_path_buf();
+    tokio::task::spawn_blocking(move || write_atomically(&path, &bytes))
+        .await
+        .map_err(|err| Error::OtherError(format!("Export writer failed: {err}")))??;
+    Ok(len)
+}
+
+/// 文件名的一部分：只保留 ASCII 字母、数字、`-` 与 `_`，其他字符（含路径分隔符和 `.`）替换为 `_`，
+/// 保证导出文件落在目标目录内。
+fn file_name_part(value: &str) -> String {
+    value
+        .chars()
+        .map(|c| if c.is_ascii_alphanumeric() || c == '-' || c == '_' { c } else { '_' })
+        .collect()
+}
+
+/// 先写入唯一命名的临时文件再重命名。被取消的导出中仍在执行的写入不会与之后的写入争用同一个临时文件。
+fn write_atomically(path: &Path, bytes: &[u8]) -> Result<(), Error> {
+    static NEXT_PART: AtomicU64 = AtomicU64::new(0);
+
+    let io_error = |err: std::io::Error| {
+        Error::OtherError(format!("Cannot write {}: {err}", path.display()))
+    };
+    if let Some(parent) = path.parent() {
+        std::fs::create_dir_all(parent).map_err(io_error)?;
+    }
+    let mut partial = path.as_os_str().to_owned();
+    let unique = NEXT_PART.fetch_add(1, Ordering::Relaxed);
+    partial.push(format!(".{}-{unique}.part", std::process::id()));
+    let partial = PathBuf::from(partial);
+    std::fs::write(&partial, bytes).map_err(io_error)?;
+    std::fs::rename(&partial, path).map_err(|err| {
+        let _ = std::fs::remove_file(&partial);
+        io_error(err)
+    })
+}
+
 #[no_mangle]
 pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeTranslateText(
     mut env: JNIEnv,
@@ -271,6 +512,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeTranslateText(
     text: JString,
     language: JString,
     token: JString,
+    call: jlong,
 ) -> jstring {
     let text = match jstring_to_rust(&mut env, text) {
         Ok(value) => value,
@@ -292,12 +534,12 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeTranslateText(
         Err(err) => return throw_common(&mut env, &err),
     };
 
-    let response = match block_on_result(&mut env, translate_text(&text, language, &token)) {
+    let response = match block_on_result(&mut env, call, translate_text(&text, language, &token)) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
 }
 
 #[no_mangle]
@@ -307,11 +549,13 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeTranslateUtteranc
     utterances_json: JString,
     language: JString,
     token: JString,
+    call: jlong,
 ) -> jstring {
     let utterances_json = match jstring_to_rust(&mut env, utterances_json) {
         Ok(value) => value,
         Err(err) => return throw_string_error(&mut env, err),
     };
+    record_request_bytes(call, utterances_json.len());
 
     let lang_str = match jstring_to_rust(&mut env, language) {
         Ok(value) => value,
@@ -334,12 +578,12 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeTranslateUtteranc
     };
 
     let response =
-        match block_on_result(&mut env, translate_utterance(utterances, language, &token)) {
+        match block_on_result(&mut env, call, translate_utterance(utterances, language, &token)) {
             Some(value) => value,
             None => return ptr::null_mut(),
         };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
 }
 
 #[no_mangle]
@@ -349,6 +593,7 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeTranslateTranscri
     task_id: JString,
     language: JString,
     token: JString,
+    call: jlong,
 ) -> jstring {
     let task_id = match jstring_to_rust(&mut env, task_id) {
         Ok(value) => value,
@@ -370,11 +615,14 @@ pub extern "system" fn Java_com_dianya_api_TranscribeApi_nativeTranslateTranscri
         Err(err) => return throw_common(&mut env, &err),
     };
 
-    let response = match block_on_result(&mut env, translate_transcribe(&task_id, language, &token))
-    {
+    let response = match block_on_result(
+        &mut env,
+        call,
+        translate_transcribe(&task_id, language, &token),
+    ) {
         Some(value) => value,
         None => return ptr::null_mut(),
     };
 
-    to_jstring(&mut env, response)
+    to_jstring(&mut env, call, response)
 }
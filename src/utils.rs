@@ -1,11 +1,15 @@
 use crate::{
+    call_context::{
+        context_ref, metrics_start, record, record_elapsed, record_marshal, run_interruptible,
+        Metric,
+    },
     error::{throw_common_error, throw_jni_error, throw_message},
     runtime as rt,
 };
 use common::Error;
 use jni::{
     objects::{JObject, JString},
-    sys::{jboolean, jstring},
+    sys::{jboolean, jlong, jstring},
     JNIEnv,
 };
 use serde::Deserialize;
@@ -76,7 +80,10 @@ pub fn parse_callback_request(json: &str) -> Result<CallbackRequest, Error> {
         .map_err(|e| Error::InvalidInput(format!("Failed to parse callback request: {e}")))
 }
 
-pub fn block_on_result<F, T>(env: &mut JNIEnv, fut: F) -> Option<T>
+/// 在 runtime 上阻塞执行 `fut`，`call` 为 Java `CallScope` 的句柄（0 表示无截止时间）。
+///
+/// 截止时间到达、调用被取消或 Java 线程被中断时会丢弃 `fut` 并抛出对应异常。
+pub fn block_on_result<F, T>(env: &mut JNIEnv, call: jlong, fut: F) -> Option<T>
 where
     F: Future<Output = Result<T, Error>>,
 {
@@ -88,12 +95,24 @@ where
         }
     };
 
-    match runtime.block_on(fut) {
-        Ok(value) => Some(value),
-        Err(err) => {
+    let context = unsafe { context_ref(call) };
+    let started = metrics_start(call);
+    if let Some(started) = started {
+        record_marshal(call, started);
+    }
+    let outcome = runtime.block_on(run_interruptible(env, context, fut));
+    record_elapsed(call, Metric::Network, started);
+
+    match outcome {
+        Ok(Ok(value)) => Some(value),
+        Ok(Err(err)) => {
             let _ = throw_common_error(env, &err);
             None
         }
+        Err(interrupted) => {
+            interrupted.throw(env);
+            None
+        }
     }
 }
 
@@ -126,21 +145,41 @@ pub fn throw_string_error(env: &mut JNIEnv, err: String) -> jstring {
     std::ptr::null_mut()
 }
 
-pub fn to_jstring<T>(env: &mut JNIEnv, value: T) -> jstring
+/// 记录请求体字节数，仅在调用采集指标时生效。
+pub fn record_request_bytes(call: jlong, len: usize) {
+    record(call, Metric::RequestBytes, len as i64);
+}
+
+pub fn to_jstring<T>(env: &mut JNIEnv, call: jlong, value: T) -> jstring
 where
     T: serde::Serialize,
 {
-    match serde_json::to_string(&value) {
-        Ok(json) => match env.new_string(json) {
-            Ok(result) => result.into_raw(),
-            Err(err) => {
-                let _ = throw_jni_error(env, &err);
-                std::ptr::null_mut()
+    serialize_to_jstring(env, call, || serde_json::to_string(&value).map_err(Error::from))
+}
+
+/// 在 SERIALIZE 阶段内执行 `serialize`，再把得到的 JSON 复制为 Java 字符串。
+pub fn serialize_to_jstring<F>(env: &mut JNIEnv, call: jlong, serialize: F) -> jstring
+where
+    F: FnOnce() -> Result<String, Error>,
+{
+    let serialize_start = metrics_start(call);
+    match serialize() {
+        Ok(json) => {
+            record_elapsed(call, Metric::Serialize, serialize_start);
+            record(call, Metric::ResponseBytes, json.len() as i64);
+            let copy_start = metrics_start(call);
+            let result = env.new_string(json);
+            record_elapsed(call, Metric::JniCopy, copy_start);
+            match result {
+                Ok(result) => result.into_raw(),
+                Err(err) => {
+                    let _ = throw_jni_error(env, &err);
+                    std::ptr::null_mut()
+                }
             }
-        },
+        }
         Err(err) => {
-            let error: Error = err.into();
-            let _ = throw_common_error(env, &error);
+            let _ = throw_common_error(env, &err);
             std::ptr::null_mut()
         }
     }
@@ -0,0 +1,384 @@
+use serde::Deserialize;
+use std::collections::VecDeque;
+use std::f32::consts::PI;
+
+const FFT_SIZE: usize = 512;
+/// 频谱平坦度只统计语音主要能量所在的频段
+const BAND_LOW_HZ: f32 = 300.0;
+const BAND_HIGH_HZ: f32 = 4_000.0;
+/// 自适应阈值比噪声底高出的幅度
+const NOISE_MARGIN_DB: f32 = 6.0;
+
+#[derive(Clone, Copy, Debug, Deserialize, PartialEq, Eq)]
+#[serde(rename_all = "SCREAMING_SNAKE_CASE")]
+pub enum VadMode {
+    Energy,
+    Spectral,
+}
+
+#[derive(Clone, Copy, Debug, Deserialize, PartialEq, Eq)]
+#[serde(rename_all = "SCREAMING_SNAKE_CASE")]
+pub enum SilenceAction {
+    /// 丢弃静音帧
+    Drop,
+    /// 静音期间每隔 `keepalive_millis` 发送一帧数字静音，保持服务端时间轴与会话活跃
+    Compress,
+}
+
+#[derive(Clone, Debug, Deserialize)]
+#[serde(default, rename_all = "camelCase")]
+pub struct VadOptions {
+    pub mode: VadMode,
+    pub threshold_db: f32,
+    pub flatness_threshold: f32,
+    pub hangover_millis: u32,
+    pub pre_roll_millis: u32,
+    pub silence_action: SilenceAction,
+    pub keepalive_millis: u32,
+}
+
+impl Default for VadOptions {
+    fn default() -> Self {
+        Self {
+            mode: VadMode::Energy,
+            threshold_db: -45.0,
+            flatness_threshold: 0.45,
+            hangover_millis: 300,
+            pre_roll_millis: 200,
+            silence_action: SilenceAction::Drop,
+            keepalive_millis: 1_000,
+        }
+    }
+}
+
+/// 以帧为单位的语音门限：语音帧及其前后的缓冲帧放行，其余静音帧丢弃或压缩。
+pub struct Vad {
+    options: VadOptions,
+    hangover_frames: usize,
+    pre_roll_frames: usize,
+    keepalive_frames: usize,
+    /// 最近的静音帧，语音开始时先补发，避免截掉起始音节
+    pre_roll: VecDeque<Vec<u8>>,
+    spare: Vec<Vec<u8>>,
+    silence: Vec<u8>,
+    speaking: bool,
+    hangover_left: usize,
+    silent_run: usize,
+    noise_floor_db: f32,
+    spectrum: Option<Spectrum>,
+    pub dropped: u64,
+    pub keepalive: u64,
+}
+
+impl Vad {
+    pub fn new(options: VadOptions, frame_millis: u32, frame_bytes: usize) -> Self {
+        let frames = |millis: u32| (millis as usize).div_ceil(frame_millis.max(1) as usize);
+        let spectrum = match options.mode {
+            VadMode::Energy => None,
+            VadMode::Spectral => Some(Spectrum::new()),
+        };
+
+        Self {
+            hangover_frames: frames(options.hangover_millis),
+            pre_roll_frames: frames(options.pre_roll_millis),
+            keepalive_frames: frames(options.keepalive_millis).max(1),
+            pre_roll: VecDeque::new(),
+            spare: Vec::new(),
+            silence: vec![0; frame_bytes],
+            speaking: false,
+            hangover_left: 0,
+            silent_run: 0,
+            noise_floor_db: options.threshold_db - 20.0,
+            spectrum,
+            dropped: 0,
+            keepalive: 0,
+            options,
+        }
+    }
+
+    pub fn is_speaking(&self) -> bool {
+        self.speaking
+    }
+
+    /// 处理一个整帧，需要发送的数据交给 `sink`；`sink` 返回 `false` 时同样返回 `false`。
+    ///
+    /// `sink` 的第二个参数是该帧比当前输入帧早多少帧：补发的前置帧大于 0，其余为 0。
+    pub fn gate<F>(&mut self, frame: &[u8], sink: &mut F) -> bool
+    where
+        F: FnMut(&[u8], u64) -> bool,
+    {
+        if self.is_voiced(frame) {
+            self.hangover_left = self.hangover_frames;
+            self.silent_run = 0;
+            if !self.speaking {
+                self.speaking = true;
+                // 前置帧是紧挨着当前帧之前的连续静音帧
+                let mut back = self.pre_roll.len() as u64;
+                while let Some(buffered) = self.pre_roll.pop_front() {
+                    let ok = sink(&buffered, back);
+                    back -= 1;
+                    self.spare.push(buffered);
+                    if !ok {
+                        return false;
+                    }
+                }
+            }
+            return sink(frame, 0);
+        }
+
+        if self.speaking {
+            if self.hangover_left > 0 {
+                self.hangover_left -= 1;
+                return sink(frame, 0);
+            }
+            self.speaking = false;
+        }
+
+        self.silent_run += 1;
+        if self.pre_roll_frames > 0 {
+            let mut buffer = self.spare.pop().unwrap_or_default();
+            buffer.clear();
+            buffer.extend_from_slice(frame);
+            self.pre_roll.push_back(buffer);
+            if self.pre_roll.len() > self.pre_roll_frames {
+                if let Some(evicted) = self.pre_roll.pop_front() {
+                    self.spare.push(evicted);
+                }
+                self.dropped += 1;
+            }
+        } else {
+            self.dropped += 1;
+        }
+
+        if self.options.silence_action == SilenceAction::Compress
+            && self.silent_run % self.keepalive_frames == 0
+        {
+            self.keepalive += 1;
+            return sink(&self.silence, 0);
+        }
+        true
+    }
+
+    fn is_voiced(&mut self, frame: &[u8]) -> bool {
+        let samples = frame.len() / 2;
+        if samples == 0 {
+            return false;
+        }
+        let energy: f64 = frame
+            .chunks_exact(2)
+            .map(|b| {
+                let v = i16::from_le_bytes([b[0], b[1]]) as f64;
+                v * v
+            })
+            .sum();
+        let rms = (energy / samples as f64).sqrt() / 32_768.0;
+        let level_db = 20.0 * (rms as f32 + 1e-10).log10();
+
+        let threshold = self
+            .options
+            .threshold_db
+            .max(self.noise_floor_db + NOISE_MARGIN_DB);
+        let mut voiced = level_db > threshold;
+        if voiced {
+            if let Some(spectrum) = self.spectrum.as_mut() {
+                voiced = spectrum.flatness(frame) < self.options.flatness_threshold;
+            }
+        }
+
+        if !voiced {
+            // 只在静音帧上跟踪噪声底，避免语音抬高阈值
+            self.noise_floor_db = self.noise_floor_db * 0.95 + level_db * 0.05;
+        }
+        voiced
+    }
+}
+
+/// 发送帧到采集帧的分段映射。丢弃或压缩静音后，服务端时间轴只包含实际发送的音频，
+/// 结果时间需要经此换算回采集音频的时间。每段不连续处记录一个断点，约 16 字节。
+#[derive(Default)]
+pub struct Timeline {
+    sent: u64,
+    /// `(发送帧序号, 采集帧序号)`：从该发送帧起连续发送的帧对应从该采集帧起连续采集的帧
+    breaks: Vec<(u64, u64)>,
+}
+
+impl Timeline {
+    /// 记录下一个发送帧来自第 `source` 个采集帧。
+    pub fn record(&mut self, source: u64) {
+        let contiguous = self
+            .breaks
+            .last()
+            .is_some_and(|&(sent, start)| start + (self.sent - sent) == source);
+        if !contiguous {
+            self.breaks.push((self.sent, source));
+        }
+        self.sent += 1;
+    }
+
+    /// 把发送音频中的时间（毫秒）换算为采集音频中的时间，尚无记录时原样返回。
+    pub fn source_millis(&self, sent_millis: f64, frame_millis: u32) -> f64 {
+        let frame_millis = frame_millis.max(1) as f64;
+        let frame = (sent_millis / frame_millis).floor().max(0.0) as u64;
+        let index = self.breaks.partition_point(|&(sent, _)| sent <= frame);
+        match index.checked_sub(1).map(|i| self.breaks[i]) {
+            Some((sent, source)) => sent_millis + (source as f64 - sent as f64) * frame_millis,
+            None => sent_millis,
+        }
+    }
+}
+
+/// 语音频段内的频谱平坦度（几何均值 / 算术均值）。浊音谐波明显，平坦度低；稳态噪声接近常数。
+struct Spectrum {
+    window: Vec<f32>,
+    twiddles: Vec<(f32, f32)>,
+    re: Vec<f32>,
+    im: Vec<f32>,
+}
+
+impl Spectrum {
+    fn new() -> Self {
+        let window = (0..FFT_SIZE)
+            .map(|i| 0.5 - 0.5 * (2.0 * PI * i as f32 / FFT_SIZE as f32).cos())
+            .collect();
+        let twiddles = (0..FFT_SIZE / 2)
+            .map(|k| {
+                let angle = -2.0 * PI * k as f32 / FFT_SIZE as f32;
+                (angle.cos(), angle.sin())
+            })
+            .collect();
+        Self {
+            window,
+            twiddles,
+            re: vec![0.0; FFT_SIZE],
+            im: vec![0.0; FFT_SIZE],
+        }
+    }
+
+    fn flatness(&mut self, frame: &[u8]) -> f32 {
+        // 取帧尾部最多 FFT_SIZE 个样本，不足时补零
+        let samples = frame.len() / 2;
+        let skip = samples.saturating_sub(FFT_SIZE);
+        self.re.fill(0.0);
+        self.im.fill(0.0);
+        for (i, b) in frame[skip * 2..].chunks_exact(2).enumerate() {
+            self.re[i] = i16::from_le_bytes([b[0], b[1]]) as f32 * self.window[i];
+        }
+        self.fft();
+
+        let bin_hz = crate::audio_pipeline::TARGET_RATE as f32 / FFT_SIZE as f32;
+        let low = (BAND_LOW_HZ / bin_hz) as usize;
+        let high = ((BAND_HIGH_HZ / bin_hz) as usize).min(FFT_SIZE / 2);
+        let mut log_sum = 0.0f64;
+        let mut sum = 0.0f64;
+        for k in low..high {
+            let power = (self.re[k] * self.re[k] + self.im[k] * self.im[k]) as f64 + 1e-12;
+            log_sum += power.ln();
+            sum += power;
+        }
+        let count = (high - low) as f64;
+        ((log_sum / count).exp() / (sum / count)) as f32
+    }
+
+    /// 原地迭代基 2 FFT。
+    fn fft(&mut self) {
+        let n = FFT_SIZE;
+        let mut j = 0;
+        for i in 1..n {
+            let mut bit = n >> 1;
+            while j & bit != 0 {
+                j ^= bit;
+                bit >>= 1;
+            }
+            j |= bit;
+            if i < j {
+                self.re.swap(i, j);
+                self.im.swap(i, j);
+            }
+        }
+
+        let mut len = 2;
+        while len <= n {
+            let stride = n / len;
+            for start in (0..n).step_by(len) {
+                for k in 0..len / 2 {
+                    let (wr, wi) = self.twiddles[k * stride];
+                    let a = start + k;
+                    let b = a + len / 2;
+                    let tr = self.re[b] * wr - self.im[b] * wi;
+                    let ti = self.re[b] * wi + self.im[b] * wr;
+                    self.re[b] = self.re[a] - tr;
+                    self.im[b] = self.im[a] - ti;
+                    self.re[a] += tr;
+                    self.im[a] += ti;
+                }
+            }
+            len <<= 1;
+        }
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    const FRAME_MILLIS: u32 = 20;
+
+    fn timeline(sources: &[u64]) -> Timeline {
+        let mut timeline = Timeline::default();
+        for &source in sources {
+            timeline.record(source);
+        }
+        timeline
+    }
+
+    #[test]
+    fn empty_timeline_returns_input() {
+        let timeline = Timeline::default();
+        assert_eq!(timeline.source_millis(1234.5, FRAME_MILLIS), 1234.5);
+    }
+
+    #[test]
+    fn contiguous_frames_share_one_break() {
+        let timeline = timeline(&[0, 1, 2, 3]);
+        assert_eq!(timeline.breaks, vec![(0, 0)]);
+        assert_eq!(timeline.source_millis(65.0, FRAME_MILLIS), 65.0);
+    }
+
+    #[test]
+    fn dropped_silence_shifts_later_frames() {
+        // 采集帧 3、4 被丢弃：发送帧 3 起对应采集帧 5
+        let timeline = timeline(&[0, 1, 2, 5, 6]);
+        assert_eq!(timeline.breaks, vec![(0, 0), (3, 5)]);
+
+        assert_eq!(timeline.source_millis(30.0, FRAME_MILLIS), 30.0);
+        assert_eq!(timeline.source_millis(59.9, FRAME_MILLIS), 59.9);
+        assert_eq!(timeline.source_millis(60.0, FRAME_MILLIS), 100.0);
+        assert_eq!(timeline.source_millis(70.0, FRAME_MILLIS), 110.0);
+        // 超出已记录范围时沿用最后一段的偏移
+        assert_eq!(timeline.source_millis(200.0, FRAME_MILLIS), 240.0);
+    }
+
+    #[test]
+    fn leading_silence_offsets_from_first_frame() {
+        let timeline = timeline(&[4, 5]);
+        assert_eq!(timeline.breaks, vec![(0, 4)]);
+        assert_eq!(timeline.source_millis(10.0, FRAME_MILLIS), 90.0);
+    }
+
+    #[test]
+    fn repeated_source_frame_starts_new_breaks() {
+        // 压缩静音时同一采集帧位置可能先后发送保活帧与语音帧
+        let timeline = timeline(&[0, 2, 2, 3]);
+        assert_eq!(timeline.breaks, vec![(0, 0), (1, 2), (2, 2)]);
+        assert_eq!(timeline.source_millis(25.0, FRAME_MILLIS), 45.0);
+        assert_eq!(timeline.source_millis(45.0, FRAME_MILLIS), 45.0);
+        assert_eq!(timeline.source_millis(65.0, FRAME_MILLIS), 65.0);
+    }
+
+    #[test]
+    fn negative_time_and_zero_frame_length_are_clamped() {
+        let timeline = timeline(&[3]);
+        assert_eq!(timeline.source_millis(-5.0, FRAME_MILLIS), 55.0);
+        assert_eq!(timeline.source_millis(0.5, 0), 3.5);
+    }
+}
@@ -0,0 +1,46 @@
+plugins {
+    java
+}
+
+group = "com.dianya"
+version = "0.2.1"
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(project(":java"))
+    compileOnly("org.jetbrains", "annotations", "24.1.0")
+}
+
+private val nativeDirProvider = providers.gradleProperty("jarNativeDir")
+
+tasks.register<JavaExec>("audioPipelineBenchmark") {
+    group = "benchmark"
+    description = "测量 AudioPipeline 每核每秒可处理的样本数"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.dianya.tools.AudioPipelineBenchmark")
+    nativeDirProvider.orNull?.let { jvmArgs("-Djava.library.path=$it") }
+}
+
+tasks.register<JavaExec>("streamEngineSoak") {
+    group = "benchmark"
+    description = "测量 StreamEngine 每 GB 内存可承载的会话数"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.dianya.tools.StreamEngineSoak")
+    nativeDirProvider.orNull?.let { jvmArgs("-Djava.library.path=$it") }
+}
+
+tasks.register<JavaExec>("streamLoadTest") {
+    group = "benchmark"
+    description = "多会话回放 WAV，测量发送抖动、结果延迟与资源占用"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.dianya.tools.StreamLoadTest")
+    nativeDirProvider.orNull?.let { jvmArgs("-Djava.library.path=$it") }
+}
@@ -0,0 +1,105 @@
+package com.dianya.tools;
+
+import com.dianya.api.AudioPipeline;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * {@link AudioPipeline} 吞吐基准：单线程处理合成音频，输出每核每秒处理的输入样本数和实时倍率。
+ *
+ * <pre>
+ * ./gradlew :tools:audioPipelineBenchmark -PjarNativeDir=target/release
+ * </pre>
+ */
+public final class AudioPipelineBenchmark {
+    private static final int SECONDS = 60;
+    private static final int CHUNK_MILLIS = 10;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private AudioPipelineBenchmark() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static void main(String[] args) {
+        Case[] cases = {
+                new Case(16_000, 1, AudioPipeline.Encoding.S16LE),
+                new Case(8_000, 1, AudioPipeline.Encoding.S16LE),
+                new Case(44_100, 2, AudioPipeline.Encoding.S16LE),
+                new Case(48_000, 2, AudioPipeline.Encoding.F32LE),
+        };
+        System.out.printf(Locale.ROOT, "%-24s %-9s %16s %12s%n", "input", "quality", "samples/s/core", "realtime");
+        for (Case c : cases) {
+            byte[] audio = c.synthesize();
+            for (AudioPipeline.Quality quality : AudioPipeline.Quality.values()) {
+                double nanos = measure(c, quality, audio);
+                double samplesPerSecond = (double) c.sampleRate * SECONDS / (nanos / 1e9);
+                System.out.printf(Locale.ROOT, "%-24s %-9s %16.0f %11.0fx%n",
+                        c, quality, samplesPerSecond, samplesPerSecond / c.sampleRate);
+            }
+        }
+    }
+
+    /** 返回处理全部音频的最短耗时（纳秒）。 */
+    private static double measure(Case c, AudioPipeline.Quality quality, byte[] audio) {
+        int chunk = c.bytesPerFrame() * c.sampleRate / 1000 * CHUNK_MILLIS;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            try (AudioPipeline pipeline = new AudioPipeline(c.sampleRate, c.channels, c.encoding,
+                    quality, AudioPipeline.DEFAULT_FRAME_MILLIS)) {
+                long start = System.nanoTime();
+                for (int offset = 0; offset < audio.length; offset += chunk) {
+                    pipeline.process(audio, offset, Math.min(chunk, audio.length - offset));
+                }
+                pipeline.flush();
+                long elapsed = System.nanoTime() - start;
+                if (round >= WARMUP_ROUNDS) {
+                    best = Math.min(best, elapsed);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static final class Case {
+        final int sampleRate;
+        final int channels;
+        final AudioPipeline.Encoding encoding;
+
+        Case(int sampleRate, int channels, AudioPipeline.Encoding encoding) {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.encoding = encoding;
+        }
+
+        int bytesPerFrame() {
+            return channels * (encoding == AudioPipeline.Encoding.S16LE ? 2 : 4);
+        }
+
+        /** 440 Hz 正弦叠加少量噪声。 */
+        byte[] synthesize() {
+            int frames = sampleRate * SECONDS;
+            ByteBuffer buffer = ByteBuffer.allocate(frames * bytesPerFrame()).order(ByteOrder.LITTLE_ENDIAN);
+            Random random = new Random(42);
+            for (int i = 0; i < frames; i++) {
+                double value = 0.5 * Math.sin(2 * Math.PI * 440 * i / sampleRate) + 0.01 * random.nextGaussian();
+                for (int ch = 0; ch < channels; ch++) {
+                    if (encoding == AudioPipeline.Encoding.S16LE) {
+                        buffer.putShort((short) (value * 32767));
+                    } else {
+                        buffer.putFloat((float) value);
+                    }
+                }
+            }
+            return buffer.array();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d Hz %dch %s", sampleRate, channels, encoding);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.dianya.tools;
+
+import com.dianya.api.DianyaRuntime;
+import com.dianya.api.ModelType;
+import com.dianya.api.StreamEngine;
+import com.dianya.api.TranscribeStream;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link StreamEngine} 容量测试：打开 N 个会话并持续发送静音帧，按进程常驻内存（VmRSS）的增量
+ * 估算每 GB 内存可承载的会话数。
+ *
+ * <pre>
+ * ./gradlew :tools:streamEngineSoak -PjarNativeDir=target/release --args="&lt;token&gt; 5000 60"
+ * </pre>
+ *
+ * <p>参数依次为 token、会话数、发送时长（秒）。每个会话都会调用一次 {@code createSession}，
+ * 请使用测试账号或指向本地替身服务的构建。</p>
+ */
+public final class StreamEngineSoak {
+    private static final int FRAME_BYTES = 1280; // 40ms 16kHz s16 单声道
+    private static final long FRAME_MILLIS = 40L;
+
+    private StreamEngineSoak() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: StreamEngineSoak <token> <sessions> [seconds]");
+            System.exit(2);
+        }
+        String token = args[0];
+        int count = Integer.parseInt(args[1]);
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        DianyaRuntime.initialize();
+        AtomicLong messages = new AtomicLong();
+        long baseline = residentBytes();
+
+        List<StreamEngine.Session> sessions = new ArrayList<>(count);
+        try (StreamEngine engine = new StreamEngine()) {
+            StreamEngine.Listener listener = (session, message) -> messages.incrementAndGet();
+            for (int i = 0; i < count; i++) {
+                String sessionId = TranscribeStream.createSession(ModelType.SPEED, token).sessionId;
+                sessions.add(engine.open(sessionId, listener));
+                if ((i + 1) % 500 == 0) {
+                    System.out.printf(Locale.ROOT, "opened %d sessions%n", i + 1);
+                }
+            }
+            long opened = residentBytes();
+
+            byte[] silence = new byte[FRAME_BYTES];
+            long deadline = System.currentTimeMillis() + seconds * 1000L;
+            long failures = 0;
+            while (System.currentTimeMillis() < deadline) {
+                long tick = System.currentTimeMillis();
+                for (StreamEngine.Session session : sessions) {
+                    try {
+                        session.sendBinary(silence);
+                    } catch (RuntimeException e) {
+                        failures++;
+                    }
+                }
+                Thread.sleep(Math.max(0L, FRAME_MILLIS - (System.currentTimeMillis() - tick)));
+            }
+            long steady = residentBytes();
+
+            double perSession = (double) (steady - baseline) / count;
+            System.out.printf(Locale.ROOT, "sessions            %d%n", count);
+            System.out.printf(Locale.ROOT, "rss after open      %.1f MiB (+%.1f)%n",
+                    opened / 1048576.0, (opened - baseline) / 1048576.0);
+            System.out.printf(Locale.ROOT, "rss steady          %.1f MiB (+%.1f)%n",
+                    steady / 1048576.0, (steady - baseline) / 1048576.0);
+            System.out.printf(Locale.ROOT, "bytes per session   %.0f%n", perSession);
+            System.out.printf(Locale.ROOT, "sessions per GB     %.0f%n", (1L << 30) / perSession);
+            System.out.printf(Locale.ROOT, "messages received   %d, send failures %d%n", messages.get(), failures);
+            System.out.printf(Locale.ROOT, "engine              written=%d errors=%d dropped=%d%n",
+                    engine.getStats().writtenFrames, engine.getStats().writeErrors,
+                    engine.getStats().droppedEvents);
+
+            for (StreamEngine.Session session : sessions) {
+                session.close();
+            }
+        }
+    }
+
+    /** Linux 读取 /proc/self/status 的 VmRSS，其他平台退化为 JVM 堆占用。 */
+    private static long residentBytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    String kb = line.substring(6).trim().split("\\s+")[0];
+                    return Long.parseLong(kb) * 1024L;
+                }
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // 回退到堆占用
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
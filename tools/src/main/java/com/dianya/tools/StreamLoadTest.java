@@ -0,0 +1,387 @@
+package com.dianya.tools;
+
+import com.dianya.api.AudioPipeline;
+import com.dianya.api.DianyaRuntime;
+import com.dianya.api.Histogram;
+import com.dianya.api.ModelType;
+import com.dianya.api.StreamEvent;
+import com.dianya.api.StreamSubscriber;
+import com.dianya.api.StreamSubscription;
+import com.dianya.api.TranscribeStream;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 多会话实时转写压测：N 个 {@link TranscribeStream} 按实时或 N 倍速回放 WAV 文件，输出发送抖动、
+ * 结果延迟的 p50/p99/p999，以及进程 CPU、常驻内存和线程数。
+ *
+ * <pre>
+ * ./gradlew :tools:streamLoadTest -PjarNativeDir=target/release --args="&lt;token&gt; 200 1.0 a.wav b.wav"
+ * </pre>
+ *
+ * <p>参数依次为 token、会话数、倍速（0 表示不限速）和一个或多个 WAV 文件，第 i 个会话回放第
+ * {@code i % 文件数} 个文件。WAV 会先经 {@link AudioPipeline} 转换为 16kHz 单声道 40ms 帧，
+ * 转换不计入测量。</p>
+ *
+ * <ul>
+ *     <li>发送抖动：每帧实际开始发送的时间与按倍速计算的计划时间之差；</li>
+ *     <li>结果延迟：收到带 {@code end_time} 的结果时，距离覆盖该时间点的音频帧发送完成的时间；</li>
+ *     <li>发送线程数与 CPU 核数相同，每个线程负责一部分会话，避免压测工具自身的线程数随会话数增长。</li>
+ * </ul>
+ *
+ * <p>每个会话都会调用一次 {@code createSession}，请使用测试账号或指向本地替身服务的构建。</p>
+ */
+public final class StreamLoadTest {
+    private static final int FRAME_MILLIS = AudioPipeline.DEFAULT_FRAME_MILLIS;
+    private static final long DRAIN_MILLIS = 5_000L;
+    private static final long SAMPLE_MILLIS = 1_000L;
+
+    private StreamLoadTest() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("usage: StreamLoadTest <token> <sessions> <speed> <wav> [<wav>...]");
+            System.exit(2);
+        }
+        String token = args[0];
+        int count = Integer.parseInt(args[1]);
+        double speed = Double.parseDouble(args[2]);
+
+        DianyaRuntime.initialize();
+        List<byte[][]> audio = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            audio.add(loadFrames(args[i]));
+        }
+
+        Histogram jitter = new Histogram();
+        Histogram latency = new Histogram();
+        Sampler sampler = new Sampler();
+        List<Client> clients = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                TranscribeStream.SessionCreateResponse session = TranscribeStream.createSession(ModelType.SPEED, token);
+                Client client = new Client(session, audio.get(i % audio.size()), latency);
+                clients.add(client);
+                client.open();
+                if ((i + 1) % 100 == 0) {
+                    System.out.printf(Locale.ROOT, "opened %d sessions%n", i + 1);
+                }
+            }
+
+            sampler.start();
+            long started = System.nanoTime();
+            int senders = Math.min(count, Runtime.getRuntime().availableProcessors());
+            CountDownLatch done = new CountDownLatch(senders);
+            for (int shard = 0; shard < senders; shard++) {
+                List<Client> assigned = new ArrayList<>();
+                for (int i = shard; i < count; i += senders) {
+                    assigned.add(clients.get(i));
+                }
+                Thread sender = new Thread(() -> {
+                    try {
+                        send(assigned, started, speed, jitter);
+                    } finally {
+                        done.countDown();
+                    }
+                }, "load-sender-" + shard);
+                sender.setDaemon(true);
+                sender.start();
+            }
+            done.await();
+            double sendSeconds = (System.nanoTime() - started) / 1e9;
+            Thread.sleep(DRAIN_MILLIS);
+            sampler.stop();
+
+            long frames = 0;
+            long failures = 0;
+            long messages = 0;
+            for (Client client : clients) {
+                frames += client.sent;
+                failures += client.failures;
+                messages += client.messages.get();
+            }
+            System.out.printf(Locale.ROOT, "sessions            %d, speed %s%n", count,
+                    speed > 0 ? speed + "x" : "unlimited");
+            System.out.printf(Locale.ROOT, "frames sent         %d in %.1fs, send failures %d%n",
+                    frames, sendSeconds, failures);
+            System.out.printf(Locale.ROOT, "messages received   %d%n", messages);
+            print("send jitter", jitter);
+            print("result latency", latency);
+            System.out.printf(Locale.ROOT, "cpu                 %.2f cores avg, %.2f peak%n",
+                    sampler.averageCores(), sampler.peakCores);
+            System.out.printf(Locale.ROOT, "rss                 %.1f MiB peak (baseline %.1f)%n",
+                    sampler.peakRss / 1048576.0, sampler.baselineRss / 1048576.0);
+            System.out.printf(Locale.ROOT, "threads             %d peak (baseline %d)%n",
+                    sampler.peakThreads, sampler.baselineThreads);
+        } finally {
+            for (Client client : clients) {
+                client.close(token);
+            }
+        }
+    }
+
+    /** 按计划时间依次为每个会话发送下一帧；倍速不大于 0 时不等待。 */
+    private static void send(List<Client> clients, long started, double speed, Histogram jitter) {
+        long frameNanos = speed > 0 ? (long) (TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS) / speed) : 0L;
+        int total = 0;
+        for (Client client : clients) {
+            total = Math.max(total, client.frames.length);
+        }
+        for (int index = 0; index < total; index++) {
+            long due = started + index * frameNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            for (Client client : clients) {
+                if (index < client.frames.length) {
+                    if (frameNanos > 0) {
+                        jitter.record(System.nanoTime() - due);
+                    }
+                    client.send(index);
+                }
+            }
+        }
+    }
+
+    private static void print(String name, Histogram histogram) {
+        System.out.printf(Locale.ROOT, "%-19s n=%d p50=%.1fms p99=%.1fms p999=%.1fms max=%.1fms%n", name,
+                histogram.getCount(), histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMax() / 1e6);
+    }
+
+    /** 读取 WAV 并转换为 16kHz 单声道 s16 的 40ms 帧。 */
+    private static byte[][] loadFrames(String path) throws IOException {
+        ByteBuffer wav = ByteBuffer.wrap(Files.readAllBytes(Paths.get(path))).order(ByteOrder.LITTLE_ENDIAN);
+        if (wav.remaining() < 12 || wav.getInt(0) != 0x46464952 || wav.getInt(8) != 0x45564157) {
+            throw new IOException("Not a RIFF/WAVE file: " + path);
+        }
+        int format = 0;
+        int channels = 0;
+        int sampleRate = 0;
+        int bits = 0;
+        int offset = 12;
+        while (offset + 8 <= wav.limit()) {
+            int id = wav.getInt(offset);
+            int size = wav.getInt(offset + 4);
+            int body = offset + 8;
+            if (id == 0x20746d66) { // "fmt "
+                format = wav.getShort(body) & 0xffff;
+                channels = wav.getShort(body + 2) & 0xffff;
+                sampleRate = wav.getInt(body + 4);
+                bits = wav.getShort(body + 14) & 0xffff;
+            } else if (id == 0x61746164) { // "data"
+                int length = Math.min(size, wav.limit() - body);
+                try (AudioPipeline pipeline = new AudioPipeline(sampleRate, channels, encoding(format, bits))) {
+                    byte[] head = pipeline.process(wav.array(), body, length);
+                    byte[] tail = pipeline.flush();
+                    int frameBytes = pipeline.getFrameBytes();
+                    int frames = (head.length + tail.length) / frameBytes;
+                    byte[][] result = new byte[frames][frameBytes];
+                    ByteBuffer all = ByteBuffer.allocate(head.length + tail.length).put(head).put(tail);
+                    all.flip();
+                    for (byte[] frame : result) {
+                        all.get(frame);
+                    }
+                    return result;
+                }
+            }
+            offset = body + size + (size & 1);
+        }
+        throw new IOException("WAV file has no fmt/data chunk: " + path);
+    }
+
+    private static AudioPipeline.Encoding encoding(int format, int bits) throws IOException {
+        if (format == 3 && bits == 32) {
+            return AudioPipeline.Encoding.F32LE;
+        }
+        if (format == 1 || format == 0xfffe) {
+            switch (bits) {
+                case 8:
+                    return AudioPipeline.Encoding.U8;
+                case 16:
+                    return AudioPipeline.Encoding.S16LE;
+                case 32:
+                    return AudioPipeline.Encoding.S32LE;
+                default:
+                    break;
+            }
+        }
+        throw new IOException("Unsupported WAV format " + format + "/" + bits + " bits");
+    }
+
+    /** 一个压测会话，结果在 SDK 的共享分发线程上回调。 */
+    private static final class Client implements StreamSubscriber {
+        final TranscribeStream.SessionCreateResponse session;
+        final byte[][] frames;
+        final Histogram latency;
+        final TranscribeStream stream;
+        /** 每帧发送完成的时间，尚未发送为 0。 */
+        final AtomicLongArray sentAt;
+        final AtomicLong messages = new AtomicLong();
+        long sent;
+        long failures;
+
+        Client(TranscribeStream.SessionCreateResponse session, byte[][] frames, Histogram latency) {
+            this.session = session;
+            this.frames = frames;
+            this.latency = latency;
+            this.stream = new TranscribeStream(session.sessionId);
+            this.sentAt = new AtomicLongArray(frames.length);
+        }
+
+        void open() {
+            stream.start();
+            stream.subscribe(this);
+        }
+
+        void send(int index) {
+            try {
+                stream.sendBinary(frames[index]);
+                sentAt.set(index, System.nanoTime());
+                sent++;
+            } catch (RuntimeException e) {
+                failures++;
+            }
+        }
+
+        @Override
+        public void onSubscribe(StreamSubscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onEvent(StreamEvent event) {
+            long now = System.nanoTime();
+            messages.incrementAndGet();
+            if (event.endTime == StreamEvent.ABSENT) {
+                return;
+            }
+            int index = Math.min(frames.length - 1, (int) (event.endTime * 1000 / FRAME_MILLIS));
+            long at = index >= 0 ? sentAt.get(index) : 0L;
+            if (at != 0L) {
+                latency.record(now - at);
+            }
+        }
+
+        void close(String token) {
+            try {
+                stream.close();
+                TranscribeStream.closeSession(session.taskId, token, 5L);
+            } catch (RuntimeException ignored) {
+                // 会话到期后服务端也会回收
+            }
+        }
+    }
+
+    /** 每秒采样进程 CPU 时间、常驻内存与线程数（含 native 线程）。 */
+    private static final class Sampler {
+        final long baselineRss = residentBytes();
+        final int baselineThreads = threadCount();
+        final Thread thread = new Thread(this::run, "load-sampler");
+        volatile boolean running = true;
+        long startedNanos;
+        long startedCpu;
+        long stoppedNanos;
+        long stoppedCpu;
+        double peakCores;
+        long peakRss;
+        int peakThreads;
+
+        void start() {
+            startedNanos = System.nanoTime();
+            startedCpu = processCpuNanos();
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.interrupt();
+            thread.join();
+            stoppedNanos = System.nanoTime();
+            stoppedCpu = processCpuNanos();
+        }
+
+        double averageCores() {
+            return (double) (stoppedCpu - startedCpu) / (stoppedNanos - startedNanos);
+        }
+
+        private void run() {
+            long lastNanos = startedNanos;
+            long lastCpu = startedCpu;
+            while (running) {
+                try {
+                    Thread.sleep(SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long nanos = System.nanoTime();
+                long cpu = processCpuNanos();
+                peakCores = Math.max(peakCores, (double) (cpu - lastCpu) / (nanos - lastNanos));
+                peakRss = Math.max(peakRss, residentBytes());
+                peakThreads = Math.max(peakThreads, threadCount());
+                lastNanos = nanos;
+                lastCpu = cpu;
+            }
+        }
+    }
+
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return 0L;
+    }
+
+    /** Linux 读取 /proc/self/status 的 VmRSS，其他平台退化为 JVM 堆占用。 */
+    private static long residentBytes() {
+        String kb = procStatus("VmRSS:");
+        if (kb != null) {
+            return Long.parseLong(kb.split("\\s+")[0]) * 1024L;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Linux 读取 /proc/self/status 的 Threads（包含 Tokio 等 native 线程），其他平台只统计 Java 线程。 */
+    private static int threadCount() {
+        String threads = procStatus("Threads:");
+        return threads != null ? Integer.parseInt(threads) : ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    private static String procStatus(String key) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+                if (line.startsWith(key)) {
+                    return line.substring(key.length()).trim();
+                }
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // 非 Linux 平台
+        }
+        return null;
+    }
+}